@@ -0,0 +1,150 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.knime.core.data.collection.ListCell;
+import org.knime.core.data.collection.SetCell;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
+
+/**
+ * Tests the canonical (interned) instances and the memoized checks in {@link DataType}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class DataTypeInterningTest {
+
+    /** Native types are identical no matter which of the getType methods is used. */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testNativeTypesAreCanonical() {
+        assertThat(DataType.getType(IntCell.class), sameInstance(IntCell.TYPE));
+        assertThat(DataType.getType(IntCell.class, null), sameInstance(IntCell.TYPE));
+        assertThat(DataType.getType(IntCell.class, null, Collections.EMPTY_LIST), sameInstance(IntCell.TYPE));
+        assertThat(DataType.getType(ListCell.class, StringCell.TYPE),
+            sameInstance(DataType.getType(ListCell.class, StringCell.TYPE)));
+    }
+
+    /** Common super types and clones are interned and memoized. */
+    @Test
+    public void testNonNativeTypesAreCanonical() {
+        DataType t1 = DataType.getCommonSuperType(IntCell.TYPE, StringCell.TYPE);
+        assertThat(DataType.getCommonSuperType(IntCell.TYPE, StringCell.TYPE), sameInstance(t1));
+        assertThat(DataType.getCommonSuperType(StringCell.TYPE, IntCell.TYPE), is(t1));
+
+        DataType listSuper = DataType.getCommonSuperType(DataType.getType(ListCell.class, IntCell.TYPE),
+            DataType.getType(SetCell.class, DoubleCell.TYPE));
+        assertThat(listSuper.getCollectionElementType(),
+            sameInstance(DataType.getCommonSuperType(IntCell.TYPE, DoubleCell.TYPE)));
+
+        DataType clone1 = DataType.cloneChangePreferredValue(LongCell.TYPE, DoubleValue.class);
+        DataType clone2 = DataType.cloneChangePreferredValue(LongCell.TYPE, DoubleValue.class);
+        assertThat(clone2, sameInstance(clone1));
+        assertThat(clone1.getPreferredValueClass() == DoubleValue.class, is(true));
+        assertThat(clone1.getCellClass() == null, is(true));
+    }
+
+    /** Memoized compatibility checks return the same answers as before. */
+    @Test
+    public void testIsCompatible() {
+        for (int i = 0; i < 2; i++) {
+            assertThat(IntCell.TYPE.isCompatible(DoubleValue.class), is(true));
+            assertThat(IntCell.TYPE.isCompatible(StringValue.class), is(false));
+            assertThat(DataType.getMissingCell().getType().isCompatible(StringValue.class), is(true));
+        }
+    }
+
+    /** Concurrent first requests of a type all get the same instance. */
+    @Test(timeout = 30000)
+    public void testConcurrentLookup() throws Exception {
+        ExecutorService service = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<DataType>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                futures.add(service.submit(new Callable<DataType>() {
+                    @Override
+                    public DataType call() {
+                        return DataType.getType(SetCell.class, DataType.getType(ListCell.class, LongCell.TYPE));
+                    }
+                }));
+            }
+            DataType first = futures.get(0).get();
+            for (Future<DataType> f : futures) {
+                assertThat(f.get(), sameInstance(first));
+            }
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    /** Interned non-native types are not kept alive by the intern table. */
+    @Test(timeout = 30000)
+    public void testNonNativeTypesCanBeCollected() throws Exception {
+        DataType clone = DataType.cloneChangePreferredValue(IntCell.TYPE, FuzzyIntervalValue.class);
+        assertThat(DataType.cloneChangePreferredValue(IntCell.TYPE, FuzzyIntervalValue.class), sameInstance(clone));
+        WeakReference<DataType> ref = new WeakReference<>(clone);
+        clone = null;
+        while (ref.get() != null) {
+            System.gc();
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.node.KNIMEConstants;
+
+/**
+ * Tests for {@link PrefetchRowIterator}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class PrefetchRowIteratorTest {
+
+    /** Source iterator generating a given number of rows, optionally failing after some rows. */
+    private static final class TestIterator extends CloseableRowIterator {
+
+        private final int m_rowCount;
+
+        private final int m_failAt;
+
+        private final AtomicBoolean m_isClosed = new AtomicBoolean();
+
+        private int m_index;
+
+        TestIterator(final int rowCount, final int failAt) {
+            m_rowCount = rowCount;
+            m_failAt = failAt;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !m_isClosed.get() && m_index < m_rowCount;
+        }
+
+        @Override
+        public DataRow next() {
+            if (m_index == m_failAt) {
+                throw new IllegalStateException("Failing at row " + m_index);
+            }
+            return new DefaultRow("Row" + m_index++, new double[0]);
+        }
+
+        @Override
+        public void close() {
+            m_isClosed.set(true);
+        }
+    }
+
+    /** All rows are returned in order and the source gets closed. */
+    @Test(timeout = 10000)
+    public void testIterateAll() throws Exception {
+        for (int prefetchRows : new int[]{1, 100, 10000}) {
+            TestIterator source = new TestIterator(1234, -1);
+            int count = 0;
+            try (PrefetchRowIterator it = new PrefetchRowIterator(source, prefetchRows)) {
+                while (it.hasNext()) {
+                    assertThat("Unexpected row", it.next().getKey().getString(), equalTo("Row" + count));
+                    count++;
+                }
+                assertThat("Iterator not at end", it.hasNext(), is(false));
+            }
+            assertThat("Wrong row count", count, is(1234));
+            assertThat("Source not closed", source.m_isClosed.get(), is(true));
+        }
+    }
+
+    /** Closing early stops the background reading and closes the source before returning. */
+    @Test(timeout = 10000)
+    public void testCloseEarly() throws Exception {
+        TestIterator source = new TestIterator(Integer.MAX_VALUE, -1);
+        PrefetchRowIterator it = new PrefetchRowIterator(source, 100);
+        assertThat(it.next().getKey().getString(), equalTo("Row0"));
+        it.close();
+        assertThat("Source not closed", source.m_isClosed.get(), is(true));
+        assertThat("Closed iterator has rows", it.hasNext(), is(false));
+    }
+
+    /** More iterators than background threads are read alternately (as in a sorter merge) without blocking. */
+    @Test(timeout = 30000)
+    public void testManyIterators() throws Exception {
+        final int iteratorCount = 4 * Runtime.getRuntime().availableProcessors() + 8;
+        final List<TestIterator> sources = new ArrayList<>();
+        final List<PrefetchRowIterator> iterators = new ArrayList<>();
+        for (int i = 0; i < iteratorCount; i++) {
+            TestIterator source = new TestIterator(1000, -1);
+            sources.add(source);
+            iterators.add(new PrefetchRowIterator(source, 10));
+        }
+        for (int row = 0; row < 1000; row++) {
+            for (PrefetchRowIterator it : iterators) {
+                assertThat("Unexpected row", it.next().getKey().getString(), equalTo("Row" + row));
+            }
+        }
+        for (int i = 0; i < iteratorCount; i++) {
+            assertThat("Iterator not at end", iterators.get(i).hasNext(), is(false));
+            iterators.get(i).close();
+            assertThat("Source not closed", sources.get(i).m_isClosed.get(), is(true));
+        }
+    }
+
+    /** An iterator that is dropped without being closed stops the background reading and closes the source. */
+    @Test(timeout = 10000)
+    public void testUnclosedIteratorGarbageCollected() throws Exception {
+        TestIterator source = new TestIterator(Integer.MAX_VALUE, -1);
+        startAndDrop(source);
+        while (!source.m_isClosed.get()) {
+            System.gc();
+            Thread.sleep(10);
+        }
+    }
+
+    private static void startAndDrop(final TestIterator source) {
+        PrefetchRowIterator it = new PrefetchRowIterator(source, 100);
+        assertThat(it.next().getKey().getString(), equalTo("Row0"));
+    }
+
+    /** Exceptions in the background thread are rethrown to the consumer after the rows read before. */
+    @Test(timeout = 10000)
+    public void testFailure() throws Exception {
+        TestIterator source = new TestIterator(1000, 500);
+        int count = 0;
+        try (PrefetchRowIterator it = new PrefetchRowIterator(source, 100)) {
+            while (it.hasNext()) {
+                it.next();
+                count++;
+            }
+        } catch (IllegalStateException e) {
+            assertThat("Wrong number of rows before failure", count, is(500));
+            return;
+        }
+        throw new AssertionError("Failure not propagated");
+    }
+
+    /** Disk-backed tables are read ahead if the property is set. */
+    @Test(timeout = 10000)
+    public void testDiskBackedBuffer() throws Exception {
+        final String previous = System.setProperty(KNIMEConstants.PROPERTY_TABLE_PREFETCH_ROWS, "100");
+        try {
+            DataTableSpec spec = new DataTableSpec(new DataColumnSpecCreator("int", IntCell.TYPE).createSpec());
+            DataContainer cont = new DataContainer(spec, DataContainerSettings.getDefault().withMaxCellsInMemory(0));
+            for (int i = 0; i < 1234; i++) {
+                cont.addRowToTable(new DefaultRow(RowKey.createRowKey((long)i), new IntCell(i)));
+            }
+            cont.close();
+            ContainerTable table = (ContainerTable)cont.getTable();
+            int count = 0;
+            try (CloseableRowIterator it = table.iterator()) {
+                assertThat("Disk-backed table not read ahead", it, instanceOf(PrefetchRowIterator.class));
+                while (it.hasNext()) {
+                    DataRow row = it.next();
+                    assertThat("Unexpected row", row.getKey(), equalTo(RowKey.createRowKey((long)count)));
+                    assertThat("Unexpected cell", ((IntCell)row.getCell(0)).getIntValue(), is(count));
+                    count++;
+                }
+            }
+            assertThat("Wrong row count", count, is(1234));
+            table.clear();
+        } finally {
+            if (previous == null) {
+                System.clearProperty(KNIMEConstants.PROPERTY_TABLE_PREFETCH_ROWS);
+            } else {
+                System.setProperty(KNIMEConstants.PROPERTY_TABLE_PREFETCH_ROWS, previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link RowKeyDigest}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class RowKeyDigestTest {
+
+    private static RowKeyDigest digest(final String format, final int from, final int to) {
+        RowKeyDigest d = new RowKeyDigest();
+        for (int i = from; i < to; i++) {
+            d.add(String.format(format, i));
+        }
+        return d;
+    }
+
+    /** Outputs of different loop iterations differ in the tail. */
+    @Test
+    public void testLoopIterationsAreDisjoint() {
+        RowKeyDigest d0 = digest("Row%d#0", 0, 1000);
+        RowKeyDigest d1 = digest("Row%d#1", 0, 1000);
+        RowKeyDigest d11 = digest("Row%d#11", 0, 1000);
+        assertThat(d0.isNumericShape(), is(true));
+        assertThat(d0.isDisjoint(d1), is(true));
+        assertThat(d1.isDisjoint(d11), is(true));
+        assertThat(d0.isDisjoint(digest("Row%d#0", 500, 501)), is(false));
+    }
+
+    /** Sequential ranges, also across different numbers of digits. */
+    @Test
+    public void testRanges() {
+        RowKeyDigest low = digest("Row%d", 0, 1000);
+        RowKeyDigest high = digest("Row%d", 1000, 2000);
+        assertThat(low.isDisjoint(high), is(true));
+        assertThat(high.isDisjoint(low), is(true));
+        assertThat(low.isDisjoint(digest("Row%d", 999, 1001)), is(false));
+    }
+
+    /** Keys without common shape fall back to prefix and suffix. */
+    @Test
+    public void testPrefixAndSuffix() {
+        RowKeyDigest a = digest("a-%1$d-x-%1$d", 0, 10);
+        RowKeyDigest b = digest("b-%d-x", 0, 10);
+        assertThat(a.isNumericShape(), is(false));
+        assertThat(a.isDisjoint(b), is(true));
+        RowKeyDigest c = new RowKeyDigest();
+        c.add("foo");
+        c.add("bar");
+        assertThat(c.isDisjoint(a), is(false));
+        assertThat(c.isDisjoint(new RowKeyDigest()), is(true));
+    }
+
+    /** Only overlapping digests are reported. */
+    @Test
+    public void testFindOverlapping() {
+        RowKeyDigest[] digests = new RowKeyDigest[]{digest("Row%d", 0, 10), digest("Row%d", 20, 30),
+            digest("Row%d", 5, 6), digest("Row%d#1", 0, 100), digest("Other%d", 0, 10), new RowKeyDigest()};
+        RowKeyDigest misc = new RowKeyDigest();
+        misc.add("Row2");
+        misc.add("Row21");
+        misc.add("x");
+        RowKeyDigest[] withMisc = new RowKeyDigest[]{digests[0], digests[1], misc};
+        boolean[] overlapping = RowKeyDigest.findOverlapping(digests);
+        assertThat(overlapping, is(new boolean[]{true, false, true, false, false, false}));
+        assertThat(RowKeyDigest.findOverlapping(withMisc), is(new boolean[]{true, true, true}));
+    }
+
+    /** Buckets are sized as a power of 2 within bounds. */
+    @Test
+    public void testBuckets() {
+        assertThat(RowKeyDigest.Buckets.bitCountFor(0), is(1 << 10));
+        assertThat(RowKeyDigest.Buckets.bitCountFor(100000), is(1 << 18));
+        assertThat(RowKeyDigest.Buckets.bitCountFor(Long.MAX_VALUE / 4), is(1 << 26));
+        RowKeyDigest.Buckets b1 = new RowKeyDigest.Buckets(1 << 10);
+        RowKeyDigest.Buckets b2 = new RowKeyDigest.Buckets(1 << 10);
+        RowKeyDigest.Buckets shared = new RowKeyDigest.Buckets(1 << 10);
+        b1.set(b1.bucket("Row1"));
+        b2.set(b2.bucket("Row2"));
+        shared.orAnd(b1, b2);
+        assertThat(shared.isEmpty(), is(b1.bucket("Row1") != b2.bucket("Row2")));
+        b2.set(b2.bucket("Row1"));
+        shared.orAnd(b1, b2);
+        assertThat(shared.get(shared.bucket("Row1")), is(true));
+    }
+}
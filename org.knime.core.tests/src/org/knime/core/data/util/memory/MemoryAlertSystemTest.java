@@ -48,11 +48,14 @@
  */
 package org.knime.core.data.util.memory;
 
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -188,6 +191,100 @@ protected boolean memoryAlert(final MemoryAlert alert) {
         }
     }
 
+    /**
+     * Checks that an explicit alert notifies all listeners, including those announcing releasable cells, and that the
+     * released cells are accounted for.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test(timeout = 10000)
+    public void testReleasedCells() throws Exception {
+        final List<Long> notifiedCells = Collections.synchronizedList(new ArrayList<>());
+        final List<MemoryAlertListener> listeners = new ArrayList<>();
+        for (long cells : new long[]{10, 1000, 100}) {
+            listeners.add(new MemoryAlertListener() {
+                @Override
+                protected boolean memoryAlert(final MemoryAlert alert) {
+                    notifiedCells.add(cells);
+                    return true;
+                }
+
+                @Override
+                protected long getReleasableCells() {
+                    return cells;
+                }
+            });
+        }
+        final long releasedBefore = m_memSystem.getReleasedCells();
+        listeners.forEach(m_memSystem::addListener);
+        try {
+            m_memSystem.sendMemoryAlert();
+            while (notifiedCells.size() < listeners.size()) {
+                Thread.sleep(10);
+            }
+            assertThat("Listeners not notified largest first", notifiedCells, is(Arrays.asList(1000L, 100L, 10L)));
+            // other tables (from other tests) may have been released as well
+            assertThat("Unexpected number of released cells", m_memSystem.getReleasedCells() - releasedBefore,
+                greaterThanOrEqualTo(1110L));
+        } finally {
+            listeners.forEach(m_memSystem::removeListener);
+        }
+    }
+
+    /**
+     * Checks that below critical usage only the largest listeners are notified, in proportion to how far usage exceeds
+     * the threshold, and that the spared ones are notified later only as long as memory stays low.
+     */
+    @Test
+    public void testPartialNotification() {
+        final List<Integer> notified = Collections.synchronizedList(new ArrayList<>());
+        final List<MemoryAlertListener> listeners = new ArrayList<>();
+        final long[] cellsPerListener = new long[]{500, 1000, 500, 500};
+        for (int i = 0; i < cellsPerListener.length; i++) {
+            final int index = i;
+            final long cells = cellsPerListener[i];
+            listeners.add(new MemoryAlertListener() {
+                @Override
+                protected boolean memoryAlert(final MemoryAlert alert) {
+                    notified.add(index);
+                    return true;
+                }
+
+                @Override
+                protected long getReleasableCells() {
+                    return cells;
+                }
+            });
+        }
+        // usage slightly above the threshold, which requires releasing less than a sixth of the cells; a private
+        // instance so that listeners registered at the global instance don't interfere
+        final long maxMemory = 1L << 30;
+        final double threshold = 0.8;
+        final long lowMemory = (long)((threshold + 0.01) * maxMemory);
+        final long normalMemory = (long)((threshold - 0.1) * maxMemory);
+        final MemoryAlertSystem memSystem = MemoryAlertSystem.createUnobservedInstance(threshold);
+        listeners.forEach(memSystem::addListener);
+        try {
+            assertThat("Listeners not spared", memSystem.notifyListeners(false, lowMemory, maxMemory), is(true));
+            assertThat("Not only the largest listener notified", notified, is(Arrays.asList(1)));
+
+            // memory still low, notify the next one (same size, in order of registration)
+            assertThat("Listeners not spared", memSystem.notifyListeners(false, lowMemory, maxMemory), is(true));
+            assertThat("Not only the next listener notified", notified, is(Arrays.asList(1, 0)));
+
+            // memory back to normal, spare the remaining ones
+            memSystem.notifyListeners(false, normalMemory, maxMemory);
+            assertThat("Listeners notified although memory is no longer low", notified, is(Arrays.asList(1, 0)));
+
+            // critical, notify all of them
+            assertThat("Listeners spared although memory is critical",
+                memSystem.notifyListeners(false, maxMemory, maxMemory), is(false));
+            assertThat("Not all listeners notified", notified, is(Arrays.asList(1, 0, 2, 3)));
+        } finally {
+            listeners.forEach(memSystem::removeListener);
+        }
+    }
+
     /**
      * Forces a GC run. By using weak reference {@link System#gc()} is called until the weak reference has been cleared.
      *
@@ -0,0 +1,155 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.vector.bitvector;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.core.data.vector.bitvector.BitVectorSimilarity.Measure;
+
+/**
+ * Tests for {@link BitVectorSimilarity}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class BitVectorSimilarityTest {
+
+    private static DenseBitVectorCell[] randomVectors(final long seed, final int count) {
+        final Random random = new Random(seed);
+        final DenseBitVectorCell[] result = new DenseBitVectorCell[count];
+        for (int i = 0; i < count; i++) {
+            // mostly 1024 bits, some shorter ones and some missing
+            if (i % 97 == 13) {
+                continue;
+            }
+            final long length = i % 31 == 5 ? 100 + random.nextInt(900) : 1024;
+            final DenseBitVector bv = new DenseBitVector(length);
+            for (int j = 0; j < length; j++) {
+                if (random.nextInt(8) == 0) {
+                    bv.set(j);
+                }
+            }
+            result[i] = new DenseBitVectorCellFactory(bv).createDataCell();
+        }
+        return result;
+    }
+
+    private static double expected(final Measure measure, final DenseBitVectorCell bv1,
+        final DenseBitVectorCell bv2) {
+        if (bv1 == null || bv2 == null) {
+            return Double.NaN;
+        }
+        final long intersection = BitVectorUtil.cardinalityOfIntersection(bv1, bv2);
+        final long c1 = bv1.cardinality();
+        final long c2 = bv2.cardinality();
+        switch (measure) {
+            case TANIMOTO:
+                return intersection / (double)(c1 + c2 - intersection);
+            case DICE:
+                return 2.0 * intersection / (c1 + c2);
+            case COSINE:
+                return intersection / Math.sqrt((double)c1 * c2);
+            default:
+                return BitVectorUtil.xor(bv1, bv2).cardinality();
+        }
+    }
+
+    private static void assertValue(final String msg, final double actual, final double expected) {
+        if (Double.isNaN(expected)) {
+            assertThat(msg, Double.isNaN(actual), is(true));
+        } else {
+            assertThat(msg, actual, is(closeTo(expected, 1e-12)));
+        }
+    }
+
+    /** Compares a query against many vectors (large enough to run in parallel). */
+    @Test
+    public void testQueryAgainstColumn() {
+        final DenseBitVectorCell[] targets = randomVectors(1, 5000);
+        final DenseBitVectorCell query = randomVectors(2, 1)[0];
+        final double[] result = new double[targets.length];
+        for (Measure m : Measure.values()) {
+            BitVectorSimilarity.compute(m, query, targets, result);
+            for (int i = 0; i < targets.length; i++) {
+                assertValue(m + " " + i, result[i], expected(m, query, targets[i]));
+                assertValue(m + " " + i, BitVectorSimilarity.compute(m, targets[i], query),
+                    expected(m, targets[i], query));
+            }
+        }
+    }
+
+    /** Compares all vectors with each other. */
+    @Test
+    public void testAllAgainstAll() {
+        final DenseBitVectorCell[] rows = randomVectors(3, 300);
+        final DenseBitVectorCell[] columns = randomVectors(4, 1100);
+        final double[][] result = new double[rows.length][columns.length];
+        for (Measure m : Measure.values()) {
+            BitVectorSimilarity.compute(m, rows, columns, result);
+            for (int i = 0; i < rows.length; i++) {
+                for (int j = 0; j < columns.length; j++) {
+                    assertValue(m + " " + i + "/" + j, result[i][j], expected(m, rows[i], columns[j]));
+                }
+            }
+        }
+    }
+
+    /** Empty vectors don't cause divisions by zero. */
+    @Test
+    public void testEmptyVectors() {
+        final DenseBitVectorCell empty = new DenseBitVectorCellFactory(64).createDataCell();
+        final DenseBitVectorCell full = new DenseBitVectorCellFactory("FF").createDataCell();
+        assertThat(BitVectorSimilarity.compute(Measure.TANIMOTO, empty, empty), is(1.0));
+        assertThat(BitVectorSimilarity.compute(Measure.DICE, empty, empty), is(1.0));
+        assertThat(BitVectorSimilarity.compute(Measure.COSINE, empty, empty), is(1.0));
+        assertThat(BitVectorSimilarity.compute(Measure.COSINE, empty, full), is(0.0));
+        assertThat(BitVectorSimilarity.compute(Measure.TANIMOTO, empty, full), is(0.0));
+        assertThat(BitVectorSimilarity.compute(Measure.HAMMING, empty, full), is(8.0));
+    }
+}
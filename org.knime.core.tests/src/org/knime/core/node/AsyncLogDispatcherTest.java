@@ -0,0 +1,186 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Appender;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.apache.log4j.varia.LevelRangeFilter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link AsyncLogDispatcher}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class AsyncLogDispatcherTest {
+
+    private static final Logger LOGGER = Logger.getLogger(AsyncLogDispatcherTest.class);
+
+    private AsyncLogDispatcher m_dispatcher;
+
+    /** Creates a small dispatcher so that producers hit a full buffer. */
+    @Before
+    public void setUp() {
+        m_dispatcher = new AsyncLogDispatcher(16);
+    }
+
+    /** Stops the dispatcher thread. */
+    @After
+    public void tearDown() {
+        m_dispatcher.shutdown();
+    }
+
+    /** Many threads logging concurrently, all events must arrive and in order per thread. */
+    @Test(timeout = 10000L)
+    public void testConcurrentProducers() throws Exception {
+        final CollectingAppender target = new CollectingAppender();
+        final Appender async = m_dispatcher.wrap(target);
+        final int threadCount = 8;
+        final int eventsPerThread = 20000;
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int threadIndex = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < eventsPerThread; i++) {
+                    async.doAppend(createEvent(Level.INFO, threadIndex + ":" + i));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        m_dispatcher.flush();
+        List<String> messages = target.getMessages();
+        assertThat("number of written events", messages.size(), is(threadCount * eventsPerThread));
+        int[] expectedNext = new int[threadCount];
+        for (String msg : messages) {
+            String[] split = msg.split(":");
+            int threadIndex = Integer.parseInt(split[0]);
+            assertThat("event order for thread " + threadIndex, Integer.parseInt(split[1]),
+                is(expectedNext[threadIndex]));
+            expectedNext[threadIndex] += 1;
+        }
+    }
+
+    /** Filters of the target are evaluated and wrapping and names are delegated. */
+    @Test(timeout = 5000L)
+    public void testFilterAndDelegation() throws Exception {
+        final CollectingAppender target = new CollectingAppender();
+        target.setName("collector");
+        LevelRangeFilter filter = new LevelRangeFilter();
+        filter.setLevelMin(Level.WARN);
+        target.addFilter(filter);
+        final Appender async = m_dispatcher.wrap(target);
+        assertThat("name of wrapped appender", async.getName(), is("collector"));
+        assertThat("wrapping twice", m_dispatcher.wrap(async) == async, is(true));
+        async.doAppend(createEvent(Level.DEBUG, "debug"));
+        async.doAppend(createEvent(Level.ERROR, "error"));
+        async.close();
+        List<String> messages = target.getMessages();
+        assertThat("closed target", target.isClosed(), is(true));
+        assertThat("filtered events", messages.size(), is(1));
+        assertThat("filtered events", messages.get(0), is("error"));
+    }
+
+    /** Events appended after shutdown are written directly. */
+    @Test(timeout = 5000L)
+    public void testAppendAfterShutdown() throws Exception {
+        final CollectingAppender target = new CollectingAppender();
+        final Appender async = m_dispatcher.wrap(target);
+        async.doAppend(createEvent(Level.INFO, "before"));
+        m_dispatcher.shutdown();
+        async.doAppend(createEvent(Level.INFO, "after"));
+        List<String> messages = target.getMessages();
+        assertThat("written events", messages.size(), is(2));
+        assertThat("last event", messages.get(1), is("after"));
+    }
+
+    private static LoggingEvent createEvent(final Level level, final String msg) {
+        return new LoggingEvent(Logger.class.getName(), LOGGER, level, msg, null);
+    }
+
+    /** Remembers all messages. */
+    private static final class CollectingAppender extends AppenderSkeleton {
+
+        private final List<String> m_messages = new ArrayList<>();
+
+        private boolean m_isClosed;
+
+        @Override
+        protected void append(final LoggingEvent event) {
+            m_messages.add(event.getRenderedMessage());
+        }
+
+        synchronized List<String> getMessages() {
+            return new ArrayList<>(m_messages);
+        }
+
+        synchronized boolean isClosed() {
+            return m_isClosed;
+        }
+
+        @Override
+        public synchronized void close() {
+            m_isClosed = true;
+        }
+
+        @Override
+        public boolean requiresLayout() {
+            return false;
+        }
+    }
+}
@@ -54,6 +54,7 @@
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 
 import java.util.function.Function;
@@ -95,6 +96,51 @@ public void testManySmallIncrementsSubProgress() throws Exception {
         internalTestManySmallIncrements(m, new SubNodeProgressMonitor(m, 1.0));
     }
 
+    /** Many threads reporting progress through their own (nested) sub progress monitors concurrently. */
+    @Test(timeout=10000L)
+    public void testConcurrentSubProgress() throws Exception {
+        final DefaultNodeProgressMonitor m = new DefaultNodeProgressMonitor();
+        final int nrThreads = 8;
+        final int parts = 100000;
+        Thread[] threads = new Thread[nrThreads];
+        for (int t = 0; t < nrThreads; t++) {
+            final NodeProgressMonitor sub =
+                new SubNodeProgressMonitor(new SubNodeProgressMonitor(m, 1.0 / nrThreads), 1.0);
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < parts; i++) {
+                    sub.setProgress((i + 1) / (double)parts);
+                }
+            });
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertThat(m.getProgress(), is(closeTo(1.0, PROG_EPSILON)));
+    }
+
+    /** Sub progress is added to the parent's progress, absolute progress of the parent overrides it. */
+    @Test
+    public void testSubProgressAddsToParent() throws Exception {
+        final DefaultNodeProgressMonitor m = new DefaultNodeProgressMonitor();
+        assertThat(m.getProgress(), is(nullValue()));
+        final SubNodeProgressMonitor sub = new SubNodeProgressMonitor(m, 0.5);
+        sub.setProgress(0.0);
+        assertThat(m.getProgress(), is(closeTo(0.0, PROG_EPSILON)));
+        sub.setProgress(0.5);
+        assertThat(m.getProgress(), is(closeTo(0.25, PROG_EPSILON)));
+        sub.setProgress(0.2); // never decreases
+        assertThat(m.getProgress(), is(closeTo(0.25, PROG_EPSILON)));
+        m.setProgress(0.6);
+        assertThat(m.getProgress(), is(closeTo(0.6, PROG_EPSILON)));
+        sub.setProgress(1.0);
+        assertThat(m.getProgress(), is(closeTo(0.85, PROG_EPSILON)));
+        m.reset();
+        assertThat(m.getProgress(), is(nullValue()));
+    }
+
     /** Just a lot of incremental numeric progress updates. */
     private void internalTestManySmallIncrements(final NodeProgressMonitor toMonitor,
         final NodeProgressMonitor toControl) throws Exception {
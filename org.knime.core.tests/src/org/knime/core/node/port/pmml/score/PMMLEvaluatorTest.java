@@ -0,0 +1,314 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.score;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.knime.core.node.InvalidSettingsException;
+import org.w3c.dom.Document;
+
+/**
+ * Tests for {@link PMMLEvaluator}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class PMMLEvaluatorTest {
+
+    private static final String HEADER = "<PMML version=\"4.2\" xmlns=\"http://www.dmg.org/PMML-4_2\">"
+        + "<DataDictionary>"
+        + "<DataField name=\"x\" optype=\"continuous\" dataType=\"double\"/>"
+        + "<DataField name=\"y\" optype=\"continuous\" dataType=\"double\"/>"
+        + "<DataField name=\"color\" optype=\"categorical\" dataType=\"string\">"
+        + "<Value value=\"red\"/><Value value=\"dark blue\"/><Value value=\"green\"/></DataField>"
+        + "<DataField name=\"class\" optype=\"categorical\" dataType=\"string\">"
+        + "<Value value=\"A\"/><Value value=\"B\"/></DataField>"
+        + "<DataField name=\"target\" optype=\"continuous\" dataType=\"double\"/>"
+        + "</DataDictionary>";
+
+    private static final String SCHEMA = "<MiningSchema>"
+        + "<MiningField name=\"x\"/><MiningField name=\"y\"/><MiningField name=\"color\"/>"
+        + "<MiningField name=\"%s\" usageType=\"predicted\"/></MiningSchema>";
+
+    private static PMMLEvaluator compile(final String model) throws Exception {
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        final Document doc = factory.newDocumentBuilder()
+            .parse(new ByteArrayInputStream((HEADER + model + "</PMML>").getBytes(StandardCharsets.UTF_8)));
+        return PMMLEvaluator.compile(doc);
+    }
+
+    private static String schema(final String target) {
+        return String.format(SCHEMA, target);
+    }
+
+    private static String predict(final PMMLEvaluator eval, final double x, final double y, final String color) {
+        return eval.getCategory(eval.evaluate(new double[]{x, y, eval.encode(2, color)}));
+    }
+
+    private static final String TREE = "<TreeModel functionName=\"classification\" "
+        + "missingValueStrategy=\"%s\" noTrueChildStrategy=\"returnLastPrediction\">" + schema("class")
+        + "<Node id=\"0\" score=\"A\" defaultChild=\"2\"><True/>"
+        + "<Node id=\"1\"><SimplePredicate field=\"x\" operator=\"lessThan\" value=\"5\"/>"
+        + "<ScoreDistribution value=\"A\" recordCount=\"3\"/><ScoreDistribution value=\"B\" recordCount=\"7\"/>"
+        + "</Node>"
+        + "<Node id=\"2\" score=\"A\"><SimplePredicate field=\"x\" operator=\"greaterOrEqual\" value=\"5\"/>"
+        + "<Node id=\"3\" score=\"B\"><CompoundPredicate booleanOperator=\"and\">"
+        + "<SimpleSetPredicate field=\"color\" booleanOperator=\"isIn\">"
+        + "<Array n=\"2\" type=\"string\">\"dark blue\" green</Array></SimpleSetPredicate>"
+        + "<SimplePredicate field=\"y\" operator=\"greaterThan\" value=\"0\"/></CompoundPredicate></Node>"
+        + "</Node></Node></TreeModel>";
+
+    /**
+     * Tree model with score distributions, set predicates with quoted values and missing value strategies.
+     *
+     * @throws Exception if it fails
+     */
+    @Test
+    public void testTreeModel() throws Exception {
+        final PMMLEvaluator eval = compile(String.format(TREE, "defaultChild"));
+        assertThat(eval.getModelType(), is("TreeModel"));
+        assertThat(eval.getInputFields(), is(new String[]{"x", "y", "color"}));
+        assertThat(eval.getTargetField(), is("class"));
+        assertThat(predict(eval, 1, 0, "red"), is("B"));
+        assertThat(predict(eval, 6, 1, "dark blue"), is("B"));
+        assertThat(predict(eval, 6, 1, "red"), is("A"));
+        assertThat(predict(eval, 6, 1, "unknown"), is("A"));
+        // missing x follows the default child
+        assertThat(predict(eval, Double.NaN, 1, "green"), is("B"));
+
+        final PMMLEvaluator nullPrediction = compile(String.format(TREE, "nullPrediction"));
+        assertThat(predict(nullPrediction, Double.NaN, 1, "green"), is((String)null));
+        final PMMLEvaluator lastPrediction = compile(String.format(TREE, "lastPrediction"));
+        assertThat(predict(lastPrediction, Double.NaN, 1, "green"), is("A"));
+        assertThat(predict(lastPrediction, 6, Double.NaN, "green"), is("A"));
+    }
+
+    /**
+     * Linear regression and binary logistic regression.
+     *
+     * @throws Exception if it fails
+     */
+    @Test
+    public void testRegressionModel() throws Exception {
+        final PMMLEvaluator linear = compile("<RegressionModel functionName=\"regression\">" + schema("target")
+            + "<RegressionTable intercept=\"1\">"
+            + "<NumericPredictor name=\"x\" coefficient=\"2\"/>"
+            + "<NumericPredictor name=\"y\" exponent=\"2\" coefficient=\"0.5\"/>"
+            + "<CategoricalPredictor name=\"color\" value=\"red\" coefficient=\"10\"/>"
+            + "<PredictorTerm coefficient=\"3\"><FieldRef field=\"x\"/><FieldRef field=\"y\"/></PredictorTerm>"
+            + "</RegressionTable></RegressionModel>");
+        assertThat(linear.isClassification(), is(false));
+        assertThat(linear.evaluate(new double[]{1, 2, linear.encode(2, "red")}), is(1 + 2 + 2 + 10 + 6.0));
+        assertThat(linear.evaluate(new double[]{1, 2, linear.encode(2, "green")}), is(1 + 2 + 2 + 6.0));
+        assertThat(Double.isNaN(linear.evaluate(new double[]{Double.NaN, 2, 0})), is(true));
+
+        final PMMLEvaluator logistic = compile("<RegressionModel functionName=\"classification\" "
+            + "normalizationMethod=\"logit\">" + schema("class")
+            + "<RegressionTable intercept=\"-5\" targetCategory=\"B\"><NumericPredictor name=\"x\" coefficient=\"1\"/>"
+            + "</RegressionTable><RegressionTable intercept=\"0\" targetCategory=\"A\"/></RegressionModel>");
+        assertThat(predict(logistic, 4, 0, "red"), is("A"));
+        assertThat(predict(logistic, 6, 0, "red"), is("B"));
+    }
+
+    /**
+     * Generalized linear and multinomial logistic general regression models.
+     *
+     * @throws Exception if it fails
+     */
+    @Test
+    public void testGeneralRegressionModel() throws Exception {
+        final String parameters = "<ParameterList><Parameter name=\"p0\"/><Parameter name=\"p1\"/>"
+            + "<Parameter name=\"p2\"/></ParameterList><FactorList><Predictor name=\"color\"/></FactorList>"
+            + "<CovariateList><Predictor name=\"x\"/></CovariateList>"
+            + "<PPMatrix><PPCell value=\"1\" predictorName=\"x\" parameterName=\"p1\"/>"
+            + "<PPCell value=\"red\" predictorName=\"color\" parameterName=\"p2\"/></PPMatrix>";
+        final PMMLEvaluator glm = compile("<GeneralRegressionModel modelType=\"generalizedLinear\" "
+            + "functionName=\"regression\" linkFunction=\"log\">" + schema("target") + parameters
+            + "<ParamMatrix><PCell parameterName=\"p0\" beta=\"0.5\"/><PCell parameterName=\"p1\" beta=\"0.25\"/>"
+            + "<PCell parameterName=\"p2\" beta=\"1\"/></ParamMatrix></GeneralRegressionModel>");
+        assertThat(glm.evaluate(new double[]{2, 0, glm.encode(2, "red")}), is(Math.exp(0.5 + 0.5 + 1)));
+        assertThat(glm.evaluate(new double[]{2, 0, glm.encode(2, "green")}), is(Math.exp(0.5 + 0.5)));
+
+        final PMMLEvaluator multinomial = compile("<GeneralRegressionModel modelType=\"multinomialLogistic\" "
+            + "functionName=\"classification\">" + schema("class") + parameters
+            + "<ParamMatrix><PCell targetCategory=\"B\" parameterName=\"p0\" beta=\"-3\"/>"
+            + "<PCell targetCategory=\"B\" parameterName=\"p1\" beta=\"1\"/>"
+            + "<PCell targetCategory=\"B\" parameterName=\"p2\" beta=\"2\"/></ParamMatrix>"
+            + "</GeneralRegressionModel>");
+        assertThat(predict(multinomial, 2, 0, "green"), is("A"));
+        assertThat(predict(multinomial, 2, 0, "red"), is("B"));
+        assertThat(predict(multinomial, 4, 0, "green"), is("B"));
+    }
+
+    /**
+     * Rule sets with nested compound rules and the different selection criteria.
+     *
+     * @throws Exception if it fails
+     */
+    @Test
+    public void testRuleSetModel() throws Exception {
+        final String rules = "<RuleSetModel functionName=\"classification\">" + schema("class")
+            + "<RuleSet defaultScore=\"A\"><RuleSelectionMethod criterion=\"%s\"/>"
+            + "<SimpleRule score=\"A\" weight=\"0.5\"><SimplePredicate field=\"x\" operator=\"lessThan\" value=\"3\"/>"
+            + "</SimpleRule>"
+            + "<CompoundRule><SimplePredicate field=\"color\" operator=\"equal\" value=\"red\"/>"
+            + "<SimpleRule score=\"B\" weight=\"0.3\"><True/></SimpleRule>"
+            + "<SimpleRule score=\"B\" weight=\"0.4\"><SimplePredicate field=\"y\" operator=\"isMissing\"/>"
+            + "</SimpleRule></CompoundRule></RuleSet></RuleSetModel>";
+        final PMMLEvaluator firstHit = compile(String.format(rules, "firstHit"));
+        assertThat(predict(firstHit, 1, 0, "red"), is("A"));
+        assertThat(predict(firstHit, 5, 0, "red"), is("B"));
+        assertThat(predict(firstHit, 5, 0, "green"), is("A"));
+        final PMMLEvaluator weightedMax = compile(String.format(rules, "weightedMax"));
+        assertThat(predict(weightedMax, 1, 0, "red"), is("A"));
+        final PMMLEvaluator weightedSum = compile(String.format(rules, "weightedSum"));
+        assertThat(predict(weightedSum, 1, 0, "red"), is("A"));
+        assertThat(predict(weightedSum, 1, Double.NaN, "red"), is("B"));
+    }
+
+    /**
+     * Center based clustering with weighted fields and a missing value.
+     *
+     * @throws Exception if it fails
+     */
+    @Test
+    public void testClusteringModel() throws Exception {
+        final PMMLEvaluator eval = compile("<ClusteringModel functionName=\"clustering\" modelClass=\"centerBased\" "
+            + "numberOfClusters=\"2\"><MiningSchema><MiningField name=\"x\"/><MiningField name=\"y\"/>"
+            + "<MiningField name=\"color\"/></MiningSchema>"
+            + "<ComparisonMeasure kind=\"distance\"><squaredEuclidean/></ComparisonMeasure>"
+            + "<ClusteringField field=\"x\"/><ClusteringField field=\"y\" fieldWeight=\"2\"/>"
+            + "<ClusteringField field=\"color\" compareFunction=\"delta\"/>"
+            + "<Cluster name=\"near\"><Array n=\"3\" type=\"string\">0 0 red</Array></Cluster>"
+            + "<Cluster name=\"far\"><Array n=\"3\" type=\"string\">10 10 green</Array></Cluster>"
+            + "</ClusteringModel>");
+        assertThat(eval.getTargetCategories(), is(new String[]{"near", "far"}));
+        assertThat(predict(eval, 1, 1, "red"), is("near"));
+        assertThat(predict(eval, 9, 9, "red"), is("far"));
+        assertThat(predict(eval, Double.NaN, 8, "green"), is("far"));
+    }
+
+    /**
+     * Batch evaluation must give the same results as evaluating row by row.
+     *
+     * @throws Exception if it fails
+     */
+    @Test
+    public void testBatchEvaluation() throws Exception {
+        final PMMLEvaluator eval = compile(String.format(TREE, "defaultChild"));
+        final int rowCount = 5 * PMMLEvaluator.BLOCK_ROWS + 17;
+        final double[] rows = new double[3 * rowCount];
+        final Random random = new Random(42);
+        final String[] colors = {"red", "dark blue", "green", "other"};
+        for (int r = 0; r < rowCount; r++) {
+            rows[3 * r] = random.nextInt(10) == 0 ? Double.NaN : 10 * random.nextDouble();
+            rows[3 * r + 1] = random.nextGaussian();
+            rows[3 * r + 2] = eval.encode(2, colors[random.nextInt(colors.length)]);
+        }
+        final double[] result = new double[rowCount];
+        eval.evaluate(rows, rowCount, result);
+        for (int r = 0; r < rowCount; r++) {
+            final double expected =
+                eval.evaluate(new double[]{rows[3 * r], rows[3 * r + 1], rows[3 * r + 2]});
+            assertThat("Row " + r, result[r], is(expected));
+        }
+    }
+
+    /**
+     * If the caller is interrupted, no helper writes into the result after batch evaluation returned.
+     *
+     * @throws Exception if it fails
+     */
+    @Test(timeout = 10000)
+    public void testBatchEvaluationInterrupted() throws Exception {
+        final PMMLEvaluator eval = compile(String.format(TREE, "defaultChild"));
+        final int rowCount = 50 * PMMLEvaluator.BLOCK_ROWS;
+        final double[] rows = new double[3 * rowCount];
+        final double[] result = new double[rowCount];
+        Thread.currentThread().interrupt();
+        try {
+            eval.evaluate(rows, rowCount, result);
+        } catch (InterruptedException e) {
+            // expected unless the helpers were done before
+        } finally {
+            Thread.interrupted();
+        }
+        final double[] snapshot = result.clone();
+        Thread.sleep(100);
+        assertThat("Result modified after return", Arrays.equals(result, snapshot), is(true));
+    }
+
+    /**
+     * Unsupported content is rejected at compile time.
+     *
+     * @throws Exception if it fails
+     */
+    @Test(expected = InvalidSettingsException.class)
+    public void testUnsupportedModel() throws Exception {
+        compile("<NeuralNetwork functionName=\"regression\" activationFunction=\"logistic\">" + schema("target")
+            + "</NeuralNetwork>");
+    }
+
+    /**
+     * References to fields that are not active inputs are rejected at compile time.
+     *
+     * @throws Exception if it fails
+     */
+    @Test(expected = InvalidSettingsException.class)
+    public void testUnknownField() throws Exception {
+        compile("<RegressionModel functionName=\"regression\">" + schema("target")
+            + "<RegressionTable intercept=\"1\"><NumericPredictor name=\"derived\" coefficient=\"2\"/>"
+            + "</RegressionTable></RegressionModel>");
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.property.hilite;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.knime.core.data.RowKey;
+
+/**
+ * Tests for {@link BinaryHiLiteMapper}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class BinaryHiLiteMapperTest {
+
+    /** Folder for the mapping files. */
+    @Rule
+    public TemporaryFolder m_tempFolder = new TemporaryFolder();
+
+    private BinaryHiLiteMapper writeAndRead(final DefaultHiLiteMapper mapper) throws IOException {
+        final File file = m_tempFolder.newFile();
+        BinaryHiLiteMapper.write(mapper, file);
+        return BinaryHiLiteMapper.read(file);
+    }
+
+    /** A written mapping is read back identically, including its inverse. */
+    @Test
+    public void testWriteAndRead() throws IOException {
+        final Random random = new Random(3);
+        final Map<RowKey, Set<RowKey>> map = new LinkedHashMap<>();
+        for (int g = 0; g < 500; g++) {
+            final Set<RowKey> members = new LinkedHashSet<>();
+            final int size = random.nextInt(50);
+            for (int m = 0; m < size; m++) {
+                // some keys are in several groups, some use non-ASCII characters
+                members.add(new RowKey(random.nextInt(10) == 0 ? "sharedä" + random.nextInt(20)
+                    : "Row" + random.nextInt(100000)));
+            }
+            map.put(new RowKey("group " + g), members);
+        }
+        map.put(new RowKey("Row17"), new LinkedHashSet<>(map.get(new RowKey("group 3"))));
+        final DefaultHiLiteMapper expected = new DefaultHiLiteMapper(map);
+        final BinaryHiLiteMapper actual = writeAndRead(expected);
+
+        assertThat(actual.keySet(), is(expected.keySet()));
+        for (RowKey key : expected.keySet()) {
+            assertThat(actual.keySet().contains(key), is(true));
+            assertThat(actual.getKeys(key), is(expected.getKeys(key)));
+            for (RowKey mapped : expected.getKeys(key)) {
+                assertThat(actual.getKeys(key).contains(mapped), is(true));
+                assertThat(new HashSet<>(actual.getSourceKeys(mapped)),
+                    is(new HashSet<>(expected.getSourceKeys(mapped))));
+            }
+        }
+        assertThat(actual.getKeys(new RowKey("unknown")), is(nullValue()));
+        assertThat(actual.keySet().contains(new RowKey("unknown")), is(false));
+        assertThat(actual.getSourceKeys(new RowKey("unknown")), is(empty()));
+    }
+
+    /** Empty mappings and keys without mapped keys. */
+    @Test
+    public void testEmpty() throws IOException {
+        assertThat(writeAndRead(new DefaultHiLiteMapper(null)).keySet(), is(empty()));
+
+        final Map<RowKey, Set<RowKey>> map = new LinkedHashMap<>();
+        map.put(new RowKey("a"), new LinkedHashSet<RowKey>());
+        final BinaryHiLiteMapper mapper = writeAndRead(new DefaultHiLiteMapper(map));
+        assertThat(mapper.getKeys(new RowKey("a")), is(empty()));
+    }
+
+    /** Other files are rejected. */
+    @Test(expected = IOException.class)
+    public void testWrongFormat() throws IOException {
+        BinaryHiLiteMapper.read(m_tempFolder.newFile());
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.property.hilite;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.knime.core.data.RowKey;
+
+/**
+ * Tests for {@link HiLiteKeySet}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class HiLiteKeySetTest {
+
+    /** Only canonical "Row" + index keys are stored in the bitmap. */
+    @Test
+    public void testRowIndex() {
+        assertThat(HiLiteKeySet.rowIndex(new RowKey("Row0")), is(0));
+        assertThat(HiLiteKeySet.rowIndex(RowKey.createRowKey(1234567L)), is(1234567));
+        assertThat(HiLiteKeySet.rowIndex(RowKey.createRowKey((long)Integer.MAX_VALUE)), is(Integer.MAX_VALUE));
+        assertThat(HiLiteKeySet.rowIndex(RowKey.createRowKey(Integer.MAX_VALUE + 1L)), is(-1));
+        assertThat(HiLiteKeySet.rowIndex(new RowKey("Row")), is(-1));
+        assertThat(HiLiteKeySet.rowIndex(new RowKey("Row01")), is(-1));
+        assertThat(HiLiteKeySet.rowIndex(new RowKey("Row-1")), is(-1));
+        assertThat(HiLiteKeySet.rowIndex(new RowKey("Row1_dup")), is(-1));
+        assertThat(HiLiteKeySet.rowIndex(new RowKey("row1")), is(-1));
+    }
+
+    /** Compares the set with a hash set under random modifications. */
+    @Test
+    public void testAgainstHashSet() {
+        final Random random = new Random(17);
+        final HiLiteKeySet set = new HiLiteKeySet();
+        final Set<RowKey> expected = new HashSet<>();
+        for (int i = 0; i < 200000; i++) {
+            final RowKey key;
+            switch (random.nextInt(4)) {
+                case 0:
+                    key = new RowKey("key" + random.nextInt(1000));
+                    break;
+                case 1:
+                    // far apart, different pages
+                    key = RowKey.createRowKey((long)random.nextInt(Integer.MAX_VALUE));
+                    break;
+                default:
+                    key = RowKey.createRowKey((long)random.nextInt(200000));
+            }
+            if (random.nextInt(3) == 0) {
+                assertThat(set.remove(key), is(expected.remove(key)));
+            } else {
+                assertThat(set.add(key), is(expected.add(key)));
+            }
+            assertThat(set.contains(key), is(expected.contains(key)));
+        }
+        assertThat(set.size(), is(expected.size()));
+        assertThat(new HashSet<>(set), is(expected));
+        set.clear();
+        assertThat(set.isEmpty(), is(true));
+        assertThat(set.iterator().hasNext(), is(false));
+    }
+
+    /** Row keys are iterated by index, others in insertion order. */
+    @Test
+    public void testIterationOrder() {
+        final HiLiteKeySet set = new HiLiteKeySet();
+        set.add(new RowKey("b"));
+        set.add(RowKey.createRowKey(70000L));
+        set.add(new RowKey("a"));
+        set.add(RowKey.createRowKey(63L));
+        set.add(RowKey.createRowKey(64L));
+        set.add(RowKey.createRowKey(0L));
+        final List<RowKey> keys = new ArrayList<>(set);
+        assertThat(keys, contains(new RowKey("Row0"), new RowKey("Row63"), new RowKey("Row64"),
+            new RowKey("Row70000"), new RowKey("b"), new RowKey("a")));
+    }
+}
@@ -52,6 +52,7 @@
 import javax.swing.JTable;
 import javax.swing.ListSelectionModel;
 
+import org.knime.core.data.DataColumnSpecCreator;
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTable;
 import org.knime.core.data.DataTableSpec;
@@ -59,6 +60,8 @@
 import org.knime.core.data.DoubleValue;
 import org.knime.core.data.RowIterator;
 import org.knime.core.data.RowKey;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.container.DataContainer;
 import org.knime.core.data.def.DefaultRow;
 import org.knime.core.data.def.DefaultRowIterator;
 import org.knime.core.data.def.DefaultTable;
@@ -269,6 +272,53 @@ public final void testGetValueAt() {
         }
     }
 
+    /**
+     * Method being tested: getRowKey(int) on a table that supports random
+     * access, also in combination with filtering of hilited rows.
+     */
+    public final void testGetRowKeyRandomAccess() {
+        final int rowCount = 20000;
+        DataContainer cont = new DataContainer(
+            new DataTableSpec(new DataColumnSpecCreator("col", DoubleCell.TYPE).createSpec()));
+        HashSet<RowKey> hilited = new HashSet<RowKey>();
+        for (int i = 0; i < rowCount; i++) {
+            RowKey key = RowKey.createRowKey((long)i);
+            cont.addRowToTable(new DefaultRow(key, new DoubleCell(i)));
+            if (i % 3 == 0) {
+                hilited.add(key);
+            }
+        }
+        cont.close();
+        final DataTable data = cont.getTable();
+        HiLiteHandler handler = new HiLiteHandler();
+        handler.fireHiLiteEvent(hilited);
+        final TableContentModel m = new TableContentModel(data, handler);
+        final long seed = System.currentTimeMillis();
+        Random rand = new Random(seed);
+        assertEquals(rowCount, m.getRowCount());
+        // jump to the end and back (repositions the iterator)
+        assertEquals(RowKey.createRowKey((long)rowCount - 1), m.getRowKey(rowCount - 1));
+        assertEquals(RowKey.createRowKey(0L), m.getRowKey(0));
+        for (int i = 0; i < 2000; i++) {
+            int row = rand.nextInt(rowCount);
+            assertEquals("Used random seed " + seed, RowKey.createRowKey((long)row), m.getRowKey(row));
+        }
+
+        m.setTableContentFilter(TableContentFilter.HiliteOnly);
+        while (!m.isRowCountFinal()) {
+            m.getRowKey(m.getRowCount() - 1);
+        }
+        final int hilitCount = (rowCount + 2) / 3;
+        assertEquals(hilitCount, m.getRowCount());
+        for (int i = 0; i < 2000; i++) {
+            int row = rand.nextInt(hilitCount);
+            assertEquals("Used random seed " + seed, RowKey.createRowKey(3L * row), m.getRowKey(row));
+            assertTrue(m.isHiLit(row));
+        }
+        m.setDataTable(null);
+        ((ContainerTable)data).clear();
+    }
+
     /**
      * Method being tested: String getColumnName(int).
      */
@@ -61,6 +61,8 @@
 import java.io.FileReader;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Collection;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
@@ -304,6 +306,53 @@ public void testWorkflowVariables() throws Exception {
         assertEquals("Non-zero return value", 0, ret);
     }
 
+    /**
+     * Test running several parameterizations of the same workflow concurrently from a job file.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testConcurrentJobs() throws Exception {
+        final int[] maxRows = {10, 20, 30, 40};
+        File[] outFiles = new File[maxRows.length];
+        StringBuilder jobs = new StringBuilder("# one job per parameterization\n");
+        for (int i = 0; i < maxRows.length; i++) {
+            outFiles[i] = File.createTempFile("BatchExecutorTest", ".csv");
+            outFiles[i].delete();
+            outFiles[i].deleteOnExit();
+            jobs.append("-workflow.variable=destinationFile,").append(outFiles[i].getAbsolutePath())
+                .append(",String\n");
+            jobs.append("-workflow.variable=maxRows,").append(maxRows[i]).append(",int\n\n");
+        }
+        File jobFile = File.createTempFile("BatchExecutorTest", ".jobs");
+        jobFile.deleteOnExit();
+        Files.write(jobFile.toPath(), jobs.toString().getBytes(StandardCharsets.UTF_8));
+
+        int ret = BatchExecutor.mainRun(new String[]{"-workflowFile=" + standardTestWorkflowZip.getAbsolutePath(),
+            "-nosave", "-reset", "-concurrency=2", "-jobs=" + jobFile.getAbsolutePath()});
+        assertEquals("Non-zero return value", 0, ret);
+        for (int i = 0; i < maxRows.length; i++) {
+            assertEquals("Wrong number of lines in written CSV file of job " + i, maxRows[i] + 1,
+                countWrittenLines(outFiles[i]));
+        }
+
+        // jobs sharing a workflow must not save in place
+        ret = BatchExecutor.mainRun(new String[]{"-workflowFile=" + standardTestWorkflowZip.getAbsolutePath(),
+            "-reset", "-jobs=" + jobFile.getAbsolutePath()});
+        assertEquals("Wrong return value for in-place save of shared workflow", BatchExecutor.EXIT_ERR_PRESTART, ret);
+        ret = BatchExecutor.mainRun(new String[]{"-workflowFile=" + standardTestWorkflowZip.getAbsolutePath(),
+            "-nosave", "-concurrency=0", "-jobs=" + jobFile.getAbsolutePath()});
+        assertEquals("Wrong return value for invalid concurrency", BatchExecutor.EXIT_ERR_PRESTART, ret);
+
+        // concurrent jobs must not save to the same destination
+        File destDir = FileUtil.createTempDir("BatchExecutorTest");
+        ret = BatchExecutor.mainRun(new String[]{"-workflowFile=" + standardTestWorkflowZip.getAbsolutePath(),
+            "-reset", "-destDir=" + destDir.getAbsolutePath(), "-concurrency=2",
+            "-jobs=" + jobFile.getAbsolutePath()});
+        assertEquals("Wrong return value for concurrent jobs with same destination", BatchExecutor.EXIT_ERR_PRESTART,
+            ret);
+    }
+
     /**
      * Test if settings node options via command line works.
      *
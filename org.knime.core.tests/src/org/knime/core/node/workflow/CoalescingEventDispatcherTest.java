@@ -0,0 +1,139 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.workflow;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.EventObject;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.knime.core.node.workflow.CoalescingEventDispatcher.Granularity;
+
+/**
+ * Tests {@link CoalescingEventDispatcher}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class CoalescingEventDispatcherTest {
+
+    /** Events with a source and a sequence number, to tell coalesced events apart. */
+    @SuppressWarnings("serial")
+    private static final class TestEvent extends EventObject {
+        private final int m_seq;
+
+        TestEvent(final String source, final int seq) {
+            super(source);
+            m_seq = seq;
+        }
+
+        @Override
+        public String toString() {
+            return getSource() + "" + m_seq;
+        }
+    }
+
+    private static List<String> dispatch(final Granularity granularity, final int expectedCount) throws Exception {
+        final List<TestEvent> received = new ArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(expectedCount);
+        final CoalescingEventDispatcher<TestEvent> dispatcher = new CoalescingEventDispatcher<>(e -> {
+            synchronized (received) {
+                received.add(e);
+            }
+            latch.countDown();
+        }, granularity, 200);
+        try {
+            dispatcher.submit(new TestEvent("a", 1));
+            dispatcher.submit(new TestEvent("b", 2));
+            dispatcher.submit(new TestEvent("a", 3));
+            dispatcher.submit(new TestEvent("c", 4));
+            assertThat("Events not delivered in time", latch.await(5, TimeUnit.SECONDS), is(true));
+            // give the dispatcher a chance to (wrongly) deliver more events
+            Thread.sleep(300);
+            synchronized (received) {
+                return received.stream().map(TestEvent::toString).collect(Collectors.toList());
+            }
+        } finally {
+            dispatcher.close();
+        }
+    }
+
+    /** All events are delivered in order. */
+    @Test
+    public void testGranularityEvent() throws Exception {
+        assertThat(dispatch(Granularity.EVENT, 4), contains("a1", "b2", "a3", "c4"));
+    }
+
+    /** Latest event per source, in order of the first event of each source. */
+    @Test
+    public void testGranularityNode() throws Exception {
+        assertThat(dispatch(Granularity.NODE, 3), contains("a3", "b2", "c4"));
+    }
+
+    /** Only the latest event. */
+    @Test
+    public void testGranularityWorkflow() throws Exception {
+        assertThat(dispatch(Granularity.WORKFLOW, 1), contains("c4"));
+    }
+
+    /** Events pending at close or submitted afterwards are dropped. */
+    @Test
+    public void testClose() throws Exception {
+        final List<EventObject> received = new ArrayList<>();
+        final CoalescingEventDispatcher<EventObject> dispatcher =
+            new CoalescingEventDispatcher<>(received::add, Granularity.EVENT, 100);
+        dispatcher.submit(new EventObject("a"));
+        dispatcher.close();
+        dispatcher.submit(new EventObject("b"));
+        Thread.sleep(300);
+        assertThat(received.isEmpty(), is(true));
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.workflow;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link FlowObjectList}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class FlowObjectListTest {
+
+    /**
+     * Push and pop share structure and leave the original list unchanged.
+     */
+    @Test
+    public void testStructuralSharing() {
+        final FlowVariable a = new FlowVariable("a", 1);
+        final FlowVariable b = new FlowVariable("b", "x");
+        final FlowObjectList base = FlowObjectList.EMPTY.push(a);
+        final FlowObjectList top = base.push(b);
+        assertThat(top.size(), is(2));
+        assertThat(top.tail(), is(sameInstance(base)));
+        assertThat(base.size(), is(1));
+        assertThat(top.head(), is(sameInstance((FlowObject)b)));
+        assertThat(Arrays.asList(top.toArrayBottomUp()), is(Arrays.<FlowObject> asList(a, b)));
+        assertThat(top.drop(2), is(sameInstance(FlowObjectList.EMPTY)));
+    }
+
+    /**
+     * The name index returns variables top-most first.
+     */
+    @Test
+    public void testVariableIndex() {
+        final FlowVariable a1 = new FlowVariable("a", 1);
+        final FlowVariable a2 = new FlowVariable("a", "2");
+        final FlowObjectList list =
+            FlowObjectList.EMPTY.push(a1).push(new FlowVariable("b", 3)).push(a2);
+        final List<FlowVariable> as = list.getFlowVariables("a");
+        assertThat(as.size(), is(2));
+        assertThat(as.get(0), is(sameInstance(a2)));
+        assertThat(as.get(1), is(sameInstance(a1)));
+        assertThat(list.getFlowVariables("c").isEmpty(), is(true));
+        // the index of the list below is independent
+        assertThat(list.tail().getFlowVariables("a").size(), is(1));
+    }
+
+    /**
+     * The scope base is the list topped by the top-most scope context.
+     */
+    @Test
+    public void testScopeBase() {
+        final FlowScopeContext context = new FlowLoopContext();
+        final FlowObjectList withContext = FlowObjectList.EMPTY.push(new FlowVariable("a", 1)).push(context);
+        final FlowObjectList list = withContext.push(new FlowVariable("b", 2)).push(new FlowVariable("c", 3));
+        assertThat(list.scopeBase(), is(sameInstance(withContext)));
+        assertThat(withContext.scopeBase(), is(sameInstance(withContext)));
+        assertThat(withContext.tail().scopeBase(), is(sameInstance(FlowObjectList.EMPTY)));
+    }
+
+    /**
+     * Deep equality compares elements.
+     */
+    @Test
+    public void testContentEquals() {
+        final FlowObjectList l1 = FlowObjectList.EMPTY.push(new FlowVariable("a", 1)).push(new FlowVariable("b", 2));
+        final FlowObjectList l2 = FlowObjectList.EMPTY.push(new FlowVariable("a", 1)).push(new FlowVariable("b", 2));
+        assertThat(l1.contentEquals(l2), is(true));
+        assertThat(l1.contentEquals(l2.tail()), is(false));
+        assertThat(l1.contentEquals(l1.tail().push(new FlowVariable("b", 3))), is(false));
+    }
+}
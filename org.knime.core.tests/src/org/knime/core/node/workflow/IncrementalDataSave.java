@@ -0,0 +1,219 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.workflow;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.knime.core.node.workflow.InternalNodeContainerState.CONFIGURED;
+import static org.knime.core.node.workflow.InternalNodeContainerState.EXECUTED;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.FileNodePersistor;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.util.FileUtil;
+
+/**
+ * Saves a workflow with {@link KNIMEConstants#PROPERTY_INCREMENTAL_DATA_SAVE} set, checks which data directories are
+ * retained or rewritten and that the tables load again. Uses the workflow of {@link Simplechainofnodes}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class IncrementalDataSave extends WorkflowTestCase {
+
+    /** Name of a file put into directories that are expected to be retained (or deleted) on save. */
+    private static final String MARKER_FILE = "marker.txt";
+
+    private String m_previousPropertyValue;
+
+    private File m_workflowDir;
+
+    private NodeID m_dataGen;
+
+    private NodeID m_colFilter;
+
+    private NodeID m_rowFilter;
+
+    private NodeID m_tblView;
+
+    @Before
+    public void setUp() throws Exception {
+        m_previousPropertyValue = System.setProperty(KNIMEConstants.PROPERTY_INCREMENTAL_DATA_SAVE, "true");
+        m_workflowDir = FileUtil.createTempDir(getClass().getSimpleName());
+        FileUtil.copyDir(getWorkflowDirectory("simplechainofnodes"), m_workflowDir);
+        loadFlow();
+    }
+
+    private WorkflowManager loadFlow() throws Exception {
+        NodeID baseID = loadAndSetWorkflow(m_workflowDir);
+        m_dataGen = new NodeID(baseID, 1);
+        m_colFilter = new NodeID(baseID, 2);
+        m_rowFilter = new NodeID(baseID, 3);
+        m_tblView = new NodeID(baseID, 4);
+        return getManager();
+    }
+
+    private File getNodeDir(final NodeID id) {
+        return getManager().getNodeContainer(id).getNodeContainerDirectory().getFile();
+    }
+
+    private File getPortDir(final NodeID id) {
+        return new File(getNodeDir(id), FileNodePersistor.PORT_FOLDER_PREFIX + 1);
+    }
+
+    private static File putMarker(final File dir) throws Exception {
+        dir.mkdirs();
+        File marker = new File(dir, MARKER_FILE);
+        assertThat("Marker file not created", marker.createNewFile(), is(true));
+        return marker;
+    }
+
+    private List<List<Object>> readOutput(final NodeID id) {
+        BufferedDataTable table = (BufferedDataTable)getManager().getNodeContainer(id).getOutPort(1).getPortObject();
+        List<List<Object>> rows = new ArrayList<>();
+        try (CloseableRowIterator it = table.iterator()) {
+            while (it.hasNext()) {
+                DataRow row = it.next();
+                List<Object> values = new ArrayList<>();
+                values.add(row.getKey());
+                row.forEach(values::add);
+                rows.add(values);
+            }
+        }
+        return rows;
+    }
+
+    /** Execute, save, reset, save: the data directories are removed and the reset workflow loads. */
+    @Test
+    public void testSaveResetSaveLoad() throws Exception {
+        WorkflowManager m = getManager();
+        executeAllAndWait();
+        checkState(m, EXECUTED);
+        m.save(m_workflowDir, new ExecutionMonitor(), true);
+        File dataGenPortDir = getPortDir(m_dataGen);
+        File rowFilterPortDir = getPortDir(m_rowFilter);
+        assertThat("Table not saved", dataGenPortDir.isDirectory(), is(true));
+        assertThat("Table not saved", rowFilterPortDir.isDirectory(), is(true));
+        // left over from a previous save of a node with internal tables
+        File staleInternalTablesDir = new File(getNodeDir(m_dataGen), FileNodePersistor.INTERNAL_TABLE_FOLDER_PREFIX);
+        putMarker(staleInternalTablesDir);
+
+        reset(m_dataGen);
+        checkState(m_tblView, CONFIGURED);
+        m.save(m_workflowDir, new ExecutionMonitor(), true);
+        assertThat("Port directory of reset node retained", dataGenPortDir.exists(), is(false));
+        assertThat("Port directory of reset node retained", rowFilterPortDir.exists(), is(false));
+        assertThat("Stale internal tables retained", staleInternalTablesDir.exists(), is(false));
+        closeWorkflow();
+
+        loadFlow();
+        checkState(m_dataGen, CONFIGURED);
+        checkState(m_tblView, CONFIGURED);
+        executeAllAndWait();
+        checkState(getManager(), EXECUTED);
+        getManager().save(m_workflowDir, new ExecutionMonitor(), true);
+        closeWorkflow();
+
+        loadFlow();
+        checkState(m_tblView, EXECUTED);
+        assertThat("Tables not readable after load", readOutput(m_rowFilter).isEmpty(), is(false));
+    }
+
+    /** Execute, save, modify one node and save again: unchanged tables are retained, changed ones rewritten. */
+    @Test
+    public void testSaveModifySaveLoad() throws Exception {
+        WorkflowManager m = getManager();
+        executeAllAndWait();
+        m.save(m_workflowDir, new ExecutionMonitor(), true);
+        List<List<Object>> dataGenRows = readOutput(m_dataGen);
+        List<List<Object>> colFilterRows = readOutput(m_colFilter);
+        List<List<Object>> rowFilterRows = readOutput(m_rowFilter);
+        File dataGenMarker = putMarker(getPortDir(m_dataGen));
+        File rowFilterMarker = putMarker(getPortDir(m_rowFilter));
+        File staleInternalTablesDir = new File(getNodeDir(m_dataGen), FileNodePersistor.INTERNAL_TABLE_FOLDER_PREFIX);
+        putMarker(staleInternalTablesDir);
+
+        // data generator is saved again (dirty) but with the same table; row filter creates a new table
+        findNodeContainer(m_dataGen).setDirty();
+        reset(m_rowFilter);
+        executeAllAndWait();
+        checkState(m, EXECUTED);
+        m.save(m_workflowDir, new ExecutionMonitor(), true);
+        assertThat("Unchanged table rewritten", dataGenMarker.exists(), is(true));
+        assertThat("Changed table retained", rowFilterMarker.exists(), is(false));
+        assertThat("Changed table not saved", getPortDir(m_rowFilter).isDirectory(), is(true));
+        assertThat("Stale internal tables retained", staleInternalTablesDir.exists(), is(false));
+        closeWorkflow();
+
+        loadFlow();
+        checkState(m_tblView, EXECUTED);
+        assertThat("Rows of retained table", readOutput(m_dataGen), equalTo(dataGenRows));
+        assertThat("Rows of table referencing retained table", readOutput(m_colFilter), equalTo(colFilterRows));
+        assertThat("Rows of rewritten table", readOutput(m_rowFilter), equalTo(rowFilterRows));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        super.tearDown();
+        if (m_previousPropertyValue == null) {
+            System.clearProperty(KNIMEConstants.PROPERTY_INCREMENTAL_DATA_SAVE);
+        } else {
+            System.setProperty(KNIMEConstants.PROPERTY_INCREMENTAL_DATA_SAVE, m_previousPropertyValue);
+        }
+        FileUtil.deleteRecursively(m_workflowDir);
+    }
+}
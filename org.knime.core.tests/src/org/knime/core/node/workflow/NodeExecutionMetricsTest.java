@@ -0,0 +1,158 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.workflow;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.data.container.DataContainerSettings;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.ExecutionMonitor;
+
+/**
+ * Tests {@link NodeExecutionMetrics} as collected during execution of native nodes. Reuses the workflow of
+ * {@link Bug5510_LoopEndEmptyTable} (a table creator followed by two loops).
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class NodeExecutionMetricsTest extends WorkflowTestCase {
+
+    private NodeID m_tableCreate_1;
+    private NodeID m_loopEnd_Single_3;
+    private NodeID m_loopEnd_Double_8;
+
+    @Before
+    public void setUp() throws Exception {
+        NodeID baseID = loadAndSetWorkflow(getWorkflowDirectory("bug5510_LoopEndEmptyTable"));
+        m_tableCreate_1 = new NodeID(baseID, 1);
+        m_loopEnd_Single_3 = new NodeID(baseID, 3);
+        m_loopEnd_Double_8 = new NodeID(baseID, 8);
+    }
+
+    /** Metrics are available after execution, queryable via the workflow and passed to listeners. */
+    @Test
+    public void testMetricsAfterExecution() throws Exception {
+        final WorkflowManager mgr = getManager();
+        assertThat(mgr.getNodeExecutionMetrics(true).isEmpty(), is(true));
+        final Set<NodeID> notified = ConcurrentHashMap.newKeySet();
+        final Consumer<NodeExecutionMetrics> listener = m -> notified.add(m.getNodeID());
+        NodeExecutionMetrics.addListener(listener);
+        try {
+            executeAllAndWait();
+        } finally {
+            NodeExecutionMetrics.removeListener(listener);
+        }
+        checkStateOfMany(InternalNodeContainerState.EXECUTED, m_tableCreate_1, m_loopEnd_Single_3, m_loopEnd_Double_8);
+
+        NativeNodeContainer tableCreate = (NativeNodeContainer)mgr.getNodeContainer(m_tableCreate_1);
+        NodeExecutionMetrics metrics = tableCreate.getLastExecutionMetrics().get();
+        assertThat(metrics.getNodeID(), is(m_tableCreate_1));
+        assertThat(metrics.isSuccess(), is(true));
+        assertThat(metrics.getWallTimeNanos(), is(greaterThan(0L)));
+        assertThat(metrics.getQueueWaitNanos(), is(greaterThanOrEqualTo(0L)));
+        assertThat(metrics.getLockWaitNanos(), is(greaterThanOrEqualTo(0L)));
+        assertThat(metrics.getRowsIn(), is(0L));
+        assertThat(metrics.getRowsOut(), is(greaterThanOrEqualTo(0L)));
+
+        List<NodeID> ids = mgr.getNodeExecutionMetrics(true).stream()
+            .map(NodeExecutionMetrics::getNodeID).collect(Collectors.toList());
+        assertThat(ids, hasItems(m_tableCreate_1, m_loopEnd_Single_3, m_loopEnd_Double_8));
+        assertThat(notified, hasItems(m_tableCreate_1, m_loopEnd_Single_3, m_loopEnd_Double_8));
+    }
+
+    /** Tables written to disk are accounted and the output row count matches the output table. Uses the workflow
+     * of {@link Simplechainofnodes} as it generates a non-empty table. */
+    @Test
+    public void testBytesWrittenAndRowsOut() throws Exception {
+        closeWorkflow();
+        // keep no cells in memory so that the output tables are written to disk
+        WorkflowManager mgr = loadWorkflow(getWorkflowDirectory("simplechainofnodes"), new ExecutionMonitor(),
+            DataContainerSettings.getDefault().withMaxCellsInMemory(0)).getWorkflowManager();
+        setManager(mgr);
+        NodeID dataGen = new NodeID(mgr.getID(), 1);
+        executeAndWait(dataGen);
+        checkState(dataGen, InternalNodeContainerState.EXECUTED);
+
+        NativeNodeContainer dataGenNC = (NativeNodeContainer)mgr.getNodeContainer(dataGen);
+        NodeExecutionMetrics metrics = dataGenNC.getLastExecutionMetrics().get();
+        BufferedDataTable table = (BufferedDataTable)dataGenNC.getOutPort(1).getPortObject();
+        long rowCount = 0;
+        try (CloseableRowIterator it = table.iterator()) {
+            while (it.hasNext()) {
+                it.next();
+                rowCount++;
+            }
+        }
+        assertThat("Test table is empty", rowCount, is(greaterThan(0L)));
+        assertThat(metrics.getRowsOut(), is(rowCount));
+        assertThat(metrics.getBytesWritten(), is(greaterThan(0L)));
+    }
+
+    /** A recorder started while another one is bound to the thread restores the outer one when it finishes. */
+    @Test
+    public void testNestedRecorders() throws Exception {
+        NodeContainer nc = getManager().getNodeContainer(m_tableCreate_1);
+        assertThat(NodeExecutionMetrics.Recorder.current() == null, is(true));
+        NodeExecutionMetrics.Recorder outer = NodeExecutionMetrics.Recorder.start(0L, 0L);
+        NodeExecutionMetrics.Recorder inner = NodeExecutionMetrics.Recorder.start(0L, 0L);
+        assertThat(NodeExecutionMetrics.Recorder.current() == inner, is(true));
+        inner.finish(nc, true);
+        assertThat(NodeExecutionMetrics.Recorder.current() == outer, is(true));
+        outer.finish(nc, true);
+        assertThat(NodeExecutionMetrics.Recorder.current() == null, is(true));
+    }
+}
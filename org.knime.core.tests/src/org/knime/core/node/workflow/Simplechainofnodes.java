@@ -44,12 +44,33 @@
  */
 package org.knime.core.node.workflow;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.port.PortType;
+import org.knime.core.util.FileUtil;
 
 /**
  *
@@ -219,4 +240,142 @@ public void testExecuteDeleteNode() throws Exception {
         assertFalse(m.canExecuteNode(m_tblView));
     }
 
+    /** Configure with unchanged input must not call the node model again, reconfigure-all and reset + configure
+     * must. */
+    @Test
+    public void testReconfigureWithUnchangedInput() throws Exception {
+        WorkflowManager m = getManager();
+        PortObjectSpec specBefore = m.getNodeContainer(m_colFilter).getOutPort(1).getPortObjectSpec();
+        assertNotNull(specBefore);
+        m.configureNodeAndSuccessors(m_dataGen, true);
+        checkState(m_colFilter, InternalNodeContainerState.CONFIGURED);
+        checkState(m_tblView, InternalNodeContainerState.CONFIGURED);
+        assertThat("Spec recreated although input did not change",
+            m.getNodeContainer(m_colFilter).getOutPort(1).getPortObjectSpec(), sameInstance(specBefore));
+
+        m.reconfigureAllNodesOnlyInThisWFM(false);
+        PortObjectSpec specAfterReconfigure = m.getNodeContainer(m_colFilter).getOutPort(1).getPortObjectSpec();
+        assertThat("Spec not recreated by reconfigure-all", specAfterReconfigure, not(sameInstance(specBefore)));
+        assertThat("Spec changed by reconfigure-all", specAfterReconfigure, equalTo(specBefore));
+
+        m.resetAndConfigureNode(m_colFilter);
+        PortObjectSpec specAfterReset = m.getNodeContainer(m_colFilter).getOutPort(1).getPortObjectSpec();
+        assertThat("Spec not recreated after reset", specAfterReset, not(sameInstance(specAfterReconfigure)));
+        assertThat("Spec changed after reset", specAfterReset, equalTo(specBefore));
+
+        executeAndWait(m_tblView);
+        checkState(m_tblView, InternalNodeContainerState.EXECUTED);
+    }
+
+    /** Read-only queries from other threads don't wait for the lock and see the state of the last lock release. */
+    @Test
+    public void testReadWhileLockedByOtherThread() throws Exception {
+        WorkflowManager m = getManager();
+        ConnectionContainer connection = findInConnection(m_rowFilter, 1);
+        try (WorkflowLock lock = m.lock()) {
+            m.removeConnection(connection);
+            assertThat("Lock holder must see own changes", m.getIncomingConnectionsFor(m_rowFilter), empty());
+            Set<ConnectionContainer> otherThreadConnections = CompletableFuture
+                .supplyAsync(() -> m.getIncomingConnectionsFor(m_rowFilter)).get(10, TimeUnit.SECONDS);
+            assertThat("Unreleased change visible to other thread", otherThreadConnections, contains(connection));
+            assertTrue(CompletableFuture.supplyAsync(() -> m.containsNodeContainer(m_rowFilter))
+                .get(10, TimeUnit.SECONDS));
+        }
+        Set<ConnectionContainer> otherThreadConnections = CompletableFuture
+            .supplyAsync(() -> m.getIncomingConnectionsFor(m_rowFilter)).get(10, TimeUnit.SECONDS);
+        assertThat("Released change not visible to other thread", otherThreadConnections, empty());
+        checkState(m_rowFilter, InternalNodeContainerState.IDLE);
+    }
+
+    /** Forked executed nodes share the tables of their originals, which survive a reset of the originals. */
+    @Test
+    public void testForkExecutedNodes() throws Exception {
+        WorkflowManager m = getManager();
+        executeAndWait(m_rowFilter);
+        WorkflowCopyContent.Builder content = WorkflowCopyContent.builder();
+        content.setNodeIDs(m_colFilter, m_rowFilter);
+        NodeID[] forkIDs = m.forkFromAndPasteHere(m, content.build(), new ExecutionMonitor()).getNodeIDs();
+        checkState(forkIDs[0], InternalNodeContainerState.EXECUTED);
+        checkState(forkIDs[1], InternalNodeContainerState.EXECUTED);
+        BufferedDataTable origTable = (BufferedDataTable)m.getNodeContainer(m_rowFilter).getOutPort(1).getPortObject();
+        BufferedDataTable forkTable = (BufferedDataTable)m.getNodeContainer(forkIDs[1]).getOutPort(1).getPortObject();
+        assertThat("Table not shared with fork", forkTable, sameInstance(origTable));
+        List<RowKey> rowKeys = readRowKeys(origTable);
+
+        m.resetAndConfigureNode(m_colFilter);
+        checkState(m_rowFilter, InternalNodeContainerState.CONFIGURED);
+        checkState(forkIDs[1], InternalNodeContainerState.EXECUTED);
+        assertThat("Shared table not readable after reset of original", readRowKeys(forkTable), equalTo(rowKeys));
+        assertTrue("Shared table removed from repository after reset of original",
+            m.getWorkflowDataRepository().getTable(forkTable.getBufferedTableId()).isPresent());
+
+        // node downstream of the fork, then save and load the fork's output after the original got reset
+        NodeID forkView = m.copyFromAndPasteHere(m, WorkflowCopyContent.builder().setNodeIDs(m_tblView).build())
+            .getNodeIDs()[0];
+        m.addConnection(forkIDs[1], 1, forkView, 1);
+        executeAndWait(forkView);
+        checkState(forkView, InternalNodeContainerState.EXECUTED);
+        File tmpWorkflowDir = FileUtil.createTempDir(getClass().getSimpleName() + "-testForkExecutedNodes");
+        try {
+            m.save(tmpWorkflowDir, new ExecutionMonitor(), true);
+            closeWorkflow();
+            NodeID baseID = loadAndSetWorkflow(tmpWorkflowDir);
+            m = getManager();
+            m_colFilter = new NodeID(baseID, m_colFilter.getIndex());
+            m_rowFilter = new NodeID(baseID, m_rowFilter.getIndex());
+            m_tblView = new NodeID(baseID, m_tblView.getIndex());
+            forkIDs[0] = new NodeID(baseID, forkIDs[0].getIndex());
+            forkIDs[1] = new NodeID(baseID, forkIDs[1].getIndex());
+            checkState(m_rowFilter, InternalNodeContainerState.CONFIGURED);
+            checkState(forkIDs[1], InternalNodeContainerState.EXECUTED);
+            forkTable = (BufferedDataTable)m.getNodeContainer(forkIDs[1]).getOutPort(1).getPortObject();
+            assertThat("Fork output after save and load", readRowKeys(forkTable), equalTo(rowKeys));
+
+            m.resetAndConfigureNode(forkIDs[0]);
+            checkState(forkIDs[1], InternalNodeContainerState.CONFIGURED);
+            executeAndWait(m_tblView);
+            checkState(m_tblView, InternalNodeContainerState.EXECUTED);
+        } finally {
+            closeWorkflow();
+            FileUtil.deleteRecursively(tmpWorkflowDir);
+        }
+    }
+
+    /** Executed nodes can be forked into another workflow only together with their upstream nodes. */
+    @Test
+    public void testForkIntoOtherWorkflow() throws Exception {
+        WorkflowManager m = getManager();
+        executeAndWait(m_rowFilter);
+        WorkflowManager metanode = m.createAndAddSubWorkflow(new PortType[0], new PortType[0], "fork target");
+        try {
+            metanode.forkFromAndPasteHere(m, WorkflowCopyContent.builder().setNodeIDs(m_colFilter, m_rowFilter)
+                .build(), new ExecutionMonitor());
+            fail("Executed nodes forked without their upstream node");
+        } catch (IllegalArgumentException e) {
+            assertThat("Nodes pasted although fork was rejected", metanode.getNodeContainers(), empty());
+        }
+
+        NodeID[] forkIDs = metanode.forkFromAndPasteHere(m,
+            WorkflowCopyContent.builder().setNodeIDs(m_dataGen, m_colFilter, m_rowFilter).build(),
+            new ExecutionMonitor()).getNodeIDs();
+        for (NodeID forkID : forkIDs) {
+            assertTrue("Fork not executed: " + forkID,
+                metanode.getNodeContainer(forkID).getNodeContainerState().isExecuted());
+        }
+        BufferedDataTable origTable = (BufferedDataTable)m.getNodeContainer(m_rowFilter).getOutPort(1).getPortObject();
+        BufferedDataTable forkTable =
+            (BufferedDataTable)metanode.getNodeContainer(forkIDs[2]).getOutPort(1).getPortObject();
+        assertThat("Table not shared with fork in same project", forkTable, sameInstance(origTable));
+    }
+
+    private static List<RowKey> readRowKeys(final BufferedDataTable table) {
+        List<RowKey> result = new ArrayList<>();
+        try (CloseableRowIterator it = table.iterator()) {
+            while (it.hasNext()) {
+                result.add(it.next().getKey());
+            }
+        }
+        return result;
+    }
+
 }
@@ -0,0 +1,166 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.workflow;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.knime.core.node.workflow.InternalNodeContainerState.EXECUTED;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.util.FileUtil;
+
+/**
+ * Saves, loads and re-saves executed tables in the unzipped layout ({@link KNIMEConstants#PROPERTY_UNZIPPED_TABLE_FILES}).
+ * Uses the workflow of {@link Simplechainofnodes}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class UnzippedTableFiles extends WorkflowTestCase {
+
+    private String m_previousPropertyValue;
+
+    private File m_tmpWorkflowDir;
+
+    private File m_tmpWorkflowDirCopy;
+
+    private NodeID m_dataGen;
+
+    @Before
+    public void setUp() throws Exception {
+        m_previousPropertyValue = System.setProperty(KNIMEConstants.PROPERTY_UNZIPPED_TABLE_FILES, "true");
+        m_tmpWorkflowDir = FileUtil.createTempDir(getClass().getSimpleName() + "-tempTestInstance");
+        m_tmpWorkflowDirCopy = FileUtil.createTempDir(getClass().getSimpleName() + "-tempTestInstanceCopy");
+        FileUtil.copyDir(getWorkflowDirectory("simplechainofnodes"), m_tmpWorkflowDir);
+        loadFlow(m_tmpWorkflowDir);
+    }
+
+    private WorkflowManager loadFlow(final File dir) throws Exception {
+        NodeID baseID = loadAndSetWorkflow(dir);
+        m_dataGen = new NodeID(baseID, 1);
+        return getManager();
+    }
+
+    private List<List<Object>> readDataGenOutput() {
+        BufferedDataTable table = (BufferedDataTable)getManager().getNodeContainer(m_dataGen).getOutPort(1)
+            .getPortObject();
+        List<List<Object>> rows = new ArrayList<>();
+        try (CloseableRowIterator it = table.iterator()) {
+            while (it.hasNext()) {
+                DataRow row = it.next();
+                List<Object> values = new ArrayList<>();
+                values.add(row.getKey());
+                row.forEach(values::add);
+                rows.add(values);
+            }
+        }
+        return rows;
+    }
+
+    private static File getDataGenTableDir(final File workflowDir) {
+        return new File(new File(new File(workflowDir, "Data Generator (#1)"), "port_1"), "data");
+    }
+
+    /** Save and load in the unzipped layout, then save the lazily loaded tables elsewhere (linked from the loaded
+     * files) and load that copy after deleting the original. */
+    @Test
+    public void testSaveLoadResave() throws Exception {
+        WorkflowManager m = getManager();
+        executeAllAndWait();
+        checkState(m, EXECUTED);
+        List<List<Object>> expectedRows = readDataGenOutput();
+        assertThat("Test table is empty", expectedRows.isEmpty(), is(false));
+        m.save(m_tmpWorkflowDir, new ExecutionMonitor(), true);
+        File tableDir = getDataGenTableDir(m_tmpWorkflowDir);
+        assertThat("Table not saved unzipped", new File(tableDir, "data.bin").isFile(), is(true));
+        assertThat("Table saved zipped", new File(tableDir.getParentFile(), "data.zip").exists(), is(false));
+        closeWorkflow();
+
+        // round trip
+        loadFlow(m_tmpWorkflowDir);
+        checkState(m_dataGen, EXECUTED);
+        assertThat("Rows after load", readDataGenOutput(), equalTo(expectedRows));
+        closeWorkflow();
+
+        // save a copy without accessing the (lazily loaded) tables before
+        m = loadFlow(m_tmpWorkflowDir);
+        m.save(m_tmpWorkflowDirCopy, new ExecutionMonitor(), true);
+        assertThat("Copy not saved unzipped", new File(getDataGenTableDir(m_tmpWorkflowDirCopy), "data.bin").isFile(),
+            is(true));
+        assertThat("Rows after saving copy", readDataGenOutput(), equalTo(expectedRows));
+        closeWorkflow();
+
+        // the copy must not depend on the files of the original
+        FileUtil.deleteRecursively(m_tmpWorkflowDir);
+        loadFlow(m_tmpWorkflowDirCopy);
+        checkState(m_dataGen, EXECUTED);
+        assertThat("Rows after loading copy", readDataGenOutput(), equalTo(expectedRows));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        super.tearDown();
+        if (m_previousPropertyValue == null) {
+            System.clearProperty(KNIMEConstants.PROPERTY_UNZIPPED_TABLE_FILES);
+        } else {
+            System.setProperty(KNIMEConstants.PROPERTY_UNZIPPED_TABLE_FILES, m_previousPropertyValue);
+        }
+        FileUtil.deleteRecursively(m_tmpWorkflowDir);
+        FileUtil.deleteRecursively(m_tmpWorkflowDirCopy);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.workflow;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.container.DataContainer;
+
+/**
+ * Tests the table ownership tracking in {@link WorkflowDataRepository}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class WorkflowDataRepositoryTest {
+
+    private static ContainerTable createTable() {
+        DataContainer c = new DataContainer(new DataTableSpec());
+        c.close();
+        return (ContainerTable)c.getTable();
+    }
+
+    /** Tables added via owner view are removed in bulk, others stay. */
+    @Test
+    public void testRemoveTablesOwnedBy() {
+        WorkflowDataRepository repository = new WorkflowDataRepository();
+        NodeID owner1 = new NodeID(NodeID.ROOTID, 1);
+        NodeID owner2 = new NodeID(NodeID.ROOTID, 2);
+        ContainerTable t1 = createTable();
+        ContainerTable t2 = createTable();
+        ContainerTable t3 = createTable();
+        ContainerTable t4 = createTable();
+        repository.getViewForOwner(owner1).addTable(1, t1);
+        repository.getViewForOwner(owner1).addTable(2, t2);
+        repository.getViewForOwner(owner2).addTable(3, t3);
+        repository.addTable(4, t4);
+        // a reference to a table owned by another node doesn't change the owner
+        repository.getViewForOwner(owner2).addTable(1, t1);
+
+        assertThat("tables of owner 1", repository.getTableIDsOwnedBy(owner1), containsInAnyOrder(1, 2));
+        assertThat("tables of owner 2", repository.getTableIDsOwnedBy(owner2), containsInAnyOrder(3));
+
+        List<ContainerTable> removed = repository.removeTablesOwnedBy(owner1);
+        assertThat("removed tables", removed, containsInAnyOrder(t1, t2));
+        assertThat("tables of owner 1 after removal", repository.getTableIDsOwnedBy(owner1), is(empty()));
+        assertThat("remaining tables", repository.getGlobalTableRepository().keySet(), containsInAnyOrder(3, 4));
+        assertThat("removing twice", repository.removeTablesOwnedBy(owner1), is(empty()));
+    }
+
+    /** Removing individual tables also updates the ownership. */
+    @Test
+    public void testRemoveSingleTable() {
+        WorkflowDataRepository repository = new WorkflowDataRepository();
+        NodeID owner = new NodeID(NodeID.ROOTID, 1);
+        ContainerTable t1 = createTable();
+        ContainerTable t2 = createTable();
+        WorkflowDataRepository view = repository.getViewForOwner(owner);
+        view.addTable(1, t1);
+        view.addTable(2, t2);
+        assertThat("removed table", repository.removeTable(1).get() == t1, is(true));
+        assertThat("tables of owner", repository.getTableIDsOwnedBy(owner), containsInAnyOrder(2));
+        assertThat("removed via view", view.removeTable(2).get() == t2, is(true));
+        assertThat("tables of owner", repository.getTableIDsOwnedBy(owner), is(empty()));
+        assertThat("remaining tables", repository.getGlobalTableRepository().isEmpty(), is(true));
+    }
+
+    /** Views are cached per owner until the owner's tables are removed. */
+    @Test
+    public void testViewCachedPerOwner() {
+        WorkflowDataRepository repository = new WorkflowDataRepository();
+        NodeID owner1 = new NodeID(NodeID.ROOTID, 1);
+        NodeID owner2 = new NodeID(NodeID.ROOTID, 2);
+        WorkflowDataRepository view1 = repository.getViewForOwner(owner1);
+        assertThat("same view for same owner", repository.getViewForOwner(owner1) == view1, is(true));
+        assertThat("other view for other owner", repository.getViewForOwner(owner2) != view1, is(true));
+        view1.addTable(1, createTable());
+        assertThat("view sees repository", view1.getTable(1).isPresent(), is(true));
+        repository.removeTablesOwnedBy(owner1);
+        WorkflowDataRepository newView1 = repository.getViewForOwner(owner1);
+        assertThat("view dropped after removal", newView1 != view1, is(true));
+        newView1.addTable(2, createTable());
+        assertThat("tables of owner", repository.getTableIDsOwnedBy(owner1), containsInAnyOrder(2));
+        int id = newView1.generateNewID();
+        assertThat("view shares ID counter", repository.getLastId(), is(id));
+        assertThat("view of view", newView1.getViewForOwner(owner2) == repository.getViewForOwner(owner2), is(true));
+    }
+
+    /** Disowned tables stay in the repository, are no longer removed in bulk but still individually. */
+    @Test
+    public void testDisownTablesOwnedBy() {
+        WorkflowDataRepository repository = new WorkflowDataRepository();
+        NodeID owner = new NodeID(NodeID.ROOTID, 1);
+        ContainerTable t1 = createTable();
+        ContainerTable t2 = createTable();
+        repository.getViewForOwner(owner).addTable(1, t1);
+        repository.getViewForOwner(owner).addTable(2, t2);
+        assertThat("disowned tables", repository.disownTablesOwnedBy(owner), containsInAnyOrder(1, 2));
+        assertThat("tables of owner", repository.getTableIDsOwnedBy(owner), is(empty()));
+        assertThat("remaining tables", repository.getGlobalTableRepository().keySet(), containsInAnyOrder(1, 2));
+
+        // the owner's new tables are removed in bulk, the disowned ones are not
+        ContainerTable t3 = createTable();
+        repository.getViewForOwner(owner).addTable(3, t3);
+        assertThat("removed tables", repository.removeTablesOwnedBy(owner), containsInAnyOrder(t3));
+        assertThat("removed table", repository.removeTable(1).get() == t1, is(true));
+        assertThat("remaining tables", repository.getGlobalTableRepository().keySet(), containsInAnyOrder(2));
+    }
+}
@@ -56,11 +56,15 @@
 
 import java.io.File;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
 import org.eclipse.core.runtime.Platform;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /**
  * Testcases for {@link FileUtil}.
@@ -68,6 +72,10 @@
  * @author Thorsten Meinl, KNIME AG, Zurich, Switzerland
  */
 public class FileUtilTest {
+    /** Temporary folder for the link tests. */
+    @Rule
+    public TemporaryFolder m_tempFolder = new TemporaryFolder();
+
     /**
      * Testcase for {@link FileUtil#toURL(String)} under Linux and MacOS.
      *
@@ -230,4 +238,33 @@ public void testFileResolvedFromUncUrlContainsTheProtocolHostAndPathInItsAbsolut
         File resolvedFile = FileUtil.getFileFromURL(new URL("file://HOST/path"));
         assertThat("Resolved file does not have a correct UNC path", resolvedFile.getAbsolutePath(), is("\\\\HOST\\path"));
     }
+
+    /**
+     * Checks that {@link FileUtil#linkOrCopy(File, File)} replicates a directory tree, replaces existing targets and
+     * keeps the target content when the source is deleted afterwards.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testLinkOrCopy() throws Exception {
+        File source = m_tempFolder.newFolder("source");
+        File sub = new File(source, "sub");
+        sub.mkdir();
+        Files.write(new File(source, "a.bin").toPath(), "content a".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(sub, "b.bin").toPath(), "content b".getBytes(StandardCharsets.UTF_8));
+
+        File target = new File(m_tempFolder.getRoot(), "target");
+        target.mkdir();
+        Files.write(new File(target, "a.bin").toPath(), "old".getBytes(StandardCharsets.UTF_8));
+
+        FileUtil.linkOrCopy(source, target);
+        FileUtil.deleteRecursively(source);
+
+        assertThat("Unexpected content of linked file",
+            new String(Files.readAllBytes(new File(target, "a.bin").toPath()), StandardCharsets.UTF_8),
+            is("content a"));
+        assertThat("Unexpected content of linked file in sub directory",
+            new String(Files.readAllBytes(new File(target, "sub/b.bin").toPath()), StandardCharsets.UTF_8),
+            is("content b"));
+    }
 }
@@ -0,0 +1,111 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.util;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ParallelComputeExecutor}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class ParallelComputeExecutorTest {
+
+    /** Tasks waiting for the tasks they submit don't dead-lock, even if there are more of them than threads. */
+    @Test(timeout = 10000)
+    public void testNestedTasks() throws Exception {
+        final List<Future<Integer>> outer = new ArrayList<>();
+        for (int i = 0; i < 2 * ParallelComputeExecutor.PARALLELISM; i++) {
+            outer.add(ParallelComputeExecutor.submit(() -> {
+                final Future<Integer> inner = ParallelComputeExecutor.submit(() -> 1);
+                assertThat("Nested task not run inline", inner.isDone(), is(true));
+                return ParallelComputeExecutor.get(inner, RuntimeException.class) + 1;
+            }));
+        }
+        for (Future<Integer> f : outer) {
+            assertThat("Wrong result", ParallelComputeExecutor.get(f, RuntimeException.class), is(2));
+        }
+    }
+
+    /** Failures are rethrown unwrapped. */
+    @Test(expected = UnsupportedOperationException.class, timeout = 10000)
+    public void testGetUnwrapsFailure() throws Exception {
+        ParallelComputeExecutor.get(ParallelComputeExecutor.submit(() -> {
+            throw new UnsupportedOperationException("expected");
+        }), RuntimeException.class);
+    }
+
+    /** Cancelling waits for running tasks and skips the others. */
+    @Test(timeout = 10000)
+    public void testCancelAndAwait() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean finished = new AtomicBoolean();
+        final Future<?> running = ParallelComputeExecutor.submit(() -> {
+            started.countDown();
+            try {
+                release.await();
+                Thread.sleep(100);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            finished.set(true);
+        });
+        started.await();
+        release.countDown();
+        ParallelComputeExecutor.cancelAndAwait(Arrays.asList(running));
+        assertThat("Running task not awaited", finished.get(), is(true));
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.util;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link ParallelZip}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class ParallelZipTest {
+
+    /** Temporary folder for archives and extracted content. */
+    @Rule
+    public TemporaryFolder m_tempFolder = new TemporaryFolder();
+
+    /** Builds a directory with an empty file, small files and a file spanning several blocks. */
+    private File createSourceDir() throws IOException {
+        File root = m_tempFolder.newFolder("root");
+        File sub = new File(root, "sub");
+        sub.mkdir();
+        new File(sub, "empty_dir").mkdir();
+        Files.write(new File(root, "small.txt").toPath(), "Hello Zip".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(sub, "empty.bin").toPath(), new byte[0]);
+        Random r = new Random(42);
+        byte[] large = new byte[3 * ParallelZip.BLOCK_SIZE + 12345];
+        for (int i = 0; i < large.length; i++) {
+            // compressible, but not trivially so
+            large[i] = (byte)('a' + r.nextInt(8));
+        }
+        Files.write(new File(sub, "large.bin").toPath(), large);
+        byte[] exactBlock = new byte[ParallelZip.BLOCK_SIZE];
+        r.nextBytes(exactBlock);
+        Files.write(new File(root, "block.bin").toPath(), exactBlock);
+        return root;
+    }
+
+    private static Map<String, byte[]> readWithStream(final File zipFile) throws IOException {
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new FileInputStream(zipFile))) {
+            ZipEntry e;
+            while ((e = in.getNextEntry()) != null) {
+                result.put(e.getName(), e.isDirectory() ? null : readFully(in));
+            }
+        }
+        return result;
+    }
+
+    private static byte[] readFully(final InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int read;
+        while ((read = in.read(buf)) >= 0) {
+            out.write(buf, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Zips a directory and reads it back using {@link ZipInputStream} and {@link ZipFile}, which also validates the
+     * checksums of all entries.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testZipReadBack() throws Exception {
+        File root = createSourceDir();
+        File zipFile = new File(m_tempFolder.getRoot(), "test.zip");
+        boolean complete = ParallelZip.zip(zipFile, Arrays.asList(root), 6, FileUtil.ZIP_INCLUDEALL_FILTER, null);
+        assertThat("Archive incomplete", complete, is(true));
+
+        Map<String, byte[]> entries = readWithStream(zipFile);
+        assertThat("Unexpected entries " + entries.keySet(), entries.size(), is(7));
+        String[] files = {"root/small.txt", "root/block.bin", "root/sub/empty.bin", "root/sub/large.bin"};
+        for (String name : files) {
+            byte[] expected = Files.readAllBytes(new File(m_tempFolder.getRoot(), name).toPath());
+            assertThat("Content of " + name, Arrays.equals(entries.get(name), expected), is(true));
+        }
+        assertThat(entries.containsKey("root/sub/empty_dir/"), is(true));
+
+        try (ZipFile zip = new ZipFile(zipFile)) {
+            int count = 0;
+            for (Enumeration<? extends ZipEntry> en = zip.entries(); en.hasMoreElements();) {
+                ZipEntry e = en.nextElement();
+                count++;
+                if (!e.isDirectory()) {
+                    try (InputStream in = zip.getInputStream(e)) {
+                        byte[] content = readFully(in);
+                        CRC32 crc = new CRC32();
+                        crc.update(content);
+                        assertThat("Checksum of " + e.getName(), e.getCrc(), is(crc.getValue()));
+                        assertThat("Size of " + e.getName(), e.getSize(), is((long)content.length));
+                    }
+                }
+            }
+            assertThat(count, is(7));
+        }
+    }
+
+    /**
+     * Round trip through zip and unzip.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testUnzip() throws Exception {
+        File root = createSourceDir();
+        File zipFile = new File(m_tempFolder.getRoot(), "test.zip");
+        ParallelZip.zip(zipFile, Arrays.asList(root), 9, FileUtil.ZIP_INCLUDEALL_FILTER, null);
+        File dest = m_tempFolder.newFolder("dest");
+        ParallelZip.unzip(zipFile, dest);
+        for (String name : new String[]{"small.txt", "block.bin", "sub/empty.bin", "sub/large.bin"}) {
+            byte[] expected = Files.readAllBytes(new File(root, name).toPath());
+            byte[] actual = Files.readAllBytes(new File(dest, "root/" + name).toPath());
+            assertThat("Content of " + name, Arrays.equals(actual, expected), is(true));
+        }
+        assertThat(new File(dest, "root/sub/empty_dir").isDirectory(), is(true));
+    }
+
+    /**
+     * Several entries resolving to the same file are extracted as when extracting sequentially, the last one wins.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testUnzipEntriesWithSameTarget() throws Exception {
+        File zipFile = new File(m_tempFolder.getRoot(), "sametarget.zip");
+        byte[] first = new byte[3 * ParallelZip.BLOCK_SIZE];
+        new Random(1).nextBytes(first);
+        byte[] last = "last".getBytes(StandardCharsets.UTF_8);
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFile))) {
+            out.putNextEntry(new ZipEntry("sub/"));
+            out.closeEntry();
+            String[] names = {"x.txt", "sub/../x.txt", "./x.txt"};
+            byte[][] contents = {first, first, last};
+            for (int i = 0; i < names.length; i++) {
+                out.putNextEntry(new ZipEntry(names[i]));
+                out.write(contents[i]);
+                out.closeEntry();
+            }
+        }
+        File dest = m_tempFolder.newFolder("dest");
+        ParallelZip.unzip(zipFile, dest);
+        assertThat("Last entry not extracted", Arrays.equals(Files.readAllBytes(new File(dest, "x.txt").toPath()),
+            last), is(true));
+    }
+
+    /**
+     * Entries with the same name are rejected.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test(expected = ZipException.class)
+    public void testDuplicateEntries() throws Exception {
+        File a = m_tempFolder.newFolder("a");
+        File b = m_tempFolder.newFolder("b");
+        Files.write(new File(a, "x.txt").toPath(), new byte[]{1});
+        Files.write(new File(b, "x.txt").toPath(), new byte[]{2});
+        ParallelZip.zip(new File(m_tempFolder.getRoot(), "dup.zip"),
+            Arrays.asList(new File(a, "x.txt"), new File(b, "x.txt")), 6, FileUtil.ZIP_INCLUDEALL_FILTER, null);
+    }
+
+    /** Checks that combined block checksums equal the checksum of the entire sequence. */
+    @Test
+    public void testCrc32Combine() {
+        byte[] data = new byte[100000];
+        new Random(1).nextBytes(data);
+        CRC32 all = new CRC32();
+        all.update(data);
+        for (int split : new int[]{0, 1, 4711, data.length}) {
+            CRC32 first = new CRC32();
+            first.update(data, 0, split);
+            CRC32 second = new CRC32();
+            second.update(data, split, data.length - split);
+            assertThat("Split at " + split, ParallelZip.crc32Combine(first.getValue(), second.getValue(),
+                data.length - split), is(all.getValue()));
+        }
+    }
+}
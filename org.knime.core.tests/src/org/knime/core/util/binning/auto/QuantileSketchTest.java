@@ -0,0 +1,151 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.util.binning.auto;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link QuantileSketch}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class QuantileSketchTest {
+
+    /**
+     * Asserts that every percentile returned by the sketch has a rank within the error bound of the exact one.
+     */
+    private static void assertWithinBound(final QuantileSketch sketch, final double[] data, final double epsilon) {
+        final double[] sorted = data.clone();
+        Arrays.sort(sorted);
+        final int n = sorted.length;
+        for (int p = 0; p <= 100; p++) {
+            final double q = p / 100.0;
+            final double value = sketch.getQuantile(q);
+            final double rank = 1 + q * (n - 1);
+            // ranks (1-based) held by the returned value
+            int first = Arrays.binarySearch(sorted, value);
+            assertTrue("Value " + value + " not in data", first >= 0);
+            int last = first;
+            while (first > 0 && sorted[first - 1] == value) {
+                first--;
+            }
+            while (last < n - 1 && sorted[last + 1] == value) {
+                last++;
+            }
+            final double error = rank < first + 1 ? first + 1 - rank : rank > last + 1 ? rank - last - 1 : 0;
+            assertTrue("Rank error " + error + " for quantile " + q, error <= epsilon * n + 1);
+        }
+    }
+
+    /**
+     * Random data, sorted data and data with many ties.
+     */
+    @Test
+    public void testErrorBound() {
+        final Random random = new Random(7);
+        final int n = 200_000;
+        for (int mode = 0; mode < 3; mode++) {
+            final double[] data = new double[n];
+            for (int i = 0; i < n; i++) {
+                data[i] = mode == 0 ? random.nextGaussian() : mode == 1 ? i : Math.floor(10 * random.nextDouble());
+            }
+            final QuantileSketch sketch = new QuantileSketch(0.005);
+            for (double d : data) {
+                sketch.add(d);
+            }
+            assertThat(sketch.getCount(), is((long)n));
+            assertWithinBound(sketch, data, 0.005);
+            assertTrue("Summary too large: " + sketch.getSummarySize(), sketch.getSummarySize() < 10 / 0.005);
+        }
+    }
+
+    /**
+     * Merging summaries of disjoint parts keeps the error bound.
+     */
+    @Test
+    public void testMerge() {
+        final Random random = new Random(11);
+        final int n = 300_000;
+        final double[] data = new double[n];
+        final QuantileSketch[] parts = new QuantileSketch[5];
+        for (int p = 0; p < parts.length; p++) {
+            parts[p] = new QuantileSketch(0.002);
+        }
+        for (int i = 0; i < n; i++) {
+            data[i] = random.nextDouble() * (1 + i % 7);
+            parts[random.nextInt(parts.length)].add(data[i]);
+        }
+        for (int p = 1; p < parts.length; p++) {
+            parts[0].merge(parts[p]);
+        }
+        assertThat(parts[0].getCount(), is((long)n));
+        assertWithinBound(parts[0], data, 0.002);
+    }
+
+    /**
+     * Extremes are exact, missing values are ignored.
+     */
+    @Test
+    public void testMinMaxAndMissing() {
+        final QuantileSketch sketch = new QuantileSketch(0.01);
+        assertTrue(Double.isNaN(sketch.getQuantile(0.5)));
+        for (int i = 1000; i > 0; i--) {
+            sketch.add(i);
+            sketch.add(Double.NaN);
+        }
+        assertThat(sketch.getCount(), is(1000L));
+        assertThat(sketch.getQuantile(0), is(1.0));
+        assertThat(sketch.getQuantile(1), is(1000.0));
+        assertThat(sketch.getMin(), is(1.0));
+        assertThat(sketch.getMax(), is(1000.0));
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.util.tokenizer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ParallelTokenizer}, which must return exactly what the sequential {@link Tokenizer} returns.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class ParallelTokenizerTest {
+
+    private static TokenizerSettings csvSettings() {
+        final TokenizerSettings settings = new TokenizerSettings();
+        settings.addDelimiterPattern(",", false, false, false);
+        settings.addDelimiterPattern("\n", false, true, false);
+        settings.addQuotePattern("\"", "\"", '\\');
+        settings.addSingleLineCommentPattern("#", false, false);
+        settings.addWhiteSpaceCharacter(' ');
+        return settings;
+    }
+
+    private static String randomCsv(final long seed, final int lines) {
+        final Random random = new Random(seed);
+        final StringBuilder b = new StringBuilder();
+        for (int l = 0; l < lines; l++) {
+            if (random.nextInt(20) == 0) {
+                b.append("# comment ").append(l).append('\n');
+                continue;
+            }
+            final int cols = 1 + random.nextInt(5);
+            for (int c = 0; c < cols; c++) {
+                if (c > 0) {
+                    b.append(',');
+                }
+                switch (random.nextInt(6)) {
+                    case 0:
+                        b.append("\"quoted, \\\"").append(random.nextInt()).append("\\\"\"");
+                        break;
+                    case 1:
+                        b.append("  padded ");
+                        break;
+                    case 2:
+                        // empty
+                        break;
+                    case 3:
+                        b.append("äöü€").append(c);
+                        break;
+                    default:
+                        b.append(random.nextInt(100000));
+                }
+            }
+            b.append(random.nextBoolean() ? "\n" : "\r\n");
+        }
+        return b.toString();
+    }
+
+    private static void assertSameTokens(final String input, final TokenizerSettings settings, final int chunkSize,
+        final boolean expectParallel) {
+        final Charset cs = StandardCharsets.UTF_8;
+        final Tokenizer expected = new Tokenizer(new StringReader(input));
+        expected.setSettings(settings);
+        final ParallelTokenizer actual =
+            new ParallelTokenizer(new ByteArrayInputStream(input.getBytes(cs)), cs, chunkSize, 3);
+        actual.setSettings(settings);
+        int count = 0;
+        String token;
+        do {
+            token = expected.nextToken();
+            final String actualToken = actual.nextToken();
+            final String msg = "token " + count;
+            assertThat(msg, actualToken, is(token));
+            assertThat(msg, actual.lastTokenWasDelimiter(), is(expected.lastTokenWasDelimiter()));
+            assertThat(msg, actual.lastTokenWasDelimited(), is(expected.lastTokenWasDelimited()));
+            assertThat(msg, actual.lastTokenWasQuoted(), is(expected.lastTokenWasQuoted()));
+            assertThat(msg, actual.getLastQuoteBeginPattern(), is(expected.getLastQuoteBeginPattern()));
+            assertThat(msg, actual.getLastQuoteEndPattern(), is(expected.getLastQuoteEndPattern()));
+            assertThat(msg, actual.getLineNumber(), is(expected.getLineNumber()));
+            assertThat(msg, actual.getReadBytes(), is(expected.getReadBytes()));
+            count++;
+        } while (token != null);
+        assertThat("parallel", actual.isParallel(), is(expectParallel));
+    }
+
+    /** Compares the tokens of a generated file read in small chunks. */
+    @Test
+    public void testSameTokensAsSequential() {
+        final String input = randomCsv(42, 2000);
+        assertSameTokens(input, csvSettings(), 64, true);
+        assertSameTokens(input, csvSettings(), 1, true);
+        assertSameTokens(input, csvSettings(), ParallelTokenizer.DEFAULT_CHUNK_SIZE, true);
+    }
+
+    /** Skipped lines are handled before splitting the input. */
+    @Test
+    public void testSkipFirstLines() {
+        final TokenizerSettings settings = csvSettings();
+        settings.setSkipFirstLines(7);
+        assertSameTokens(randomCsv(7, 500), settings, 100, true);
+        assertSameTokens("a,b\nc\n", settings, 100, true);
+    }
+
+    /** Line feeds in quotes and line continuations are only supported sequentially. */
+    @Test
+    public void testFallbackToSequential() {
+        final TokenizerSettings settings = csvSettings();
+        settings.allowLFinQuotes(true);
+        assertSameTokens("a,\"b\nc\"\nd,e\n", settings, 4, false);
+
+        final TokenizerSettings noLineDelimiter = new TokenizerSettings();
+        noLineDelimiter.addDelimiterPattern(",", false, false, false);
+        assertSameTokens(randomCsv(3, 100), noLineDelimiter, 64, false);
+    }
+
+    /** A missing closing quote is reported at the same token and line as by the sequential tokenizer. */
+    @Test
+    public void testExceptionInChunk() {
+        final String input = randomCsv(5, 200) + "x,\"unclosed\ny,z\n" + randomCsv(6, 200);
+        final Tokenizer expected = new Tokenizer(new StringReader(input));
+        expected.setSettings(csvSettings());
+        final byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        final ParallelTokenizer actual =
+            new ParallelTokenizer(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8, 128, 2);
+        actual.setSettings(csvSettings());
+        String expectedMessage = null;
+        while (expectedMessage == null) {
+            final String token;
+            try {
+                token = expected.nextToken();
+            } catch (TokenizerException te) {
+                expectedMessage = te.getMessage();
+                break;
+            }
+            assertThat(actual.nextToken(), is(token));
+        }
+        String actualMessage = null;
+        try {
+            actual.nextToken();
+        } catch (TokenizerException te) {
+            actualMessage = te.getMessage();
+        }
+        assertThat(actualMessage, is(expectedMessage));
+        assertThat(actual.isParallel(), is(true));
+    }
+
+    /** The settings can't be changed once tokens are read. */
+    @Test(expected = IllegalStateException.class)
+    public void testSettingsLocked() {
+        final ParallelTokenizer tokenizer = new ParallelTokenizer(
+            new ByteArrayInputStream("a\n".getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+        tokenizer.setSettings(csvSettings());
+        tokenizer.nextToken();
+        tokenizer.setSettings(csvSettings());
+    }
+}
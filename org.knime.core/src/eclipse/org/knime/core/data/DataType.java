@@ -47,6 +47,7 @@
  */
 package org.knime.core.data;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -54,13 +55,14 @@
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 import javax.swing.Icon;
@@ -219,10 +221,34 @@ public String toString() {
      * added to this map. This map makes sure that the <code>getType()</code>
      * method is fast and that there will be no duplicate <code>DataType</code>
      * instances for  different instances of the
-     * {@link org.knime.core.data.DataValue} implementation.
+     * {@link org.knime.core.data.DataValue} implementation. The map is concurrent as types are requested from many
+     * threads; entries are added with <code>putIfAbsent</code> so that racing threads agree on the same instance.
      */
     private static final Map<ClassAndSubDataTypePair, DataType>
-        CLASS_TO_TYPE_MAP = new HashMap<ClassAndSubDataTypePair, DataType>();
+        CLASS_TO_TYPE_MAP = new ConcurrentHashMap<ClassAndSubDataTypePair, DataType>();
+
+    /**
+     * Fast path for {@link #getType(Class)}, which is called for each and every cell (see
+     * {@link DataCell#getType()}). Avoids the allocation of a {@link ClassAndSubDataTypePair} and the map lookup for
+     * ordinary (non-collection) cell classes. The computed value is the canonical instance in
+     * {@link #CLASS_TO_TYPE_MAP}.
+     */
+    private static final ClassValue<DataType> CLASS_TO_PLAIN_TYPE = new ClassValue<DataType>() {
+        @SuppressWarnings("unchecked")
+        @Override
+        protected DataType computeValue(final Class<?> cellClass) {
+            return getTypeInternal((Class<? extends DataCell>)cellClass, null, Collections.EMPTY_LIST);
+        }
+    };
+
+    /**
+     * Canonical instances of non-native types, i.e. types created by {@link #getCommonSuperType(DataType, DataType)},
+     * {@link #cloneChangePreferredValue(DataType, Class)} or {@link #load(ConfigRO)}. Native types are interned
+     * via {@link #CLASS_TO_TYPE_MAP}. Keys and values are only weakly referenced so that types no longer used by any
+     * table spec can be garbage collected. Access must be synchronized on the map.
+     */
+    private static final Map<DataType, WeakReference<DataType>> NON_NATIVE_TYPES =
+        new WeakHashMap<DataType, WeakReference<DataType>>();
 
     /**
      * The String representation comparator. Fall back comparator if no other is
@@ -256,7 +282,7 @@ protected int compareDataValues(
      */
     private static final Map<Class<? extends DataValue>, UtilityFactory>
         VALUE_CLASS_TO_UTILITY =
-            new HashMap<Class<? extends DataValue>, UtilityFactory>();
+            new ConcurrentHashMap<Class<? extends DataValue>, UtilityFactory>();
 
     /**
      * Recursive method that walks up the inheritance tree of a given class and
@@ -303,7 +329,27 @@ private static void addDataValueInterfaces(
      */
     public static DataType cloneChangePreferredValue(final DataType from,
             final Class<? extends DataValue> preferred) {
-        return new DataType(from, preferred);
+        return intern(new DataType(from, preferred));
+    }
+
+    /**
+     * Returns the canonical instance of the given non-native type. A previously interned instance is only returned
+     * if it is structurally identical (including the order of the value classes), as the order determines the
+     * sequence of renderers and comparators.
+     *
+     * @param type a newly created non-native type
+     * @return the canonical instance, possibly the argument
+     */
+    private static DataType intern(final DataType type) {
+        synchronized (NON_NATIVE_TYPES) {
+            final WeakReference<DataType> existingRef = NON_NATIVE_TYPES.get(type);
+            final DataType existing = existingRef != null ? existingRef.get() : null;
+            if (existing == null) {
+                NON_NATIVE_TYPES.put(type, new WeakReference<DataType>(type));
+                return type;
+            }
+            return existing.isStructurallyIdentical(type) ? existing : type;
+        }
     }
 
     /**
@@ -388,7 +434,17 @@ public static DataType getCommonSuperType(final DataType type1,
         if (type2.isASuperTypeOf(type1)) {
             return type2;
         }
-        return new DataType(type1, type2);
+        DataType result = type1.m_commonSuperTypes.get(type2);
+        if (result == null) {
+            // no computeIfAbsent as the constructor recurses into the collection element types
+            result = intern(new DataType(type1, type2));
+            if (type2.m_cellClass != null) {
+                // only memoize for native keys, otherwise a long-lived type1 keeps non-native types reachable
+                DataType existing = type1.m_commonSuperTypes.putIfAbsent(type2, result);
+                result = existing != null ? existing : result;
+            }
+        }
+        return result;
     }
 
     /**
@@ -498,13 +554,7 @@ public static DataType getType(final Class<? extends DataCell> cell) {
         if (cell == null) {
             throw new NullPointerException("Class must not be null.");
         }
-        ClassAndSubDataTypePair key = new ClassAndSubDataTypePair(cell, null, null);
-        DataType result = CLASS_TO_TYPE_MAP.get(key);
-        if (result == null) {
-            result = new DataType(cell, null, Collections.EMPTY_LIST);
-            CLASS_TO_TYPE_MAP.put(key, result);
-        }
-        return result;
+        return CLASS_TO_PLAIN_TYPE.get(cell);
     }
 
     /** Implementation of {@link #getType(Class)} dedicated for special cell
@@ -552,11 +602,22 @@ public static DataType getType(final Class<? extends DataCell> cellClass,
         if (cellClass == null) {
             throw new NullPointerException("Cell class must not be null.");
         }
+        if (collectionElementType == null && adapterList != null && adapterList.isEmpty()) {
+            return CLASS_TO_PLAIN_TYPE.get(cellClass);
+        }
+        return getTypeInternal(cellClass, collectionElementType, adapterList);
+    }
+
+    /** Looks up or creates the canonical type in {@link #CLASS_TO_TYPE_MAP}. Not using computeIfAbsent as the
+     * constructor may (via static initializers of value classes) request other types. */
+    private static DataType getTypeInternal(final Class<? extends DataCell> cellClass,
+        final DataType collectionElementType, final List<Class<? extends DataValue>> adapterList) {
         ClassAndSubDataTypePair key = new ClassAndSubDataTypePair(cellClass, collectionElementType, adapterList);
         DataType result = CLASS_TO_TYPE_MAP.get(key);
         if (result == null) {
             result = new DataType(cellClass, collectionElementType, adapterList);
-            CLASS_TO_TYPE_MAP.put(key, result);
+            DataType existing = CLASS_TO_TYPE_MAP.putIfAbsent(key, result);
+            result = existing != null ? existing : result;
         }
         return result;
     }
@@ -665,7 +726,7 @@ public static DataType load(final ConfigRO config)
         String[] valueClassNames = config.getStringArray(CFG_VALUE_CLASSES);
         List<Class<? extends DataValue>> valueClasses = getClasses(valueClassNames);
         try {
-            return new DataType(valueClasses, collectionElementType, adapterClasses);
+            return intern(new DataType(valueClasses, collectionElementType, adapterClasses));
         } catch (IllegalArgumentException iae) {
             throw new InvalidSettingsException(iae);
         }
@@ -685,6 +746,13 @@ public static DataType load(final ConfigRO config)
     /** a map that caches whether certain encountered types are subtypes of this type */
     private final Map<DataType, Boolean> m_subTypes = new ConcurrentHashMap<>(100, 1 / 3f);
 
+    /** a map that caches the result of {@link #isCompatible(Class)}, which is called per cell in many places */
+    private final Map<Class<? extends DataValue>, Boolean> m_compatibleValues = new ConcurrentHashMap<>(16, 1 / 3f);
+
+    /** a map that caches the result of {@link #getCommonSuperType(DataType, DataType)} (this type being the first
+     * argument, the second argument being a native type) */
+    private final Map<DataType, DataType> m_commonSuperTypes = new ConcurrentHashMap<>(16, 1 / 3f);
+
     private String m_name;
 
     /** the cached hash code of this type */
@@ -795,7 +863,8 @@ private DataType(final Class<? extends DataCell> cl, final DataType elementType,
      * typically never assigned to one particular
      * {@link org.knime.core.data.DataCell} class (otherwise the constructor
      * <code>DataType(Class)</code> would have been used) and therefore this
-     * type is not cached. This means, the resulting <code>DataType</code> is
+     * type is not cached by cell class (it is interned though, see
+     * {@link #cloneChangePreferredValue(DataType, Class)}). This means, the resulting <code>DataType</code> is
      * not native, i.e. the cell class is <code>null</code>.
      *
      * @param type the type to clone
@@ -1090,6 +1159,14 @@ public int hashCode() {
         return m_hashCode;
     }
 
+    /** Stricter than {@link #equals(Object)}: also the order of value and adapter classes and the cell class must
+     * match. Used to decide whether an interned instance can replace a newly created one. */
+    private boolean isStructurallyIdentical(final DataType o) {
+        return m_cellClass == o.m_cellClass && m_valueClasses.equals(o.m_valueClasses)
+            && m_adapterValueList.equals(o.m_adapterValueList)
+            && Objects.equals(m_collectionElementType, o.m_collectionElementType);
+    }
+
     private int computeHashCode() {
         int result = 0x6172618;
         for (Class<? extends DataValue> cl : m_valueClasses) {
@@ -1166,6 +1243,16 @@ private boolean isASuperTypeOfInternal(final DataType type) {
      * @throws NullPointerException If the argument is null.
      */
     public boolean isCompatible(final Class<? extends DataValue> valueClass) {
+        // map lookup throws NPE on null argument, as documented
+        Boolean result = m_compatibleValues.get(valueClass);
+        if (result == null) {
+            result = isCompatibleInternal(valueClass);
+            m_compatibleValues.putIfAbsent(valueClass, result);
+        }
+        return result;
+    }
+
+    private boolean isCompatibleInternal(final Class<? extends DataValue> valueClass) {
         for (Class<? extends DataValue> cl : m_valueClasses) {
             // a missing value is by definition always compatible, see also DataCell#isMissing()
             if (MissingValue.class.equals(cl) || valueClass.isAssignableFrom(cl)) {
@@ -1235,7 +1322,7 @@ public DataType createNewWithAdapter(final Class<? extends DataValue>... valueCl
             return getType(m_cellClass, m_collectionElementType, newAdapterList);
         } else {
             // non native type
-            return new DataType(m_valueClasses, m_collectionElementType, newAdapterList);
+            return intern(new DataType(m_valueClasses, m_collectionElementType, newAdapterList));
         }
     }
 
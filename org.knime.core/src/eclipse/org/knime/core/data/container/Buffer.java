@@ -137,6 +137,7 @@
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
 import org.knime.core.node.workflow.NodeContext;
+import org.knime.core.node.workflow.NodeExecutionMetrics;
 import org.knime.core.node.workflow.WorkflowContext;
 import org.knime.core.node.workflow.WorkflowManager;
 import org.knime.core.util.FileUtil;
@@ -397,6 +398,11 @@ public class Buffer implements KNIMEStreamConstants {
         DISCOURAGE_GC = discourageGc;
     }
 
+    /** @return see {@link KNIMEConstants#PROPERTY_TABLE_PREFETCH_ROWS}, 0 if disabled; read for each iterator */
+    private static int getPrefetchRows() {
+        return Math.max(0, Integer.getInteger(KNIMEConstants.PROPERTY_TABLE_PREFETCH_ROWS, 0));
+    }
+
     /** A cache for holding tables in memory. */
     private static final BufferCache CACHE = new BufferCache();
 
@@ -566,6 +572,9 @@ static boolean isUseCompressionForBlobs(final CellClassInfo cellClassInfo) {
      */
     private boolean m_useBackIntoMemoryIterator = false;
 
+    /** Metrics of the node execution that created this buffer for writing; null if none or if created for reading. */
+    private NodeExecutionMetrics.Recorder m_metricsRecorder;
+
     /**
      * The version of the file we are reading (if initiated with Buffer(File, boolean). Used to remember when we need to
      * read a file which has been written with another version of the Buffer, i.e. to provide backward compatibility.
@@ -639,6 +648,7 @@ static boolean isUseCompressionForBlobs(final CellClassInfo cellClassInfo) {
         m_dataRepository = dataRepository;
         m_spec = spec;
         m_outputFormat = m_bufferSettings.getOutputFormat(m_spec);
+        m_metricsRecorder = NodeExecutionMetrics.Recorder.current();
         BufferTracker.getInstance().bufferCreated(this);
     }
 
@@ -1235,7 +1245,11 @@ private void closeWriterAndWriteMeta() {
             m_outputWriter.writeMetaInfoAfterWrite(formatSettings);
             m_formatSettings = formatSettings;
             if (m_hasTempFile) {
-                double sizeInMB = m_binFile.length() / (double)(1 << 20);
+                final long length = m_binFile.length();
+                if (m_metricsRecorder != null) {
+                    m_metricsRecorder.addBytesWritten(length);
+                }
+                double sizeInMB = length / (double)(1 << 20);
                 String size = NumberFormat.getInstance().format(sizeInMB);
                 LOGGER.debug("Buffer file (" + m_binFile.getAbsolutePath() + ") is " + size + "MB in size");
                 initOutputReader(formatSettings, IVERSION);
@@ -1640,10 +1654,15 @@ final synchronized CloseableRowIterator iteratorWithFilter(final TableFilter fil
             // register the table store iterator with this buffer
             tableStoreIt.setBuffer(this);
             m_nrOpenInputStreams.incrementAndGet();
+            final NodeExecutionMetrics.Recorder recorder = NodeExecutionMetrics.Recorder.current();
+            if (recorder != null && m_binFile != null) {
+                recorder.addTableFileBytesOpened(m_binFile.length());
+            }
             synchronized (m_openIteratorSet) {
                 m_openIteratorSet.put(tableStoreIt, DUMMY);
             }
-            return tableStoreIt;
+            final int prefetchRows = getPrefetchRows();
+            return prefetchRows > 0 ? new PrefetchRowIterator(tableStoreIt, prefetchRows) : tableStoreIt;
 
         } else {
             final BackIntoMemoryIterator backIntoMemoryIt =
@@ -1794,20 +1813,7 @@ synchronized void addToZipFile(final ZipOutputStream zipOut, final ExecutionMoni
                 copy.m_binFile = tempFile;
                 copy.initOutputWriter(tempFile);
             }
-            int count = 1;
-            for (RowIterator it = iterator(); it.hasNext();) {
-                final BlobSupportDataRow row = (BlobSupportDataRow)it.next();
-                final int countCurrent = count;
-                exec.setProgress(count / (double)size(),
-                    () -> "Writing row " + countCurrent + " (\"" + row.getKey() + "\")");
-                exec.checkCanceled();
-                // make a deep copy of blobs if we have a version hop
-                copy.addRow(row, m_version < IVERSION, false);
-                count++;
-            }
-            synchronized (copy) {
-                copy.closeInternal();
-            }
+            writeRowsToLocalClone(copy, exec);
             if (tempFile != null) {
                 try (final InputStream in = new FileInputStream(tempFile);
                         final NonClosableOutputStream ncOut = new NonClosableOutputStream(zipOut)) {
@@ -1863,6 +1869,84 @@ synchronized void addToZipFile(final ZipOutputStream zipOut, final ExecutionMoni
         }
     }
 
+    /**
+     * Writes all rows of this buffer into the argument clone (as created by {@link #createLocalCloneForWriting()})
+     * and closes it. Blobs are deep-copied in case of a version hop.
+     */
+    private void writeRowsToLocalClone(final Buffer copy, final ExecutionMonitor exec)
+        throws IOException, CanceledExecutionException {
+        int count = 1;
+        for (RowIterator it = iterator(); it.hasNext();) {
+            final BlobSupportDataRow row = (BlobSupportDataRow)it.next();
+            final int countCurrent = count;
+            exec.setProgress(count / (double)size(),
+                () -> "Writing row " + countCurrent + " (\"" + row.getKey() + "\")");
+            exec.checkCanceled();
+            // make a deep copy of blobs if we have a version hop
+            copy.addRow(row, m_version < IVERSION, false);
+            count++;
+        }
+        synchronized (copy) {
+            copy.closeInternal();
+        }
+    }
+
+    /**
+     * Counterpart to {@link #addToZipFile(ZipOutputStream, ExecutionMonitor)} that writes the same entries as plain
+     * files into the argument directory (unzipped layout). If the buffer has been flushed to disk in the current
+     * version, the data file, the blob directory and the file store directory are not copied but hard linked into
+     * the target directory (falling back to a plain copy if the file system does not support links), so that saving
+     * a large table only involves meta data operations. The temp files are never modified after they have been
+     * written and both the temp location and the workflow location can be deleted independently.
+     *
+     * @param dir The (existing and empty) directory to write to.
+     * @param exec For progress/cancel
+     * @throws IOException If it fails to write to a file.
+     * @throws CanceledExecutionException If canceled.
+     * @see FileUtil#linkOrCopy(File, File)
+     */
+    synchronized void saveToDirectory(final File dir, final ExecutionMonitor exec)
+        throws IOException, CanceledExecutionException {
+        m_lifecycle.onSave();
+        if (m_spec == null) {
+            throw new IOException("Can't save an open Buffer.");
+        }
+        final File dataFile = new File(dir, ZIP_ENTRY_DATA);
+        final Buffer metaSource;
+        final File blobDir;
+        if (!isFlushedToDisk() || m_version < IVERSION) {
+            // see addToZipFile -- write a fresh copy directly into the target directory
+            final Buffer copy = createLocalCloneForWriting();
+            copy.initOutputWriter(dataFile);
+            copy.m_hasTempFile = false;
+            writeRowsToLocalClone(copy, exec);
+            if (isFlushedToDisk()) {
+                copy.m_listWhileAddRow = null;
+            }
+            if (m_version < IVERSION) {
+                blobDir = copy.m_blobDir;
+            } else {
+                assert copy.m_blobDir == null;
+                blobDir = m_blobDir;
+            }
+            metaSource = copy;
+        } else {
+            FileUtil.linkOrCopy(m_binFile, dataFile);
+            blobDir = m_blobDir;
+            metaSource = this;
+        }
+        exec.checkCanceled();
+        if (blobDir != null) {
+            FileUtil.linkOrCopy(blobDir, new File(dir, ZIP_ENTRY_BLOBS));
+        }
+        if (hasOwnFileStoreCells()) {
+            FileUtil.linkOrCopy(getOwnFileStoreCellsDirectory(), new File(dir, ZIP_ENTRY_FILESTORES));
+        }
+        try (OutputStream metaOut = new BufferedOutputStream(new FileOutputStream(new File(dir, ZIP_ENTRY_META)))) {
+            metaSource.writeMetaToFile(() -> metaOut);
+        }
+    }
+
     /**
      * Adds recursively the content of the directory <code>dir</code> to a zip output stream, prefixed with
      * <code>zipEntry</code>.
@@ -2031,6 +2115,10 @@ private static void logDebug(final String message, final Throwable t) {
 
     /** Write all rows from list into file. Used while rows are added and if low mem condition is met. */
     synchronized void flushBuffer() {
+        if (m_listWhileAddRow != null && m_metricsRecorder != null) {
+            // rows held in memory are moved to disk before the table is closed
+            m_metricsRecorder.incSpillCount();
+        }
         writeList(m_listWhileAddRow);
         m_listWhileAddRow = null; // don't write to internal cache any more
     }
@@ -2512,6 +2600,16 @@ protected boolean memoryAlert(final MemoryAlert alert) {
             }
             return true;
         }
+
+        /** The cells of the buffer, larger buffers are written first (and possibly only those). */
+        @Override
+        protected long getReleasableCells() {
+            final Buffer buffer = m_bufferRef.get();
+            if (buffer == null || buffer.isFlushedToDisk() || buffer.getTableSpec() == null) {
+                return 0;
+            }
+            return buffer.size() * Math.max(1, buffer.getTableSpec().getNumColumns());
+        }
     }
 
     /**
@@ -2575,9 +2673,9 @@ interface Lifecycle {
     /**
      * The default lifecycle until KNIME 3.7.x. Tables are hard-referenced in the cache until they grow larger than a
      * certain amount of rows, which by default is derived from {@link DataContainerSettings#DEF_MAX_CELLS_IN_MEMORY}.
-     * When the {@link MemoryAlertSystem} notices that memory becomes critical, all tables are flushed to disk. Tables
-     * kept in memory while the workflow is saved are (lazily) read back into memory upon first iteration over the
-     * table.
+     * When the {@link MemoryAlertSystem} notices that memory becomes critical, tables are flushed to disk, largest
+     * first. Tables kept in memory while the workflow is saved are (lazily) read back into memory upon first iteration
+     * over the table.
      *
      * @author Marc Bux, KNIME GmbH, Berlin, Germany
      */
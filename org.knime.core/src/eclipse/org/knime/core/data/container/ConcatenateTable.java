@@ -302,31 +302,93 @@ public static ConcatenateTable create(final ExecutionMonitor mon, final Buffered
         return new ConcatenateTable(tables, null, rowCount);
     }
 
+    /**
+     * Checks that the tables have no row key in common. Row keys are unique within each (buffered data) table, so
+     * only keys shared by different tables are of interest. The check reads the row keys of all tables once
+     * (not materializing any cells) and builds a {@link RowKeyDigest} for each table. Tables that are proven disjoint
+     * from all others (e.g. outputs of different loop iterations) are not considered any further. For the remaining
+     * tables, keys are hashed into buckets and only keys in buckets hit by more than one table are run through a
+     * (disk buffered) {@link DuplicateChecker} in a second pass.
+     */
     private static void checkForDuplicates(final ExecutionMonitor mon, final BufferedDataTable[] tables,
         final long rowCount) throws CanceledExecutionException {
+        final RowKeyDigest[] digests = new RowKeyDigest[tables.length];
+        final RowKeyDigest.Buckets seen = new RowKeyDigest.Buckets(RowKeyDigest.Buckets.bitCountFor(rowCount));
+        final RowKeyDigest.Buckets current = new RowKeyDigest.Buckets(RowKeyDigest.Buckets.bitCountFor(rowCount));
+        final RowKeyDigest.Buckets shared = new RowKeyDigest.Buckets(RowKeyDigest.Buckets.bitCountFor(rowCount));
+        final ExecutionMonitor digestMon = mon.createSubProgress(0.5);
+        long r = 0;
+        for (int i = 0; i < tables.length; i++) {
+            digests[i] = new RowKeyDigest();
+            current.clear();
+            try (CloseableRowIterator it = keyIterator(tables[i])) {
+                while (it.hasNext()) {
+                    final String key = it.next().getKey().getString();
+                    digests[i].add(key);
+                    current.set(current.bucket(key));
+                    r++;
+                    if ((r & 0x3FF) == 0) {
+                        digestMon.setProgress(r / (double)rowCount, "Checking tables, row " + r + "/" + rowCount);
+                    }
+                }
+            }
+            shared.orAnd(seen, current);
+            seen.or(current);
+            mon.checkCanceled();
+        }
+        final boolean[] isOverlapping = RowKeyDigest.findOverlapping(digests);
+        long candidateRowCount = 0;
+        for (int i = 0; i < tables.length; i++) {
+            candidateRowCount += isOverlapping[i] ? tables[i].size() : 0;
+        }
+        if (candidateRowCount == 0 || shared.isEmpty()) {
+            mon.setProgress(1.0);
+            return;
+        }
+        final ExecutionMonitor checkMon = mon.createSubProgress(0.5);
         DuplicateChecker check = new DuplicateChecker();
-        int r = 0;
+        r = 0;
         for (int i = 0; i < tables.length; i++) {
-            for (DataRow row : tables[i]) {
-                RowKey key = row.getKey();
-                try {
-                    check.addKey(key.toString());
-                } catch (DuplicateKeyException | IOException ex) {
-                    throw new IllegalArgumentException("Duplicate row key \"" + key + "\" in table with index " + i);
+            if (!isOverlapping[i]) {
+                continue;
+            }
+            try (CloseableRowIterator it = keyIterator(tables[i])) {
+                while (it.hasNext()) {
+                    final String key = it.next().getKey().getString();
+                    if (shared.get(shared.bucket(key))) {
+                        try {
+                            check.addKey(key);
+                        } catch (DuplicateKeyException | IOException ex) {
+                            check.clear();
+                            throw new IllegalArgumentException(
+                                "Duplicate row key \"" + key + "\" in table with index " + i);
+                        }
+                    }
+                    r++;
+                    if ((r & 0x3FF) == 0) {
+                        checkMon.setProgress(r / (double)candidateRowCount,
+                            "Checking overlapping tables, row " + r + "/" + candidateRowCount);
+                    }
                 }
-                r++;
-                mon.setProgress(r / (double)rowCount,
-                    "Checking tables, row " + r + "/" + rowCount + " (\"" + row.getKey() + "\")");
             }
             mon.checkCanceled();
         }
         try {
             check.checkForDuplicates();
-        } catch (DuplicateKeyException | IOException ex) {
+        } catch (DuplicateKeyException ex) {
+            throw new IllegalArgumentException("Duplicate row key \"" + ex.getKey() + "\"");
+        } catch (IOException ex) {
             throw new IllegalArgumentException("Duplicate row keys");
+        } finally {
+            check.clear();
         }
     }
 
+    /** Iterator over the rows of the table that doesn't materialize any cell (only the row key is needed). */
+    private static CloseableRowIterator keyIterator(final BufferedDataTable table) {
+        return table.filter(TableFilter.materializeCols()).iterator();
+    }
+
     /** Creates merged table spec.
      * @param specs the argument tables.
      * @return the new spec
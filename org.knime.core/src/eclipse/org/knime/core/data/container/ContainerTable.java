@@ -204,6 +204,25 @@ public void saveToFile(final File f, final NodeSettingsWO settings,
         }
     }
 
+    /**
+     * Saves the table into the argument directory using the unzipped layout, i.e. the data file, meta information,
+     * blobs and file stores are stored as plain files that are linked rather than copied from the temp location
+     * wherever possible. Counterpart to {@link #saveToFile(File, NodeSettingsWO, ExecutionMonitor)}; the directory
+     * is read back in the same way as the zip file.
+     *
+     * @param dir The directory to save to, must exist and be empty.
+     * @param exec For progress/cancel
+     * @throws IOException If writing fails.
+     * @throws CanceledExecutionException If canceled.
+     * @noreference This method is not intended to be referenced by clients.
+     * @since 4.2
+     */
+    public void saveToDirectory(final File dir, final ExecutionMonitor exec)
+        throws IOException, CanceledExecutionException {
+        ensureBufferOpen();
+        m_buffer.saveToDirectory(dir, exec);
+    }
+
     /**
      * This methods exists to address possibly forward compatibility issues in KNIME 3.5 and before, see AP-8954.
      * Workflows created and saved in KNIME AP 3.6 were saved incompatibly to prior versions of KNIME (column store
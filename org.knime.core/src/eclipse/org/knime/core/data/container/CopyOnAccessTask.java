@@ -148,6 +148,9 @@ public void run() {
                 }
             };
             KNIMETimer.getInstance().schedule(timerTask, NOTIFICATION_DELAY);
+            if (file.isDirectory()) {
+                return createBufferFromDirectory(file);
+            }
             return createBuffer(
                     new BufferedInputStream(new FileInputStream(file)));
         } finally {
@@ -258,6 +261,51 @@ Buffer createBuffer(final InputStream in) throws IOException {
         return buffer;
     }
 
+    /**
+     * Creates the buffer from a table saved in the unzipped layout (see {@link Buffer#saveToDirectory(File,
+     * org.knime.core.node.ExecutionMonitor)}). The files are linked into the temp location (only copied if linking is
+     * not supported), so the buffer reads the workflow's data in place and may delete its temp files as usual.
+     * @param dir The table directory
+     * @return The buffer instance reading from the linked temp file.
+     * @throws IOException If the directory is incomplete or can't be accessed.
+     */
+    private Buffer createBufferFromDirectory(final File dir) throws IOException {
+        if (m_spec == null) {
+            throw new IOException("No spec available for table directory \"" + dir.getAbsolutePath() + "\"");
+        }
+        File dataFile = new File(dir, Buffer.ZIP_ENTRY_DATA);
+        if (!dataFile.isFile()) {
+            throw new IOException("No entry " + Buffer.ZIP_ENTRY_DATA + " in directory");
+        }
+        File metaFile = new File(dir, Buffer.ZIP_ENTRY_META);
+        if (!metaFile.isFile()) {
+            throw new IOException("No entry " + Buffer.ZIP_ENTRY_META + " in directory");
+        }
+        File binFile = DataContainer.createTempFile(".tmp");
+        FileUtil.linkOrCopy(dataFile, binFile);
+        File blobDir = null;
+        File blobSource = new File(dir, Buffer.ZIP_ENTRY_BLOBS);
+        if (blobSource.isDirectory()) {
+            blobDir = Buffer.createBlobDirNameForTemp(binFile);
+            FileUtil.linkOrCopy(blobSource, blobDir);
+        }
+        File fileStoreDir = null;
+        File fileStoreSource = new File(dir, Buffer.ZIP_ENTRY_FILESTORES);
+        if (fileStoreSource.isDirectory()) {
+            fileStoreDir = FileUtil.createTempDir("knime_fs_datacontainer-");
+            FileUtil.linkOrCopy(fileStoreSource, fileStoreDir);
+        }
+        Buffer buffer;
+        try (InputStream metaIn = new BufferedInputStream(new FileInputStream(metaFile))) {
+            buffer = m_bufferCreator.createBuffer(
+                binFile, blobDir, fileStoreDir, m_spec, metaIn, m_bufferID, m_dataRepository);
+        }
+        if (m_needsRestoreIntoMemory) {
+            buffer.setRestoreIntoMemoryOnCacheMiss();
+        }
+        return buffer;
+    }
+
     /** Get name of file to copy from. Used for better error messages.
      * @return source file
      */
@@ -0,0 +1,336 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.knime.core.data.DataRow;
+import org.knime.core.data.util.memory.MemoryAlertSystem;
+import org.knime.core.node.util.CheckUtils;
+import org.knime.core.util.ThreadUtils;
+
+/**
+ * Iterator that reads the rows of an underlying (disk-based) iterator ahead on a background thread so that reading
+ * and decoding rows overlaps with the processing of rows by the consumer. Rows are handed over in batches via a
+ * bounded queue. While memory is low (as per {@link MemoryAlertSystem#getInstanceUncollected()}) no more than one
+ * batch is read ahead of the batch being consumed.
+ *
+ * <p>
+ * Used by {@link Buffer} for tables read from disk if {@link org.knime.core.node.KNIMEConstants
+ * #PROPERTY_TABLE_PREFETCH_ROWS} is set. The number of background threads is limited; if none has picked up the
+ * reading by the time the consumer asks for rows, the consumer reads the underlying iterator synchronously instead.
+ * Otherwise the underlying iterator is only accessed by the background thread, which also closes it when it reaches
+ * the end or when this iterator is closed (which waits for it) or garbage collected.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class PrefetchRowIterator extends CloseableRowIterator {
+
+    /** Maximum number of rows handed over to the consumer at once. */
+    static final int MAX_BATCH_SIZE = 256;
+
+    /** How long the background thread waits before checking again whether it can continue (or was closed). */
+    private static final long WAIT_MILLIS = 100;
+
+    /** Put into the queue after the last batch (also after a failure). */
+    private static final List<DataRow> END_OF_TABLE = Collections.emptyList();
+
+    /** Maximum number of background threads, iterators beyond that wait for a thread or read synchronously. */
+    private static final int MAX_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static final ThreadPoolExecutor PREFETCH_EXECUTOR = createExecutor();
+
+    private static ThreadPoolExecutor createExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), r -> {
+                final Thread t = new Thread(r, "KNIME-TablePrefetcher-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /** Reads ahead, shared with the background thread. */
+    private final Prefetcher m_prefetcher;
+
+    /** Batch currently consumed, only accessed by the consumer. */
+    private List<DataRow> m_batch = Collections.emptyList();
+
+    private int m_indexInBatch;
+
+    private boolean m_isEndReached;
+
+    /** Set if the consumer reads the underlying iterator itself as no background thread picked up the reading. */
+    private boolean m_isReadingDirectly;
+
+    /**
+     * Creates a new iterator and starts reading ahead.
+     *
+     * @param source the iterator to read from, only to be used by this instance from now on
+     * @param prefetchRows the maximum number of rows to read ahead, &gt; 0
+     */
+    PrefetchRowIterator(final CloseableRowIterator source, final int prefetchRows) {
+        CheckUtils.checkArgument(prefetchRows > 0, "Number of rows to read ahead must be positive: %d", prefetchRows);
+        CheckUtils.checkArgumentNotNull(source);
+        final int batchSize = Math.min(prefetchRows, MAX_BATCH_SIZE);
+        // one more slot for the end marker
+        final int capacity = Math.max(1, prefetchRows / batchSize) + 1;
+        m_prefetcher = new Prefetcher(this, source, batchSize, capacity);
+        PREFETCH_EXECUTOR.execute(ThreadUtils.runnableWithContext(m_prefetcher, false));
+    }
+
+    /**
+     * Run by the background thread. Only holds a weak reference to the iterator so that an iterator that is not
+     * closed by its consumer (which is allowed for table iterators) can be garbage collected, which stops the reading
+     * and closes the source.
+     */
+    private static final class Prefetcher implements Runnable {
+
+        private final WeakReference<PrefetchRowIterator> m_consumer;
+
+        private final CloseableRowIterator m_source;
+
+        private final int m_batchSize;
+
+        private final BlockingQueue<List<DataRow>> m_queue;
+
+        /** Set if reading fails, rethrown by the consumer after the last batch. */
+        private volatile Throwable m_failure;
+
+        private volatile boolean m_isClosed;
+
+        /** Set by whoever first accesses the source, the background thread or (instead) the consumer. */
+        private final AtomicBoolean m_isClaimed = new AtomicBoolean();
+
+        /** Released once the background thread has closed the source. */
+        private final CountDownLatch m_sourceClosed = new CountDownLatch(1);
+
+        Prefetcher(final PrefetchRowIterator consumer, final CloseableRowIterator source, final int batchSize,
+            final int capacity) {
+            m_consumer = new WeakReference<>(consumer);
+            m_source = source;
+            m_batchSize = batchSize;
+            m_queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        /** @return whether the iterator was closed or garbage collected */
+        private boolean isStopped() {
+            return m_isClosed || m_consumer.get() == null;
+        }
+
+        @Override
+        public void run() {
+            if (!m_isClaimed.compareAndSet(false, true)) {
+                // consumer reads the source itself
+                return;
+            }
+            try {
+                while (!isStopped() && m_source.hasNext()) {
+                    // wait before reading the next batch so that no more than one batch is held in addition to the
+                    // one being consumed
+                    waitWhileMemoryLow();
+                    final List<DataRow> batch = new ArrayList<>(m_batchSize);
+                    while (batch.size() < m_batchSize && !isStopped() && m_source.hasNext()) {
+                        batch.add(m_source.next());
+                    }
+                    if (!batch.isEmpty()) {
+                        offer(batch);
+                    }
+                }
+            } catch (InterruptedException e) {
+                m_failure = e;
+            } catch (Throwable t) {
+                // rethrown in the consumer thread
+                m_failure = t;
+            } finally {
+                m_source.close();
+                m_sourceClosed.countDown();
+            }
+            try {
+                offer(END_OF_TABLE);
+            } catch (InterruptedException e) {
+                m_failure = e;
+                m_isClosed = true;
+            }
+        }
+
+        /** Don't read further ahead while memory is low and the consumer has unread batches. */
+        private void waitWhileMemoryLow() throws InterruptedException {
+            final MemoryAlertSystem memoryAlertSystem = MemoryAlertSystem.getInstanceUncollected();
+            while (!isStopped() && !m_queue.isEmpty() && memoryAlertSystem.isMemoryLow()) {
+                Thread.sleep(WAIT_MILLIS);
+            }
+        }
+
+        /** Waits (uninterruptibly) until the background thread has closed the source. */
+        private void awaitSourceClosed() {
+            boolean isInterrupted = false;
+            while (true) {
+                try {
+                    m_sourceClosed.await();
+                    break;
+                } catch (InterruptedException e) {
+                    isInterrupted = true;
+                }
+            }
+            if (isInterrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /** Puts the batch into the queue, waiting while it is full unless the iterator gets closed. */
+        private void offer(final List<DataRow> batch) throws InterruptedException {
+            while (!isStopped() && !m_queue.offer(batch, WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                // consumer is slower, wait
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasNext() {
+        while (m_indexInBatch >= m_batch.size()) {
+            if (m_isEndReached || m_prefetcher.m_isClosed) {
+                return false;
+            }
+            if (m_isReadingDirectly) {
+                return hasNextDirectly();
+            }
+            try {
+                final List<DataRow> batch = takeBatch();
+                if (batch == null) {
+                    m_isReadingDirectly = true;
+                    return hasNextDirectly();
+                }
+                m_batch = batch;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DataContainerException("Interrupted while waiting for rows to be read", e);
+            }
+            m_indexInBatch = 0;
+            if (m_batch == END_OF_TABLE) {
+                m_isEndReached = true;
+                final Throwable failure = m_prefetcher.m_failure;
+                if (failure instanceof RuntimeException) {
+                    throw (RuntimeException)failure;
+                } else if (failure instanceof Error) {
+                    throw (Error)failure;
+                } else if (failure != null) {
+                    throw new DataContainerException("Reading rows failed: " + failure.getMessage(), failure);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Takes the next batch from the queue. If the background reading has not started after a short wait, the
+     * reading is claimed by the consumer and null is returned.
+     */
+    private List<DataRow> takeBatch() throws InterruptedException {
+        if (!m_prefetcher.m_isClaimed.get()) {
+            final List<DataRow> batch = m_prefetcher.m_queue.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            if (batch != null || m_prefetcher.m_isClaimed.compareAndSet(false, true)) {
+                return batch;
+            }
+        }
+        return m_prefetcher.m_queue.take();
+    }
+
+    /** Used when the consumer reads the source itself, closes it at the end. */
+    private boolean hasNextDirectly() {
+        if (m_prefetcher.m_source.hasNext()) {
+            return true;
+        }
+        close();
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public DataRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("Iterator at end");
+        }
+        return m_isReadingDirectly ? m_prefetcher.m_source.next() : m_batch.get(m_indexInBatch++);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Waits until the background thread has closed the underlying iterator, which takes at most the time to read one
+     * row.
+     */
+    @Override
+    public void close() {
+        if (!m_prefetcher.m_isClosed) {
+            m_prefetcher.m_isClosed = true;
+            m_batch = Collections.emptyList();
+            if (m_isReadingDirectly || m_prefetcher.m_isClaimed.compareAndSet(false, true)) {
+                m_prefetcher.m_source.close();
+            } else {
+                m_prefetcher.m_queue.clear();
+                // wakes up a consumer waiting in another thread
+                m_prefetcher.m_queue.offer(END_OF_TABLE);
+                m_prefetcher.awaitSourceClosed();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,329 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compact summary of the row keys of a single table, used by {@link ConcatenateTable} to prove that tables have no
+ * row keys in common without comparing the keys themselves. A digest records
+ * <ul>
+ * <li>the longest common prefix and suffix of all keys (tables whose common prefixes (or suffixes) diverge can't share
+ * a key),</li>
+ * <li>whether all keys have the same shape <i>head-number-tail</i>, where <i>head</i> is the (digit-free) start of the
+ * key, <i>number</i> the first run of digits and <i>tail</i> the remainder, and if so the range of numbers. This
+ * decomposition is unique for each string, so tables of different shape or with non-overlapping number ranges are
+ * disjoint. It covers the keys generated by most nodes (e.g. "Row0", "Row1", ...) and loop ends ("Row0#0", "Row1#0",
+ * ... vs. "Row0#1", ...).</li>
+ * </ul>
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class RowKeyDigest {
+
+    /** Numbers with more digits are not parsed (and disable the range check). */
+    private static final int MAX_DIGITS = 18;
+
+    private long m_count;
+
+    private String m_prefix;
+
+    private String m_suffix;
+
+    private boolean m_isNumericShape = true;
+
+    private String m_head;
+
+    private String m_tail;
+
+    private long m_min = Long.MAX_VALUE;
+
+    private long m_max = Long.MIN_VALUE;
+
+    /**
+     * Adds a key to the digest.
+     *
+     * @param key the row key string
+     */
+    void add(final String key) {
+        if (m_count++ == 0) {
+            m_prefix = key;
+            m_suffix = key;
+        } else {
+            m_prefix = commonPrefix(m_prefix, key);
+            m_suffix = commonSuffix(m_suffix, key);
+        }
+        if (m_isNumericShape) {
+            addToNumericShape(key);
+        }
+    }
+
+    private void addToNumericShape(final String key) {
+        final int length = key.length();
+        int start = 0;
+        while (start < length && !isDigit(key.charAt(start))) {
+            start++;
+        }
+        int end = start;
+        while (end < length && isDigit(key.charAt(end))) {
+            end++;
+        }
+        if (end == start || end - start > MAX_DIGITS) {
+            m_isNumericShape = false;
+            return;
+        }
+        if (m_head == null) {
+            m_head = key.substring(0, start);
+            m_tail = key.substring(end);
+        } else if (!m_head.regionMatches(0, key, 0, start) || m_head.length() != start
+            || !m_tail.regionMatches(0, key, end, length - end) || m_tail.length() != length - end) {
+            m_isNumericShape = false;
+            return;
+        }
+        long number = 0;
+        for (int i = start; i < end; i++) {
+            number = 10 * number + (key.charAt(i) - '0');
+        }
+        m_min = Math.min(m_min, number);
+        m_max = Math.max(m_max, number);
+    }
+
+    /** Only ASCII digits, consistent with how numbers are parsed. */
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static String commonPrefix(final String s1, final String s2) {
+        final int max = Math.min(s1.length(), s2.length());
+        int i = 0;
+        while (i < max && s1.charAt(i) == s2.charAt(i)) {
+            i++;
+        }
+        return i == s1.length() ? s1 : s1.substring(0, i);
+    }
+
+    private static String commonSuffix(final String s1, final String s2) {
+        final int l1 = s1.length();
+        final int l2 = s2.length();
+        final int max = Math.min(l1, l2);
+        int i = 0;
+        while (i < max && s1.charAt(l1 - 1 - i) == s2.charAt(l2 - 1 - i)) {
+            i++;
+        }
+        return i == l1 ? s1 : s1.substring(l1 - i);
+    }
+
+    /** @return number of keys added */
+    long getCount() {
+        return m_count;
+    }
+
+    /** @return whether all keys have the same head and tail and a number in between */
+    boolean isNumericShape() {
+        return m_count > 0 && m_isNumericShape;
+    }
+
+    /**
+     * Whether the two digests prove that the underlying tables have no key in common.
+     *
+     * @param o the other digest
+     * @return <code>true</code> if the tables are disjoint, <code>false</code> if they may share keys
+     */
+    boolean isDisjoint(final RowKeyDigest o) {
+        if (m_count == 0 || o.m_count == 0) {
+            return true;
+        }
+        if (!m_prefix.startsWith(o.m_prefix) && !o.m_prefix.startsWith(m_prefix)) {
+            return true;
+        }
+        if (!m_suffix.endsWith(o.m_suffix) && !o.m_suffix.endsWith(m_suffix)) {
+            return true;
+        }
+        if (isNumericShape() && o.isNumericShape()) {
+            return compareShape(this, o) != 0 || m_max < o.m_min || o.m_max < m_min;
+        }
+        return false;
+    }
+
+    private static int compareShape(final RowKeyDigest d1, final RowKeyDigest d2) {
+        int c = d1.m_head.compareTo(d2.m_head);
+        return c != 0 ? c : d1.m_tail.compareTo(d2.m_tail);
+    }
+
+    /**
+     * Determines the digests that can't be proven disjoint from all other digests. Digests of numeric shape are
+     * compared by sorting them by shape and range (so that many loop iteration results can be checked fast),
+     * all others are compared pairwise.
+     *
+     * @param digests the digests of all tables
+     * @return for each digest whether it (possibly) shares keys with another one
+     */
+    static boolean[] findOverlapping(final RowKeyDigest[] digests) {
+        final boolean[] result = new boolean[digests.length];
+        List<Integer> numeric = new ArrayList<>();
+        List<Integer> others = new ArrayList<>();
+        for (int i = 0; i < digests.length; i++) {
+            if (digests[i].isNumericShape()) {
+                numeric.add(i);
+            } else if (digests[i].getCount() > 0) {
+                others.add(i);
+            }
+        }
+        numeric.sort(Comparator.<Integer, RowKeyDigest> comparing(i -> digests[i], RowKeyDigest::compareShape)
+            .thenComparingLong(i -> digests[i].m_min));
+        int maxHolder = -1;
+        for (int i : numeric) {
+            final RowKeyDigest d = digests[i];
+            if (maxHolder >= 0 && compareShape(digests[maxHolder], d) == 0 && d.m_min <= digests[maxHolder].m_max) {
+                result[i] = true;
+                result[maxHolder] = true;
+                if (d.m_max > digests[maxHolder].m_max) {
+                    maxHolder = i;
+                }
+            } else {
+                // new shape or beyond the range of all previous tables of the same shape
+                maxHolder = i;
+            }
+        }
+        for (int o : others) {
+            for (int i = 0; i < digests.length; i++) {
+                if (i != o && !(result[o] && result[i]) && !digests[o].isDisjoint(digests[i])) {
+                    result[o] = true;
+                    result[i] = true;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return m_count + " keys, prefix \"" + m_prefix + "\", suffix \"" + m_suffix + "\""
+            + (isNumericShape() ? (", " + m_head + "[" + m_min + "-" + m_max + "]" + m_tail) : "");
+    }
+
+    /**
+     * Fixed size bit set of hashed row keys. Used to find the (few) keys of overlapping tables that need an exact
+     * check: only keys whose bucket was also hit by another table are candidates for duplicates.
+     */
+    static final class Buckets {
+
+        private final long[] m_bits;
+
+        private final int m_mask;
+
+        /**
+         * @param bitCount number of buckets, a power of 2
+         */
+        Buckets(final int bitCount) {
+            assert Integer.bitCount(bitCount) == 1 : "Not a power of 2: " + bitCount;
+            m_bits = new long[Math.max(1, bitCount >>> 6)];
+            m_mask = bitCount - 1;
+        }
+
+        /**
+         * @param expectedKeys the total number of keys
+         * @return number of buckets, about two per key, at least 2^10 and at most 2^26 (8MB)
+         */
+        static int bitCountFor(final long expectedKeys) {
+            long bits = Long.highestOneBit(Math.max(expectedKeys, 1L) * 2 - 1) << 1;
+            return (int)Math.max(1 << 10, Math.min(bits, 1 << 26));
+        }
+
+        /**
+         * @param key row key string
+         * @return the bucket of the key
+         */
+        int bucket(final String key) {
+            int h = key.hashCode();
+            // spread bits (murmur3 finalizer)
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            h ^= h >>> 16;
+            return h & m_mask;
+        }
+
+        void set(final int bucket) {
+            m_bits[bucket >>> 6] |= 1L << bucket;
+        }
+
+        boolean get(final int bucket) {
+            return (m_bits[bucket >>> 6] & (1L << bucket)) != 0;
+        }
+
+        /** this |= (a &amp; b) */
+        void orAnd(final Buckets a, final Buckets b) {
+            for (int i = 0; i < m_bits.length; i++) {
+                m_bits[i] |= a.m_bits[i] & b.m_bits[i];
+            }
+        }
+
+        /** this |= other */
+        void or(final Buckets other) {
+            for (int i = 0; i < m_bits.length; i++) {
+                m_bits[i] |= other.m_bits[i];
+            }
+        }
+
+        void clear() {
+            Arrays.fill(m_bits, 0L);
+        }
+
+        boolean isEmpty() {
+            for (long l : m_bits) {
+                if (l != 0L) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
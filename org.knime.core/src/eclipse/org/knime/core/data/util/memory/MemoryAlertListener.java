@@ -75,6 +75,20 @@ protected MemoryAlertListener() {
      */
     protected abstract boolean memoryAlert(MemoryAlert alert);
 
+    /**
+     * Returns an estimate of the data held by this listener that is released when it is notified, for instance the
+     * size of an in-memory table that is written to disk. The estimate is given in number of cells, which is also the
+     * unit of the in-memory limit of tables. The {@link MemoryAlertSystem} notifies listeners with the largest estimate
+     * first and only as many of them as needed to get back below its threshold. Listeners returning 0 (the default)
+     * are notified on every alert.
+     *
+     * @return the number of cells released on memory alert or 0 if unknown
+     * @since 4.2
+     */
+    protected long getReleasableCells() {
+        return 0;
+    }
+
     /**
      * Returns the node context for this listener.
      *
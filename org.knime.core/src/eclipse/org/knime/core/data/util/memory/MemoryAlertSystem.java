@@ -59,8 +59,12 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
@@ -72,13 +76,21 @@
 
 import org.apache.commons.io.FileUtils;
 import org.knime.core.node.NodeLogger;
+import org.knime.core.node.workflow.NodeContainer;
 import org.knime.core.node.workflow.NodeContext;
+import org.knime.core.node.workflow.NodeID;
 
 /**
  * Implementation of a simple memory warning system. You can either register a listener via
  * {@link #addListener(MemoryAlertListener)} that get notified if free memory gets low. This is useful for cases where
  * memory is kept in some kind of cache. Or you can check {@link #isMemoryLow()} while processing data.
  *
+ * <p>
+ * Listeners that announce the amount of data they release ({@link MemoryAlertListener#getReleasableCells()}, e.g.
+ * in-memory tables) are not all notified at once. Unless memory is critical, only the largest of them are notified,
+ * in proportion to how far usage exceeds the threshold, and further ones are notified in intervals for as long as
+ * memory stays low.
+ *
  * @author Christian Dietz, University of Konstanz
  * @author Thorsten Meinl, KNIME AG, Zurich, Switzerland
  * @since 2.12
@@ -172,6 +184,11 @@ public boolean lowMemoryActionRequired() {
      */
     private static final int CHECK_HEAP_SIZE_INTERVAL = 5;
 
+    /**
+     * Listeners releasing data are notified until usage is expected to be this fraction below the threshold.
+     */
+    private static final double RELEASE_MARGIN = 0.05;
+
     private final Collection<MemoryAlertListener> m_listeners = new ArrayList<>();
 
     private final MemoryPoolMXBean m_memPool = OLD_GEN_POOL;
@@ -182,12 +199,21 @@ public boolean lowMemoryActionRequired() {
 
     private final AtomicBoolean m_lowMemory = new AtomicBoolean();
 
+    /** Set by {@link #sendMemoryAlert()} to notify all listeners regardless of the memory usage. */
+    private final AtomicBoolean m_notifyAllListeners = new AtomicBoolean();
+
     private final AtomicLong m_lastEventTimestamp = new AtomicLong();
 
     private final AtomicLong m_lastGcTimestamp = new AtomicLong();
 
     private final double m_usageThreshold;
 
+    /** Usage above which all listeners are notified at once, half way between threshold and maximum. */
+    private final double m_criticalUsageThreshold;
+
+    /** Sum of {@link MemoryAlertListener#getReleasableCells()} of all notified listeners. */
+    private final AtomicLong m_releasedCells = new AtomicLong();
+
     private final boolean m_checkCollectedMemory;
 
     private long m_timeOfLastCheck = System.currentTimeMillis();
@@ -202,9 +228,30 @@ public boolean lowMemoryActionRequired() {
      * @noreference This constructor is not intended to be referenced by clients. Only used in test cases.
      */
     private MemoryAlertSystem(final double usageThreshold, final boolean checkCollectedMemory) {
+        this(usageThreshold, checkCollectedMemory, true);
+    }
+
+    /**
+     * Creates a new memory alert system.
+     *
+     * @param usageThreshold the threshold above which a low memory condition will be reported; a value between 0 and 1
+     * @param checkCollectedMemory whether only collected memory (i.e., memory after the last full GC) or current memory
+     *            is to be considered when determining a low memory condition
+     * @param observeMemory whether to set the threshold of the memory pool, listen to memory and garbage collection
+     *            events and start the notification thread; false for instances only used in test cases
+     */
+    private MemoryAlertSystem(final double usageThreshold, final boolean checkCollectedMemory,
+        final boolean observeMemory) {
         m_usageThreshold = usageThreshold;
+        m_criticalUsageThreshold = usageThreshold + (1.0 - usageThreshold) / 2;
         m_checkCollectedMemory = checkCollectedMemory;
-        setFractionUsageThreshold(usageThreshold);
+        if (observeMemory) {
+            observeMemory();
+        }
+    }
+
+    private void observeMemory() {
+        setFractionUsageThreshold(m_usageThreshold);
 
         for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
             for (String memPoolName : gcBean.getMemoryPoolNames()) {
@@ -247,7 +294,7 @@ private void usageThresholdEvent(final Notification not) {
 
         if (prev < not.getTimeStamp()) {
             m_lowMemory.set(true);
-            sendMemoryAlert();
+            signalAboveThreshold();
         }
     }
 
@@ -282,6 +329,11 @@ private void gcEvent(final Notification not) {
      * Send a memory alert events to all registered listeners. Should only be used for testing purposes.
      */
     public void sendMemoryAlert() {
+        m_notifyAllListeners.set(true);
+        signalAboveThreshold();
+    }
+
+    private void signalAboveThreshold() {
         m_aboveThresholdLock.lock();
         try {
             m_aboveThresholdEvent.signalAll();
@@ -338,16 +390,28 @@ private void startNotificationThread() {
         final Thread t = new Thread() {
             @Override
             public void run() {
+                boolean hasPendingListeners = false;
                 while (!isInterrupted()) {
+                    boolean isAlert = true;
                     m_aboveThresholdLock.lock();
                     try {
-                        m_aboveThresholdEvent.await();
+                        if (hasPendingListeners) {
+                            // some listeners were spared last time, notify more of them if memory is still low
+                            isAlert = m_aboveThresholdEvent.await(CHECK_HEAP_SIZE_INTERVAL, TimeUnit.SECONDS);
+                        } else {
+                            m_aboveThresholdEvent.await();
+                        }
                     } catch (InterruptedException ex) {
                         break;
                     } finally {
                         m_aboveThresholdLock.unlock();
                     }
-                    notifyListeners();
+                    if (isAlert || isMemoryLow()) {
+                        hasPendingListeners = notifyListeners(m_notifyAllListeners.getAndSet(false),
+                            getUsedMemory(), getMaximumMemory());
+                    } else {
+                        hasPendingListeners = false;
+                    }
                 }
             }
         };
@@ -383,19 +447,51 @@ public static double getUsage() {
         return getUsedMemory() / (double)getMaximumMemory();
     }
 
-    private void notifyListeners() {
-        MemoryAlert alert = new MemoryAlert(getUsedMemory(), getMaximumMemory());
+    /**
+     * Notifies the listeners. Listeners announcing releasable cells are notified largest first (and in order of
+     * registration if equal) until the fraction of cells by which usage exceeds the release target is released. If
+     * usage is critical all listeners are notified.
+     *
+     * @param notifyAll whether to notify all listeners, regardless of the usage
+     * @param usedMemory the currently used memory in bytes, see {@link #getUsedMemory()}
+     * @param maxMemory the maximum memory in bytes, see {@link #getMaximumMemory()}
+     * @return <code>true</code> if listeners announcing releasable cells were spared
+     */
+    boolean notifyListeners(final boolean notifyAll, final long usedMemory, final long maxMemory) {
+        MemoryAlert alert = new MemoryAlert(usedMemory, maxMemory);
+        final boolean isCritical = notifyAll || usedMemory >= m_criticalUsageThreshold * maxMemory;
+        final double releaseFraction =
+            Math.max(0.0, usedMemory - (m_usageThreshold - RELEASE_MARGIN) * maxMemory) / usedMemory;
 
         synchronized (m_listeners) {
             int initialSize = m_listeners.size();
             int removeCount = 0;
-            for (Iterator<MemoryAlertListener> it = m_listeners.iterator(); it.hasNext();) {
-                MemoryAlertListener listener = it.next();
+            final Map<MemoryAlertListener, Long> releasableCells = new IdentityHashMap<>();
+            long totalReleasableCells = 0;
+            for (MemoryAlertListener listener : m_listeners) {
+                final long cells = Math.max(0, listener.getReleasableCells());
+                releasableCells.put(listener, cells);
+                totalReleasableCells += cells;
+            }
+            final List<MemoryAlertListener> ordered = new ArrayList<>(m_listeners);
+            ordered.sort(Comparator.comparingLong((MemoryAlertListener l) -> releasableCells.get(l)).reversed());
+            final long cellsToRelease = isCritical ? totalReleasableCells
+                : (long)Math.ceil(releaseFraction * totalReleasableCells);
+            long releasedCells = 0;
+            boolean isListenerSpared = false;
+            for (MemoryAlertListener listener : ordered) {
+                final long cells = releasableCells.get(listener);
+                if (cells > 0 && releasedCells >= cellsToRelease) {
+                    isListenerSpared = true;
+                    continue;
+                }
+                releasedCells += cells;
+                m_releasedCells.addAndGet(cells);
                 NodeContext.pushContext(listener.getNodeContext());
                 try {
                     if (listener.memoryAlert(alert)) {
                         removeCount++;
-                        it.remove();
+                        m_listeners.remove(listener);
                     }
                 } catch (Exception ex) {
                     LOGGER
@@ -406,10 +502,45 @@ private void notifyListeners() {
             }
 
             LOGGER.debug(removeCount + "/" + initialSize + " listeners have been removed,  " + m_listeners.size()
-                + " are remaining");
+                + " are remaining (" + releasedCells + "/" + totalReleasableCells + " cells released"
+                + (isCritical ? ", memory critical)" : ")"));
+            return isListenerSpared;
         }
     }
 
+    /**
+     * Returns the total number of cells released by listeners on memory alerts (as per
+     * {@link MemoryAlertListener#getReleasableCells()}) since startup, for instance table cells written to disk.
+     *
+     * @return the number of released cells
+     * @since 4.2
+     */
+    public long getReleasedCells() {
+        return m_releasedCells.get();
+    }
+
+    /**
+     * Returns the number of cells that registered listeners are able to release, grouped by the node they were
+     * registered for. Listeners registered outside a node context are not included.
+     *
+     * @return a new map from node ID to number of releasable cells
+     * @since 4.2
+     */
+    public Map<NodeID, Long> getReleasableCellsPerNode() {
+        final Map<NodeID, Long> result = new LinkedHashMap<>();
+        synchronized (m_listeners) {
+            for (MemoryAlertListener listener : m_listeners) {
+                final NodeContext context = listener.getNodeContext();
+                final NodeContainer nc = context != null ? context.getNodeContainer() : null;
+                final long cells = listener.getReleasableCells();
+                if (nc != null && cells > 0) {
+                    result.merge(nc.getID(), cells, Long::sum);
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Tenured Space Pool can be determined by it being of type HEAP and by it being possible to set the usage
      * threshold.
@@ -496,4 +627,16 @@ public static MemoryAlertSystem getInstance() {
     public static MemoryAlertSystem getInstanceUncollected() {
         return IS_G1 ? INSTANCE_UNCOLLECTED : getInstance();
     }
+
+    /**
+     * Creates an instance that neither observes the memory pool nor notifies listeners on its own, i.e. listeners are
+     * only notified via {@link #notifyListeners(boolean, long, long)}. Only used in test cases, which must not
+     * interfere with listeners registered at the global instances.
+     *
+     * @param usageThreshold the threshold above which a low memory condition will be reported; a value between 0 and 1
+     * @return a new instance
+     */
+    static MemoryAlertSystem createUnobservedInstance(final double usageThreshold) {
+        return new MemoryAlertSystem(usageThreshold, true, false);
+    }
 }
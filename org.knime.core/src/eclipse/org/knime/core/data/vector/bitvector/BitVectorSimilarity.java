@@ -0,0 +1,325 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.vector.bitvector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.knime.core.node.util.CheckUtils;
+import org.knime.core.util.ParallelComputeExecutor;
+
+/**
+ * Computes similarities between {@link DenseBitVectorCell}s, e.g. fingerprints, in batches. In contrast to the
+ * methods in {@link BitVectorUtil} no intermediate vectors are created; the measures are computed directly on the long
+ * words of the vectors. Comparing a query against many vectors, or many vectors against each other, is distributed
+ * among all available processors.
+ * <p>
+ * Vectors of different lengths are compared as if the shorter one was padded with zeros. <code>null</code> entries in
+ * the arrays (e.g. for missing cells) result in {@link Double#NaN}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 4.2
+ */
+public final class BitVectorSimilarity {
+
+    /**
+     * The supported measures. All of them only depend on the cardinality of the intersection and the cardinalities of
+     * the two vectors.
+     */
+    public enum Measure {
+        /** Tanimoto (Jaccard) similarity |a &amp; b| / |a | b|; two empty vectors have similarity 1. */
+        TANIMOTO {
+            @Override
+            public double compute(final long intersection, final long cardinality1, final long cardinality2) {
+                final long union = cardinality1 + cardinality2 - intersection;
+                return union == 0 ? 1.0 : intersection / (double)union;
+            }
+        },
+        /** Dice similarity 2|a &amp; b| / (|a| + |b|); two empty vectors have similarity 1. */
+        DICE {
+            @Override
+            public double compute(final long intersection, final long cardinality1, final long cardinality2) {
+                final long sum = cardinality1 + cardinality2;
+                return sum == 0 ? 1.0 : 2.0 * intersection / sum;
+            }
+        },
+        /**
+         * Cosine similarity |a &amp; b| / sqrt(|a| * |b|); two empty vectors have similarity 1, an empty and a
+         * non-empty vector have similarity 0.
+         */
+        COSINE {
+            @Override
+            public double compute(final long intersection, final long cardinality1, final long cardinality2) {
+                if (cardinality1 == 0 || cardinality2 == 0) {
+                    return cardinality1 == cardinality2 ? 1.0 : 0.0;
+                }
+                return intersection / Math.sqrt((double)cardinality1 * cardinality2);
+            }
+        },
+        /** Hamming distance |a ^ b|, i.e. the number of differing bits (a distance, not a similarity). */
+        HAMMING {
+            @Override
+            public double compute(final long intersection, final long cardinality1, final long cardinality2) {
+                return cardinality1 + cardinality2 - 2 * intersection;
+            }
+        };
+
+        /**
+         * Computes the measure.
+         *
+         * @param intersection the number of bits set in both vectors
+         * @param cardinality1 the number of bits set in the first vector
+         * @param cardinality2 the number of bits set in the second vector
+         * @return the value of the measure
+         */
+        public abstract double compute(long intersection, long cardinality1, long cardinality2);
+    }
+
+    /** Number of words below which a batch is computed in the calling thread. */
+    private static final int MIN_PARALLEL_WORDS = 1 << 16;
+
+    /** Number of targets (or rows) each task takes at once. */
+    private static final int BLOCK_SIZE = 256;
+
+    /** Number of columns compared to a block of rows before moving on in all-vs-all comparisons. */
+    private static final int COLUMN_BLOCK_SIZE = 1024;
+
+    private BitVectorSimilarity() {
+        // utility class
+    }
+
+    /**
+     * Computes the measure for two vectors.
+     *
+     * @param measure the measure to compute
+     * @param bv1 the first vector
+     * @param bv2 the second vector
+     * @return the value of the measure
+     */
+    public static double compute(final Measure measure, final DenseBitVectorCell bv1, final DenseBitVectorCell bv2) {
+        CheckUtils.checkArgumentNotNull(measure, "Measure must not be null");
+        if (bv1 == null || bv2 == null) {
+            return Double.NaN;
+        }
+        final long[] words = bv1.getWords();
+        return compare(measure, words, cardinality(words), bv2.getWords());
+    }
+
+    /**
+     * Compares a query vector against many vectors (e.g. all cells of a column).
+     *
+     * @param measure the measure to compute
+     * @param query the query vector
+     * @param targets the vectors to compare the query with, may contain <code>null</code>
+     * @param result the array the measure for <code>targets[i]</code> is written to at index <code>i</code>, at least
+     *            as long as <code>targets</code>
+     */
+    public static void compute(final Measure measure, final DenseBitVectorCell query,
+        final DenseBitVectorCell[] targets, final double[] result) {
+        CheckUtils.checkArgumentNotNull(measure, "Measure must not be null");
+        CheckUtils.checkArgumentNotNull(targets, "Targets must not be null");
+        CheckUtils.checkArgument(result.length >= targets.length, "Result array too short: %d < %d", result.length,
+            targets.length);
+        if (query == null) {
+            Arrays.fill(result, 0, targets.length, Double.NaN);
+            return;
+        }
+        final long[] queryWords = query.getWords();
+        final long queryCardinality = cardinality(queryWords);
+        final int blockCount = (targets.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        runBlocks(blockCount, (long)targets.length * queryWords.length, block -> {
+            final int end = Math.min(targets.length, (block + 1) * BLOCK_SIZE);
+            for (int i = block * BLOCK_SIZE; i < end; i++) {
+                final DenseBitVectorCell target = targets[i];
+                result[i] = target == null ? Double.NaN
+                    : compare(measure, queryWords, queryCardinality, target.getWords());
+            }
+        });
+    }
+
+    /**
+     * Compares each of the row vectors with each of the column vectors. Pass the same array twice to get the
+     * similarity matrix of a set of vectors.
+     *
+     * @param measure the measure to compute
+     * @param rows the row vectors, may contain <code>null</code>
+     * @param columns the column vectors, may contain <code>null</code>
+     * @param result the matrix the measure for <code>rows[i]</code> and <code>columns[j]</code> is written to at
+     *            <code>result[i][j]</code>, with at least as many rows and columns as the arrays
+     */
+    public static void compute(final Measure measure, final DenseBitVectorCell[] rows,
+        final DenseBitVectorCell[] columns, final double[][] result) {
+        CheckUtils.checkArgumentNotNull(measure, "Measure must not be null");
+        CheckUtils.checkArgumentNotNull(rows, "Rows must not be null");
+        CheckUtils.checkArgumentNotNull(columns, "Columns must not be null");
+        CheckUtils.checkArgument(result.length >= rows.length, "Result matrix too short: %d < %d", result.length,
+            rows.length);
+        for (int i = 0; i < rows.length; i++) {
+            CheckUtils.checkArgument(result[i].length >= columns.length, "Result row %d too short: %d < %d", i,
+                result[i].length, columns.length);
+        }
+        final long[][] columnWords = new long[columns.length][];
+        final long[] columnCardinalities = new long[columns.length];
+        long maxWords = 0;
+        for (int j = 0; j < columns.length; j++) {
+            if (columns[j] != null) {
+                columnWords[j] = columns[j].getWords();
+                columnCardinalities[j] = cardinality(columnWords[j]);
+                maxWords = Math.max(maxWords, columnWords[j].length);
+            }
+        }
+        final int blockCount = (rows.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        runBlocks(blockCount, (long)rows.length * columns.length * maxWords, block -> {
+            final int rowEnd = Math.min(rows.length, (block + 1) * BLOCK_SIZE);
+            // compare a block of rows with a block of columns at a time so that the column vectors stay in the cache
+            for (int colStart = 0; colStart < columns.length; colStart += COLUMN_BLOCK_SIZE) {
+                final int colEnd = Math.min(columns.length, colStart + COLUMN_BLOCK_SIZE);
+                for (int i = block * BLOCK_SIZE; i < rowEnd; i++) {
+                    final double[] resultRow = result[i];
+                    if (rows[i] == null) {
+                        Arrays.fill(resultRow, colStart, colEnd, Double.NaN);
+                        continue;
+                    }
+                    final long[] rowWords = rows[i].getWords();
+                    final long rowCardinality = cardinality(rowWords);
+                    for (int j = colStart; j < colEnd; j++) {
+                        final long[] words = columnWords[j];
+                        resultRow[j] = words == null ? Double.NaN : measure.compute(
+                            intersection(rowWords, words), rowCardinality, columnCardinalities[j]);
+                    }
+                }
+            }
+        });
+    }
+
+    /*
+     * Computes the measure for the query and a target, counting the bits of
+     * the target in the same pass as the intersection.
+     */
+    private static double compare(final Measure measure, final long[] query, final long queryCardinality,
+        final long[] target) {
+        final int common = Math.min(query.length, target.length);
+        long intersection = 0;
+        long targetCardinality = 0;
+        for (int i = 0; i < common; i++) {
+            final long t = target[i];
+            intersection += Long.bitCount(query[i] & t);
+            targetCardinality += Long.bitCount(t);
+        }
+        for (int i = common; i < target.length; i++) {
+            targetCardinality += Long.bitCount(target[i]);
+        }
+        return measure.compute(intersection, queryCardinality, targetCardinality);
+    }
+
+    private static long intersection(final long[] words1, final long[] words2) {
+        final int common = Math.min(words1.length, words2.length);
+        long intersection = 0;
+        for (int i = 0; i < common; i++) {
+            intersection += Long.bitCount(words1[i] & words2[i]);
+        }
+        return intersection;
+    }
+
+    private static long cardinality(final long[] words) {
+        long cardinality = 0;
+        for (long w : words) {
+            cardinality += Long.bitCount(w);
+        }
+        return cardinality;
+    }
+
+    /** Processes one block of the batch. */
+    @FunctionalInterface
+    private interface BlockTask {
+        void run(int block);
+    }
+
+    /*
+     * Runs the task for all blocks. The blocks are taken from a shared counter
+     * by the calling thread and (if the batch is large enough) the executors,
+     * hence the batch is completed even if no executor thread is available.
+     */
+    private static void runBlocks(final int blockCount, final long totalWords, final BlockTask task) {
+        final int helpers = Math.min(ParallelComputeExecutor.PARALLELISM, blockCount) - 1;
+        if (helpers <= 0 || totalWords < MIN_PARALLEL_WORDS) {
+            for (int b = 0; b < blockCount; b++) {
+                task.run(b);
+            }
+            return;
+        }
+        final AtomicInteger nextBlock = new AtomicInteger();
+        final Runnable worker = () -> {
+            int b;
+            while ((b = nextBlock.getAndIncrement()) < blockCount) {
+                task.run(b);
+            }
+        };
+        final List<Future<?>> futures = new ArrayList<>(helpers);
+        for (int i = 0; i < helpers; i++) {
+            futures.add(ParallelComputeExecutor.submit(worker));
+        }
+        try {
+            worker.run();
+        } finally {
+            // after a failure the helpers stop with their current block, otherwise all blocks are taken already
+            nextBlock.set(blockCount);
+            ParallelComputeExecutor.cancelAndAwait(futures);
+        }
+        for (Future<?> f : futures) {
+            if (!f.isCancelled()) {
+                try {
+                    ParallelComputeExecutor.get(f, RuntimeException.class);
+                } catch (InterruptedException ie) {
+                    // not thrown, the task is done
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -1220,6 +1220,16 @@ public long[] getAllBits() {
         return m_storage.clone();
     }
 
+    /**
+     * Returns the internal storage of all bits without copying it (see {@link #getAllBits()} for the layout). The
+     * returned array must not be modified.
+     *
+     * @return the internal representation of the bits in this vector
+     */
+    long[] getStorage() {
+        return m_storage;
+    }
+
     /**
      * Returns a multi-line dump of the internal storage.
      *
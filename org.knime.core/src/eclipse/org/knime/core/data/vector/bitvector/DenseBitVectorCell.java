@@ -216,6 +216,14 @@ long cardinalityOfIntersection(final DenseBitVectorCell bitVectorCell) {
         return m_bitVector.cardinalityOfIntersection(bitVectorCell.m_bitVector);
     }
 
+    /**
+     * @see BitVectorSimilarity
+     * @return the words of the internal bit vector, must not be modified
+     */
+    long[] getWords() {
+        return m_bitVector.getStorage();
+    }
+
     /**
      * @see BitVectorUtil#cardinalityOfRelativeComplement(BitVectorValue, BitVectorValue)
      * @param bitVectorCell the other cell containing the operand
@@ -0,0 +1,367 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Appender;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Layout;
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.spi.ErrorHandler;
+import org.apache.log4j.spi.Filter;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Hands log events over to a single background thread which then calls the actual log4j appenders. Events are kept
+ * in a bounded, lock-free ring buffer (multiple producers, single consumer) so that logging threads neither contend
+ * on a monitor nor wait for any I/O done by the appenders. If the buffer is full, the logging thread waits for the
+ * dispatcher thread to catch up, i.e. no messages are dropped.
+ *
+ * <p>
+ * Appenders are decoupled from the calling thread by wrapping them via {@link #wrap(Appender)}. Used by
+ * {@link NodeLogger} if {@link KNIMEConstants#PROPERTY_ASYNC_LOGGING} is set.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class AsyncLogDispatcher {
+
+    /** Default capacity of the ring buffer (number of events). */
+    static final int DEFAULT_CAPACITY = 8192;
+
+    /** How long the dispatcher thread sleeps when there is nothing to do (unless woken up by a producer). */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /** Maximum time {@link #flush()} waits for pending events to be written. */
+    private static final long MAX_FLUSH_WAIT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final int m_mask;
+
+    /** Per slot sequence number, see D. Vyukov's bounded MPMC queue. */
+    private final AtomicLongArray m_sequences;
+
+    /** Published via m_sequences (volatile write after plain write). */
+    private final LoggingEvent[] m_events;
+
+    /** The target appender for the event in the same slot. */
+    private final Appender[] m_targets;
+
+    /** Next slot to be claimed by a producer. */
+    private final AtomicLong m_tail = new AtomicLong();
+
+    /** Next slot to be consumed, only written by the dispatcher thread. */
+    private volatile long m_head;
+
+    private volatile boolean m_isIdle;
+
+    private volatile boolean m_isShutdown;
+
+    private final Thread m_thread;
+
+    /**
+     * Creates a new dispatcher and starts its (daemon) thread.
+     *
+     * @param capacity the minimum capacity of the buffer, rounded up to the next power of two
+     */
+    AsyncLogDispatcher(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        m_mask = size - 1;
+        m_sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            m_sequences.set(i, i);
+        }
+        m_events = new LoggingEvent[size];
+        m_targets = new Appender[size];
+        m_thread = new Thread(this::run, "KNIME-Log-Dispatcher");
+        m_thread.setDaemon(true);
+        m_thread.start();
+    }
+
+    /** @return the capacity of the ring buffer */
+    int getCapacity() {
+        return m_mask + 1;
+    }
+
+    /**
+     * Wraps the argument appender so that all events passed to it are written by the dispatcher thread. Name, layout
+     * and filters of the returned appender are those of the argument.
+     *
+     * @param target the appender to wrap, not null
+     * @return the asynchronous appender (or the argument if it is already wrapped)
+     */
+    Appender wrap(final Appender target) {
+        if (target instanceof AsyncAppender) {
+            return target;
+        }
+        return new AsyncAppender(target);
+    }
+
+    /**
+     * Queues the event for the given appender. Blocks while the buffer is full. If called from the dispatcher thread
+     * itself (an appender logging) or after shutdown the event is written directly.
+     */
+    private void dispatch(final LoggingEvent event, final Appender target) {
+        if (m_isShutdown || Thread.currentThread() == m_thread) {
+            target.doAppend(event);
+            return;
+        }
+        int spins = 0;
+        while (!offer(event, target)) {
+            LockSupport.unpark(m_thread);
+            if (++spins < 64) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(this, TimeUnit.MICROSECONDS.toNanos(100));
+            }
+            if (m_isShutdown) {
+                target.doAppend(event);
+                return;
+            }
+        }
+        if (m_isIdle) {
+            LockSupport.unpark(m_thread);
+        }
+    }
+
+    private boolean offer(final LoggingEvent event, final Appender target) {
+        long pos = m_tail.get();
+        while (true) {
+            final int index = (int)(pos & m_mask);
+            final long diff = m_sequences.get(index) - pos;
+            if (diff == 0) {
+                if (m_tail.compareAndSet(pos, pos + 1)) {
+                    m_events[index] = event;
+                    m_targets[index] = target;
+                    m_sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = m_tail.get();
+            } else if (diff < 0) {
+                return false; // full
+            } else {
+                pos = m_tail.get(); // claimed by another producer meanwhile
+            }
+        }
+    }
+
+    /** Writes all available events, only to be called by the dispatcher thread. Returns false if buffer was empty. */
+    private boolean drain() {
+        long head = m_head;
+        boolean hasDrained = false;
+        while (true) {
+            final int index = (int)(head & m_mask);
+            if (m_sequences.get(index) != head + 1) {
+                break;
+            }
+            final LoggingEvent event = m_events[index];
+            final Appender target = m_targets[index];
+            m_events[index] = null;
+            m_targets[index] = null;
+            m_sequences.set(index, head + m_mask + 1);
+            head += 1;
+            try {
+                target.doAppend(event);
+            } catch (RuntimeException e) {
+                LogLog.error("Failed to write log event to appender \"" + target.getName() + "\"", e);
+            }
+            hasDrained = true;
+            if ((head & 0xFF) == 0) {
+                m_head = head; // publish progress every now and then, needed by flush()
+            }
+        }
+        m_head = head;
+        return hasDrained;
+    }
+
+    private boolean isEmpty() {
+        return m_sequences.get((int)(m_head & m_mask)) != m_head + 1;
+    }
+
+    private void run() {
+        while (!m_isShutdown) {
+            if (!drain()) {
+                m_isIdle = true;
+                if (isEmpty() && !m_isShutdown) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                m_isIdle = false;
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Waits until all events that were queued prior to this call are written (or the dispatcher appears to be stuck).
+     * Returns immediately if called from the dispatcher thread.
+     */
+    void flush() {
+        if (Thread.currentThread() == m_thread || !m_thread.isAlive()) {
+            return;
+        }
+        final long target = m_tail.get();
+        final long deadline = System.nanoTime() + MAX_FLUSH_WAIT_NANOS;
+        while (m_head < target && System.nanoTime() < deadline) {
+            LockSupport.unpark(m_thread);
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    /** Writes all pending events and stops the dispatcher thread. Events logged afterwards are written directly. */
+    void shutdown() {
+        flush();
+        m_isShutdown = true;
+        LockSupport.unpark(m_thread);
+        try {
+            m_thread.join(TimeUnit.NANOSECONDS.toMillis(MAX_FLUSH_WAIT_NANOS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Appender forwarding events to the dispatcher thread. Threshold and filters of the target appender are evaluated
+     * on the calling thread so that rejected events are never queued; all other settings are delegated.
+     */
+    private final class AsyncAppender implements Appender {
+
+        private final Appender m_target;
+
+        AsyncAppender(final Appender target) {
+            m_target = target;
+        }
+
+        @Override
+        public void doAppend(final LoggingEvent event) {
+            if (m_target instanceof AppenderSkeleton
+                && !((AppenderSkeleton)m_target).isAsSevereAsThreshold(event.getLevel())) {
+                return;
+            }
+            FILTER_LOOP: for (Filter f = m_target.getFilter(); f != null; f = f.getNext()) {
+                switch (f.decide(event)) {
+                    case Filter.DENY:
+                        return;
+                    case Filter.ACCEPT:
+                        break FILTER_LOOP;
+                    default:
+                        // neutral, ask next filter
+                }
+            }
+            // fix all thread dependent information before handing the event to another thread
+            event.getNDC();
+            event.getThreadName();
+            event.getMDCCopy();
+            event.getRenderedMessage();
+            event.getThrowableStrRep();
+            dispatch(event, m_target);
+        }
+
+        @Override
+        public void close() {
+            flush();
+            m_target.close();
+        }
+
+        @Override
+        public void addFilter(final Filter newFilter) {
+            m_target.addFilter(newFilter);
+        }
+
+        @Override
+        public Filter getFilter() {
+            return m_target.getFilter();
+        }
+
+        @Override
+        public void clearFilters() {
+            m_target.clearFilters();
+        }
+
+        @Override
+        public String getName() {
+            return m_target.getName();
+        }
+
+        @Override
+        public void setName(final String name) {
+            m_target.setName(name);
+        }
+
+        @Override
+        public void setErrorHandler(final ErrorHandler errorHandler) {
+            m_target.setErrorHandler(errorHandler);
+        }
+
+        @Override
+        public ErrorHandler getErrorHandler() {
+            return m_target.getErrorHandler();
+        }
+
+        @Override
+        public void setLayout(final Layout layout) {
+            m_target.setLayout(layout);
+        }
+
+        @Override
+        public Layout getLayout() {
+            return m_target.getLayout();
+        }
+
+        @Override
+        public boolean requiresLayout() {
+            return m_target.requiresLayout();
+        }
+
+        @Override
+        public String toString() {
+            return "Async(" + m_target + ")";
+        }
+    }
+}
@@ -61,6 +61,8 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -99,6 +101,7 @@
 import org.knime.core.node.util.CheckUtils;
 import org.knime.core.node.workflow.BufferedDataTableView;
 import org.knime.core.node.workflow.WorkflowDataRepository;
+import org.knime.core.util.FileUtil;
 import org.knime.core.util.MutableBoolean;
 
 /**
@@ -183,6 +186,12 @@ static PortObjectSerializer<BufferedDataTable> getPortObjectSerializer() {
     private final KnowsRowCountTable m_delegate;
     private int m_tableID;
     private Node m_owner;
+    /** Nodes other than the owner that hold this table as part of a loaded execution result (forked or sandboxed
+     * copies of the owner). Lazily created, guarded by 'this'. */
+    private Set<Node> m_sharingNodes;
+    /** Set when the owner cleared the table while it was still shared, the storage is then released together with
+     * the last sharing node. Guarded by 'this'. */
+    private boolean m_isClearPending;
 
     /**
      * Creates a new buffered data table based on a container table (caching everything).
@@ -298,6 +307,21 @@ void putIntoTableRepository(final WorkflowDataRepository dataRepository) {
         }
     }
 
+    /** Same as {@link #putIntoTableRepository(WorkflowDataRepository)} but tables (this or references) owned by the
+     * argument node are put into the owner's view of the repository so that they are registered with the node.
+     * @param dataRepository The repository from the workflow
+     * @param owner The node whose tables are to be registered in the owner repository
+     * @param ownerRepository The view of the repository for the owner node
+     */
+    void putIntoTableRepository(final WorkflowDataRepository dataRepository, final Node owner,
+        final WorkflowDataRepository ownerRepository) {
+        m_delegate.putIntoTableRepository(getOwner() == owner ? ownerRepository : dataRepository);
+        BufferedDataTable[] references = m_delegate.getReferenceTables();
+        for (BufferedDataTable reference : references) {
+            reference.putIntoTableRepository(dataRepository, owner, ownerRepository);
+        }
+    }
+
     /** Remove this table and all of its delegates from the table repository,
      * if and only if its owner is the argument node.
      * @param dataRepository The repository to be removed from.
@@ -538,6 +562,9 @@ public void close() {
     private static final String TABLE_TYPE_REFERENCE_IN_SAME_NODE = "reference_from_same_node_table";
     private static final String TABLE_TYPE_EXTENSION = "extension_table";
     private static final String TABLE_FILE = "data.zip";
+    /** Directory used instead of {@link #TABLE_FILE} if container tables are saved unzipped.
+     * @see KNIMEConstants#PROPERTY_UNZIPPED_TABLE_FILES */
+    private static final String TABLE_DIRECTORY = "data";
     private static final String TABLE_DESCRIPTION_FILE = "data.xml";
     private static final String TABLE_SPEC_FILE = "spec.xml";
 
@@ -555,8 +582,21 @@ public void close() {
      */
     void save(final File dir, final Set<Integer> savedTableIDs, final ExecutionMonitor exec)
         throws IOException, CanceledExecutionException {
-        NodeSettings s = new NodeSettings(CFG_TABLE_META);
         Integer bufferedTableID = getBufferedTableId();
+        if (Boolean.getBoolean(KNIMEConstants.PROPERTY_INCREMENTAL_DATA_SAVE)) {
+            if (!savedTableIDs.contains(bufferedTableID) && isSavedIn(dir)) {
+                savedTableIDs.add(bufferedTableID);
+                return;
+            }
+            // the directory is not cleared by the caller in incremental mode
+            File[] children = dir.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    FileUtil.deleteRecursively(child);
+                }
+            }
+        }
+        NodeSettings s = new NodeSettings(CFG_TABLE_META);
         s.addInt(CFG_TABLE_ID, bufferedTableID);
         File outFile = new File(dir, TABLE_FILE);
         if (!savedTableIDs.add(bufferedTableID)) {
@@ -577,7 +617,18 @@ void save(final File dir, final Set<Integer> savedTableIDs, final ExecutionMonit
                     s.addString(CFG_TABLE_TYPE, TABLE_TYPE_CONTAINER);
                 }
             }
-            m_delegate.saveToFile(outFile, s, exec);
+            if (Boolean.getBoolean(KNIMEConstants.PROPERTY_UNZIPPED_TABLE_FILES)) {
+                outFile = new File(dir, TABLE_DIRECTORY);
+                if (outFile.exists()) {
+                    FileUtil.deleteRecursively(outFile);
+                }
+                if (!outFile.mkdir()) {
+                    throw new IOException("Could not create directory " + outFile.getAbsolutePath());
+                }
+                ((ContainerTable)m_delegate).saveToDirectory(outFile, exec);
+            } else {
+                m_delegate.saveToFile(outFile, s, exec);
+            }
         } else {
             if (m_delegate instanceof RearrangeColumnsTable) {
                 final ContainerTable appendTable = ((RearrangeColumnsTable)m_delegate).getAppendTable();
@@ -638,7 +689,7 @@ void save(final File dir, final Set<Integer> savedTableIDs, final ExecutionMonit
         }
         // only write the data file to the settings if it has been created
         if (outFile.exists()) {
-            s.addString(CFG_TABLE_FILE_NAME, TABLE_FILE);
+            s.addString(CFG_TABLE_FILE_NAME, outFile.getName());
         } else {
             s.addString(CFG_TABLE_FILE_NAME, null);
         }
@@ -649,6 +700,43 @@ void save(final File dir, final Set<Integer> savedTableIDs, final ExecutionMonit
         }
     }
 
+    /**
+     * Whether the argument directory already contains this table as written by a previous call to
+     * {@link #save(File, Set, ExecutionMonitor)}. This is only the case for container tables, which are identified by
+     * their table ID (unique within a workflow and retained when the workflow is saved and loaded) -- a table with a
+     * given ID never changes its content. Used to skip re-writing unchanged tables when saving incrementally.
+     *
+     * @param dir The directory to check
+     * @return true if the directory holds this very table and can be retained
+     * @see KNIMEConstants#PROPERTY_INCREMENTAL_DATA_SAVE
+     */
+    private boolean isSavedIn(final File dir) {
+        if (!(m_delegate instanceof ContainerTable)) {
+            return false;
+        }
+        File dataXML = new File(dir, TABLE_DESCRIPTION_FILE);
+        if (!dataXML.isFile() || !new File(dir, TABLE_SPEC_FILE).isFile()) {
+            return false;
+        }
+        try (InputStream input = new BufferedInputStream(new FileInputStream(dataXML))) {
+            NodeSettingsRO s = NodeSettings.loadFromXML(input);
+            if (s.getInt(CFG_TABLE_ID, -1) != getBufferedTableId()) {
+                return false;
+            }
+            String tableType = s.getString(CFG_TABLE_TYPE, null);
+            if (!Arrays.asList(TABLE_TYPE_CONTAINER, TABLE_TYPE_CONTAINER_CUSTOM, TABLE_TYPE_CONTAINER_COMPRESS)
+                .contains(tableType)) {
+                return false;
+            }
+            String fileName = s.getString(CFG_TABLE_FILE_NAME, null);
+            return fileName != null && new File(dir, fileName).exists();
+        } catch (IOException ioe) {
+            NodeLogger.getLogger(BufferedDataTable.class).debug(
+                "Unable to read table description in " + dir.getAbsolutePath() + ", rewriting table", ioe);
+            return false;
+        }
+    }
+
     /**
      * Utility method that is used when the node saves its state. It saves
      * it to a file spec.xml.
@@ -751,7 +839,8 @@ static BufferedDataTable loadFromFile(final ReferencedFile dirRef,
             if (!file.exists()) {
                 throw new IOException("No such data file: " + fileRef);
             }
-            if (!file.isFile() || !file.canRead()) {
+            // a directory if the container table was saved unzipped (added in 4.2)
+            if (!(file.isFile() || file.isDirectory()) || !file.canRead()) {
                 throw new IOException("Cannot read file " + fileRef);
             }
         } else {
@@ -923,6 +1012,10 @@ synchronized void clear(final Node dataOwner) {
             for (BufferedDataTable reference : references) {
                 reference.clear(dataOwner);
             }
+            if (m_sharingNodes != null) {
+                m_isClearPending = true;
+                return;
+            }
             m_isCleared.setValue(true);
             m_delegate.clear();
         }
@@ -943,11 +1036,77 @@ synchronized void clearSingle(final Node dataOwner) {
             if (m_isCleared.booleanValue()) {
                 return;
             }
+            if (m_sharingNodes != null) {
+                m_isClearPending = true;
+                return;
+            }
             m_isCleared.setValue(true);
             m_delegate.clear();
         }
     }
 
+    /** Registers a node that holds this table without being its owner, e.g. a forked copy of the owner that was loaded
+     * with the owner's execution result. As long as any such node is registered, clearing the table through its owner
+     * is deferred. Also registers the node with all referenced tables. No-op if the argument is the owner or the
+     * table has no owner.
+     * @param sharingNode The node sharing the table.
+     * @see #releaseSharedBy(Node)
+     */
+    synchronized void addSharedBy(final Node sharingNode) {
+        if (m_owner != null && m_owner != sharingNode) {
+            if (m_sharingNodes == null) {
+                m_sharingNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+            }
+            m_sharingNodes.add(sharingNode);
+        }
+        for (BufferedDataTable reference : m_delegate.getReferenceTables()) {
+            reference.addSharedBy(sharingNode);
+        }
+    }
+
+    /** Reverse operation to {@link #addSharedBy(Node)}, called when the sharing node disposes its outputs. If the
+     * owner cleared the table in the meantime and this is the last sharing node, the table is cleared now.
+     * @param sharingNode The node that no longer holds the table.
+     */
+    synchronized void releaseSharedBy(final Node sharingNode) {
+        if (m_sharingNodes != null && m_sharingNodes.remove(sharingNode) && m_sharingNodes.isEmpty()) {
+            m_sharingNodes = null;
+            if (m_isClearPending) {
+                m_isClearPending = false;
+                synchronized (m_isCleared) {
+                    if (!m_isCleared.booleanValue()) {
+                        m_isCleared.setValue(true);
+                        m_delegate.clear();
+                    }
+                }
+            }
+        }
+        for (BufferedDataTable reference : m_delegate.getReferenceTables()) {
+            reference.releaseSharedBy(sharingNode);
+        }
+    }
+
+    /** Whether this table or any of its references owned by the argument node is currently shared with other nodes,
+     * i.e. clearing it through the owner would be deferred.
+     * @param owner The owner of the tables.
+     * @return true if the argument node owns a table that is still used by other nodes
+     * @see #addSharedBy(Node)
+     */
+    synchronized boolean isSharedAndOwnedBy(final Node owner) {
+        if (getOwner() != owner) {
+            return false;
+        }
+        if (m_sharingNodes != null) {
+            return true;
+        }
+        for (BufferedDataTable reference : m_delegate.getReferenceTables()) {
+            if (reference.isSharedAndOwnedBy(owner)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /** Reads table from its saved location (usually the workspace). Used
      * to allow for later re-saving in a cleared workspace (used for
      * version hop) */
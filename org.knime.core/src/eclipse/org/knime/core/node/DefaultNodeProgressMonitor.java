@@ -52,6 +52,8 @@
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
 import java.util.function.Supplier;
 
 import org.apache.commons.lang3.StringUtils;
@@ -68,6 +70,11 @@
  * <p>
  * This progress monitor uses a static timer task looking every 250 milliseconds if progress information has changed.
  * The <code>ProgressEvent</code> is fired if either the value or message has changed only.
+ * <p>
+ * Updates are lock-free: the progress value is held in atomic fields and progress reported through sub progress
+ * monitors (see {@link ExecutionMonitor#createSubProgress(double)}) is accumulated in a striped counter, which is only
+ * summed up when the progress is queried (by the timer task or by {@link #getProgress()}). Nodes reporting progress
+ * from many threads concurrently therefore don't contend on this monitor.
  *
  * @author Thomas Gabriel, University of Konstanz
  */
@@ -77,17 +84,23 @@ public class DefaultNodeProgressMonitor implements NodeProgressMonitor {
 
     private static final Supplier<String> NULL_SUPPLIER = () -> null;
 
+    /** Bit pattern of {@link #m_progressBits} if no progress is available (a NaN, not a valid progress value). */
+    private static final long NO_PROGRESS = -1L;
+
     /** The cancel requested flag. */
-    private boolean m_cancelExecute;
+    private volatile boolean m_cancelExecute;
 
-    /** Progress of the execution between 0 and 1, or null if not available. */
-    private Double m_progress;
+    /** Bits of the progress between 0 and 1 as last set via {@link #setProgress(double)}, or {@link #NO_PROGRESS}. */
+    private final AtomicLong m_progressBits = new AtomicLong(NO_PROGRESS);
+
+    /** Progress contributed by sub progress monitors since the last call to {@link #setProgress(double)}. */
+    private final DoubleAdder m_subProgress = new DoubleAdder();
 
     /** Lazy setter of new message - generation may be skipped if new messages come in faster than processed. */
-    private Supplier<String> m_messageSupplier;
+    private volatile Supplier<String> m_messageSupplier;
 
     /** Lazy setter of new append message - used by SubNodeProgressMonitor. */
-    private Supplier<String> m_appendSupplier;
+    private volatile Supplier<String> m_appendSupplier;
 
     /** A set of progress listeners. */
     private final CopyOnWriteArrayList<NodeProgressListener> m_listeners;
@@ -102,7 +115,7 @@ public class DefaultNodeProgressMonitor implements NodeProgressMonitor {
     private static final List<WeakReference<DefaultNodeProgressMonitor>> PROGMONS = new CopyOnWriteArrayList<>();
 
     /** If progress has changed. */
-    private boolean m_changed = false;
+    private volatile boolean m_changed = false;
 
     private static final ScheduledExecutorService NOTIFICATION_SERVICE =
             Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "KNIME Progress Updater"));
@@ -166,12 +179,13 @@ public DefaultNodeProgressMonitor(final NodeProgressListener l) {
      * NOTE: No notification is send to listeners! {@inheritDoc}
      */
     @Override
-    public synchronized void reset() {
-        if ((m_progress != null) || (m_messageSupplier.get() != null)) {
+    public void reset() {
+        if ((m_progressBits.get() != NO_PROGRESS) || (m_messageSupplier.get() != null)) {
             m_changed = true;
         }
         m_cancelExecute = false;
-        m_progress = null;
+        m_progressBits.set(NO_PROGRESS);
+        m_subProgress.reset();
         m_appendSupplier = NULL_SUPPLIER;
         m_messageSupplier = NULL_SUPPLIER;
     }
@@ -213,7 +227,7 @@ public void setExecuteCanceled() {
      * @param message The text message shown in the progress monitor.
      */
     @Override
-    public synchronized void setProgress(final double progress, final String message) {
+    public void setProgress(final double progress, final String message) {
         setProgressIntern(progress);
         setMessageIntern(() -> message, NULL_SUPPLIER);
         m_changed = true;
@@ -222,7 +236,7 @@ public synchronized void setProgress(final double progress, final String message
     /** {@inheritDoc}
      * @since 3.2 */
     @Override
-    public synchronized void setProgress(final double progress, final Supplier<String> message) {
+    public void setProgress(final double progress, final Supplier<String> message) {
         setProgressIntern(progress);
         m_messageSupplier = CheckUtils.checkArgumentNotNull(message);
         m_changed = true;
@@ -234,7 +248,7 @@ public synchronized void setProgress(final double progress, final Supplier<Strin
      * @param progress The value between 0 and 1.
      */
     @Override
-    public synchronized void setProgress(final double progress) {
+    public void setProgress(final double progress) {
         if (setProgressIntern(progress)) {
             m_changed = true;
         }
@@ -242,14 +256,14 @@ public synchronized void setProgress(final double progress) {
 
     /** {@inheritDoc} */
     @Override
-    public synchronized void setMessage(final String message) {
+    public void setMessage(final String message) {
         setProgress(message);
     }
 
     /** {@inheritDoc}
      * @since 3.2 */
     @Override
-    public synchronized void setMessage(final Supplier<String> message) {
+    public void setMessage(final Supplier<String> message) {
         m_messageSupplier = CheckUtils.checkArgumentNotNull(message);
         m_changed = true;
     }
@@ -260,12 +274,12 @@ public synchronized void setMessage(final Supplier<String> message) {
      * @param message The text message shown in the progress monitor.
      */
     @Override
-    public synchronized void setProgress(final String message) {
+    public void setProgress(final String message) {
         setMessageIntern(() -> message, NULL_SUPPLIER);
         m_changed = true;
     }
 
-    private synchronized void appendMessage(final Supplier<String> appendSupplier) {
+    private void appendMessage(final Supplier<String> appendSupplier) {
         setMessageIntern(m_messageSupplier, appendSupplier);
         m_changed = true;
     }
@@ -274,17 +288,40 @@ private synchronized void appendMessage(final Supplier<String> appendSupplier) {
      * Sets progress internally, returns <code>true</code> if old value has changed.
      */
     private boolean setProgressIntern(final double progress) {
-        final Double oldProgress = m_progress;
+        final long oldBits;
         if (progress >= 0.0 && progress <= 1.0) {
-            m_progress = progress;
+            // an absolute value overrides whatever was contributed by sub progress monitors so far (increments
+            // added concurrently to this call may get lost, which is acceptable for progress information)
+            oldBits = m_progressBits.getAndSet(Double.doubleToLongBits(progress));
+            m_subProgress.reset();
+        } else {
+            oldBits = m_progressBits.get();
+        }
+        return oldBits == NO_PROGRESS || Double.longBitsToDouble(oldBits) != progress;
+    }
+
+    /**
+     * Adds progress reported by a (direct) sub progress monitor, already scaled to the range of this monitor. If no
+     * progress has been set so far it is initialized to 0, even if the delta is 0.
+     *
+     * @param delta the non-negative progress to add
+     */
+    private void addSubProgress(final double delta) {
+        if (m_progressBits.get() == NO_PROGRESS) {
+            m_progressBits.compareAndSet(NO_PROGRESS, Double.doubleToLongBits(0.0));
+            m_changed = true;
+        }
+        if (delta > 0.0) {
+            m_subProgress.add(delta);
+            // avoid the volatile write (and cache line invalidation) if the flag is already set
+            if (!m_changed) {
+                m_changed = true;
+            }
         }
-        boolean changed = oldProgress == null || oldProgress.doubleValue() != progress;
-        return changed;
     }
 
     /** Sets message internally. */
     private void setMessageIntern(final Supplier<String> messageSupplier, final Supplier<String> appendSupplier) {
-        assert Thread.holdsLock(this);
         m_messageSupplier = messageSupplier;
         m_appendSupplier = appendSupplier;
     }
@@ -293,15 +330,19 @@ private void setMessageIntern(final Supplier<String> messageSupplier, final Supp
      * @return The current progress value, or <code>null</code> if not yet set.
      */
     @Override
-    public synchronized Double getProgress() {
-        return m_progress;
+    public Double getProgress() {
+        final long bits = m_progressBits.get();
+        if (bits == NO_PROGRESS) {
+            return null;
+        }
+        return Math.min(1.0, Double.longBitsToDouble(bits) + m_subProgress.sum());
     }
 
     /**
      * @return The current progress message.
      */
     @Override
-    public synchronized String getMessage() {
+    public String getMessage() {
         return m_messageSupplier.get();
     }
 
@@ -335,6 +376,7 @@ public void removeAllProgressListener() {
 
     private void fireProgressChanged() {
         m_changed = false;
+        // progress trees are aggregated here, i.e. at most once per timer period
         NodeProgress pe = new NodeProgress(getProgress(), createMessage(m_messageSupplier, m_appendSupplier));
         for (NodeProgressListener l : m_listeners) {
             try {
@@ -364,7 +406,8 @@ private static String createMessage(final Supplier<String> messageSupplier, fina
 
     /**
      * Progress monitor that is used by "sub-progresses", it doesn't have the range [0, 1] but only [0, b] where b is
-     * user-defined.
+     * user-defined. Progress is propagated to the parent as (scaled) increments without locking; a sub progress
+     * monitor never decreases the progress of its parent.
      */
     static class SubNodeProgressMonitor implements NodeProgressMonitor {
 
@@ -372,11 +415,12 @@ static class SubNodeProgressMonitor implements NodeProgressMonitor {
 
         private final double m_maxProg;
 
-        private double m_lastProg;
+        /** Bits of the progress reported so far, in [0, 1]. Only increases. */
+        private final AtomicLong m_lastProgBits = new AtomicLong(Double.doubleToLongBits(0.0));
 
-        private Supplier<String> m_innerMessageSupplier;
+        private volatile Supplier<String> m_innerMessageSupplier;
 
-        private Supplier<String> m_innerAppendSupplier;
+        private volatile Supplier<String> m_innerAppendSupplier;
 
         /**
          * Creates new sub progress monitor.
@@ -420,7 +464,7 @@ public String getMessage() {
          */
         @Override
         public Double getProgress() {
-            return m_lastProg;
+            return Double.longBitsToDouble(m_lastProgBits.get());
         }
 
         /** {@inheritDoc} */
@@ -493,10 +537,8 @@ public void setProgress(final double progress, final String message) {
         /** {@inheritDoc} */
         @Override
         public void setProgress(final double progress, final Supplier<String> messageSupplier) {
-            synchronized (m_parent) {
-                this.setProgress(progress);
-                this.setMessage(messageSupplier);
-            }
+            this.setProgress(progress);
+            this.setMessage(messageSupplier);
         }
 
         /**
@@ -506,17 +548,17 @@ public void setProgress(final double progress, final Supplier<String> messageSup
          * @param append whether to append
          */
         void setProgress(final Supplier<String> messageSupplier, final boolean append) {
-            synchronized (m_parent) {
-                m_innerMessageSupplier = CheckUtils.checkArgumentNotNull(messageSupplier);
-                if (append) {
-                    m_innerAppendSupplier = NULL_SUPPLIER;
-                }
-                Supplier<String> createSupplier = () -> createMessage(m_innerMessageSupplier, m_innerAppendSupplier);
-                if (m_parent instanceof DefaultNodeProgressMonitor) {
-                    ((DefaultNodeProgressMonitor)m_parent).appendMessage(createSupplier);
-                } else if (m_parent instanceof SubNodeProgressMonitor) {
-                    ((SubNodeProgressMonitor)m_parent).appendMessage(createSupplier);
-                } else {
+            m_innerMessageSupplier = CheckUtils.checkArgumentNotNull(messageSupplier);
+            if (append) {
+                m_innerAppendSupplier = NULL_SUPPLIER;
+            }
+            Supplier<String> createSupplier = () -> createMessage(m_innerMessageSupplier, m_innerAppendSupplier);
+            if (m_parent instanceof DefaultNodeProgressMonitor) {
+                ((DefaultNodeProgressMonitor)m_parent).appendMessage(createSupplier);
+            } else if (m_parent instanceof SubNodeProgressMonitor) {
+                ((SubNodeProgressMonitor)m_parent).appendMessage(createSupplier);
+            } else {
+                synchronized (m_parent) {
                     m_parent.setMessage(createSupplier);
                 }
             }
@@ -534,41 +576,58 @@ public void setProgress(final double progress) {
             if (m_maxProg <= 0.0) { // don't report 0-progress ("unknown")
                 return;
             }
-            // synchronization is imported here: multiple sub progresses may
-            // report to the parent. "getOldProgress" and "setNewProgress" must
-            // be an atomic operation
-            synchronized (m_parent) {
-                Double progressOfParent = m_parent.getProgress();
-                double boundedProgress = Math.max(0.0, Math.min(progress, 1.0));
-                // diff to the last progress update
-                double diff = Math.max(0.0, boundedProgress - m_lastProg);
-                double subProgress = Math.min(m_maxProg, diff * m_maxProg);
-                if (progressOfParent != null) {
-                    subProgress += progressOfParent;
-                }
-                // we silently swallow small progress updates here as a sequence
-                // of updates (and all of which are scaled using m_maxProg) may
-                // lead to a high accumulated rounding error
-                if (diff < 0.001 && progressOfParent != null) {
-                    // if the parent has no progress so far, we still set
-                    // that small progress, for the parent to show 0%
+            final double boundedProgress = Math.max(0.0, Math.min(progress, 1.0));
+            long lastBits;
+            double lastProg;
+            do {
+                lastBits = m_lastProgBits.get();
+                lastProg = Double.longBitsToDouble(lastBits);
+                if (boundedProgress <= lastProg) {
+                    // nothing new - but make sure the parent shows 0% if it has no progress so far
+                    addToParent(0.0);
                     return;
                 }
-                // the following is sort of a workaround: we know our parent's
-                // old progress value, then try(!) to set an updated new value
-                // and if the parent's new progress has indeed changed (this
-                // object is the only one, which can set the parent's progress),
-                // we can also update our internal progress. If
-                // m_parent.setProgress did not result in a change of the
-                // parent's progress, this object's update was too little to get
-                // propagated, that means we stick with the previous propagated
-                // progress
-                m_parent.setProgress(subProgress);
-                Double newProgressOfParent = m_parent.getProgress();
-                if (newProgressOfParent != null) {
-                    if (progressOfParent == null
-                        || progressOfParent.doubleValue() != newProgressOfParent.doubleValue()) {
-                        m_lastProg = boundedProgress;
+            } while (!m_lastProgBits.compareAndSet(lastBits, Double.doubleToLongBits(boundedProgress)));
+            addToParent((boundedProgress - lastProg) * m_maxProg);
+        }
+
+        /**
+         * Adds progress reported by a sub progress monitor of this monitor.
+         *
+         * @param delta the non-negative progress to add, in the range of this monitor
+         */
+        void addProgress(final double delta) {
+            if (m_maxProg <= 0.0) {
+                return;
+            }
+            if (delta <= 0.0) {
+                addToParent(0.0);
+                return;
+            }
+            long lastBits;
+            double lastProg;
+            double newProg;
+            do {
+                lastBits = m_lastProgBits.get();
+                lastProg = Double.longBitsToDouble(lastBits);
+                newProg = Math.min(1.0, lastProg + delta);
+            } while (!m_lastProgBits.compareAndSet(lastBits, Double.doubleToLongBits(newProg)));
+            addToParent((newProg - lastProg) * m_maxProg);
+        }
+
+        /** Propagates a progress increment (already scaled to the parent's range) to the parent. */
+        private void addToParent(final double delta) {
+            if (m_parent instanceof DefaultNodeProgressMonitor) {
+                ((DefaultNodeProgressMonitor)m_parent).addSubProgress(delta);
+            } else if (m_parent instanceof SubNodeProgressMonitor) {
+                ((SubNodeProgressMonitor)m_parent).addProgress(delta);
+            } else {
+                // unknown implementation: "get old progress" and "set new progress" must be an atomic operation
+                synchronized (m_parent) {
+                    Double progressOfParent = m_parent.getProgress();
+                    if (delta > 0.0 || progressOfParent == null) {
+                        double old = progressOfParent == null ? 0.0 : progressOfParent.doubleValue();
+                        m_parent.setProgress(Math.min(1.0, old + delta));
                     }
                 }
             }
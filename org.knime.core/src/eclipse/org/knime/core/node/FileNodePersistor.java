@@ -1210,6 +1210,15 @@ public static void save(final NativeNodeContainer nnc, final NodeSettingsWO sett
         execMon.setProgress(1.0);
     }
 
+    /**
+     * @return whether node data is saved incrementally, see {@link KNIMEConstants#PROPERTY_INCREMENTAL_DATA_SAVE}.
+     * @noreference This method is not intended to be referenced by clients.
+     * @since 4.2
+     */
+    public static boolean isIncrementalDataSave() {
+        return Boolean.getBoolean(KNIMEConstants.PROPERTY_INCREMENTAL_DATA_SAVE);
+    }
+
     private static void savePorts(final Node node, final ReferencedFile nodeDirRef, final NodeSettingsWO settings,
         final Set<Integer> savedTableIDs, final ExecutionMonitor exec, final boolean saveData) throws IOException,
         CanceledExecutionException {
@@ -1217,6 +1226,7 @@ private static void savePorts(final Node node, final ReferencedFile nodeDirRef,
             return;
         }
         final int portCount = node.getNrOutPorts();
+        final boolean isIncremental = isIncrementalDataSave();
         NodeSettingsWO portSettings = settings.addNodeSettings("ports");
         exec.setMessage("Saving outport data");
         // starting at port 1 (ignore default flow variable output)
@@ -1231,8 +1241,11 @@ private static void savePorts(final Node node, final ReferencedFile nodeDirRef,
                 portDirName = portName;
                 ReferencedFile portDirRef = new ReferencedFile(nodeDirRef, portDirName);
                 File portDir = portDirRef.getFile();
-                subProgress.setMessage("Cleaning directory " + portDir.getAbsolutePath());
-                FileUtil.deleteRecursively(portDir);
+                // in incremental mode the table decides itself whether the directory content can be retained
+                if (!(isIncremental && object instanceof BufferedDataTable)) {
+                    subProgress.setMessage("Cleaning directory " + portDir.getAbsolutePath());
+                    FileUtil.deleteRecursively(portDir);
+                }
                 if (!portDir.mkdir() && !portDir.isDirectory()) {
                     throw new IOException("Cannot create port directory " + portDir.getAbsolutePath() + " ("
                         + "exists: " + portDir.exists() + ", isDir: " + portDir.isDirectory() + ", "
@@ -1246,6 +1259,9 @@ private static void savePorts(final Node node, final ReferencedFile nodeDirRef,
                 savePort(node, portDir, singlePortSetting, savedTableIDs, subProgress, i, saveData);
             } else {
                 portDirName = null;
+                if (isIncremental) {
+                    FileUtil.deleteRecursively(new File(nodeDirRef.getFile(), portName));
+                }
             }
             singlePortSetting.addString("port_dir_location", portDirName);
             subProgress.setProgress(1.0);
@@ -1257,6 +1273,10 @@ private static void saveInternalHeldTables(final Node node, final ReferencedFile
         final boolean saveData) throws IOException, CanceledExecutionException {
         PortObject[] internalObjects = node.getInternalHeldPortObjects();
         if (internalObjects == null || !saveData) {
+            if (isIncrementalDataSave()) {
+                // the directory is not cleared by the caller in incremental mode
+                FileUtil.deleteRecursively(new File(nodeDirRef.getFile(), INTERNAL_TABLE_FOLDER_PREFIX));
+            }
             return;
         }
         final int internalTblsCount = internalObjects.length;
@@ -1265,7 +1285,28 @@ private static void saveInternalHeldTables(final Node node, final ReferencedFile
         ReferencedFile subDirFile = new ReferencedFile(nodeDirRef, subDirName);
         subSettings.addString("location", subDirName);
         NodeSettingsWO portSettings = subSettings.addNodeSettings("content");
-        FileUtil.deleteRecursively(subDirFile.getFile());
+        final boolean isIncremental = isIncrementalDataSave();
+        if (isIncremental) {
+            // retain directories of tables, which are only rewritten if changed (see BufferedDataTable#save)
+            File[] children = subDirFile.getFile().listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    int index = -1;
+                    String name = child.getName();
+                    for (int i = 0; i < internalTblsCount; i++) {
+                        if (name.equals("object_" + i)) {
+                            index = i;
+                            break;
+                        }
+                    }
+                    if (index < 0 || !(internalObjects[index] instanceof BufferedDataTable)) {
+                        FileUtil.deleteRecursively(child);
+                    }
+                }
+            }
+        } else {
+            FileUtil.deleteRecursively(subDirFile.getFile());
+        }
         subDirFile.getFile().mkdirs();
 
         exec.setMessage("Saving internally held objects");
@@ -1420,7 +1461,11 @@ private static void saveFileStoreObjects(final Node node, final ReferencedFile n
             dirNameInFlow = baseDir == null ? null : FILESTORE_FOLDER_PREFIX;
             if (dirNameInFlow != null) {
                 File saveLocation = new File(nodeDirRef.getFile(), dirNameInFlow);
-                FileUtil.copyDir(baseDir, saveLocation);
+                if (isIncrementalDataSave()) {
+                    FileUtil.linkOrCopy(baseDir, saveLocation);
+                } else {
+                    FileUtil.copyDir(baseDir, saveLocation);
+                }
             }
             uuidS = defFileStoreHandler.getStoreUUID().toString();
         } else {
@@ -205,6 +205,16 @@ public final class KNIMEConstants {
      */
     public static final String PROPERTY_DISCOURAGE_GC = "knime.discourage.gc";
 
+    /**
+     * Java property to set the number of rows that iterators on tables read from disk decode ahead of the consumer
+     * on a background thread, so that I/O and decompression overlap with the computation of the reading node. While
+     * memory is low, rows are read ahead in batches of at most 256 rows and only one batch is held in addition to the
+     * batch being consumed. The default is 0, which reads rows synchronously in the consumer thread.
+     *
+     * @since 4.2
+     */
+    public static final String PROPERTY_TABLE_PREFETCH_ROWS = "knime.table.prefetch.rows";
+
     /**
      * Java property to enable/disable table stream compression. Compression results in smaller temp-file sizes but also
      * (sometimes significant) longer runtime. By default {@code Gzip} is used.
@@ -358,6 +368,46 @@ public final class KNIMEConstants {
    public static final String PROPERTY_DISABLE_LOG4J_CONFIG =
        "knime.log4j.config.disabled";
 
+    /**
+     * Java property to enable asynchronous logging. If set to <code>true</code> log messages are handed over to a
+     * background thread which writes them to the log4j appenders (log file, console, etc.) so that the logging thread
+     * does not wait for any I/O. Default is <code>false</code>.
+     *
+     * @since 4.2
+     */
+    public static final String PROPERTY_ASYNC_LOGGING = "knime.logging.async";
+
+    /**
+     * Java property to set the number of log events that can be queued when asynchronous logging is enabled (see
+     * {@link #PROPERTY_ASYNC_LOGGING}). If the queue is full logging threads wait until there is space again. The
+     * value is rounded up to the next power of two, default is 8192.
+     *
+     * @since 4.2
+     */
+    public static final String PROPERTY_ASYNC_LOGGING_BUFFER_SIZE = "knime.logging.async.buffersize";
+
+    /**
+     * Java property to save executed container tables in an unzipped layout. If set to <code>true</code> the data
+     * file, blobs and file stores of a table are linked (or, if the file system does not support links, copied) from
+     * the temp directory into a plain directory in the workflow instead of being streamed into a zip file. Saving
+     * large executed workflows then only involves meta data operations. Workflows saved this way can't be loaded by
+     * versions of KNIME prior to 4.2. Default is <code>false</code>.
+     *
+     * @since 4.2
+     */
+    public static final String PROPERTY_UNZIPPED_TABLE_FILES = "knime.table.unzipped";
+
+    /**
+     * Java property to enable incremental saving of node data. If set to <code>true</code> saving a changed (dirty)
+     * node keeps the directories of output and internal tables and only rewrites those whose table has changed since
+     * the last save; unchanged container tables (identified by their workflow-wide table ID) are neither deleted nor
+     * written again. File stores are linked instead of copied. Nodes that are not dirty are never written, independent
+     * of this property. Default is <code>false</code>.
+     *
+     * @since 4.2
+     */
+    public static final String PROPERTY_INCREMENTAL_DATA_SAVE = "knime.workflow.save.incremental";
+
    /**
     * Java property for doing all dialog operations automatically in the
     * AWT event dispatch thread.
@@ -560,7 +560,16 @@ public void loadDataAndInternals(final NodeContentPersistor loader,
                 }
             }
         }
-
+        // the loaded tables may be owned by another node (e.g. execution result of the original node loaded into its
+        // fork) -- register this node so that the owner does not dispose them while they are still in use here
+        for (Output output : m_outputs) {
+            if (output.object instanceof BufferedDataTable) {
+                ((BufferedDataTable)output.object).addSharedBy(this);
+            }
+        }
+        for (BufferedDataTable t : collectTables(m_internalHeldPortObjects)) {
+            t.addSharedBy(this);
+        }
     }
 
     /** Loads execution result from remote execution (e.g. cluster execution). Implementation calls
@@ -1598,6 +1607,7 @@ public void cleanOutPorts(final boolean isLoopRestart) {
             if (portObject instanceof BufferedDataTable) {
                 final BufferedDataTable table = (BufferedDataTable)portObject;
                 table.collectTableAndReferencesOwnedBy(this, disposableTables);
+                table.releaseSharedBy(this);
             }
             m_outputs[i].spec = null;
             m_outputs[i].object = null;
@@ -1616,6 +1626,9 @@ public void cleanOutPorts(final boolean isLoopRestart) {
                 disposableTables.removeAll(internalTableSet);
             } else {
                 disposableTables.addAll(internalTableSet);
+                for (BufferedDataTable t : collectTables(m_internalHeldPortObjects)) {
+                    t.releaseSharedBy(this);
+                }
                 m_internalHeldPortObjects = null;
             }
         }
@@ -1629,6 +1642,32 @@ public void cleanOutPorts(final boolean isLoopRestart) {
         m_localTempTables.clear();
     }
 
+    /** Whether any of the output or internally held tables created by this node is still used by other nodes (e.g.
+     * forked copies of this node). Clearing such tables in {@link #cleanOutPorts(boolean)} is deferred until the last
+     * of these nodes releases them.
+     * @return that property
+     * @noreference This method is not intended to be referenced by clients.
+     * @since 4.2
+     */
+    public boolean hasSharedTables() {
+        for (int i = 0; i < m_outputs.length; i++) {
+            PortObject portObject = m_outputs[i].object;
+            if (portObject instanceof BufferedDataTable && ((BufferedDataTable)portObject).isSharedAndOwnedBy(this)) {
+                return true;
+            }
+        }
+        return collectTables(m_internalHeldPortObjects).stream().anyMatch(t -> t.isSharedAndOwnedBy(this));
+    }
+
+    /** @return the tables among the argument objects (not their references), never null. */
+    private static List<BufferedDataTable> collectTables(final PortObject[] objects) {
+        if (objects == null) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(objects).filter(o -> o instanceof BufferedDataTable).map(o -> (BufferedDataTable)o)
+            .collect(Collectors.toList());
+    }
+
     private Set<BufferedDataTable> collectTableAndReferences(
             final PortObject[] objects) {
         if (objects == null || objects.length == 0) {
@@ -1679,6 +1718,31 @@ public void putOutputTablesIntoGlobalRepository(final WorkflowDataRepository rep
         }
     }
 
+    /** Enumerates the output tables and puts them into the global workflow repository of tables. Tables owned by this
+     * node are registered with the argument node ID so that they can be removed in bulk, see
+     * {@link WorkflowDataRepository#removeTablesOwnedBy(NodeID)}.
+     * @param repository The global repository.
+     * @param ownerID The ID of the node container of this node.
+     * @since 4.2
+     */
+    public void putOutputTablesIntoGlobalRepository(final WorkflowDataRepository repository, final NodeID ownerID) {
+        final WorkflowDataRepository ownerRepository = repository.getViewForOwner(ownerID);
+        for (int i = 0; i < m_outputs.length; i++) {
+            PortObject portObject = m_outputs[i].object;
+            if (portObject instanceof BufferedDataTable) {
+                ((BufferedDataTable)portObject).putIntoTableRepository(repository, this, ownerRepository);
+            }
+        }
+        if (m_internalHeldPortObjects != null) {
+            // see comment in putOutputTablesIntoGlobalRepository(WorkflowDataRepository)
+            for (PortObject t : m_internalHeldPortObjects) {
+                if (t instanceof BufferedDataTable) {
+                    ((BufferedDataTable)t).putIntoTableRepository(repository, this, ownerRepository);
+                }
+            }
+        }
+    }
+
     /** Reverse operation to
      * {@link #putOutputTablesIntoGlobalRepository(WorkflowDataRepository)}. It will remove
      * all output tables and its delegates from the global table repository.
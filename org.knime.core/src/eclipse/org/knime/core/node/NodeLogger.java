@@ -63,7 +63,9 @@
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Appender;
@@ -271,15 +273,18 @@ public void workflowChanged(final WorkflowEvent event) {
     /** The default log file name, <i>knime.log</i>. */
     public static final String LOG_FILE = "knime.log";
 
-    /** Keeps set of <code>NodeLogger</code> elements by class name as key. */
-    private static final Map<String, NodeLogger> LOGGERS =
-            new HashMap<String, NodeLogger>();
+    /** Keeps set of <code>NodeLogger</code> elements by class name as key. Read without lock, modifications
+     * synchronize on the map itself. */
+    private static final Map<String, NodeLogger> LOGGERS = new ConcurrentHashMap<String, NodeLogger>();
 
     /** Map of additionally added writers: Writer -> Appender. */
-    private static final Map<Writer, WriterAppender> WRITER =
-            new HashMap<Writer, WriterAppender>();
+    private static final Map<Writer, Appender> WRITER =
+            new HashMap<Writer, Appender>();
 
-    private static final Map<String, Appender> WF_APPENDER = new HashMap<>();
+    private static final Map<String, Appender> WF_APPENDER = new ConcurrentHashMap<>();
+
+    /** Non-null if asynchronous logging is enabled, see {@link KNIMEConstants#PROPERTY_ASYNC_LOGGING}. */
+    private static AsyncLogDispatcher ASYNC_DISPATCHER;
 
     /**
      * Maximum number of chars (10000) printed on <code>System.out</code> and
@@ -331,9 +336,45 @@ public void workflowChanged(final WorkflowEvent event) {
         } else {
             LOG_FILE_APPENDER = new NullAppender();
         }
+        if (Boolean.getBoolean(KNIMEConstants.PROPERTY_ASYNC_LOGGING)) {
+            initAsyncLogging();
+        }
         startMessage();
     }
 
+    /** Wraps all root appenders so that they are written by a background thread. */
+    private static void initAsyncLogging() {
+        final AsyncLogDispatcher dispatcher = new AsyncLogDispatcher(
+            Integer.getInteger(KNIMEConstants.PROPERTY_ASYNC_LOGGING_BUFFER_SIZE, AsyncLogDispatcher.DEFAULT_CAPACITY));
+        final Logger root = Logger.getRootLogger();
+        for (Appender a : getRootAppenders()) {
+            root.removeAppender(a);
+            root.addAppender(dispatcher.wrap(a));
+        }
+        ASYNC_DISPATCHER = dispatcher;
+        Runtime.getRuntime().addShutdownHook(new Thread(dispatcher::shutdown, "KNIME-Log-Dispatcher-Shutdown"));
+        LogLog.debug("Asynchronous logging enabled (buffer size " + dispatcher.getCapacity() + ")");
+    }
+
+    /**
+     * @param appender a newly created appender
+     * @return the appender itself or, if asynchronous logging is enabled, an appender writing to it asynchronously
+     */
+    private static Appender wrapIfAsync(final Appender appender) {
+        final AsyncLogDispatcher dispatcher = ASYNC_DISPATCHER;
+        return dispatcher == null ? appender : dispatcher.wrap(appender);
+    }
+
+    /** @return a snapshot of all appenders of the root logger */
+    private static List<Appender> getRootAppenders() {
+        final List<Appender> result = new ArrayList<>();
+        for (@SuppressWarnings("unchecked")
+        Enumeration<Appender> appenderEnum = Logger.getRootLogger().getAllAppenders(); appenderEnum.hasMoreElements();) {
+            result.add(appenderEnum.nextElement());
+        }
+        return result;
+    }
+
 
     private static void initLog4J() throws IOException {
         final String file = System.getProperty("log4j.configuration");
@@ -400,9 +441,7 @@ private static void initLog4J() throws IOException {
     private static void updateLog4JKNIMELoggerLevel() {
         final Logger rootLogger = LogManager.getRootLogger();
         Level minimumLevel = rootLogger.getLevel(); // by default this is 'ERROR' but may be changed in log4j.xml
-        for (@SuppressWarnings("unchecked")
-        Enumeration<Appender> appenderEnum = rootLogger.getAllAppenders(); appenderEnum.hasMoreElements();) {
-            Appender next = appenderEnum.nextElement();
+        for (Appender next : getRootAppenders()) {
             for (Filter filter = next.getFilter(); filter != null; filter = filter.getNext()) {
                 Level l = null;
                 if (filter instanceof LevelMatchFilter) {
@@ -543,12 +582,16 @@ private static void copyrightMessage() {
     }
 
     /** The Log4J logger to which all messages are logged. Do not access it directly if you want to log a message
-     * but use the {@link #getLoggerInternal()} method instead.*/
+     * but use the {@link #log(Level, Object, Throwable)} or {@link #getLoggerInternal()} method instead.*/
     private final Logger m_logger;
 
     /**Listens to workflow changes e.g. when a workflow is closed to unregister all related workflow directory logger.*/
     private MyWorkflowListener m_listener;
 
+    /** Paths of the workflow directories whose appender is already attached to {@link #m_logger}. Saves the
+     * (synchronized) appender registration on each log call. */
+    private final Set<String> m_attachedWfDirs = ConcurrentHashMap.newKeySet();
+
     /**
      * Hidden default constructor, logger created by
      * <code>java.lang.Class</code>.
@@ -593,6 +636,10 @@ public static NodeLogger getLogger(final Class<?> c) {
      * @return A new logger for the given name.
      */
     public static NodeLogger getLogger(final String s) {
+        NodeLogger existing = LOGGERS.get(s);
+        if (existing != null) {
+            return existing;
+        }
         synchronized (LOGGERS) {
             NodeLogger nodeLogger = LOGGERS.get(s);
             if (nodeLogger != null) {
@@ -627,7 +674,7 @@ public static NodeLogger getLogger(final String s) {
      * @param o The object to print.
      */
     public void warn(final Object o) {
-        getLoggerInternal().warn(getLogObject(o));
+        log(Level.WARN, o, null);
     }
 
     /**
@@ -636,7 +683,7 @@ public void warn(final Object o) {
      * @param o The object to print.
      */
     public void debug(final Object o) {
-        getLoggerInternal().debug(getLogObject(o));
+        log(Level.DEBUG, o, null);
     }
 
 
@@ -680,10 +727,25 @@ private static void checkLayoutFlags(final Layout layout) {
         }
     }
 
+    /**
+     * Logs the message if the level is enabled. The node context is only resolved (and the log message object only
+     * created) if the message is actually logged.
+     *
+     * @param level the log4j level
+     * @param message the logging message
+     * @param t an optional throwable or <code>null</code>
+     */
+    private void log(final Level level, final Object message, final Throwable t) {
+        if (m_logger.isEnabledFor(level)) {
+            m_logger.log(level, getLogObject(message), t);
+        }
+    }
+
     /**
      * @param message the logging message
      * @return a KNIMELogMessage that not only contains the log message but also the information about the workflow
-     * and node that belong to the log message if applicable
+     * and node that belong to the log message if applicable. Also ensures that any workflow relative log file
+     * appender is registered (the node context is resolved only once for both purposes).
      */
     private Object getLogObject(final Object message) {
         if (!LOG_NODE_ID && !LOG_IN_WF_DIR && !LOG_WF_DIR && !LOG_JOB_ID) {
@@ -714,6 +776,9 @@ private Object getLogObject(final Object message) {
                 }
             }
         }
+        if (LOG_IN_WF_DIR) {
+            addWorkflowDirAppender(workflowDir);
+        }
         return new KNIMELogMessage(nodeID, nodeName, workflowDir, jobID,  message);
     }
 
@@ -751,12 +816,13 @@ private void addWorkflowDirAppender(final File workflowDir) {
         //in this method we have to use the logger directly to prevent a deadlock!!!
         final Logger logger = m_logger;
         final String workflowDirPath = workflowDir.getPath();
-        if (workflowDirPath == null) {
+        if (workflowDirPath == null || m_attachedWfDirs.contains(workflowDirPath)) {
             return;
         }
         Appender wfAppender = WF_APPENDER.get(workflowDirPath);
         if (wfAppender != null) {
             logger.addAppender(wfAppender);
+            m_attachedWfDirs.add(workflowDirPath);
         } else {
             //we do the getAppender twice to prevent the synchronize block on subsequent calls!!!
             synchronized (WF_APPENDER) {
@@ -792,13 +858,15 @@ public int decide(final LoggingEvent event) {
                     });
                     //we have to call this function to activate the writer!!!
                     fileAppender.activateOptions();
-                    logger.addAppender(fileAppender);
-                    WF_APPENDER.put(workflowDirPath, fileAppender);
+                    wfAppender = wrapIfAsync(fileAppender);
+                    WF_APPENDER.put(workflowDirPath, wfAppender);
                     if (m_listener == null) {
                         m_listener = new MyWorkflowListener();
                         WorkflowManager.ROOT.addListener(m_listener);
                     }
                 }
+                logger.addAppender(wfAppender);
+                m_attachedWfDirs.add(workflowDirPath);
             }
         }
     }
@@ -824,6 +892,7 @@ private void removeWorkflowDirAppender(final File workflowDir) {
                     while (allLoggers.hasMoreElements()) {
                         allLoggers.nextElement().removeAppender(appender);
                     }
+                    LOGGERS.values().forEach(l -> l.m_attachedWfDirs.remove(workflowDirPath));
                 }
             }
         }
@@ -835,7 +904,7 @@ private void removeWorkflowDirAppender(final File workflowDir) {
      * @param o The object to print.
      */
     public void info(final Object o) {
-        getLoggerInternal().info(getLogObject(o));
+        log(Level.INFO, o, null);
     }
 
     /**
@@ -844,7 +913,7 @@ public void info(final Object o) {
      * @param o The object to print.
      */
     public void error(final Object o) {
-        getLoggerInternal().error(getLogObject(o));
+        log(Level.ERROR, o, null);
     }
 
     /**
@@ -853,7 +922,7 @@ public void error(final Object o) {
      * @param o The object to print.
      */
     public void fatal(final Object o) {
-        getLoggerInternal().fatal(getLogObject(o));
+        log(Level.FATAL, o, null);
     }
 
     /**
@@ -863,7 +932,7 @@ public void fatal(final Object o) {
      * @param t The exception to log at debug level, including its stack trace.
      */
     public void warn(final Object o, final Throwable t) {
-        getLoggerInternal().warn(getLogObject(o), t);
+        log(Level.WARN, o, t);
     }
 
     /**
@@ -873,7 +942,7 @@ public void warn(final Object o, final Throwable t) {
      * @param t The exception to log, including its stack trace.
      */
     public void debug(final Object o, final Throwable t) {
-        getLoggerInternal().debug(getLogObject(o), t);
+        log(Level.DEBUG, o, t);
     }
 
     /**
@@ -883,7 +952,7 @@ public void debug(final Object o, final Throwable t) {
      * @param t The exception to log at debug level, including its stack trace.
      */
     public void info(final Object o, final Throwable t) {
-        getLoggerInternal().info(getLogObject(o), t);
+        log(Level.INFO, o, t);
     }
 
     /**
@@ -893,7 +962,7 @@ public void info(final Object o, final Throwable t) {
      * @param t The exception to log at debug level, including its stack trace.
      */
     public void error(final Object o, final Throwable t) {
-        getLoggerInternal().error(getLogObject(o), t);
+        log(Level.ERROR, o, t);
     }
 
     /**
@@ -934,7 +1003,7 @@ public void assertLog(final boolean b, final String m,
      */
     public void coding(final Object o) {
         if (KNIMEConstants.ASSERTIONS_ENABLED || EclipseUtil.isRunFromSDK()) {
-            getLoggerInternal().error(getLogObject("CODING PROBLEM\t" + o));
+            log(Level.ERROR, "CODING PROBLEM\t" + o, null);
         }
     }
 
@@ -947,7 +1016,7 @@ public void coding(final Object o) {
      */
     public void coding(final Object o, final Throwable t) {
         if (KNIMEConstants.ASSERTIONS_ENABLED || EclipseUtil.isRunFromSDK()) {
-            getLoggerInternal().error(getLogObject("CODING PROBLEM\t" + o), t);
+            log(Level.ERROR, "CODING PROBLEM\t" + o, t);
         }
     }
 
@@ -958,7 +1027,7 @@ public void coding(final Object o, final Throwable t) {
      * @param t The exception to log at debug level, including its stack trace.
      */
     public void fatal(final Object o, final Throwable t) {
-        getLoggerInternal().fatal(getLogObject(o), t);
+        log(Level.FATAL, o, t);
     }
 
     /**
@@ -976,6 +1045,37 @@ public void warnWithFormat(final String format, final Object... args) {
         }
     }
 
+    /**
+     * Write warning message, created by {@link String#format(String, Object...)} with a single argument, into this
+     * logger. Neither the String nor an argument array is created if the level is disabled.
+     *
+     * @param format the format for printing
+     * @param arg the argument for {@link String#format(String, Object...)}
+     * @throws NullPointerException if format argument is <code>null</code>
+     * @since 4.2
+     */
+    public void warnWithFormat(final String format, final Object arg) {
+        if (m_logger.isEnabledFor(Level.WARN)) {
+            log(Level.WARN, String.format(format, arg), null);
+        }
+    }
+
+    /**
+     * Write warning message, created by {@link String#format(String, Object...)} with two arguments, into this
+     * logger. Neither the String nor an argument array is created if the level is disabled.
+     *
+     * @param format the format for printing
+     * @param arg1 the first argument for {@link String#format(String, Object...)}
+     * @param arg2 the second argument for {@link String#format(String, Object...)}
+     * @throws NullPointerException if format argument is <code>null</code>
+     * @since 4.2
+     */
+    public void warnWithFormat(final String format, final Object arg1, final Object arg2) {
+        if (m_logger.isEnabledFor(Level.WARN)) {
+            log(Level.WARN, String.format(format, arg1, arg2), null);
+        }
+    }
+
     /**
      * Write debug message, created by {@link String#format(String, Object...)} into this logger. The String is only
      * formatted if actually necessary.
@@ -991,6 +1091,37 @@ public void debugWithFormat(final String format, final Object... args) {
         }
     }
 
+    /**
+     * Write debug message, created by {@link String#format(String, Object...)} with a single argument, into this
+     * logger. Neither the String nor an argument array is created if the level is disabled.
+     *
+     * @param format the format for printing
+     * @param arg the argument for {@link String#format(String, Object...)}
+     * @throws NullPointerException if format argument is <code>null</code>
+     * @since 4.2
+     */
+    public void debugWithFormat(final String format, final Object arg) {
+        if (m_logger.isEnabledFor(Level.DEBUG)) {
+            log(Level.DEBUG, String.format(format, arg), null);
+        }
+    }
+
+    /**
+     * Write debug message, created by {@link String#format(String, Object...)} with two arguments, into this
+     * logger. Neither the String nor an argument array is created if the level is disabled.
+     *
+     * @param format the format for printing
+     * @param arg1 the first argument for {@link String#format(String, Object...)}
+     * @param arg2 the second argument for {@link String#format(String, Object...)}
+     * @throws NullPointerException if format argument is <code>null</code>
+     * @since 4.2
+     */
+    public void debugWithFormat(final String format, final Object arg1, final Object arg2) {
+        if (m_logger.isEnabledFor(Level.DEBUG)) {
+            log(Level.DEBUG, String.format(format, arg1, arg2), null);
+        }
+    }
+
     /**
      * Write info message, created by {@link String#format(String, Object...)} into this logger. The String is only
      * formatted if actually necessary.
@@ -1006,6 +1137,37 @@ public void infoWithFormat(final String format, final Object... args) {
         }
     }
 
+    /**
+     * Write info message, created by {@link String#format(String, Object...)} with a single argument, into this
+     * logger. Neither the String nor an argument array is created if the level is disabled.
+     *
+     * @param format the format for printing
+     * @param arg the argument for {@link String#format(String, Object...)}
+     * @throws NullPointerException if format argument is <code>null</code>
+     * @since 4.2
+     */
+    public void infoWithFormat(final String format, final Object arg) {
+        if (m_logger.isEnabledFor(Level.INFO)) {
+            log(Level.INFO, String.format(format, arg), null);
+        }
+    }
+
+    /**
+     * Write info message, created by {@link String#format(String, Object...)} with two arguments, into this
+     * logger. Neither the String nor an argument array is created if the level is disabled.
+     *
+     * @param format the format for printing
+     * @param arg1 the first argument for {@link String#format(String, Object...)}
+     * @param arg2 the second argument for {@link String#format(String, Object...)}
+     * @throws NullPointerException if format argument is <code>null</code>
+     * @since 4.2
+     */
+    public void infoWithFormat(final String format, final Object arg1, final Object arg2) {
+        if (m_logger.isEnabledFor(Level.INFO)) {
+            log(Level.INFO, String.format(format, arg1, arg2), null);
+        }
+    }
+
     /**
      * Write error message, created by {@link String#format(String, Object...)} into this logger. The String is only
      * formatted if actually necessary.
@@ -1021,6 +1183,37 @@ public void errorWithFormat(final String format, final Object... args) {
         }
     }
 
+    /**
+     * Write error message, created by {@link String#format(String, Object...)} with a single argument, into this
+     * logger. Neither the String nor an argument array is created if the level is disabled.
+     *
+     * @param format the format for printing
+     * @param arg the argument for {@link String#format(String, Object...)}
+     * @throws NullPointerException if format argument is <code>null</code>
+     * @since 4.2
+     */
+    public void errorWithFormat(final String format, final Object arg) {
+        if (m_logger.isEnabledFor(Level.ERROR)) {
+            log(Level.ERROR, String.format(format, arg), null);
+        }
+    }
+
+    /**
+     * Write error message, created by {@link String#format(String, Object...)} with two arguments, into this
+     * logger. Neither the String nor an argument array is created if the level is disabled.
+     *
+     * @param format the format for printing
+     * @param arg1 the first argument for {@link String#format(String, Object...)}
+     * @param arg2 the second argument for {@link String#format(String, Object...)}
+     * @throws NullPointerException if format argument is <code>null</code>
+     * @since 4.2
+     */
+    public void errorWithFormat(final String format, final Object arg1, final Object arg2) {
+        if (m_logger.isEnabledFor(Level.ERROR)) {
+            log(Level.ERROR, String.format(format, arg1, arg2), null);
+        }
+    }
+
     /**
      * Write fatal message, created by {@link String#format(String, Object...)} into this logger. The String is only
      * formatted if actually necessary.
@@ -1036,6 +1229,37 @@ public void fatalWithFormat(final String format, final Object... args) {
         }
     }
 
+    /**
+     * Write fatal message, created by {@link String#format(String, Object...)} with a single argument, into this
+     * logger. Neither the String nor an argument array is created if the level is disabled.
+     *
+     * @param format the format for printing
+     * @param arg the argument for {@link String#format(String, Object...)}
+     * @throws NullPointerException if format argument is <code>null</code>
+     * @since 4.2
+     */
+    public void fatalWithFormat(final String format, final Object arg) {
+        if (m_logger.isEnabledFor(Level.FATAL)) {
+            log(Level.FATAL, String.format(format, arg), null);
+        }
+    }
+
+    /**
+     * Write fatal message, created by {@link String#format(String, Object...)} with two arguments, into this
+     * logger. Neither the String nor an argument array is created if the level is disabled.
+     *
+     * @param format the format for printing
+     * @param arg1 the first argument for {@link String#format(String, Object...)}
+     * @param arg2 the second argument for {@link String#format(String, Object...)}
+     * @throws NullPointerException if format argument is <code>null</code>
+     * @since 4.2
+     */
+    public void fatalWithFormat(final String format, final Object arg1, final Object arg2) {
+        if (m_logger.isEnabledFor(Level.FATAL)) {
+            log(Level.FATAL, String.format(format, arg1, arg2), null);
+        }
+    }
+
     /**
      * Write coding message, created by {@link String#format(String, Object...)} into this logger. The String is only
      * formatted if actually necessary.
@@ -1051,6 +1275,37 @@ public void codingWithFormat(final String format, final Object... args) {
         }
     }
 
+    /**
+     * Write coding message, created by {@link String#format(String, Object...)} with a single argument, into this
+     * logger. Neither the String nor an argument array is created if coding problems are not reported.
+     *
+     * @param format the format for printing
+     * @param arg the argument for {@link String#format(String, Object...)}
+     * @throws NullPointerException if format argument is <code>null</code>
+     * @since 4.2
+     */
+    public void codingWithFormat(final String format, final Object arg) {
+        if (KNIMEConstants.ASSERTIONS_ENABLED || EclipseUtil.isRunFromSDK()) {
+            coding(String.format(format, arg));
+        }
+    }
+
+    /**
+     * Write coding message, created by {@link String#format(String, Object...)} with two arguments, into this
+     * logger. Neither the String nor an argument array is created if coding problems are not reported.
+     *
+     * @param format the format for printing
+     * @param arg1 the first argument for {@link String#format(String, Object...)}
+     * @param arg2 the second argument for {@link String#format(String, Object...)}
+     * @throws NullPointerException if format argument is <code>null</code>
+     * @since 4.2
+     */
+    public void codingWithFormat(final String format, final Object arg1, final Object arg2) {
+        if (KNIMEConstants.ASSERTIONS_ENABLED || EclipseUtil.isRunFromSDK()) {
+            coding(String.format(format, arg1, arg2));
+        }
+    }
+
     /**
      * Adds a new {@link java.io.Writer} with the given level to this logger.
      *
@@ -1116,12 +1371,13 @@ public boolean ignoresThrowable() {
      */
     public static void addWriter(final Writer writer, final Layout layout,
             final LEVEL minLevel, final LEVEL maxLevel) {
-        WriterAppender app = new WriterAppender(layout, writer);
-        app.setImmediateFlush(true);
+        WriterAppender writerApp = new WriterAppender(layout, writer);
+        writerApp.setImmediateFlush(true);
         LevelRangeFilter filter = new LevelRangeFilter();
         filter.setLevelMin(transLEVEL(minLevel));
         filter.setLevelMax(transLEVEL(maxLevel));
-        app.addFilter(filter);
+        writerApp.addFilter(filter);
+        Appender app = wrapIfAsync(writerApp);
 
         // remove the writer first if existent
         synchronized (WRITER) {
@@ -1201,7 +1457,7 @@ public static void setLevel(final LEVEL level) {
      * @return minimum logging level
      */
     public LEVEL getLevel() {
-        return transLevel(getLoggerInternal().getLevel());
+        return transLevel(m_logger.getLevel());
     }
 
     /**
@@ -1211,7 +1467,7 @@ public LEVEL getLevel() {
      *         <code>false</code>
      */
     public boolean isDebugEnabled() {
-        return getLoggerInternal().isDebugEnabled();
+        return m_logger.isDebugEnabled();
     }
 
     /**
@@ -1221,7 +1477,7 @@ public boolean isDebugEnabled() {
      *         <code>false</code>
      */
     public boolean isInfoEnabled() {
-        return getLoggerInternal().isInfoEnabled();
+        return m_logger.isInfoEnabled();
     }
 
     /**
@@ -1233,7 +1489,7 @@ public boolean isInfoEnabled() {
      *         <code>false</code>
      */
     public boolean isEnabledFor(final LEVEL level) {
-        return getLoggerInternal().isEnabledFor(transLEVEL(level));
+        return m_logger.isEnabledFor(transLEVEL(level));
     }
 
     /**
@@ -60,20 +60,24 @@
 /**
  * Job manager that applies a given execution result to a node container. This manager is not visible to the user (not
  * selectable). It is used to load the data of a partially executed metanode in the temporary sandbox workflow, which
- * is then executed, for instance on a cluster.
+ * is then executed, for instance on a cluster, and to hand the results of executed nodes to their forks (see
+ * {@link org.knime.core.node.workflow.WorkflowManager#forkFromAndPasteHere(
+ * org.knime.core.node.workflow.WorkflowManager, org.knime.core.node.workflow.WorkflowCopyContent,
+ * org.knime.core.node.ExecutionMonitor)}).
  *
  * @noreference This class is not intended to be referenced by clients.
  * @author Bernd Wiswedel, KNIME AG, Zurich, Switzerland
  * @since 3.1
  */
-final class CopyContentIntoTempFlowNodeExecutionJobManager extends AbstractNodeExecutionJobManager {
+public final class CopyContentIntoTempFlowNodeExecutionJobManager extends AbstractNodeExecutionJobManager {
 
     private final NodeContainerExecutionResult m_executionResult;
 
     /** Create new instance given an execution result.
      * @param executionResult To be applied to the node during the (pseudo-)execution.
+     * @since 4.2
      */
-    CopyContentIntoTempFlowNodeExecutionJobManager(final NodeContainerExecutionResult executionResult) {
+    public CopyContentIntoTempFlowNodeExecutionJobManager(final NodeContainerExecutionResult executionResult) {
         m_executionResult = CheckUtils.checkArgumentNotNull(executionResult, "Execution result must not be null");
     }
 
@@ -0,0 +1,250 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.score;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.knime.core.node.InvalidSettingsException;
+import org.w3c.dom.Element;
+
+/**
+ * Compiled center based <code>ClusteringModel</code>. Cluster centers are stored in one contiguous array, the
+ * prediction is the code of the closest (or, for similarity measures, most similar) cluster.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class ClusteringScoreFunction implements ScoreFunction {
+
+    private enum Measure {
+        EUCLIDEAN, SQUARED_EUCLIDEAN, CITY_BLOCK, CHEBYCHEV, MINKOWSKI
+    }
+
+    private enum Compare {
+        ABS_DIFF, DELTA, EQUAL
+    }
+
+    private final Measure m_measure;
+
+    private final boolean m_similarity;
+
+    private final double m_p;
+
+    private final int[] m_field;
+
+    private final double[] m_fieldWeight;
+
+    private final Compare[] m_compare;
+
+    /** Row-major cluster centers, one row of {@link #m_field}.length entries per cluster. */
+    private final double[] m_centers;
+
+    private final double[] m_clusterCodes;
+
+    private final double m_totalWeight;
+
+    /**
+     * @param model the <code>ClusteringModel</code> element
+     * @param schema the model schema, must have a categorical target (the clusters)
+     * @throws InvalidSettingsException if the model uses unsupported features
+     */
+    ClusteringScoreFunction(final Element model, final ModelSchema schema) throws InvalidSettingsException {
+        final String modelClass = PMMLDom.requireAttribute(model, "modelClass");
+        if (!"centerBased".equals(modelClass)) {
+            throw new InvalidSettingsException("Unsupported clustering model class \"" + modelClass + "\"");
+        }
+        final Element comparison = PMMLDom.requireChild(model, "ComparisonMeasure");
+        m_similarity = "similarity".equals(PMMLDom.attribute(comparison, "kind", "distance"));
+        final Element measure = PMMLDom.children(comparison).stream().findFirst()
+            .orElseThrow(() -> new InvalidSettingsException("Comparison measure not specified"));
+        double p = 2;
+        switch (PMMLDom.name(measure)) {
+            case "euclidean":
+                m_measure = Measure.EUCLIDEAN;
+                break;
+            case "squaredEuclidean":
+                m_measure = Measure.SQUARED_EUCLIDEAN;
+                break;
+            case "cityBlock":
+                m_measure = Measure.CITY_BLOCK;
+                break;
+            case "chebychev":
+                m_measure = Measure.CHEBYCHEV;
+                break;
+            case "minkowski":
+                m_measure = Measure.MINKOWSKI;
+                p = PMMLDom.parseDouble(PMMLDom.requireAttribute(measure, "p-parameter"));
+                break;
+            default:
+                throw new InvalidSettingsException("Unsupported comparison measure \"" + PMMLDom.name(measure) + "\"");
+        }
+        m_p = p;
+        final Compare defaultCompare = readCompare(PMMLDom.attribute(comparison, "compareFunction", "absDiff"));
+
+        final List<Element> fields = new ArrayList<>();
+        for (Element f : PMMLDom.children(model, "ClusteringField")) {
+            if (!"false".equals(PMMLDom.attribute(f, "isCenterField", "true"))) {
+                fields.add(f);
+            }
+        }
+        final int n = fields.size();
+        m_field = new int[n];
+        m_fieldWeight = new double[n];
+        m_compare = new Compare[n];
+        double totalWeight = 0;
+        for (int i = 0; i < n; i++) {
+            final Element f = fields.get(i);
+            m_field[i] = schema.inputIndex(PMMLDom.requireAttribute(f, "field"));
+            m_fieldWeight[i] = PMMLDom.doubleAttribute(f, "fieldWeight", 1);
+            m_compare[i] = f.hasAttribute("compareFunction") ? readCompare(f.getAttribute("compareFunction"))
+                : defaultCompare;
+            if (m_compare[i] == Compare.ABS_DIFF && schema.inputDictionary(m_field[i]) != null) {
+                throw new InvalidSettingsException(
+                    "Compare function \"absDiff\" is not supported on categorical field \"" + f.getAttribute("field")
+                        + "\"");
+            }
+            totalWeight += m_fieldWeight[i];
+        }
+        m_totalWeight = totalWeight;
+
+        final List<Element> clusters = PMMLDom.children(model, "Cluster");
+        if (clusters.isEmpty()) {
+            throw new InvalidSettingsException("Clustering model has no clusters");
+        }
+        m_centers = new double[clusters.size() * n];
+        m_clusterCodes = new double[clusters.size()];
+        for (int c = 0; c < clusters.size(); c++) {
+            final Element cluster = clusters.get(c);
+            final List<String> center = PMMLDom.parseArray(PMMLDom.requireChild(cluster, "Array"));
+            if (center.size() != n) {
+                throw new InvalidSettingsException("Center of cluster " + (c + 1) + " has " + center.size()
+                    + " entries, expected " + n);
+            }
+            for (int i = 0; i < n; i++) {
+                m_centers[c * n + i] = schema.encodeConstant(m_field[i], center.get(i));
+            }
+            final String label = PMMLDom.attribute(cluster, "name",
+                PMMLDom.attribute(cluster, "id", Integer.toString(c + 1)));
+            m_clusterCodes[c] = schema.encodeScore(label);
+        }
+    }
+
+    private static Compare readCompare(final String compare) throws InvalidSettingsException {
+        switch (compare) {
+            case "absDiff":
+                return Compare.ABS_DIFF;
+            case "delta":
+                return Compare.DELTA;
+            case "equal":
+                return Compare.EQUAL;
+            default:
+                throw new InvalidSettingsException("Unsupported compare function \"" + compare + "\"");
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double score(final double[] row) {
+        final int n = m_field.length;
+        int best = -1;
+        double bestValue = 0;
+        for (int c = 0, offset = 0; c < m_clusterCodes.length; c++, offset += n) {
+            double aggregate = 0;
+            double presentWeight = 0;
+            for (int i = 0; i < n; i++) {
+                final double x = row[m_field[i]];
+                if (Double.isNaN(x)) {
+                    continue;
+                }
+                final double y = m_centers[offset + i];
+                final double d;
+                switch (m_compare[i]) {
+                    case DELTA:
+                        d = x == y ? 0 : 1;
+                        break;
+                    case EQUAL:
+                        d = x == y ? 1 : 0;
+                        break;
+                    default:
+                        d = Math.abs(x - y);
+                        break;
+                }
+                final double w = m_fieldWeight[i];
+                presentWeight += w;
+                switch (m_measure) {
+                    case EUCLIDEAN:
+                    case SQUARED_EUCLIDEAN:
+                        aggregate += w * d * d;
+                        break;
+                    case CITY_BLOCK:
+                        aggregate += w * d;
+                        break;
+                    case CHEBYCHEV:
+                        aggregate = Math.max(aggregate, w * d);
+                        break;
+                    default:
+                        aggregate += w * Math.pow(d, m_p);
+                        break;
+                }
+            }
+            if (presentWeight == 0) {
+                return Double.NaN;
+            }
+            // scale sums as if the missing fields had contributed their average share
+            final double adjust = m_measure == Measure.CHEBYCHEV ? 1 : m_totalWeight / presentWeight;
+            double value = aggregate * adjust;
+            if (m_measure == Measure.EUCLIDEAN) {
+                value = Math.sqrt(value);
+            } else if (m_measure == Measure.MINKOWSKI) {
+                value = Math.pow(value, 1 / m_p);
+            }
+            if (best < 0 || (m_similarity ? value > bestValue : value < bestValue)) {
+                best = c;
+                bestValue = value;
+            }
+        }
+        return m_clusterCodes[best];
+    }
+}
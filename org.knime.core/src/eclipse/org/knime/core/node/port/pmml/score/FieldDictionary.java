@@ -0,0 +1,110 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.score;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the values of a categorical field to consecutive integer codes, which are used in the primitive input and
+ * output arrays of a {@link PMMLEvaluator}. Values referenced by the model but not listed in the data dictionary are
+ * added on demand during compilation.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class FieldDictionary {
+
+    /** Code of values that are not known to the model; never matches any model constant. */
+    static final int UNKNOWN = -1;
+
+    private final Map<String, Integer> m_codes = new HashMap<>();
+
+    private final List<String> m_values = new ArrayList<>();
+
+    /**
+     * Returns the code of the value, adding it if not yet present.
+     *
+     * @param value the value, not null
+     * @return its code
+     */
+    int add(final String value) {
+        Integer code = m_codes.get(value);
+        if (code == null) {
+            code = m_values.size();
+            m_codes.put(value, code);
+            m_values.add(value);
+        }
+        return code;
+    }
+
+    /**
+     * @param value the value, not null
+     * @return its code or {@link #UNKNOWN}
+     */
+    int lookup(final String value) {
+        final Integer code = m_codes.get(value);
+        return code == null ? UNKNOWN : code;
+    }
+
+    /**
+     * @param code a code as returned by {@link #add(String)}
+     * @return the value
+     */
+    String getValue(final int code) {
+        return m_values.get(code);
+    }
+
+    /** @return number of values */
+    int size() {
+        return m_values.size();
+    }
+
+    /** @return all values, index corresponds to the code */
+    String[] getValues() {
+        return m_values.toArray(new String[m_values.size()]);
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.score;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.knime.core.node.InvalidSettingsException;
+import org.w3c.dom.Element;
+
+/**
+ * Compiled <code>GeneralRegressionModel</code> of type regression, generalLinear, generalizedLinear or
+ * multinomialLogistic. The parameter-predictor matrix is flattened into one term list per parameter, the parameter
+ * matrix into one coefficient vector per target category.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class GeneralRegressionScoreFunction implements ScoreFunction {
+
+    private enum Link {
+        IDENTITY, LOG, LOGIT, CLOGLOG, LOGLOG, INVERSE, POWER
+    }
+
+    /** Per parameter the referenced inputs. */
+    private final int[][] m_termField;
+
+    /** Per parameter and term the factor code for categorical inputs, the exponent for covariates. */
+    private final double[][] m_termValue;
+
+    /** Per parameter and term whether the input is a factor. */
+    private final boolean[][] m_termIsFactor;
+
+    /** Coefficient vectors, one per category (a single one for regression models). */
+    private final double[][] m_beta;
+
+    /** Category codes corresponding to {@link #m_beta}, plus the reference category last (multinomial only). */
+    private final double[] m_categories;
+
+    private final boolean m_multinomial;
+
+    private final Link m_link;
+
+    private final double m_linkParameter;
+
+    private final double m_offset;
+
+    /**
+     * @param model the <code>GeneralRegressionModel</code> element
+     * @param schema the model schema
+     * @throws InvalidSettingsException if the model uses unsupported features
+     */
+    GeneralRegressionScoreFunction(final Element model, final ModelSchema schema)
+        throws InvalidSettingsException {
+        final String modelType = PMMLDom.requireAttribute(model, "modelType");
+        switch (modelType) {
+            case "regression":
+            case "generalLinear":
+                m_multinomial = false;
+                m_link = Link.IDENTITY;
+                break;
+            case "generalizedLinear":
+                m_multinomial = false;
+                m_link = readLink(PMMLDom.attribute(model, "linkFunction", "identity"));
+                break;
+            case "multinomialLogistic":
+                m_multinomial = true;
+                m_link = Link.IDENTITY;
+                if (schema.targetDictionary() == null) {
+                    throw new InvalidSettingsException("Multinomial logistic model requires a categorical target");
+                }
+                break;
+            default:
+                throw new InvalidSettingsException("Unsupported general regression model type \"" + modelType + "\"");
+        }
+        if (!m_multinomial && schema.targetDictionary() != null) {
+            throw new InvalidSettingsException("Model type \"" + modelType + "\" requires a continuous target");
+        }
+        m_linkParameter = PMMLDom.doubleAttribute(model, "linkParameter", 1);
+        m_offset = PMMLDom.doubleAttribute(model, "offsetValue", 0);
+
+        final List<String> parameters = new ArrayList<>();
+        final Map<String, Integer> parameterIndex = new HashMap<>();
+        for (Element p : PMMLDom.children(PMMLDom.requireChild(model, "ParameterList"), "Parameter")) {
+            final String name = PMMLDom.requireAttribute(p, "name");
+            parameterIndex.put(name, parameters.size());
+            parameters.add(name);
+        }
+        final Set<String> factors = new HashSet<>();
+        final Element factorList = PMMLDom.child(model, "FactorList");
+        if (factorList != null) {
+            for (Element p : PMMLDom.children(factorList, "Predictor")) {
+                factors.add(PMMLDom.requireAttribute(p, "name"));
+            }
+        }
+
+        final int n = parameters.size();
+        final List<List<Element>> cells = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            cells.add(new ArrayList<>());
+        }
+        final Element ppMatrix = PMMLDom.child(model, "PPMatrix");
+        if (ppMatrix != null) {
+            for (Element c : PMMLDom.children(ppMatrix, "PPCell")) {
+                if (c.hasAttribute("targetCategory")) {
+                    throw new InvalidSettingsException("Category specific PPMatrix cells are not supported");
+                }
+                final Integer p = parameterIndex.get(PMMLDom.requireAttribute(c, "parameterName"));
+                if (p == null) {
+                    throw new InvalidSettingsException("Unknown parameter \"" + c.getAttribute("parameterName")
+                        + "\" in parameter-predictor matrix");
+                }
+                cells.get(p).add(c);
+            }
+        }
+        m_termField = new int[n][];
+        m_termValue = new double[n][];
+        m_termIsFactor = new boolean[n][];
+        for (int i = 0; i < n; i++) {
+            final List<Element> c = cells.get(i);
+            m_termField[i] = new int[c.size()];
+            m_termValue[i] = new double[c.size()];
+            m_termIsFactor[i] = new boolean[c.size()];
+            for (int j = 0; j < c.size(); j++) {
+                final String predictor = PMMLDom.requireAttribute(c.get(j), "predictorName");
+                final String value = PMMLDom.requireAttribute(c.get(j), "value");
+                final int field = schema.inputIndex(predictor);
+                m_termField[i][j] = field;
+                m_termIsFactor[i][j] = factors.contains(predictor);
+                if (m_termIsFactor[i][j]) {
+                    if (schema.inputDictionary(field) == null) {
+                        throw new InvalidSettingsException("Factor \"" + predictor + "\" is not categorical");
+                    }
+                    m_termValue[i][j] = schema.encodeConstant(field, value);
+                } else {
+                    m_termValue[i][j] = PMMLDom.parseDouble(value);
+                }
+            }
+        }
+
+        final Map<String, double[]> betas = new LinkedHashMap<>();
+        for (Element c : PMMLDom.children(PMMLDom.requireChild(model, "ParamMatrix"), "PCell")) {
+            final String category = m_multinomial ? PMMLDom.requireAttribute(c, "targetCategory") : "";
+            final Integer p = parameterIndex.get(PMMLDom.requireAttribute(c, "parameterName"));
+            if (p == null) {
+                throw new InvalidSettingsException(
+                    "Unknown parameter \"" + c.getAttribute("parameterName") + "\" in parameter matrix");
+            }
+            betas.computeIfAbsent(category, k -> new double[n])[p] =
+                PMMLDom.parseDouble(PMMLDom.requireAttribute(c, "beta"));
+        }
+        if (betas.isEmpty()) {
+            betas.put("", new double[n]);
+        }
+        m_beta = betas.values().toArray(new double[betas.size()][]);
+        if (m_multinomial) {
+            // the reference category has no parameters, i.e. a linear predictor of zero
+            final FieldDictionary target = schema.targetDictionary();
+            String reference = PMMLDom.attribute(model, "targetReferenceCategory", null);
+            if (reference == null) {
+                for (String v : target.getValues()) {
+                    if (!betas.containsKey(v)) {
+                        reference = v;
+                        break;
+                    }
+                }
+            }
+            if (reference == null) {
+                throw new InvalidSettingsException("Multinomial logistic model has no reference category");
+            }
+            m_categories = new double[m_beta.length + 1];
+            int i = 0;
+            for (String category : betas.keySet()) {
+                m_categories[i++] = target.add(category);
+            }
+            m_categories[i] = target.add(reference);
+        } else {
+            m_categories = null;
+        }
+    }
+
+    private static Link readLink(final String link) throws InvalidSettingsException {
+        switch (link) {
+            case "identity":
+                return Link.IDENTITY;
+            case "log":
+                return Link.LOG;
+            case "logit":
+                return Link.LOGIT;
+            case "cloglog":
+                return Link.CLOGLOG;
+            case "loglog":
+                return Link.LOGLOG;
+            case "inverse":
+                return Link.INVERSE;
+            case "power":
+                return Link.POWER;
+            default:
+                throw new InvalidSettingsException("Unsupported link function \"" + link + "\"");
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double score(final double[] row) {
+        final int n = m_termField.length;
+        final double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            double v = 1;
+            for (int j = 0; j < m_termField[i].length; j++) {
+                final double in = row[m_termField[i][j]];
+                if (Double.isNaN(in)) {
+                    return Double.NaN;
+                }
+                if (m_termIsFactor[i][j]) {
+                    v = in == m_termValue[i][j] ? v : 0;
+                } else {
+                    v *= m_termValue[i][j] == 1 ? in : Math.pow(in, m_termValue[i][j]);
+                }
+            }
+            x[i] = v;
+        }
+        if (m_multinomial) {
+            // the softmax is monotone, the category with the largest linear predictor wins (reference has 0)
+            int best = m_beta.length;
+            double bestValue = 0;
+            for (int c = 0; c < m_beta.length; c++) {
+                final double eta = dot(m_beta[c], x);
+                if (eta > bestValue) {
+                    bestValue = eta;
+                    best = c;
+                }
+            }
+            return m_categories[best];
+        }
+        final double eta = dot(m_beta[0], x) + m_offset;
+        switch (m_link) {
+            case LOG:
+                return Math.exp(eta);
+            case LOGIT:
+                return 1 / (1 + Math.exp(-eta));
+            case CLOGLOG:
+                return 1 - Math.exp(-Math.exp(eta));
+            case LOGLOG:
+                return Math.exp(-Math.exp(-eta));
+            case INVERSE:
+                return 1 / eta;
+            case POWER:
+                return m_linkParameter == 0 ? Math.exp(eta) : Math.pow(eta, 1 / m_linkParameter);
+            default:
+                return eta;
+        }
+    }
+
+    private static double dot(final double[] beta, final double[] x) {
+        double sum = 0;
+        for (int i = 0; i < beta.length; i++) {
+            sum += beta[i] * x[i];
+        }
+        return sum;
+    }
+}
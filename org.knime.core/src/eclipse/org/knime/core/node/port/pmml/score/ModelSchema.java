@@ -0,0 +1,202 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.score;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.knime.core.node.InvalidSettingsException;
+import org.w3c.dom.Element;
+
+/**
+ * The input and target fields of a model as derived from the data dictionary and the model's mining schema. Input
+ * fields are the active mining fields in mining schema order; their position is the index into the primitive input
+ * rows of a {@link PMMLEvaluator}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class ModelSchema {
+
+    private final List<String> m_inputNames = new ArrayList<>();
+
+    private final Map<String, Integer> m_inputIndex = new HashMap<>();
+
+    /** One dictionary per input, null for continuous fields. */
+    private final List<FieldDictionary> m_inputDictionaries = new ArrayList<>();
+
+    private final List<String> m_replacements = new ArrayList<>();
+
+    private final String m_targetName;
+
+    private final FieldDictionary m_targetDictionary;
+
+    /**
+     * @param pmml the PMML root element
+     * @param model the model element
+     * @param classification whether the model predicts a category; if the target field is declared categorical in
+     *            the data dictionary the model is treated as classification model independent of this flag
+     * @throws InvalidSettingsException if the mining schema references unknown fields
+     */
+    ModelSchema(final Element pmml, final Element model, final boolean classification)
+        throws InvalidSettingsException {
+        final Map<String, Element> dataFields = new HashMap<>();
+        final Element dictionary = PMMLDom.child(pmml, "DataDictionary");
+        if (dictionary != null) {
+            for (Element f : PMMLDom.children(dictionary, "DataField")) {
+                dataFields.put(PMMLDom.requireAttribute(f, "name"), f);
+            }
+        }
+        String target = null;
+        FieldDictionary targetDictionary = null;
+        final Element miningSchema = PMMLDom.requireChild(model, "MiningSchema");
+        for (Element f : PMMLDom.children(miningSchema, "MiningField")) {
+            final String name = PMMLDom.requireAttribute(f, "name");
+            final String usage = PMMLDom.attribute(f, "usageType", "active");
+            final Element dataField = dataFields.get(name);
+            if (dataField == null) {
+                throw new InvalidSettingsException("Mining field \"" + name
+                    + "\" is not declared in the data dictionary (derived fields are not supported)");
+            }
+            final boolean categorical = !"continuous".equals(PMMLDom.attribute(dataField, "optype", "continuous"));
+            if ("active".equals(usage)) {
+                m_inputIndex.put(name, m_inputNames.size());
+                m_inputNames.add(name);
+                m_inputDictionaries.add(categorical ? readValues(dataField) : null);
+                m_replacements.add(f.hasAttribute("missingValueReplacement")
+                    ? f.getAttribute("missingValueReplacement") : null);
+            } else if (("predicted".equals(usage) || "target".equals(usage)) && target == null) {
+                target = name;
+                if (categorical || classification) {
+                    targetDictionary = readValues(dataField);
+                }
+            }
+        }
+        if (target == null && classification) {
+            targetDictionary = new FieldDictionary();
+        }
+        m_targetName = target;
+        m_targetDictionary = targetDictionary;
+    }
+
+    private static FieldDictionary readValues(final Element dataField) {
+        final FieldDictionary dict = new FieldDictionary();
+        for (Element v : PMMLDom.children(dataField, "Value")) {
+            final String property = PMMLDom.attribute(v, "property", "valid");
+            if (!"missing".equals(property)) {
+                dict.add(v.getAttribute("value"));
+            }
+        }
+        return dict;
+    }
+
+    /**
+     * @param name a field name referenced by the model
+     * @return the index of the input field
+     * @throws InvalidSettingsException if the field is not an active mining field
+     */
+    int inputIndex(final String name) throws InvalidSettingsException {
+        final Integer index = m_inputIndex.get(name);
+        if (index == null) {
+            throw new InvalidSettingsException(
+                "Field \"" + name + "\" is not an active field of the model's mining schema");
+        }
+        return index;
+    }
+
+    /**
+     * @param index an input index
+     * @return the value dictionary of a categorical input, null for continuous inputs
+     */
+    FieldDictionary inputDictionary(final int index) {
+        return m_inputDictionaries.get(index);
+    }
+
+    /**
+     * Encodes a model constant for comparison with the given input: the dictionary code for categorical inputs and
+     * the numeric value otherwise.
+     *
+     * @param index an input index
+     * @param value the constant as it appears in the PMML
+     * @return the encoded constant
+     * @throws InvalidSettingsException if a continuous input is compared to a non-numeric constant
+     */
+    double encodeConstant(final int index, final String value) throws InvalidSettingsException {
+        final FieldDictionary dict = m_inputDictionaries.get(index);
+        return dict == null ? PMMLDom.parseDouble(value) : dict.add(value);
+    }
+
+    /** @return the input field names */
+    String[] inputNames() {
+        return m_inputNames.toArray(new String[m_inputNames.size()]);
+    }
+
+    /** @return per input the missing value replacement as stated in the mining schema, entries may be null */
+    String[] replacements() {
+        return m_replacements.toArray(new String[m_replacements.size()]);
+    }
+
+    /** @return name of the target field or null */
+    String targetName() {
+        return m_targetName;
+    }
+
+    /** @return dictionary of the target field, null for regression models */
+    FieldDictionary targetDictionary() {
+        return m_targetDictionary;
+    }
+
+    /**
+     * Encodes a prediction as it appears in the PMML (e.g. a tree node's score).
+     *
+     * @param value the score value
+     * @return the category code for classification models, the number for regression models
+     * @throws InvalidSettingsException if a regression model has a non-numeric score
+     */
+    double encodeScore(final String value) throws InvalidSettingsException {
+        return m_targetDictionary == null ? PMMLDom.parseDouble(value) : m_targetDictionary.add(value);
+    }
+}
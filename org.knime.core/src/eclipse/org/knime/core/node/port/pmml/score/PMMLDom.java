@@ -0,0 +1,237 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.score;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.knime.core.node.InvalidSettingsException;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Helper methods to read PMML elements from a DOM independent of namespace prefixes. Only used while compiling a
+ * model.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class PMMLDom {
+
+    private PMMLDom() {
+        // utility class
+    }
+
+    /**
+     * @param e an element
+     * @return the local name of the element, without any namespace prefix
+     */
+    static String name(final Element e) {
+        final String local = e.getLocalName();
+        if (local != null) {
+            return local;
+        }
+        final String n = e.getNodeName();
+        final int colon = n.indexOf(':');
+        return colon < 0 ? n : n.substring(colon + 1);
+    }
+
+    /**
+     * @param parent the parent element
+     * @return all child elements in document order
+     */
+    static List<Element> children(final Element parent) {
+        final List<Element> result = new ArrayList<>();
+        for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n instanceof Element) {
+                result.add((Element)n);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param parent the parent element
+     * @param name the local name
+     * @return all child elements with the given name in document order
+     */
+    static List<Element> children(final Element parent, final String name) {
+        final List<Element> result = new ArrayList<>();
+        for (Element e : children(parent)) {
+            if (name.equals(name(e))) {
+                result.add(e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param parent the parent element
+     * @param name the local name
+     * @return the first child with the given name or null
+     */
+    static Element child(final Element parent, final String name) {
+        for (Element e : children(parent)) {
+            if (name.equals(name(e))) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param parent the parent element
+     * @param name the local name
+     * @return the first child with the given name
+     * @throws InvalidSettingsException if there is no such child
+     */
+    static Element requireChild(final Element parent, final String name) throws InvalidSettingsException {
+        final Element e = child(parent, name);
+        if (e == null) {
+            throw new InvalidSettingsException("Element \"" + name(parent) + "\" has no child \"" + name + "\"");
+        }
+        return e;
+    }
+
+    /**
+     * @param e the element
+     * @param attribute the attribute name
+     * @param defaultValue returned if the attribute is not set
+     * @return the attribute value or the default
+     */
+    static String attribute(final Element e, final String attribute, final String defaultValue) {
+        return e.hasAttribute(attribute) ? e.getAttribute(attribute) : defaultValue;
+    }
+
+    /**
+     * @param e the element
+     * @param attribute the attribute name
+     * @return the attribute value
+     * @throws InvalidSettingsException if the attribute is not set
+     */
+    static String requireAttribute(final Element e, final String attribute) throws InvalidSettingsException {
+        if (!e.hasAttribute(attribute)) {
+            throw new InvalidSettingsException(
+                "Element \"" + name(e) + "\" has no attribute \"" + attribute + "\"");
+        }
+        return e.getAttribute(attribute);
+    }
+
+    /**
+     * @param e the element
+     * @param attribute the attribute name
+     * @param defaultValue returned if the attribute is not set
+     * @return the attribute value as double or the default
+     * @throws InvalidSettingsException if the attribute is not a number
+     */
+    static double doubleAttribute(final Element e, final String attribute, final double defaultValue)
+        throws InvalidSettingsException {
+        if (!e.hasAttribute(attribute)) {
+            return defaultValue;
+        }
+        return parseDouble(e.getAttribute(attribute));
+    }
+
+    /**
+     * @param s a number in PMML notation
+     * @return its value
+     * @throws InvalidSettingsException if the string is not a number
+     */
+    static double parseDouble(final String s) throws InvalidSettingsException {
+        final String t = s.trim();
+        switch (t) {
+            case "INF":
+                return Double.POSITIVE_INFINITY;
+            case "-INF":
+                return Double.NEGATIVE_INFINITY;
+            case "NaN":
+                return Double.NaN;
+            default:
+                try {
+                    return Double.parseDouble(t);
+                } catch (NumberFormatException nfe) {
+                    throw new InvalidSettingsException("Not a number: \"" + s + "\"", nfe);
+                }
+        }
+    }
+
+    /**
+     * Parses the content of a PMML <code>Array</code> element. Entries are separated by white space, string entries
+     * containing white space are enclosed in double quotes (with <code>\"</code> as escaped quote).
+     *
+     * @param array the array element
+     * @return the entries
+     */
+    static List<String> parseArray(final Element array) {
+        final String s = array.getTextContent();
+        final List<String> result = new ArrayList<>();
+        final int length = s.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && Character.isWhitespace(s.charAt(i))) {
+                i++;
+            }
+            if (i >= length) {
+                break;
+            }
+            final StringBuilder b = new StringBuilder();
+            if (s.charAt(i) == '"') {
+                i++;
+                while (i < length && s.charAt(i) != '"') {
+                    if (s.charAt(i) == '\\' && i + 1 < length && s.charAt(i + 1) == '"') {
+                        i++;
+                    }
+                    b.append(s.charAt(i++));
+                }
+                i++; // closing quote
+            } else {
+                while (i < length && !Character.isWhitespace(s.charAt(i))) {
+                    b.append(s.charAt(i++));
+                }
+            }
+            result.add(b.toString());
+        }
+        return result;
+    }
+}
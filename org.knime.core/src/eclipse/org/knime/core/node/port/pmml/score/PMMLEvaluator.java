@@ -0,0 +1,331 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.score;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.knime.core.data.util.LockedSupplier;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.port.pmml.PMMLPortObject;
+import org.knime.core.util.ParallelComputeExecutor;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * A PMML model compiled into a flat in-memory representation for fast repeated scoring. Compilation reads the PMML
+ * document once; evaluation works on primitive arrays only and neither touches the document nor allocates per row
+ * (apart from a few models that need small scratch arrays).
+ *
+ * <p>
+ * Supported are the first model of a document if it is a <code>TreeModel</code>, <code>RegressionModel</code>,
+ * <code>GeneralRegressionModel</code> (regression, general linear, generalized linear and multinomial logistic),
+ * <code>RuleSetModel</code> or a center based <code>ClusteringModel</code>. Derived fields and targets/outputs are
+ * not supported; models using them are rejected at compile time.
+ *
+ * <p>
+ * Input rows are <code>double</code> arrays holding one entry per {@linkplain #getInputFields() input field}.
+ * Continuous fields hold their value, categorical fields the code returned by {@link #encode(int, String)}, missing
+ * values are {@link Double#NaN}. The result of an evaluation is the predicted value for regression models and the
+ * index into {@link #getTargetCategories()} for classification and clustering models; {@link Double#NaN} means no
+ * prediction.
+ *
+ * <p>
+ * Instances are immutable and can be used concurrently. {@link PMMLScoringCellFactory} applies an evaluator to a
+ * data table.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 4.2
+ */
+public final class PMMLEvaluator {
+
+    /** Number of rows evaluated by one task in {@link #evaluate(double[], int, double[])}. */
+    static final int BLOCK_ROWS = 4096;
+
+    private final ScoreFunction m_function;
+
+    private final String m_modelType;
+
+    private final String[] m_inputNames;
+
+    private final FieldDictionary[] m_inputDictionaries;
+
+    private final double[] m_replacements;
+
+    private final String m_targetName;
+
+    private final String[] m_targetCategories;
+
+    private PMMLEvaluator(final ScoreFunction function, final String modelType, final ModelSchema schema)
+        throws InvalidSettingsException {
+        m_function = function;
+        m_modelType = modelType;
+        m_inputNames = schema.inputNames();
+        m_inputDictionaries = new FieldDictionary[m_inputNames.length];
+        m_replacements = new double[m_inputNames.length];
+        final String[] replacements = schema.replacements();
+        for (int i = 0; i < m_inputNames.length; i++) {
+            m_inputDictionaries[i] = schema.inputDictionary(i);
+            m_replacements[i] =
+                replacements[i] == null ? Double.NaN : schema.encodeConstant(i, replacements[i]);
+        }
+        m_targetName = schema.targetName();
+        m_targetCategories = schema.targetDictionary() == null ? null : schema.targetDictionary().getValues();
+    }
+
+    /**
+     * Compiles the model contained in a PMML port object.
+     *
+     * @param port the PMML port object
+     * @return the compiled model
+     * @throws InvalidSettingsException if the port contains no model or a model that is not supported
+     */
+    public static PMMLEvaluator compile(final PMMLPortObject port) throws InvalidSettingsException {
+        try (LockedSupplier<Document> supplier = port.getPMMLValue().getDocumentSupplier()) {
+            return compile(supplier.get());
+        }
+    }
+
+    /**
+     * Compiles the first model of a PMML document. The document is not referenced after this method returns.
+     *
+     * @param document the PMML document
+     * @return the compiled model
+     * @throws InvalidSettingsException if the document contains no model or a model that is not supported
+     */
+    public static PMMLEvaluator compile(final Document document) throws InvalidSettingsException {
+        final Element pmml = document.getDocumentElement();
+        for (Element model : PMMLDom.children(pmml)) {
+            final String type = PMMLDom.name(model);
+            if (!type.endsWith("Model") && !"Scorecard".equals(type)) {
+                continue;
+            }
+            if ("false".equals(PMMLDom.attribute(model, "isScorable", "true"))) {
+                throw new InvalidSettingsException("Model \"" + type + "\" is marked as not scorable");
+            }
+            final Element transformations = PMMLDom.child(model, "LocalTransformations");
+            if (transformations != null && !PMMLDom.children(transformations).isEmpty()) {
+                throw new InvalidSettingsException("Local transformations are not supported");
+            }
+            final String functionName = PMMLDom.attribute(model, "functionName", "");
+            final ModelSchema schema;
+            final ScoreFunction function;
+            switch (type) {
+                case "TreeModel":
+                    schema = new ModelSchema(pmml, model, "classification".equals(functionName));
+                    function = new TreeScoreFunction(model, schema);
+                    break;
+                case "RegressionModel":
+                    schema = new ModelSchema(pmml, model, "classification".equals(functionName));
+                    function = new RegressionScoreFunction(model, schema);
+                    break;
+                case "GeneralRegressionModel":
+                    schema = new ModelSchema(pmml, model, "classification".equals(functionName));
+                    function = new GeneralRegressionScoreFunction(model, schema);
+                    break;
+                case "RuleSetModel":
+                    schema = new ModelSchema(pmml, model, true);
+                    function = new RuleSetScoreFunction(model, schema);
+                    break;
+                case "ClusteringModel":
+                    schema = new ModelSchema(pmml, model, true);
+                    function = new ClusteringScoreFunction(model, schema);
+                    break;
+                default:
+                    throw new InvalidSettingsException("Model type \"" + type + "\" is not supported");
+            }
+            return new PMMLEvaluator(function, type, schema);
+        }
+        throw new InvalidSettingsException("PMML document contains no model");
+    }
+
+    /** @return the PMML element name of the compiled model, e.g. "TreeModel" */
+    public String getModelType() {
+        return m_modelType;
+    }
+
+    /** @return the names of the input fields; the order defines the layout of the input rows */
+    public String[] getInputFields() {
+        return m_inputNames.clone();
+    }
+
+    /**
+     * @param field an input index
+     * @return whether the input is categorical, i.e. expects codes created by {@link #encode(int, String)}
+     */
+    public boolean isCategorical(final int field) {
+        return m_inputDictionaries[field] != null;
+    }
+
+    /**
+     * Encodes a value of an input field. For categorical fields the value is mapped to its code (values unknown to
+     * the model map to a code never matched by the model), for continuous fields it is parsed as number.
+     * <code>null</code> denotes a missing value and is replaced by the mining schema's missing value replacement, if
+     * any.
+     *
+     * @param field an input index
+     * @param value the value, may be null
+     * @return the encoded value
+     * @throws NumberFormatException if the field is continuous and the value is not a number
+     */
+    public double encode(final int field, final String value) {
+        if (value == null) {
+            return m_replacements[field];
+        }
+        final FieldDictionary dict = m_inputDictionaries[field];
+        return dict == null ? Double.parseDouble(value) : dict.lookup(value);
+    }
+
+    /**
+     * Encodes a numeric value of an input field. For categorical fields the number's string representation (without
+     * fraction if it is integral) is looked up in the field's values. {@link Double#NaN} denotes a missing value and
+     * is replaced by the mining schema's missing value replacement, if any.
+     *
+     * @param field an input index
+     * @param value the value
+     * @return the encoded value
+     */
+    public double encode(final int field, final double value) {
+        if (Double.isNaN(value)) {
+            return m_replacements[field];
+        }
+        final FieldDictionary dict = m_inputDictionaries[field];
+        if (dict == null) {
+            return value;
+        }
+        final boolean integral = value == Math.rint(value) && !Double.isInfinite(value)
+            && Math.abs(value) < Long.MAX_VALUE;
+        return dict.lookup(integral ? Long.toString((long)value) : Double.toString(value));
+    }
+
+    /** @return the name of the target field or null if the model does not declare one (e.g. clustering) */
+    public String getTargetField() {
+        return m_targetName;
+    }
+
+    /**
+     * @return the predicted categories (cluster labels for clustering models) indexed by the evaluation result, or
+     *         null for regression models
+     */
+    public String[] getTargetCategories() {
+        return m_targetCategories == null ? null : m_targetCategories.clone();
+    }
+
+    /** @return whether evaluation results are indices into {@link #getTargetCategories()} */
+    public boolean isClassification() {
+        return m_targetCategories != null;
+    }
+
+    /**
+     * @param prediction an evaluation result of a classification or clustering model
+     * @return the predicted category or null if there is no prediction
+     */
+    public String getCategory(final double prediction) {
+        return Double.isNaN(prediction) ? null : m_targetCategories[(int)prediction];
+    }
+
+    /**
+     * Evaluates one row.
+     *
+     * @param row the encoded row, one entry per input field
+     * @return the prediction, see class description
+     */
+    public double evaluate(final double[] row) {
+        return m_function.score(row);
+    }
+
+    /**
+     * Evaluates many rows. The rows are split in blocks that are evaluated concurrently; the calling thread takes
+     * part in the evaluation.
+     *
+     * @param rows the encoded rows in row-major order, <code>rowCount * getInputFields().length</code> entries
+     * @param rowCount number of rows
+     * @param result receives the predictions, at least <code>rowCount</code> entries
+     * @throws InterruptedException if interrupted while waiting for the evaluation to finish
+     */
+    public void evaluate(final double[] rows, final int rowCount, final double[] result)
+        throws InterruptedException {
+        final int blocks = (rowCount + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        if (blocks <= 1) {
+            evaluate(rows, 0, rowCount, result);
+            return;
+        }
+        final AtomicInteger nextBlock = new AtomicInteger();
+        final Runnable task = () -> {
+            for (int b = nextBlock.getAndIncrement(); b < blocks; b = nextBlock.getAndIncrement()) {
+                evaluate(rows, b * BLOCK_ROWS, Math.min(rowCount, (b + 1) * BLOCK_ROWS), result);
+            }
+        };
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0, n = Math.min(ParallelComputeExecutor.PARALLELISM, blocks) - 1; i < n; i++) {
+            futures.add(ParallelComputeExecutor.submit(task));
+        }
+        boolean isComplete = false;
+        try {
+            task.run();
+            for (Future<?> f : futures) {
+                ParallelComputeExecutor.get(f, RuntimeException.class);
+            }
+            isComplete = true;
+        } finally {
+            if (!isComplete) {
+                // helpers must not write into the result once this method returned
+                nextBlock.set(blocks);
+                ParallelComputeExecutor.cancelAndAwait(futures);
+            }
+        }
+    }
+
+    private void evaluate(final double[] rows, final int from, final int to, final double[] result) {
+        final int width = m_inputNames.length;
+        final double[] row = new double[width];
+        for (int r = from; r < to; r++) {
+            System.arraycopy(rows, r * width, row, 0, width);
+            result[r] = m_function.score(row);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.score;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.StringValue;
+import org.knime.core.data.container.ColumnRearranger;
+import org.knime.core.data.container.SingleCellFactory;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.InvalidSettingsException;
+
+/**
+ * Appends the prediction of a {@link PMMLEvaluator} to each row of a table. Rows are processed concurrently, so
+ * scoring a table through a {@link ColumnRearranger} (e.g. with
+ * {@link org.knime.core.node.ExecutionContext#createColumnRearrangeTable(org.knime.core.node.BufferedDataTable,
+ * ColumnRearranger, org.knime.core.node.ExecutionMonitor)}) uses all cores.
+ *
+ * <p>
+ * The prediction column is a string column holding the category for classification and clustering models and a
+ * double column for regression models. Rows without prediction get a missing cell.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 4.2
+ */
+public final class PMMLScoringCellFactory extends SingleCellFactory {
+
+    private final PMMLEvaluator m_evaluator;
+
+    private final int[] m_columnIndices;
+
+    /**
+     * @param evaluator the compiled model
+     * @param spec the spec of the table to score
+     * @param newColumnName name of the prediction column
+     * @throws InvalidSettingsException if an input field of the model is not contained in the table or a continuous
+     *             field is not numeric
+     */
+    public PMMLScoringCellFactory(final PMMLEvaluator evaluator, final DataTableSpec spec,
+        final String newColumnName) throws InvalidSettingsException {
+        super(true, createOutputSpec(evaluator, newColumnName));
+        m_evaluator = evaluator;
+        final String[] inputs = evaluator.getInputFields();
+        m_columnIndices = new int[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            final DataColumnSpec column = spec.getColumnSpec(inputs[i]);
+            if (column == null) {
+                throw new InvalidSettingsException("Column \"" + inputs[i] + "\" required by the model is missing");
+            }
+            if (!evaluator.isCategorical(i) && !column.getType().isCompatible(DoubleValue.class)) {
+                throw new InvalidSettingsException("Column \"" + inputs[i] + "\" is not numeric");
+            }
+            m_columnIndices[i] = spec.findColumnIndex(inputs[i]);
+        }
+    }
+
+    private static DataColumnSpec createOutputSpec(final PMMLEvaluator evaluator, final String newColumnName) {
+        return new DataColumnSpecCreator(newColumnName,
+            evaluator.isClassification() ? StringCell.TYPE : DoubleCell.TYPE).createSpec();
+    }
+
+    /**
+     * Creates a rearranger that appends the prediction column to the given table.
+     *
+     * @param evaluator the compiled model
+     * @param spec the spec of the table to score
+     * @param newColumnName name of the prediction column
+     * @return a new rearranger
+     * @throws InvalidSettingsException if the table does not contain the model's input fields
+     */
+    public static ColumnRearranger createColumnRearranger(final PMMLEvaluator evaluator, final DataTableSpec spec,
+        final String newColumnName) throws InvalidSettingsException {
+        final ColumnRearranger rearranger = new ColumnRearranger(spec);
+        rearranger.append(new PMMLScoringCellFactory(evaluator, spec, newColumnName));
+        return rearranger;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public DataCell getCell(final DataRow row) {
+        final double[] values = new double[m_columnIndices.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = encode(i, row.getCell(m_columnIndices[i]));
+        }
+        final double prediction = m_evaluator.evaluate(values);
+        if (Double.isNaN(prediction)) {
+            return DataType.getMissingCell();
+        }
+        return m_evaluator.isClassification() ? new StringCell(m_evaluator.getCategory(prediction))
+            : new DoubleCell(prediction);
+    }
+
+    private double encode(final int field, final DataCell cell) {
+        if (cell.isMissing()) {
+            return m_evaluator.encode(field, (String)null);
+        }
+        if (!m_evaluator.isCategorical(field)) {
+            return m_evaluator.encode(field, ((DoubleValue)cell).getDoubleValue());
+        }
+        if (cell instanceof StringValue) {
+            return m_evaluator.encode(field, ((StringValue)cell).getStringValue());
+        }
+        if (cell instanceof DoubleValue) {
+            return m_evaluator.encode(field, ((DoubleValue)cell).getDoubleValue());
+        }
+        return m_evaluator.encode(field, cell.toString());
+    }
+}
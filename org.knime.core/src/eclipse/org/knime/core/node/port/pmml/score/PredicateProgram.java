@@ -0,0 +1,401 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.score;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.knime.core.node.InvalidSettingsException;
+import org.w3c.dom.Element;
+
+/**
+ * PMML predicates compiled into flat arrays. Each predicate is addressed by an int handle; compound predicates
+ * reference their children through a shared child table. Evaluation follows PMML's three-valued logic, missing inputs
+ * are represented by {@link Double#NaN}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class PredicateProgram {
+
+    /** Result of a predicate that evaluates to true. */
+    static final int TRUE = 1;
+
+    /** Result of a predicate that evaluates to false. */
+    static final int FALSE = 0;
+
+    /** Result of a predicate whose value is unknown because of missing inputs. */
+    static final int UNKNOWN = -1;
+
+    private static final byte OP_TRUE = 0;
+
+    private static final byte OP_FALSE = 1;
+
+    private static final byte OP_EQ = 2;
+
+    private static final byte OP_NE = 3;
+
+    private static final byte OP_LT = 4;
+
+    private static final byte OP_LE = 5;
+
+    private static final byte OP_GT = 6;
+
+    private static final byte OP_GE = 7;
+
+    private static final byte OP_MISSING = 8;
+
+    private static final byte OP_NOT_MISSING = 9;
+
+    private static final byte OP_IN = 10;
+
+    private static final byte OP_NOT_IN = 11;
+
+    private static final byte OP_AND = 12;
+
+    private static final byte OP_OR = 13;
+
+    private static final byte OP_XOR = 14;
+
+    private static final byte OP_SURROGATE = 15;
+
+    private final ModelSchema m_schema;
+
+    private byte[] m_op = new byte[16];
+
+    /** Input index for simple predicates, index into {@link #m_children} for compound predicates. */
+    private int[] m_arg = new int[16];
+
+    /** Constant for comparisons, number of children for compound predicates. */
+    private double[] m_value = new double[16];
+
+    /** Sorted value sets of set predicates, null for all others. */
+    private double[][] m_sets = new double[16][];
+
+    private int m_size;
+
+    private int[] m_children = new int[16];
+
+    private int m_childrenSize;
+
+    /**
+     * @param schema the schema to resolve field references with
+     */
+    PredicateProgram(final ModelSchema schema) {
+        m_schema = schema;
+    }
+
+    /**
+     * Compiles the first predicate child of the given element (e.g. a tree node or a rule).
+     *
+     * @param parent the element containing the predicate
+     * @return the handle of the predicate
+     * @throws InvalidSettingsException if the element has no predicate or it cannot be compiled
+     */
+    int compileChildPredicate(final Element parent) throws InvalidSettingsException {
+        for (Element e : PMMLDom.children(parent)) {
+            if (isPredicate(e)) {
+                return compile(e);
+            }
+        }
+        throw new InvalidSettingsException("Element \"" + PMMLDom.name(parent) + "\" has no predicate");
+    }
+
+    /**
+     * Adds a conjunction of two compiled predicates, used to flatten nested rules.
+     *
+     * @param left first handle
+     * @param right second handle
+     * @return the handle of the conjunction
+     */
+    int and(final int left, final int right) {
+        return addCompound(OP_AND, new int[]{left, right});
+    }
+
+    private static boolean isPredicate(final Element e) {
+        switch (PMMLDom.name(e)) {
+            case "SimplePredicate":
+            case "SimpleSetPredicate":
+            case "CompoundPredicate":
+            case "True":
+            case "False":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private int compile(final Element e) throws InvalidSettingsException {
+        switch (PMMLDom.name(e)) {
+            case "True":
+                return add(OP_TRUE, -1, 0, null);
+            case "False":
+                return add(OP_FALSE, -1, 0, null);
+            case "SimplePredicate":
+                return compileSimple(e);
+            case "SimpleSetPredicate":
+                return compileSet(e);
+            case "CompoundPredicate":
+                return compileCompound(e);
+            default:
+                throw new InvalidSettingsException("Unsupported predicate \"" + PMMLDom.name(e) + "\"");
+        }
+    }
+
+    private int compileSimple(final Element e) throws InvalidSettingsException {
+        final int field = m_schema.inputIndex(PMMLDom.requireAttribute(e, "field"));
+        final String operator = PMMLDom.requireAttribute(e, "operator");
+        final byte op;
+        switch (operator) {
+            case "isMissing":
+                return add(OP_MISSING, field, 0, null);
+            case "isNotMissing":
+                return add(OP_NOT_MISSING, field, 0, null);
+            case "equal":
+                op = OP_EQ;
+                break;
+            case "notEqual":
+                op = OP_NE;
+                break;
+            case "lessThan":
+                op = OP_LT;
+                break;
+            case "lessOrEqual":
+                op = OP_LE;
+                break;
+            case "greaterThan":
+                op = OP_GT;
+                break;
+            case "greaterOrEqual":
+                op = OP_GE;
+                break;
+            default:
+                throw new InvalidSettingsException("Unsupported operator \"" + operator + "\"");
+        }
+        if (op != OP_EQ && op != OP_NE && m_schema.inputDictionary(field) != null) {
+            throw new InvalidSettingsException(
+                "Operator \"" + operator + "\" is not supported on categorical field \""
+                    + e.getAttribute("field") + "\"");
+        }
+        return add(op, field, m_schema.encodeConstant(field, PMMLDom.requireAttribute(e, "value")), null);
+    }
+
+    private int compileSet(final Element e) throws InvalidSettingsException {
+        final int field = m_schema.inputIndex(PMMLDom.requireAttribute(e, "field"));
+        final String operator = PMMLDom.requireAttribute(e, "booleanOperator");
+        final byte op;
+        if ("isIn".equals(operator)) {
+            op = OP_IN;
+        } else if ("isNotIn".equals(operator)) {
+            op = OP_NOT_IN;
+        } else {
+            throw new InvalidSettingsException("Unsupported set operator \"" + operator + "\"");
+        }
+        final List<String> entries = PMMLDom.parseArray(PMMLDom.requireChild(e, "Array"));
+        final double[] set = new double[entries.size()];
+        for (int i = 0; i < set.length; i++) {
+            set[i] = m_schema.encodeConstant(field, entries.get(i));
+        }
+        Arrays.sort(set);
+        return add(op, field, 0, set);
+    }
+
+    private int compileCompound(final Element e) throws InvalidSettingsException {
+        final String operator = PMMLDom.requireAttribute(e, "booleanOperator");
+        final byte op;
+        switch (operator) {
+            case "and":
+                op = OP_AND;
+                break;
+            case "or":
+                op = OP_OR;
+                break;
+            case "xor":
+                op = OP_XOR;
+                break;
+            case "surrogate":
+                op = OP_SURROGATE;
+                break;
+            default:
+                throw new InvalidSettingsException("Unsupported boolean operator \"" + operator + "\"");
+        }
+        final List<Element> children = PMMLDom.children(e);
+        final int[] handles = new int[children.size()];
+        int count = 0;
+        for (Element c : children) {
+            if (isPredicate(c)) {
+                handles[count++] = compile(c);
+            }
+        }
+        return addCompound(op, Arrays.copyOf(handles, count));
+    }
+
+    private int addCompound(final byte op, final int[] handles) {
+        if (m_childrenSize + handles.length > m_children.length) {
+            m_children = Arrays.copyOf(m_children, Math.max(2 * m_children.length, m_childrenSize + handles.length));
+        }
+        final int start = m_childrenSize;
+        System.arraycopy(handles, 0, m_children, start, handles.length);
+        m_childrenSize += handles.length;
+        return add(op, start, handles.length, null);
+    }
+
+    private int add(final byte op, final int arg, final double value, final double[] set) {
+        if (m_size == m_op.length) {
+            final int capacity = 2 * m_size;
+            m_op = Arrays.copyOf(m_op, capacity);
+            m_arg = Arrays.copyOf(m_arg, capacity);
+            m_value = Arrays.copyOf(m_value, capacity);
+            m_sets = Arrays.copyOf(m_sets, capacity);
+        }
+        m_op[m_size] = op;
+        m_arg[m_size] = arg;
+        m_value[m_size] = value;
+        m_sets[m_size] = set;
+        return m_size++;
+    }
+
+    /**
+     * Evaluates a compiled predicate.
+     *
+     * @param p the predicate handle
+     * @param row the encoded input row
+     * @return {@link #TRUE}, {@link #FALSE} or {@link #UNKNOWN}
+     */
+    int evaluate(final int p, final double[] row) {
+        final byte op = m_op[p];
+        switch (op) {
+            case OP_TRUE:
+                return TRUE;
+            case OP_FALSE:
+                return FALSE;
+            case OP_MISSING:
+                return Double.isNaN(row[m_arg[p]]) ? TRUE : FALSE;
+            case OP_NOT_MISSING:
+                return Double.isNaN(row[m_arg[p]]) ? FALSE : TRUE;
+            case OP_AND:
+            case OP_OR:
+            case OP_XOR:
+            case OP_SURROGATE:
+                return evaluateCompound(op, m_arg[p], (int)m_value[p], row);
+            default:
+                final double x = row[m_arg[p]];
+                if (Double.isNaN(x)) {
+                    return UNKNOWN;
+                }
+                return compare(op, x, p) ? TRUE : FALSE;
+        }
+    }
+
+    private boolean compare(final byte op, final double x, final int p) {
+        switch (op) {
+            case OP_EQ:
+                return x == m_value[p];
+            case OP_NE:
+                return x != m_value[p];
+            case OP_LT:
+                return x < m_value[p];
+            case OP_LE:
+                return x <= m_value[p];
+            case OP_GT:
+                return x > m_value[p];
+            case OP_GE:
+                return x >= m_value[p];
+            case OP_IN:
+                return Arrays.binarySearch(m_sets[p], x) >= 0;
+            case OP_NOT_IN:
+                return Arrays.binarySearch(m_sets[p], x) < 0;
+            default:
+                throw new IllegalStateException("Unknown predicate op code " + op);
+        }
+    }
+
+    private int evaluateCompound(final byte op, final int start, final int count, final double[] row) {
+        final int end = start + count;
+        int result;
+        switch (op) {
+            case OP_AND:
+                result = TRUE;
+                for (int i = start; i < end; i++) {
+                    final int r = evaluate(m_children[i], row);
+                    if (r == FALSE) {
+                        return FALSE;
+                    } else if (r == UNKNOWN) {
+                        result = UNKNOWN;
+                    }
+                }
+                return result;
+            case OP_OR:
+                result = FALSE;
+                for (int i = start; i < end; i++) {
+                    final int r = evaluate(m_children[i], row);
+                    if (r == TRUE) {
+                        return TRUE;
+                    } else if (r == UNKNOWN) {
+                        result = UNKNOWN;
+                    }
+                }
+                return result;
+            case OP_XOR:
+                result = FALSE;
+                for (int i = start; i < end; i++) {
+                    final int r = evaluate(m_children[i], row);
+                    if (r == UNKNOWN) {
+                        return UNKNOWN;
+                    } else if (r == TRUE) {
+                        result = result == TRUE ? FALSE : TRUE;
+                    }
+                }
+                return result;
+            default: // surrogate
+                for (int i = start; i < end; i++) {
+                    final int r = evaluate(m_children[i], row);
+                    if (r != UNKNOWN) {
+                        return r;
+                    }
+                }
+                return UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.score;
+
+import java.util.List;
+
+import org.knime.core.node.InvalidSettingsException;
+import org.w3c.dom.Element;
+
+/**
+ * Compiled <code>RegressionModel</code>. Each regression table is flattened into parallel arrays of numeric,
+ * categorical and interaction terms.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class RegressionScoreFunction implements ScoreFunction {
+
+    private enum Normalization {
+        NONE, SIMPLEMAX, SOFTMAX, LOGIT, EXP, CLOGLOG, LOGLOG
+    }
+
+    private final Normalization m_normalization;
+
+    /** Whether the target is categorical, i.e. the result is the code of the most probable category. */
+    private final boolean m_classification;
+
+    private final Table[] m_tables;
+
+    /**
+     * @param model the <code>RegressionModel</code> element
+     * @param schema the model schema
+     * @throws InvalidSettingsException if the model uses unsupported features
+     */
+    RegressionScoreFunction(final Element model, final ModelSchema schema) throws InvalidSettingsException {
+        final String normalization = PMMLDom.attribute(model, "normalizationMethod", "none");
+        switch (normalization) {
+            case "none":
+                m_normalization = Normalization.NONE;
+                break;
+            case "simplemax":
+                m_normalization = Normalization.SIMPLEMAX;
+                break;
+            case "softmax":
+                m_normalization = Normalization.SOFTMAX;
+                break;
+            case "logit":
+                m_normalization = Normalization.LOGIT;
+                break;
+            case "exp":
+                m_normalization = Normalization.EXP;
+                break;
+            case "cloglog":
+                m_normalization = Normalization.CLOGLOG;
+                break;
+            case "loglog":
+                m_normalization = Normalization.LOGLOG;
+                break;
+            default:
+                throw new InvalidSettingsException("Unsupported normalization method \"" + normalization + "\"");
+        }
+        m_classification = schema.targetDictionary() != null;
+        final List<Element> tables = PMMLDom.children(model, "RegressionTable");
+        if (tables.isEmpty()) {
+            throw new InvalidSettingsException("Regression model has no regression table");
+        }
+        if (!m_classification && tables.size() > 1) {
+            throw new InvalidSettingsException("Regression model with continuous target has more than one table");
+        }
+        m_tables = new Table[tables.size()];
+        for (int i = 0; i < m_tables.length; i++) {
+            m_tables[i] = new Table(tables.get(i), schema, m_classification);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double score(final double[] row) {
+        if (!m_classification) {
+            final double y = m_tables[0].evaluate(row);
+            switch (m_normalization) {
+                case SOFTMAX:
+                case LOGIT:
+                    return 1 / (1 + Math.exp(-y));
+                case EXP:
+                    return Math.exp(y);
+                case CLOGLOG:
+                    return 1 - Math.exp(-Math.exp(y));
+                case LOGLOG:
+                    return Math.exp(-Math.exp(-y));
+                default:
+                    return y;
+            }
+        }
+        if (m_tables.length == 2 && (m_normalization == Normalization.LOGIT
+            || m_normalization == Normalization.CLOGLOG || m_normalization == Normalization.LOGLOG)) {
+            // binary case: the first table yields the probability of its category, the second is the complement
+            final double y = m_tables[0].evaluate(row);
+            if (Double.isNaN(y)) {
+                return Double.NaN;
+            }
+            final double p;
+            switch (m_normalization) {
+                case LOGIT:
+                    p = 1 / (1 + Math.exp(-y));
+                    break;
+                case CLOGLOG:
+                    p = 1 - Math.exp(-Math.exp(y));
+                    break;
+                default:
+                    p = Math.exp(-Math.exp(-y));
+                    break;
+            }
+            return p >= 0.5 ? m_tables[0].m_category : m_tables[1].m_category;
+        }
+        // all remaining normalizations are strictly monotone per table, the arg max is the prediction
+        int best = -1;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < m_tables.length; i++) {
+            double y = m_tables[i].evaluate(row);
+            if (Double.isNaN(y)) {
+                return Double.NaN;
+            }
+            if (m_normalization == Normalization.LOGIT) {
+                y = 1 / (1 + Math.exp(-y));
+            } else if (m_normalization == Normalization.CLOGLOG) {
+                y = 1 - Math.exp(-Math.exp(y));
+            } else if (m_normalization == Normalization.LOGLOG) {
+                y = Math.exp(-Math.exp(-y));
+            }
+            if (best < 0 || y > bestValue) {
+                best = i;
+                bestValue = y;
+            }
+        }
+        return m_tables[best].m_category;
+    }
+
+    /** One regression table: y = intercept + sum of terms. */
+    private static final class Table {
+
+        private final double m_intercept;
+
+        private final double m_category;
+
+        private final int[] m_numericField;
+
+        private final double[] m_numericExponent;
+
+        private final double[] m_numericCoefficient;
+
+        private final int[] m_categoricalField;
+
+        private final double[] m_categoricalValue;
+
+        private final double[] m_categoricalCoefficient;
+
+        private final int[][] m_termFields;
+
+        private final double[] m_termCoefficient;
+
+        Table(final Element table, final ModelSchema schema, final boolean classification)
+            throws InvalidSettingsException {
+            m_intercept = PMMLDom.doubleAttribute(table, "intercept", 0);
+            m_category = classification
+                ? schema.encodeScore(PMMLDom.requireAttribute(table, "targetCategory")) : Double.NaN;
+
+            final List<Element> numeric = PMMLDom.children(table, "NumericPredictor");
+            m_numericField = new int[numeric.size()];
+            m_numericExponent = new double[numeric.size()];
+            m_numericCoefficient = new double[numeric.size()];
+            for (int i = 0; i < m_numericField.length; i++) {
+                final Element p = numeric.get(i);
+                m_numericField[i] = schema.inputIndex(PMMLDom.requireAttribute(p, "name"));
+                m_numericExponent[i] = PMMLDom.doubleAttribute(p, "exponent", 1);
+                m_numericCoefficient[i] = PMMLDom.parseDouble(PMMLDom.requireAttribute(p, "coefficient"));
+            }
+
+            final List<Element> categorical = PMMLDom.children(table, "CategoricalPredictor");
+            m_categoricalField = new int[categorical.size()];
+            m_categoricalValue = new double[categorical.size()];
+            m_categoricalCoefficient = new double[categorical.size()];
+            for (int i = 0; i < m_categoricalField.length; i++) {
+                final Element p = categorical.get(i);
+                m_categoricalField[i] = schema.inputIndex(PMMLDom.requireAttribute(p, "name"));
+                m_categoricalValue[i] =
+                    schema.encodeConstant(m_categoricalField[i], PMMLDom.requireAttribute(p, "value"));
+                m_categoricalCoefficient[i] = PMMLDom.parseDouble(PMMLDom.requireAttribute(p, "coefficient"));
+            }
+
+            final List<Element> terms = PMMLDom.children(table, "PredictorTerm");
+            m_termFields = new int[terms.size()][];
+            m_termCoefficient = new double[terms.size()];
+            for (int i = 0; i < m_termFields.length; i++) {
+                final Element t = terms.get(i);
+                final List<Element> refs = PMMLDom.children(t, "FieldRef");
+                m_termFields[i] = new int[refs.size()];
+                for (int j = 0; j < refs.size(); j++) {
+                    final int field = schema.inputIndex(PMMLDom.requireAttribute(refs.get(j), "field"));
+                    if (schema.inputDictionary(field) != null) {
+                        throw new InvalidSettingsException("Predictor terms on categorical fields are not supported");
+                    }
+                    m_termFields[i][j] = field;
+                }
+                m_termCoefficient[i] = PMMLDom.parseDouble(PMMLDom.requireAttribute(t, "coefficient"));
+            }
+        }
+
+        /** @return the linear predictor, NaN if any referenced input is missing */
+        double evaluate(final double[] row) {
+            double y = m_intercept;
+            for (int i = 0; i < m_numericField.length; i++) {
+                final double x = row[m_numericField[i]];
+                y += m_numericCoefficient[i] * (m_numericExponent[i] == 1 ? x : Math.pow(x, m_numericExponent[i]));
+            }
+            for (int i = 0; i < m_categoricalField.length; i++) {
+                final double x = row[m_categoricalField[i]];
+                if (Double.isNaN(x)) {
+                    return Double.NaN;
+                }
+                if (x == m_categoricalValue[i]) {
+                    y += m_categoricalCoefficient[i];
+                }
+            }
+            for (int i = 0; i < m_termFields.length; i++) {
+                double product = m_termCoefficient[i];
+                for (int field : m_termFields[i]) {
+                    product *= row[field];
+                }
+                y += product;
+            }
+            return y;
+        }
+    }
+}
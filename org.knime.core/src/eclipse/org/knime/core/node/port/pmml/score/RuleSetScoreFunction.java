@@ -0,0 +1,182 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.score;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.knime.core.node.InvalidSettingsException;
+import org.w3c.dom.Element;
+
+/**
+ * Compiled <code>RuleSetModel</code>. Compound rules are flattened into simple rules whose predicate is the
+ * conjunction of all enclosing predicates, so evaluation is a single pass over an array of rules.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class RuleSetScoreFunction implements ScoreFunction {
+
+    private enum Criterion {
+        FIRST_HIT, WEIGHTED_MAX, WEIGHTED_SUM
+    }
+
+    private final PredicateProgram m_predicates;
+
+    private final Criterion m_criterion;
+
+    private final int[] m_predicate;
+
+    private final double[] m_score;
+
+    private final double[] m_weight;
+
+    private final double m_defaultScore;
+
+    private final int m_categoryCount;
+
+    /**
+     * @param model the <code>RuleSetModel</code> element
+     * @param schema the model schema, must have a categorical target
+     * @throws InvalidSettingsException if the model uses unsupported features
+     */
+    RuleSetScoreFunction(final Element model, final ModelSchema schema) throws InvalidSettingsException {
+        if (schema.targetDictionary() == null) {
+            throw new InvalidSettingsException("Rule set model requires a categorical target");
+        }
+        m_predicates = new PredicateProgram(schema);
+        final Element ruleSet = PMMLDom.requireChild(model, "RuleSet");
+        final Element selection = PMMLDom.requireChild(ruleSet, "RuleSelectionMethod");
+        final String criterion = PMMLDom.requireAttribute(selection, "criterion");
+        switch (criterion) {
+            case "firstHit":
+                m_criterion = Criterion.FIRST_HIT;
+                break;
+            case "weightedMax":
+                m_criterion = Criterion.WEIGHTED_MAX;
+                break;
+            case "weightedSum":
+                m_criterion = Criterion.WEIGHTED_SUM;
+                break;
+            default:
+                throw new InvalidSettingsException("Unsupported rule selection criterion \"" + criterion + "\"");
+        }
+        // {predicate handle, score, weight} per simple rule
+        final List<double[]> rules = new ArrayList<>();
+        flatten(ruleSet, -1, schema, rules);
+        m_predicate = new int[rules.size()];
+        m_score = new double[rules.size()];
+        m_weight = new double[rules.size()];
+        for (int i = 0; i < m_predicate.length; i++) {
+            m_predicate[i] = (int)rules.get(i)[0];
+            m_score[i] = rules.get(i)[1];
+            m_weight[i] = rules.get(i)[2];
+        }
+        m_defaultScore = ruleSet.hasAttribute("defaultScore")
+            ? schema.encodeScore(ruleSet.getAttribute("defaultScore")) : Double.NaN;
+        m_categoryCount = schema.targetDictionary().size();
+    }
+
+    private void flatten(final Element parent, final int parentPredicate, final ModelSchema schema,
+        final List<double[]> rules) throws InvalidSettingsException {
+        for (Element rule : PMMLDom.children(parent)) {
+            final String name = PMMLDom.name(rule);
+            if (!"SimpleRule".equals(name) && !"CompoundRule".equals(name)) {
+                continue;
+            }
+            int predicate = m_predicates.compileChildPredicate(rule);
+            if (parentPredicate >= 0) {
+                predicate = m_predicates.and(parentPredicate, predicate);
+            }
+            if ("CompoundRule".equals(name)) {
+                flatten(rule, predicate, schema, rules);
+            } else {
+                rules.add(new double[]{predicate, schema.encodeScore(PMMLDom.requireAttribute(rule, "score")),
+                    PMMLDom.doubleAttribute(rule, "weight", 1)});
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double score(final double[] row) {
+        switch (m_criterion) {
+            case FIRST_HIT:
+                for (int i = 0; i < m_predicate.length; i++) {
+                    if (m_predicates.evaluate(m_predicate[i], row) == PredicateProgram.TRUE) {
+                        return m_score[i];
+                    }
+                }
+                return m_defaultScore;
+            case WEIGHTED_MAX:
+                int best = -1;
+                for (int i = 0; i < m_predicate.length; i++) {
+                    if ((best < 0 || m_weight[i] > m_weight[best])
+                        && m_predicates.evaluate(m_predicate[i], row) == PredicateProgram.TRUE) {
+                        best = i;
+                    }
+                }
+                return best < 0 ? m_defaultScore : m_score[best];
+            default:
+                final double[] sums = new double[m_categoryCount];
+                boolean fired = false;
+                for (int i = 0; i < m_predicate.length; i++) {
+                    if (m_predicates.evaluate(m_predicate[i], row) == PredicateProgram.TRUE) {
+                        sums[(int)m_score[i]] += m_weight[i];
+                        fired = true;
+                    }
+                }
+                if (!fired) {
+                    return m_defaultScore;
+                }
+                int winner = 0;
+                for (int c = 1; c < sums.length; c++) {
+                    if (sums[c] > sums[winner]) {
+                        winner = c;
+                    }
+                }
+                return winner;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.score;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.knime.core.node.InvalidSettingsException;
+import org.w3c.dom.Element;
+
+/**
+ * Compiled <code>TreeModel</code>. The node hierarchy is flattened into arrays in pre-order; the children of a node
+ * are stored consecutively in a shared child table.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class TreeScoreFunction implements ScoreFunction {
+
+    private enum MissingValueStrategy {
+        NONE, LAST_PREDICTION, NULL_PREDICTION, DEFAULT_CHILD
+    }
+
+    private final PredicateProgram m_predicates;
+
+    private final MissingValueStrategy m_missingValueStrategy;
+
+    private final boolean m_nullPredictionIfNoTrueChild;
+
+    private final int[] m_predicate;
+
+    private final double[] m_score;
+
+    private final int[] m_childStart;
+
+    private final int[] m_childCount;
+
+    private final int[] m_defaultChild;
+
+    private final int[] m_children;
+
+    /**
+     * @param model the <code>TreeModel</code> element
+     * @param schema the model schema
+     * @throws InvalidSettingsException if the model uses unsupported features
+     */
+    TreeScoreFunction(final Element model, final ModelSchema schema) throws InvalidSettingsException {
+        m_predicates = new PredicateProgram(schema);
+        final String strategy = PMMLDom.attribute(model, "missingValueStrategy", "none");
+        switch (strategy) {
+            case "none":
+                m_missingValueStrategy = MissingValueStrategy.NONE;
+                break;
+            case "lastPrediction":
+                m_missingValueStrategy = MissingValueStrategy.LAST_PREDICTION;
+                break;
+            case "nullPrediction":
+                m_missingValueStrategy = MissingValueStrategy.NULL_PREDICTION;
+                break;
+            case "defaultChild":
+                m_missingValueStrategy = MissingValueStrategy.DEFAULT_CHILD;
+                break;
+            default:
+                throw new InvalidSettingsException("Unsupported missing value strategy \"" + strategy + "\"");
+        }
+        m_nullPredictionIfNoTrueChild =
+            "returnNullPrediction".equals(PMMLDom.attribute(model, "noTrueChildStrategy", "returnNullPrediction"));
+
+        final List<Element> nodes = new ArrayList<>();
+        collect(PMMLDom.requireChild(model, "Node"), nodes);
+        final int n = nodes.size();
+        final Map<Element, Integer> indices = new IdentityHashMap<>(2 * n);
+        for (int i = 0; i < n; i++) {
+            indices.put(nodes.get(i), i);
+        }
+        m_predicate = new int[n];
+        m_score = new double[n];
+        m_childStart = new int[n];
+        m_childCount = new int[n];
+        m_defaultChild = new int[n];
+        Arrays.fill(m_defaultChild, -1);
+        final List<Integer> children = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            final Element node = nodes.get(i);
+            m_predicate[i] = m_predicates.compileChildPredicate(node);
+            m_score[i] = readScore(node, schema);
+            m_childStart[i] = children.size();
+            final String defaultChild = PMMLDom.attribute(node, "defaultChild", null);
+            for (Element child : PMMLDom.children(node, "Node")) {
+                final int index = indices.get(child);
+                if (defaultChild != null && defaultChild.equals(child.getAttribute("id"))) {
+                    m_defaultChild[i] = index;
+                }
+                children.add(index);
+            }
+            m_childCount[i] = children.size() - m_childStart[i];
+        }
+        m_children = children.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static void collect(final Element node, final List<Element> nodes) {
+        nodes.add(node);
+        for (Element child : PMMLDom.children(node, "Node")) {
+            collect(child, nodes);
+        }
+    }
+
+    /** The node's score attribute or, if absent, the score distribution entry with the highest record count. */
+    private static double readScore(final Element node, final ModelSchema schema) throws InvalidSettingsException {
+        if (node.hasAttribute("score")) {
+            return schema.encodeScore(node.getAttribute("score"));
+        }
+        String best = null;
+        double bestCount = Double.NEGATIVE_INFINITY;
+        for (Element d : PMMLDom.children(node, "ScoreDistribution")) {
+            final double count = PMMLDom.doubleAttribute(d, "recordCount", 0);
+            if (count > bestCount) {
+                bestCount = count;
+                best = PMMLDom.requireAttribute(d, "value");
+            }
+        }
+        return best == null ? Double.NaN : schema.encodeScore(best);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double score(final double[] row) {
+        int node = 0;
+        if (m_predicates.evaluate(m_predicate[node], row) != PredicateProgram.TRUE) {
+            return Double.NaN;
+        }
+        double last = m_score[node];
+        while (m_childCount[node] > 0) {
+            int next = -1;
+            boolean unknown = false;
+            for (int i = m_childStart[node], end = i + m_childCount[node]; i < end; i++) {
+                final int r = m_predicates.evaluate(m_predicate[m_children[i]], row);
+                if (r == PredicateProgram.TRUE) {
+                    next = m_children[i];
+                    break;
+                } else if (r == PredicateProgram.UNKNOWN && m_missingValueStrategy != MissingValueStrategy.NONE) {
+                    unknown = true;
+                    break;
+                }
+            }
+            if (next < 0) {
+                if (unknown) {
+                    switch (m_missingValueStrategy) {
+                        case NULL_PREDICTION:
+                            return Double.NaN;
+                        case DEFAULT_CHILD:
+                            next = m_defaultChild[node];
+                            if (next < 0) {
+                                return last;
+                            }
+                            break;
+                        default:
+                            return last;
+                    }
+                } else {
+                    return m_nullPredictionIfNoTrueChild ? Double.NaN : last;
+                }
+            }
+            node = next;
+            if (!Double.isNaN(m_score[node])) {
+                last = m_score[node];
+            }
+        }
+        return m_score[node];
+    }
+}
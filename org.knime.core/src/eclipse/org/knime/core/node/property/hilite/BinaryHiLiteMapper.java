@@ -0,0 +1,447 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.property.hilite;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.knime.core.data.RowKey;
+
+/**
+ * A {@link HiLiteMapper} backed by a memory-mapped file in a compact binary format, as alternative to saving a
+ * {@link DefaultHiLiteMapper} to a config. Opening the file doesn't read the mapping into memory; keys are decoded on
+ * demand when the mapping is accessed.
+ * <p>
+ * The file contains a dictionary of all distinct keys (UTF-8 encoded, addressed by an offset array), a hash table
+ * over the dictionary, and the mapping as well as its inverse as offset arrays of dictionary indices. Use
+ * {@link #write(HiLiteMapper, File)} to create the file and {@link #read(File)} to open it.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 4.2
+ */
+public final class BinaryHiLiteMapper implements HiLiteMapper, InvertibleHiLiteMapper {
+
+    /** "KHLM". */
+    private static final int MAGIC = 0x4B484C4D;
+
+    private static final int VERSION = 1;
+
+    /** Number of ints in the header. */
+    private static final int HEADER_INTS = 7;
+
+    private final ByteBuffer m_buffer;
+
+    private final int m_sourceCount;
+
+    private final int m_tableMask;
+
+    /* positions of the sections in the buffer */
+    private final int m_stringOffsetsPos;
+
+    private final int m_tablePos;
+
+    private final int m_sourceIndexPos;
+
+    private final int m_sourceIdsPos;
+
+    private final int m_memberOffsetsPos;
+
+    private final int m_membersPos;
+
+    private final int m_inverseOffsetsPos;
+
+    private final int m_inversePos;
+
+    private final int m_stringsPos;
+
+    private BinaryHiLiteMapper(final ByteBuffer buffer) throws IOException {
+        m_buffer = buffer;
+        if (buffer.limit() < 4 * HEADER_INTS || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a hilite mapping file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported hilite mapping file version " + buffer.getInt(4));
+        }
+        final int stringCount = buffer.getInt(8);
+        m_sourceCount = buffer.getInt(12);
+        final int memberCount = buffer.getInt(16);
+        final int tableSize = buffer.getInt(20);
+        final int stringBytes = buffer.getInt(24);
+        m_tableMask = tableSize - 1;
+        m_stringOffsetsPos = 4 * HEADER_INTS;
+        m_tablePos = m_stringOffsetsPos + 4 * (stringCount + 1);
+        m_sourceIndexPos = m_tablePos + 4 * tableSize;
+        m_sourceIdsPos = m_sourceIndexPos + 4 * stringCount;
+        m_memberOffsetsPos = m_sourceIdsPos + 4 * m_sourceCount;
+        m_membersPos = m_memberOffsetsPos + 4 * (m_sourceCount + 1);
+        m_inverseOffsetsPos = m_membersPos + 4 * memberCount;
+        m_inversePos = m_inverseOffsetsPos + 4 * (stringCount + 1);
+        m_stringsPos = m_inversePos + 4 * memberCount;
+        if (Integer.bitCount(tableSize) != 1 || (long)m_stringsPos + stringBytes != buffer.limit()) {
+            throw new IOException("Corrupt hilite mapping file");
+        }
+    }
+
+    /**
+     * Opens a file written by {@link #write(HiLiteMapper, File)}. The file is mapped into memory and must not be
+     * modified while the returned mapper is in use.
+     *
+     * @param file the file to read
+     * @return a mapper reading from the file
+     * @throws IOException if the file can't be read or has the wrong format
+     */
+    public static BinaryHiLiteMapper read(final File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Hilite mapping file too large: " + file.getAbsolutePath());
+            }
+            // the mapping stays valid after the channel is closed
+            return new BinaryHiLiteMapper(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the mapping of the given mapper to a file.
+     *
+     * @param mapper the mapper to write
+     * @param file the file to write to, overwritten if it exists
+     * @throws IOException if the file can't be written or the mapping is too large (more than 2GB)
+     */
+    public static void write(final HiLiteMapper mapper, final File file) throws IOException {
+        // dictionary of all keys
+        final Map<String, Integer> ids = new HashMap<>();
+        final List<String> strings = new ArrayList<>();
+        final Set<RowKey> sources = mapper.keySet();
+        final int sourceCount = sources.size();
+        final int[] sourceIds = new int[sourceCount];
+        final int[] memberOffsets = new int[sourceCount + 1];
+        int[] members = new int[Math.max(16, sourceCount)];
+        int memberCount = 0;
+        int s = 0;
+        for (RowKey source : sources) {
+            sourceIds[s] = id(source, ids, strings);
+            final Set<RowKey> mapped = mapper.getKeys(source);
+            if (mapped != null) {
+                for (RowKey m : mapped) {
+                    if (memberCount == members.length) {
+                        members = Arrays.copyOf(members, 2 * memberCount);
+                    }
+                    members[memberCount++] = id(m, ids, strings);
+                }
+            }
+            memberOffsets[++s] = memberCount;
+        }
+        final int stringCount = strings.size();
+
+        final byte[][] encoded = new byte[stringCount][];
+        final int[] stringOffsets = new int[stringCount + 1];
+        long stringBytes = 0;
+        for (int i = 0; i < stringCount; i++) {
+            encoded[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+            stringBytes += encoded[i].length;
+            if (stringBytes > Integer.MAX_VALUE) {
+                throw new IOException("Hilite mapping too large");
+            }
+            stringOffsets[i + 1] = (int)stringBytes;
+        }
+
+        final int tableSize = Integer.highestOneBit(Math.max(1, 2 * stringCount - 1)) << 1;
+        final int[] table = new int[tableSize];
+        for (int i = 0; i < stringCount; i++) {
+            int slot = hash(strings.get(i)) & (tableSize - 1);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            table[slot] = i + 1;
+        }
+
+        final int[] sourceIndex = new int[stringCount];
+        Arrays.fill(sourceIndex, -1);
+        for (int i = 0; i < sourceCount; i++) {
+            sourceIndex[sourceIds[i]] = i;
+        }
+
+        // inverse mapping: for each key the sources mapping to it
+        final int[] inverseOffsets = new int[stringCount + 1];
+        for (int i = 0; i < memberCount; i++) {
+            inverseOffsets[members[i] + 1]++;
+        }
+        for (int i = 0; i < stringCount; i++) {
+            inverseOffsets[i + 1] += inverseOffsets[i];
+        }
+        final int[] inverse = new int[memberCount];
+        final int[] fill = Arrays.copyOf(inverseOffsets, stringCount);
+        for (int i = 0; i < sourceCount; i++) {
+            for (int j = memberOffsets[i]; j < memberOffsets[i + 1]; j++) {
+                inverse[fill[members[j]]++] = i;
+            }
+        }
+
+        final long totalSize = 4L * (HEADER_INTS + (stringCount + 1) + tableSize + stringCount + sourceCount
+            + (sourceCount + 1) + memberCount + (stringCount + 1) + memberCount) + stringBytes;
+        if (totalSize > Integer.MAX_VALUE) {
+            throw new IOException("Hilite mapping too large");
+        }
+        try (DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(stringCount);
+            out.writeInt(sourceCount);
+            out.writeInt(memberCount);
+            out.writeInt(tableSize);
+            out.writeInt((int)stringBytes);
+            writeInts(out, stringOffsets, stringOffsets.length);
+            writeInts(out, table, tableSize);
+            writeInts(out, sourceIndex, stringCount);
+            writeInts(out, sourceIds, sourceCount);
+            writeInts(out, memberOffsets, sourceCount + 1);
+            writeInts(out, members, memberCount);
+            writeInts(out, inverseOffsets, stringCount + 1);
+            writeInts(out, inverse, memberCount);
+            for (byte[] b : encoded) {
+                out.write(b);
+            }
+        }
+    }
+
+    private static int id(final RowKey key, final Map<String, Integer> ids, final List<String> strings) {
+        final String s = key.getString();
+        Integer id = ids.get(s);
+        if (id == null) {
+            id = strings.size();
+            ids.put(s, id);
+            strings.add(s);
+        }
+        return id;
+    }
+
+    private static void writeInts(final DataOutputStream out, final int[] values, final int length)
+        throws IOException {
+        for (int i = 0; i < length; i++) {
+            out.writeInt(values[i]);
+        }
+    }
+
+    private static int hash(final String s) {
+        final int h = s.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private int getInt(final int sectionPos, final int index) {
+        return m_buffer.getInt(sectionPos + 4 * index);
+    }
+
+    /* Returns the dictionary index of the key or -1 if it's not in the file. */
+    private int find(final RowKey key) {
+        final String s = key.getString();
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        int slot = hash(s) & m_tableMask;
+        while (true) {
+            final int entry = getInt(m_tablePos, slot);
+            if (entry == 0) {
+                return -1;
+            }
+            if (equalsString(entry - 1, bytes)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & m_tableMask;
+        }
+    }
+
+    private boolean equalsString(final int id, final byte[] bytes) {
+        final int start = getInt(m_stringOffsetsPos, id);
+        final int end = getInt(m_stringOffsetsPos, id + 1);
+        if (end - start != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (m_buffer.get(m_stringsPos + start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private RowKey key(final int id) {
+        final int start = getInt(m_stringOffsetsPos, id);
+        final int end = getInt(m_stringOffsetsPos, id + 1);
+        final byte[] bytes = new byte[end - start];
+        // absolute bulk get on a duplicate, the buffer is shared between threads
+        final ByteBuffer b = m_buffer.duplicate();
+        b.position(m_stringsPos + start);
+        b.get(bytes);
+        return new RowKey(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<RowKey> getKeys(final RowKey key) {
+        final int id = find(key);
+        if (id < 0) {
+            return null;
+        }
+        final int source = getInt(m_sourceIndexPos, id);
+        return source < 0 ? null : new IdSet(m_membersPos, getInt(m_memberOffsetsPos, source),
+            getInt(m_memberOffsetsPos, source + 1));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<RowKey> keySet() {
+        return new IdSet(m_sourceIdsPos, 0, m_sourceCount);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<RowKey> getSourceKeys(final RowKey mappedKey) {
+        final int id = find(mappedKey);
+        if (id < 0) {
+            return Collections.emptyList();
+        }
+        final int start = getInt(m_inverseOffsetsPos, id);
+        final int end = getInt(m_inverseOffsetsPos, id + 1);
+        return new AbstractList<RowKey>() {
+            @Override
+            public RowKey get(final int index) {
+                if (index < 0 || index >= end - start) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", size: " + (end - start));
+                }
+                return key(getInt(m_sourceIdsPos, getInt(m_inversePos, start + index)));
+            }
+
+            @Override
+            public int size() {
+                return end - start;
+            }
+        };
+    }
+
+    /** Unmodifiable set of the keys whose dictionary indices are stored in a range of a section. */
+    private final class IdSet extends AbstractSet<RowKey> {
+
+        private final int m_sectionPos;
+
+        private final int m_start;
+
+        private final int m_end;
+
+        IdSet(final int sectionPos, final int start, final int end) {
+            m_sectionPos = sectionPos;
+            m_start = start;
+            m_end = end;
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            if (!(o instanceof RowKey)) {
+                return false;
+            }
+            final int id = find((RowKey)o);
+            if (id < 0) {
+                return false;
+            }
+            if (m_sectionPos == m_sourceIdsPos) {
+                return getInt(m_sourceIndexPos, id) >= 0;
+            }
+            for (int i = m_start; i < m_end; i++) {
+                if (getInt(m_sectionPos, i) == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Iterator<RowKey> iterator() {
+            return new Iterator<RowKey>() {
+                private int m_next = m_start;
+
+                @Override
+                public boolean hasNext() {
+                    return m_next < m_end;
+                }
+
+                @Override
+                public RowKey next() {
+                    if (m_next >= m_end) {
+                        throw new NoSuchElementException();
+                    }
+                    return key(getInt(m_sectionPos, m_next++));
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return m_end - m_start;
+        }
+    }
+}
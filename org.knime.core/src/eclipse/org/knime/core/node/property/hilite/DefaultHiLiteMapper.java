@@ -48,9 +48,12 @@
  */
 package org.knime.core.node.property.hilite;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
@@ -68,11 +71,14 @@
  *
  * @author Thomas Gabriel, University of Konstanz
  */
-public class DefaultHiLiteMapper implements HiLiteMapper {
+public class DefaultHiLiteMapper implements HiLiteMapper, InvertibleHiLiteMapper {
 
     /** Keep the mapping. */
     private final Map<RowKey, Set<RowKey>> m_map;
 
+    /** Inverse of the mapping, created on first access. */
+    private Map<RowKey, List<RowKey>> m_inverseMap;
+
     /**
      * Creates a new default hilite mapper.
      *
@@ -103,6 +109,47 @@ public Set<RowKey> keySet() {
         return Collections.unmodifiableSet(m_map.keySet());
     }
 
+    /**
+     * Returns the keys whose set of mapped keys contains the given key, i.e.
+     * the inverse of {@link #getKeys(RowKey)}. The inverse mapping is created
+     * on the first call, the mapping must not be modified afterwards.
+     *
+     * @param mappedKey a key contained in a set of mapped keys
+     * @return an unmodifiable list of the keys mapping to the given key, empty
+     *         if there are none
+     * @since 4.2
+     */
+    @Override
+    public synchronized List<RowKey> getSourceKeys(final RowKey mappedKey) {
+        if (m_inverseMap == null) {
+            final Map<RowKey, List<RowKey>> inverse = new HashMap<RowKey, List<RowKey>>();
+            for (Map.Entry<RowKey, Set<RowKey>> e : m_map.entrySet()) {
+                if (e.getValue() == null) {
+                    continue;
+                }
+                for (RowKey mapped : e.getValue()) {
+                    final List<RowKey> sources = inverse.get(mapped);
+                    if (sources == null) {
+                        // most keys are mapped from exactly one key
+                        inverse.put(mapped, Collections.singletonList(e.getKey()));
+                    } else {
+                        final List<RowKey> newSources;
+                        if (sources.size() == 1) {
+                            newSources = new ArrayList<RowKey>(sources);
+                            inverse.put(mapped, newSources);
+                        } else {
+                            newSources = sources;
+                        }
+                        newSources.add(e.getKey());
+                    }
+                }
+            }
+            m_inverseMap = inverse;
+        }
+        final List<RowKey> sources = m_inverseMap.get(mappedKey);
+        return sources == null ? Collections.<RowKey> emptyList() : Collections.unmodifiableList(sources);
+    }
+
 
     private static final String CFG_MAPPED_KEYS = "CFG_MAPPED_KEYS";
 
@@ -110,6 +157,8 @@ public Set<RowKey> keySet() {
      * Saves the settings in this mapper to a config object. Note that it writes
      * directly to the passed root node of the config tree. It's good practice
      * to open an local config object on which this method is invoked.
+     * For large mappings consider writing a {@link BinaryHiLiteMapper}
+     * file instead, which doesn't need to be read into memory when loaded.
      * @param config The config to write to.
      */
     public void save(final ConfigWO config) {
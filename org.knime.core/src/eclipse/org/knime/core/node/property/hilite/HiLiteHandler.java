@@ -49,6 +49,8 @@
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.knime.core.data.RowKey;
 import org.knime.core.node.NodeLogger;
@@ -59,7 +61,10 @@
  * requests, answers, queries, and notifies registered listeners.
  * <p>
  * This implementation keeps a list of row keys only for the hilit items.
- * Furthermore, an event is only sent for items whose status actually changed.
+ * Keys of the form <code>"Row" + rowIndex</code> are kept as bits in a bitmap,
+ * all other keys in a set. Furthermore, an event is only sent for items whose
+ * status actually changed; the cost of an event only depends on the number of
+ * keys in it, not on the number of hilit keys.
  * The list of hilite keys is modified (delete or add keys) before the actual
  * event is send.
  * <p>
@@ -101,8 +106,11 @@ public class HiLiteHandler {
     /** List of registered <code>HiLiteListener</code>s to fire event to. */
     private final CopyOnWriteArrayList<HiLiteListener> m_listenerList;
 
-    /** Set of non-<code>null</code> hilit items. */
-    private Set<RowKey> m_hiLitKeys;
+    /** Set of non-<code>null</code> hilit items, only modified in the synchronized fire methods. */
+    private final HiLiteKeySet m_hiLitKeys;
+
+    /** Guards m_hiLitKeys against reads while it's modified. */
+    private final ReadWriteLock m_hiLitKeysLock = new ReentrantReadWriteLock();
 
     /** Not-null if this {@link HiLiteHandler} is associated with one or more {@link HiLiteTranslator}s */
     private Set<HiLiteTranslator> m_hiliteTranslators;
@@ -118,7 +126,7 @@ public HiLiteHandler() {
         m_hiliteHandlerID = UUID.randomUUID();
         m_listenerList = new CopyOnWriteArrayList<>();
         // initialize item list
-        m_hiLitKeys = new LinkedHashSet<>();
+        m_hiLitKeys = new HiLiteKeySet();
         m_hiliteTranslators = new LinkedHashSet<>();
         m_hiliteManagers = new LinkedHashSet<>();
     }
@@ -247,14 +255,19 @@ public boolean isHiLit(final RowKey... ids) {
         if (ids == null) {
             throw new IllegalArgumentException("Key array must not be null.");
         }
-        for (final RowKey c : ids) {
-            if (c == null) {
-                throw new IllegalArgumentException(
-                        "Key array must not contain null elements.");
-            }
-            if (!m_hiLitKeys.contains(c)) {
-                return false;
+        m_hiLitKeysLock.readLock().lock();
+        try {
+            for (final RowKey c : ids) {
+                if (c == null) {
+                    throw new IllegalArgumentException(
+                            "Key array must not contain null elements.");
+                }
+                if (!m_hiLitKeys.contains(c)) {
+                    return false;
+                }
             }
+        } finally {
+            m_hiLitKeysLock.readLock().unlock();
         }
         return true;
     }
@@ -352,8 +365,6 @@ public synchronized void fireHiLiteEvent(final KeyEvent event) {
             throw new NullPointerException("KeyEvent must not be null");
         }
 
-        Set<RowKey> newHilitKeys = new LinkedHashSet<RowKey>(m_hiLitKeys);
-
         /*
          * Do not change this implementation, unless you are aware of the
          * following problem:
@@ -371,25 +382,30 @@ public synchronized void fireHiLiteEvent(final KeyEvent event) {
         if (ids.isEmpty()) {
             return;
         }
+        checkNoNullKeys(ids);
         // create list of row keys from input key array
         final Set<RowKey> changedIDs = new LinkedHashSet<RowKey>();
-        // iterates over all keys and adds them to the changed set
-        for (final RowKey id : ids) {
-            if (id == null) {
-                throw new IllegalArgumentException(
-                        "Key array must not contains null elements.");
-            }
-            // if the key is already hilit, do not add it
-            if (newHilitKeys.add(id)) {
-                changedIDs.add(id);
+        m_hiLitKeysLock.writeLock().lock();
+        try {
+            // iterates over all keys and adds them to the changed set
+            for (final RowKey id : ids) {
+                // if the key is already hilit, do not add it
+                if (m_hiLitKeys.add(id)) {
+                    changedIDs.add(id);
+                }
             }
+        } finally {
+            m_hiLitKeysLock.writeLock().unlock();
         }
+        notifyHiLite(event.getSource(), changedIDs);
+    }
 
+    /** Sends a hilite event for the changed keys to all listeners (if not empty). */
+    private void notifyHiLite(final Object source, final Set<RowKey> changedIDs) {
         // if at least on key changed
         if (!changedIDs.isEmpty()) {
-            m_hiLitKeys = newHilitKeys;
             final KeyEvent fireEvent =
-                new KeyEvent(event.getSource(), changedIDs);
+                new KeyEvent(source, changedIDs);
             final Runnable r = new Runnable() {
                 @Override
                 public void run() {
@@ -439,27 +455,31 @@ public synchronized void fireUnHiLiteEvent(final KeyEvent event) {
         if (ids.isEmpty()) {
             return;
         }
-
-        Set<RowKey> newHilitKeys = new LinkedHashSet<RowKey>(m_hiLitKeys);
+        checkNoNullKeys(ids);
 
         // create list of row keys from input key array
         final Set<RowKey> changedIDs = new LinkedHashSet<RowKey>();
-        // iterate over all keys and removes all not hilit ones
-        for (final RowKey id : ids) {
-            if (id == null) {
-                throw new IllegalArgumentException(
-                        "Key array must not contains null elements.");
-            }
-            if (newHilitKeys.remove(id)) {
-                changedIDs.add(id);
+        m_hiLitKeysLock.writeLock().lock();
+        try {
+            // iterate over all keys and removes all not hilit ones
+            for (final RowKey id : ids) {
+                if (m_hiLitKeys.remove(id)) {
+                    changedIDs.add(id);
+                }
             }
+        } finally {
+            m_hiLitKeysLock.writeLock().unlock();
         }
+        notifyUnHiLite(event.getSource(), changedIDs);
+    }
+
+    /** Sends an unhilite event for the changed keys to all listeners (if not empty). */
+    private void notifyUnHiLite(final Object source, final Set<RowKey> changedIDs) {
         // if at least on key changed
         if (!changedIDs.isEmpty()) {
-            m_hiLitKeys = newHilitKeys;
             // throw unhilite event
             final KeyEvent fireEvent = new KeyEvent(
-                    event.getSource(), changedIDs);
+                    source, changedIDs);
             final Runnable r = new Runnable() {
                 @Override
                 public void run() {
@@ -501,7 +521,12 @@ public synchronized void fireClearHiLiteEvent(final KeyEvent event) {
          * more details.
          */
         if (!m_hiLitKeys.isEmpty()) {
-            m_hiLitKeys = new LinkedHashSet<RowKey>();
+            m_hiLitKeysLock.writeLock().lock();
+            try {
+                m_hiLitKeys.clear();
+            } finally {
+                m_hiLitKeysLock.writeLock().unlock();
+            }
             final Runnable r = new Runnable() {
                 @Override
                 public void run() {
@@ -526,6 +551,60 @@ public void run() {
      * @see HiLiteHandler#getHiLitKeys()
      */
     public Set<RowKey> getHiLitKeys() {
-        return new LinkedHashSet<RowKey>(m_hiLitKeys);
+        m_hiLitKeysLock.readLock().lock();
+        try {
+            return new LinkedHashSet<RowKey>(m_hiLitKeys);
+        } finally {
+            m_hiLitKeysLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Hilites or unhilites the keys the given keys are mapped to and sends a
+     * single event with the keys whose status changed. Used by the
+     * {@link HiLiteTranslator} to forward events without collecting all
+     * mapped keys first.
+     *
+     * @param source the source of the event
+     * @param keys the keys to map
+     * @param mapper the mapping
+     * @param hilite <code>true</code> to hilite, <code>false</code> to
+     *            unhilite the mapped keys
+     */
+    synchronized void fireMappedEvent(final Object source,
+            final Set<RowKey> keys, final HiLiteMapper mapper,
+            final boolean hilite) {
+        final Set<RowKey> changedIDs = new LinkedHashSet<RowKey>();
+        m_hiLitKeysLock.writeLock().lock();
+        try {
+            for (final RowKey key : keys) {
+                final Set<RowKey> mapped = mapper.getKeys(key);
+                if (mapped == null) {
+                    continue;
+                }
+                for (final RowKey id : mapped) {
+                    if (hilite ? m_hiLitKeys.add(id) : m_hiLitKeys.remove(id)) {
+                        changedIDs.add(id);
+                    }
+                }
+            }
+        } finally {
+            m_hiLitKeysLock.writeLock().unlock();
+        }
+        if (hilite) {
+            notifyHiLite(source, changedIDs);
+        } else {
+            notifyUnHiLite(source, changedIDs);
+        }
+    }
+
+    private static void checkNoNullKeys(final Set<RowKey> ids) {
+        // a KeyEvent doesn't accept null, but the set may be modified later
+        for (final RowKey id : ids) {
+            if (id == null) {
+                throw new IllegalArgumentException(
+                        "Key array must not contains null elements.");
+            }
+        }
     }
 }
@@ -0,0 +1,281 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.property.hilite;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.knime.core.data.RowKey;
+
+/**
+ * The set of hilit keys of a {@link HiLiteHandler}. Keys of the form <code>"Row" + rowIndex</code> (as created by
+ * {@link RowKey#createRowKey(long)}) are stored as bits at their row index in a paged bitmap, where only pages that
+ * contain hilit rows are allocated. All other keys are kept in a set.
+ * <p>
+ * Hiliting or unhiliting a key is in O(1) independent of the number of hilit keys. The iterator returns the keys in
+ * the bitmap ordered by their row index followed by all other keys in insertion order. The iterator does not support
+ * removal. This class is not thread-safe.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class HiLiteKeySet extends AbstractSet<RowKey> {
+
+    private static final String ROW_PREFIX = "Row";
+
+    /** Number of bits in a page is 2^PAGE_BITS. */
+    private static final int PAGE_BITS = 16;
+
+    private static final int WORDS_PER_PAGE = (1 << PAGE_BITS) >>> 6;
+
+    /** Pages of the bitmap, <code>null</code> if no key in the page is hilit. */
+    private long[][] m_pages = new long[0][];
+
+    /** Number of set bits per page, used to release empty pages. */
+    private int[] m_pageCounts = new int[0];
+
+    private int m_bitCount;
+
+    private final Set<RowKey> m_otherKeys = new LinkedHashSet<>();
+
+    /**
+     * Returns the row index encoded in the key or -1 if the key is not of the form <code>"Row" + rowIndex</code> with
+     * a canonical non-negative int index.
+     *
+     * @param key the key
+     * @return the row index or -1
+     */
+    static int rowIndex(final RowKey key) {
+        final String s = key.getString();
+        final int length = s.length();
+        // "Row" followed by 1 to 10 digits
+        if (length <= ROW_PREFIX.length() || length > ROW_PREFIX.length() + 10 || !s.startsWith(ROW_PREFIX)) {
+            return -1;
+        }
+        final int first = ROW_PREFIX.length();
+        if (s.charAt(first) == '0' && length > first + 1) {
+            // leading zeros - not created by RowKey#createRowKey
+            return -1;
+        }
+        long index = 0;
+        for (int i = first; i < length; i++) {
+            final char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            index = 10 * index + (c - '0');
+        }
+        return index <= Integer.MAX_VALUE ? (int)index : -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(final Object o) {
+        if (!(o instanceof RowKey)) {
+            return false;
+        }
+        final RowKey key = (RowKey)o;
+        final int index = rowIndex(key);
+        if (index < 0) {
+            return m_otherKeys.contains(key);
+        }
+        final int page = index >>> PAGE_BITS;
+        if (page >= m_pages.length || m_pages[page] == null) {
+            return false;
+        }
+        return (m_pages[page][(index & ((1 << PAGE_BITS) - 1)) >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean add(final RowKey key) {
+        final int index = rowIndex(key);
+        if (index < 0) {
+            return m_otherKeys.add(key);
+        }
+        final int page = index >>> PAGE_BITS;
+        if (page >= m_pages.length) {
+            final int newLength = Math.max(page + 1, 2 * m_pages.length);
+            m_pages = Arrays.copyOf(m_pages, newLength);
+            m_pageCounts = Arrays.copyOf(m_pageCounts, newLength);
+        }
+        long[] words = m_pages[page];
+        if (words == null) {
+            words = new long[WORDS_PER_PAGE];
+            m_pages[page] = words;
+        }
+        final int word = (index & ((1 << PAGE_BITS) - 1)) >>> 6;
+        final long mask = 1L << index;
+        if ((words[word] & mask) != 0) {
+            return false;
+        }
+        words[word] |= mask;
+        m_pageCounts[page]++;
+        m_bitCount++;
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove(final Object o) {
+        if (!(o instanceof RowKey)) {
+            return false;
+        }
+        final RowKey key = (RowKey)o;
+        final int index = rowIndex(key);
+        if (index < 0) {
+            return m_otherKeys.remove(key);
+        }
+        final int page = index >>> PAGE_BITS;
+        if (page >= m_pages.length || m_pages[page] == null) {
+            return false;
+        }
+        final long[] words = m_pages[page];
+        final int word = (index & ((1 << PAGE_BITS) - 1)) >>> 6;
+        final long mask = 1L << index;
+        if ((words[word] & mask) == 0) {
+            return false;
+        }
+        words[word] &= ~mask;
+        m_bitCount--;
+        if (--m_pageCounts[page] == 0) {
+            m_pages[page] = null;
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        m_pages = new long[0][];
+        m_pageCounts = new int[0];
+        m_bitCount = 0;
+        m_otherKeys.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return m_bitCount + m_otherKeys.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty() {
+        return m_bitCount == 0 && m_otherKeys.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<RowKey> iterator() {
+        return new Iterator<RowKey>() {
+            private int m_nextIndex = nextSetBit(0);
+
+            private final Iterator<RowKey> m_otherIterator = m_otherKeys.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return m_nextIndex >= 0 || m_otherIterator.hasNext();
+            }
+
+            @Override
+            public RowKey next() {
+                if (m_nextIndex >= 0) {
+                    final RowKey key = RowKey.createRowKey((long)m_nextIndex);
+                    m_nextIndex = m_nextIndex == Integer.MAX_VALUE ? -1 : nextSetBit(m_nextIndex + 1);
+                    return key;
+                }
+                if (m_otherIterator.hasNext()) {
+                    return m_otherIterator.next();
+                }
+                throw new NoSuchElementException();
+            }
+        };
+    }
+
+    /* Returns the first row index >= from that is in the bitmap, or -1. */
+    private int nextSetBit(final int from) {
+        int page = from >>> PAGE_BITS;
+        int word = (from & ((1 << PAGE_BITS) - 1)) >>> 6;
+        long bits = page < m_pages.length && m_pages[page] != null ? m_pages[page][word] & (-1L << from) : 0L;
+        while (true) {
+            if (bits != 0) {
+                return (page << PAGE_BITS) + (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (page >= m_pages.length) {
+                return -1;
+            }
+            if (m_pages[page] == null || ++word == WORDS_PER_PAGE) {
+                page++;
+                word = 0;
+                // skip unallocated pages
+                while (page < m_pages.length && m_pages[page] == null) {
+                    page++;
+                }
+                if (page >= m_pages.length) {
+                    return -1;
+                }
+            }
+            bits = m_pages[page][word];
+        }
+    }
+}
@@ -98,18 +98,11 @@ public void hiLite(final KeyEvent event) {
             if (event.getSource() == m_eventSource) {
                 return;
             }
-            if (m_mapper != null && m_targetHandlers.size() > 0) {
-                Set<RowKey> fireSet = new LinkedHashSet<RowKey>();
-                for (RowKey key : event.keys()) {
-                    Set<RowKey> s = m_mapper.getKeys(key);
-                    if (s != null && !s.isEmpty()) {
-                        fireSet.addAll(s);
-                    }
-                }
-                if (!fireSet.isEmpty()) {
-                    for (HiLiteHandler h : m_targetHandlers) {
-                        h.fireHiLiteEvent(new KeyEvent(m_eventSource, fireSet));
-                    }
+            final HiLiteMapper mapper = m_mapper;
+            if (mapper != null) {
+                // the handlers map the keys themselves and only fire the changes
+                for (HiLiteHandler h : m_targetHandlers) {
+                    h.fireMappedEvent(m_eventSource, event.keys(), mapper, true);
                 }
             }
         }
@@ -122,19 +115,10 @@ public void unHiLite(final KeyEvent event) {
             if (event.getSource() == m_eventSource) {
                 return;
             }
-            if (m_mapper != null && m_targetHandlers.size() > 0) {
-                Set<RowKey> fireSet = new LinkedHashSet<RowKey>();
-                for (RowKey key : event.keys()) {
-                    Set<RowKey> s = m_mapper.getKeys(key);
-                    if (s != null && !s.isEmpty()) {
-                        fireSet.addAll(s);
-                    }
-                }
-                if (!fireSet.isEmpty()) {
-                    for (HiLiteHandler h : m_targetHandlers) {
-                        h.fireUnHiLiteEvent(
-                            new KeyEvent(m_eventSource, fireSet));
-                    }
+            final HiLiteMapper mapper = m_mapper;
+            if (mapper != null) {
+                for (HiLiteHandler h : m_targetHandlers) {
+                    h.fireMappedEvent(m_eventSource, event.keys(), mapper, false);
                 }
             }
         }
@@ -166,23 +150,22 @@ public void hiLite(final KeyEvent event) {
             if (event.getSource() == m_eventSource) {
                 return;
             }
-            if (m_mapper != null) {
-                // add all hilite keys from the event and all hilite keys
-                // from the target hilite handlers
-                final Set<RowKey> all = new LinkedHashSet<RowKey>(
-                        event.keys());
-                for (HiLiteHandler hdl : m_targetHandlers) {
-                    all.addAll(hdl.getHiLitKeys());
-                }
-                // check overlap with all mappings
-                for (RowKey key : m_mapper.keySet()) {
-                    final Set<RowKey> keys = m_mapper.getKeys(key);
+            final HiLiteMapper mapper = m_mapper;
+            if (mapper != null) {
+                final Set<RowKey> eventKeys = event.keys();
+                final Set<RowKey> fireSet = new LinkedHashSet<RowKey>();
+                // check overlap with all (affected) mappings
+                for (RowKey key : getAffectedKeys(mapper, eventKeys)) {
+                    final Set<RowKey> keys = mapper.getKeys(key);
                     // if all mapped keys are hilite then fire event
-                    if (all.containsAll(keys)) {
-                        m_sourceHandler.fireHiLiteEvent(
-                            new KeyEvent(m_eventSource, key));
+                    if (keys != null && isHiLit(keys, eventKeys)) {
+                        fireSet.add(key);
                     }
                 }
+                if (!fireSet.isEmpty()) {
+                    m_sourceHandler.fireHiLiteEvent(
+                        new KeyEvent(m_eventSource, fireSet));
+                }
             }
         }
         /**
@@ -193,19 +176,27 @@ public void unHiLite(final KeyEvent event) {
             if (event.getSource() == m_eventSource) {
                 return;
             }
-            if (m_mapper != null) {
-                // check all mappings
-                for (RowKey key : m_mapper.keySet()) {
-                    final Set<RowKey> keys = m_mapper.getKeys(key);
+            final HiLiteMapper mapper = m_mapper;
+            if (mapper != null) {
+                final Set<RowKey> fireSet = new LinkedHashSet<RowKey>();
+                // check all (affected) mappings
+                for (RowKey key : getAffectedKeys(mapper, event.keys())) {
+                    final Set<RowKey> keys = mapper.getKeys(key);
+                    if (keys == null) {
+                        continue;
+                    }
                     // if at least one item is unhilite then fire event
                     for (RowKey hilite : event.keys()) {
                         if (keys.contains(hilite)) {
-                            m_sourceHandler.fireUnHiLiteEvent(
-                                new KeyEvent(m_eventSource, key));
+                            fireSet.add(key);
                             break;
                         }
                     }
                 }
+                if (!fireSet.isEmpty()) {
+                    m_sourceHandler.fireUnHiLiteEvent(
+                        new KeyEvent(m_eventSource, fireSet));
+                }
             }
         }
         /**
@@ -220,6 +211,47 @@ public void unHiLiteAll(final KeyEvent event) {
         }
     };
 
+    /**
+     * Returns the keys of the mapper that may be affected by an event on the
+     * given mapped keys: all keys of the mapper, or only the ones mapping to
+     * one of the keys if the mapper provides the inverse mapping.
+     */
+    private static Iterable<RowKey> getAffectedKeys(final HiLiteMapper mapper,
+            final Set<RowKey> mappedKeys) {
+        if (mapper instanceof InvertibleHiLiteMapper) {
+            final InvertibleHiLiteMapper invertible = (InvertibleHiLiteMapper)mapper;
+            final Set<RowKey> result = new LinkedHashSet<RowKey>();
+            for (RowKey mappedKey : mappedKeys) {
+                result.addAll(invertible.getSourceKeys(mappedKey));
+            }
+            return result;
+        }
+        return mapper.keySet();
+    }
+
+    /**
+     * Whether all keys are contained in the event keys or hilit in one of
+     * the target handlers.
+     */
+    private boolean isHiLit(final Set<RowKey> keys, final Set<RowKey> eventKeys) {
+        for (RowKey k : keys) {
+            if (eventKeys.contains(k)) {
+                continue;
+            }
+            boolean hilit = false;
+            for (HiLiteHandler hdl : m_targetHandlers) {
+                if (hdl.isHiLit(k)) {
+                    hilit = true;
+                    break;
+                }
+            }
+            if (!hilit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Creates a translator with an empty mapping and a default hilite
      * handler.
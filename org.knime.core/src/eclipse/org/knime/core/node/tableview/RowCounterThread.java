@@ -48,7 +48,12 @@
  */
 package org.knime.core.node.tableview;
 
-import java.util.Iterator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTable;
+import org.knime.core.data.RowIterator;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.node.property.hilite.HiLiteHandler;
+import org.knime.core.node.tableview.TableContentModel.TableContentFilter;
 
 /**
  * Low priority thread, which counts rows in a table as background process.
@@ -56,6 +61,9 @@
  * {@link org.knime.core.node.tableview.TableContentModel}, from which this
  * process has been started, that there are more rows and, thus, the table
  * can fire events and the number of rows can be shown in the gui, for instance.
+ * If a {@link RowPositionIndex} is given, the thread also records the
+ * positions of the rows of interest (according to the filter and hilite
+ * handler), which allows the model to start iterations at arbitrary rows.
  * 
  * @see TableContentModel#countRowsInBackground()
  * @author Bernd Wiswedel, University of Konstanz
@@ -67,16 +75,44 @@ final class RowCounterThread extends Thread {
     
     /** The underlying table, from which we need to count rows. */
     private final TableContentModel m_contentModel;
-    
+
+    /** The table to iterate. */
+    private final DataTable m_table;
+
+    /** Whether to report the row count to the model (false if only indexing). */
+    private final boolean m_isCountingRows;
+
+    /** The index to fill or null. */
+    private final RowPositionIndex m_index;
+
+    /** The generation of the index at construction time. */
+    private final int m_indexGeneration;
+
+    private final TableContentFilter m_filter;
+
+    private final HiLiteHandler m_hiLiteHandler;
+
     /**
      * Creates a new thread for the table as given in the argument.
      *  
      * @param contentModel The table whose rows need to be counted.
+     * @param table The table to iterate (the one displayed in the model).
+     * @param isCountingRows Whether the row count is to be reported to the model.
+     * @param index The index to fill or null.
+     * @param filter The filter of the model, used to determine the rows of interest when indexing.
+     * @param hiLiteHandler The hilite handler of the model (may be null).
      */
-    RowCounterThread(final TableContentModel contentModel) {
+    RowCounterThread(final TableContentModel contentModel, final DataTable table, final boolean isCountingRows,
+        final RowPositionIndex index, final TableContentFilter filter, final HiLiteHandler hiLiteHandler) {
         super("RowCounter for Table " + contentModel.hashCode());
         setPriority(Thread.MIN_PRIORITY);
         m_contentModel = contentModel;
+        m_table = table;
+        m_isCountingRows = isCountingRows;
+        m_index = index;
+        m_indexGeneration = index != null ? index.getGeneration() : 0;
+        m_filter = filter;
+        m_hiLiteHandler = hiLiteHandler;
     }
     
     /**
@@ -87,22 +123,40 @@ final class RowCounterThread extends Thread {
     public void run() {
         long lastNotify = System.currentTimeMillis();
         int rowCount = 0;
-        Iterator<?> it = m_contentModel.getDataTable().iterator();
-        while (it.hasNext()) {
-            if (isInterrupted()) {
-                return;
+        int rowCountOfInterest = 0;
+        boolean isIndexing = m_index != null;
+        RowIterator it = m_table.iterator();
+        try {
+            while (it.hasNext()) {
+                if (isInterrupted() || !(m_isCountingRows || isIndexing)) {
+                    return;
+                }
+                // do this before reading the next row, otherwise
+                // the flag in setRowCount may be wrong: We don't know if there
+                // are more rows to come.
+                final long now = System.currentTimeMillis();
+                if (m_isCountingRows && now - lastNotify >= NOTIFY_DELAY) {
+                    lastNotify = now;
+                    m_contentModel.setRowCount(rowCount, false);
+                }
+                DataRow row = it.next();
+                if (isIndexing) {
+                    boolean isHiLit = m_hiLiteHandler != null && m_hiLiteHandler.isHiLit(row.getKey());
+                    if (m_filter.matches(isHiLit)) {
+                        // stop indexing if index was invalidated in the meantime
+                        isIndexing = m_index.record(m_indexGeneration, rowCountOfInterest, rowCount);
+                        rowCountOfInterest++;
+                    }
+                }
+                rowCount++;
             }
-            // do this before reading the next row, otherwise
-            // the flag in setRowCount may be wrong: We don't know if there
-            // are more rows to come.
-            final long now = System.currentTimeMillis();
-            if (now - lastNotify >= NOTIFY_DELAY) {
-                lastNotify = now;
-                m_contentModel.setRowCount(rowCount, false);
+        } finally {
+            if (it instanceof CloseableRowIterator) {
+                ((CloseableRowIterator)it).close();
             }
-            it.next();
-            rowCount++;
         }
-        m_contentModel.setRowCount(rowCount, true);
+        if (m_isCountingRows) {
+            m_contentModel.setRowCount(rowCount, true);
+        }
     }
 }
@@ -0,0 +1,170 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.tableview;
+
+import java.util.Arrays;
+
+/**
+ * Sparse index that maps positions in a (filtered) table view to the row index in the underlying table. Only every
+ * {@link #getStride() stride}-th row of interest is recorded, so that the index of a table with 100M rows and a
+ * stride of 1024 requires less than a megabyte. The index is filled incrementally (and in order) while iterating
+ * the table, either by the view itself or by the {@link RowCounterThread}.
+ *
+ * <p>The index becomes invalid as soon as the set of rows of interest changes (e.g. new hilite status when the view
+ * only shows hilited rows). {@link #clear()} then drops all entries and increments the generation, which
+ * makes all {@link #record(int, int, long) records} of concurrent writers that still work on the old state fail.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class RowPositionIndex {
+
+    /** Default distance between two recorded rows. */
+    static final int DEFAULT_STRIDE = 1024;
+
+    private final int m_stride;
+
+    /** m_positions[k] is the row index in the table of row of interest k * stride. */
+    private long[] m_positions;
+
+    private int m_size;
+
+    private int m_generation;
+
+    /** Index with {@link #DEFAULT_STRIDE}. */
+    RowPositionIndex() {
+        this(DEFAULT_STRIDE);
+    }
+
+    /**
+     * @param stride distance between two recorded rows, must be &gt; 0
+     */
+    RowPositionIndex(final int stride) {
+        if (stride <= 0) {
+            throw new IllegalArgumentException("Stride must be positive: " + stride);
+        }
+        m_stride = stride;
+        m_positions = new long[16];
+    }
+
+    /** @return the distance between two recorded rows */
+    int getStride() {
+        return m_stride;
+    }
+
+    /** @return the current generation, to be passed to {@link #record(int, int, long)} */
+    synchronized int getGeneration() {
+        return m_generation;
+    }
+
+    /**
+     * Records the table position of a row of interest in the current generation.
+     *
+     * @param rowOfInterest the position in the view
+     * @param tableIndex the index of that row in the underlying table
+     */
+    synchronized void record(final int rowOfInterest, final long tableIndex) {
+        record(m_generation, rowOfInterest, tableIndex);
+    }
+
+    /**
+     * Records the table position of a row of interest. Rows that are not on a stride boundary or that have been
+     * recorded already are ignored, as are rows that would leave a gap in the index.
+     *
+     * @param generation the generation the caller's iteration was started in
+     * @param rowOfInterest the position in the view
+     * @param tableIndex the index of that row in the underlying table
+     * @return <code>false</code> if the index was cleared in the meantime (the caller should stop recording)
+     */
+    synchronized boolean record(final int generation, final int rowOfInterest, final long tableIndex) {
+        if (generation != m_generation) {
+            return false;
+        }
+        if (rowOfInterest % m_stride == 0 && rowOfInterest / m_stride == m_size) {
+            if (m_size == m_positions.length) {
+                m_positions = Arrays.copyOf(m_positions, 2 * m_size);
+            }
+            m_positions[m_size++] = tableIndex;
+        }
+        return true;
+    }
+
+    /**
+     * Get the largest recorded row of interest that is smaller than or equal to the argument.
+     *
+     * @param rowOfInterest the position in the view
+     * @return that row or -1 if no such row was recorded yet
+     */
+    synchronized int floorRow(final int rowOfInterest) {
+        int k = Math.min(rowOfInterest / m_stride, m_size - 1);
+        return k < 0 ? -1 : k * m_stride;
+    }
+
+    /**
+     * Get the table index of a recorded row.
+     *
+     * @param recordedRow a row as returned by {@link #floorRow(int)}
+     * @return the index of that row in the underlying table
+     * @throws IndexOutOfBoundsException if the row was not recorded
+     */
+    synchronized long getTableIndex(final int recordedRow) {
+        int k = recordedRow / m_stride;
+        if (recordedRow % m_stride != 0 || k >= m_size) {
+            throw new IndexOutOfBoundsException("Row " + recordedRow + " not indexed");
+        }
+        return m_positions[k];
+    }
+
+    /** @return number of recorded rows */
+    synchronized int size() {
+        return m_size;
+    }
+
+    /** Removes all entries and starts a new generation. */
+    synchronized void clear() {
+        m_generation++;
+        m_size = 0;
+        m_positions = new long[16];
+    }
+}
@@ -65,6 +65,7 @@
 import org.knime.core.data.RowKey;
 import org.knime.core.data.container.CloseableRowIterator;
 import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.container.filter.TableFilter;
 import org.knime.core.data.property.ColorAttr;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.NodeLogger;
@@ -86,8 +87,14 @@
  * added to the ring buffer (and "old" rows
  * are deleted). Each time a row is requested that resides before the cursor
  * of the current iterator and is not in the cache (default size: 500), the
- * cache is cleared and a new iterator is instantiated. Thus, this class will
- * have some performance problems when the user scrolls up in the table view.
+ * cache is cleared and a new iterator is instantiated. For
+ * {@link BufferedDataTable} and {@link ContainerTable} the new iterator starts
+ * close to the requested row (using a {@link TableFilter} with a start index);
+ * when only hilited (or unhilited) rows are shown, a sparse
+ * {@link RowPositionIndex index}, filled while iterating or while counting
+ * rows in the background, provides the position in the underlying table.
+ * For other tables the iteration restarts from the first row, which
+ * causes some performance problems when the user scrolls up in the table view.
  * However, when scrolling down, the data flow is somewhat "fluent".</p>
  *
  * <p>This class also supports hiliting of rows (even though it is a view
@@ -202,6 +209,14 @@ public boolean performsFiltering() {
      */
     private int m_rowCountInIterator;
 
+    /** The row of interest at which the current iterator started caching rows, 0 unless the iterator was
+     * repositioned (see {@link #repositionIterator(int, boolean)}). */
+    private int m_rowCountOfInterestAtIteratorStart;
+
+    /** Sparse index of rows of interest, only filled if the view {@link TableContentFilter#performsFiltering()
+     * filters rows}. */
+    private final RowPositionIndex m_rowIndex = new RowPositionIndex();
+
     /** lower bound for overall number of rows in {@link #m_data}, updated when
      * new rows are encountered.
      */
@@ -353,6 +368,7 @@ private void setDataTableIntern(final DataTable originalData,
         }
         m_tableSortOrder = sortOrder;
         cancelRowCountingInBackground();
+        m_rowIndex.clear();
         int oldColCount = getColumnCount();
         int newColCount =
             data != null ? data.getDataTableSpec().getNumColumns() : 0;
@@ -451,16 +467,20 @@ public TableSortOrder getTableSortOrder() {
      * and count the rows in it. Successive calls of this method are ignored.
      * Also if the final row count is known (either by consecutive calls of
      * this method or because the table is so small that the cache is filled
-     * with all rows) this method has no effect.<br>
+     * with all rows) this method has no effect, unless the view filters rows and the
+     * table supports random access - the thread then builds the row index that
+     * allows jumping to any row of interest.<br>
      *
      * The row counting process can be aborted by calling
      * {@link #cancelRowCountingInBackground()}.
      */
     public synchronized void countRowsInBackground() {
-        if (m_rowCounterThread != null || m_isMaxRowCountFinal) {
+        final boolean isIndexing = hasData() && m_tableFilter.performsFiltering() && supportsRandomAccess();
+        if (m_rowCounterThread != null || (m_isMaxRowCountFinal && !isIndexing)) {
             return;
         }
-        m_rowCounterThread = new RowCounterThread(this);
+        m_rowCounterThread = new RowCounterThread(this, m_data, !m_isMaxRowCountFinal,
+            isIndexing ? m_rowIndex : null, m_tableFilter, m_hiLiteHdl);
         m_rowCounterThread.start();
     }
 
@@ -498,6 +518,7 @@ public synchronized void setHiLiteHandler(final HiLiteHandler hiliter) {
         // check for rows whose hilite status has changed
         if (hasData()) {
             if (m_tableFilter.performsFiltering()) {
+                m_rowIndex.clear();
                 m_isRowCountOfInterestFinal = false;
                 m_rowCountOfInterest = 0;
                 clearCache();
@@ -689,6 +710,7 @@ public final void setTableContentFilter(
             return;
         }
         m_tableFilter = newFilter;
+        m_rowIndex.clear();
         if (m_tableFilter.performsFiltering()) {
             // don't know how many rows are being filtered
             m_rowCountOfInterest = 0;
@@ -1015,6 +1037,7 @@ public void unHiLiteAll(final KeyEvent event) {
         switch (m_tableFilter) {
         case HiliteOnly:
             m_rowCountOfInterest = 0;
+            m_rowIndex.clear();
             clearCache(); // clears also hilite
             fireTableRowsDeleted(0, oldRowCount);
             break;
@@ -1022,6 +1045,7 @@ public void unHiLiteAll(final KeyEvent event) {
             // there may be more rows now (can't get fewer)
             boolean wasRowCountOfInterestFinal = m_isRowCountOfInterestFinal;
             m_isRowCountOfInterestFinal = false;
+            m_rowIndex.clear();
             clearCache(); // clears also hilite
             if (oldRowCount > 0) {
                 fireTableRowsUpdated(0, oldRowCount - 1);
@@ -1090,8 +1114,15 @@ protected DataRow getRow(final int row) {
         /* row is not in cache */
         // row already released from cache
         if (row < (m_rowCountOfInterestInIterator - cacheSize)) {
-            // clear cache, init new iterator
-            clearCache();
+            // init new iterator close to the row if possible, otherwise clear cache and start from the beginning
+            if (!repositionIterator(row, false)) {
+                clearCache();
+            }
+        } else if (row >= m_rowCountOfInterestInIterator + cacheSize) {
+            // far jump forward (e.g. to the end of the table)
+            if (!repositionIterator(row, true)) {
+                skipRows(firstRowToCache(row));
+            }
         }
         assert (row >= m_rowCountOfInterestInIterator - 1);
 
@@ -1146,6 +1177,9 @@ private boolean cacheNextRow() {
                 ? m_hiLiteHdl.isHiLit(currentRow.getKey()) : false;
             // ignore row if we filter for hilit rows and this one is not hilit
         } while (!m_tableFilter.matches(isHiLit));
+        if (m_tableFilter.performsFiltering()) {
+            m_rowIndex.record(m_rowCountOfInterestInIterator, m_rowCountInIterator - 1);
+        }
         // index of row in cache
         int indexInCache = m_rowCountOfInterestInIterator % getCacheSize();
         m_cachedRows[indexInCache] = currentRow;
@@ -1157,6 +1191,85 @@ private boolean cacheNextRow() {
         return true;
     } // cacheNextRow()
 
+    /**
+     * The first row to be cached if a new iteration is started in order to
+     * access <code>row</code>. Leaves room for scrolling up in the cache.
+     */
+    private int firstRowToCache(final int row) {
+        return Math.max(0, row - Math.max(0, getCacheSize() - 2 * m_chunkSize));
+    }
+
+    /** @return whether the data allows to start an iteration at an arbitrary row index. */
+    private boolean supportsRandomAccess() {
+        return m_data instanceof BufferedDataTable || m_data instanceof ContainerTable;
+    }
+
+    /**
+     * Starts a new iteration close to <code>row</code>, if the data supports
+     * random access and (when filtering) the row index knows a position near
+     * the row.
+     *
+     * @param row the row of interest to be accessed next
+     * @param forwardOnly if the current iterator is to be kept if it is
+     * closer to the row than the new start position
+     * @return if a new iteration was started (and the cache was cleared)
+     */
+    private boolean repositionIterator(final int row, final boolean forwardOnly) {
+        if (!hasData() || m_cachedRows == null || !supportsRandomAccess()) {
+            return false;
+        }
+        final int startRow;
+        final long tableIndex;
+        if (m_tableFilter.performsFiltering()) {
+            startRow = m_rowIndex.floorRow(firstRowToCache(row));
+            if (startRow <= 0) {
+                return false;
+            }
+            tableIndex = m_rowIndex.getTableIndex(startRow);
+        } else {
+            startRow = firstRowToCache(row);
+            tableIndex = startRow;
+        }
+        if (forwardOnly && startRow <= m_rowCountOfInterestInIterator) {
+            return false;
+        }
+        resetIterator(startRow, tableIndex);
+        return true;
+    }
+
+    /**
+     * Pushes the iterator forward to the given row of interest without caching
+     * the rows in between (and for unfiltered views also without determining
+     * the hilite status). The cache is cleared afterwards. Used for far jumps
+     * on tables that do not allow random access.
+     *
+     * @param rowOfInterest the next row to be cached
+     */
+    private void skipRows(final int rowOfInterest) {
+        final boolean isFiltering = m_tableFilter.performsFiltering();
+        while (m_rowCountOfInterestInIterator < rowOfInterest && m_iterator.hasNext()) {
+            DataRow currentRow = m_iterator.next();
+            m_rowCountInIterator++;
+            if (!m_isMaxRowCountFinal) {
+                m_maxRowCount = Math.max(m_maxRowCount, m_rowCountInIterator);
+            }
+            if (isFiltering) {
+                boolean isHiLit = m_hiLiteHdl != null ? m_hiLiteHdl.isHiLit(currentRow.getKey()) : false;
+                if (!m_tableFilter.matches(isHiLit)) {
+                    continue;
+                }
+                m_rowIndex.record(m_rowCountOfInterestInIterator, m_rowCountInIterator - 1);
+            }
+            m_rowCountOfInterestInIterator++;
+            if (!m_isRowCountOfInterestFinal) {
+                m_rowCountOfInterest = Math.max(m_rowCountOfInterest, m_rowCountOfInterestInIterator);
+            }
+        }
+        m_rowCountOfInterestAtIteratorStart = m_rowCountOfInterestInIterator;
+        Arrays.fill(m_cachedRows, null);
+        m_hilitSet.clear();
+    }
+
     /** Get new iterator, only to be called when data is set. Gets an
      * {@link BufferedDataTable#iteratorFailProve() fail prove iterator} if
      * the table is an instance of {@link BufferedDataTable}. */
@@ -1168,6 +1281,20 @@ private RowIterator getNewDataIterator() {
         return m_data.iterator();
     }
 
+    /** Get new iterator starting at the given row index, only to be called
+     * if {@link #supportsRandomAccess()}. */
+    private RowIterator getNewDataIterator(final long fromIndex) {
+        assert supportsRandomAccess();
+        if (fromIndex == 0) {
+            return getNewDataIterator();
+        }
+        final TableFilter filter = TableFilter.filterRowsFromIndex(fromIndex);
+        if (m_data instanceof BufferedDataTable) {
+            return ((BufferedDataTable)m_data).filter(filter).iterator();
+        }
+        return ((ContainerTable)m_data).iteratorWithFilter(filter);
+    }
+
     /**
      * Clears cache, instantiates new Iterator.
      */
@@ -1175,17 +1302,24 @@ protected void clearCache() {
         if (!hasData() || m_cachedRows == null) {
             return;
         }
+        resetIterator(0, 0);
+    } // clearCache()
+
+    /** Clears cache and instantiates a new iterator whose first row is the
+     * given row of interest, located at the given index in the table. */
+    private void resetIterator(final int rowOfInterest, final long tableIndex) {
         if (m_iterator instanceof CloseableRowIterator) {
             ((CloseableRowIterator)m_iterator).close();
         }
-        m_iterator = getNewDataIterator();
-        m_rowCountInIterator = 0;
+        m_iterator = tableIndex == 0 ? getNewDataIterator() : getNewDataIterator(tableIndex);
+        m_rowCountInIterator = (int)tableIndex;
         // all updated in nextBlock()
-        m_rowCountOfInterestInIterator = 0;
+        m_rowCountOfInterestInIterator = rowOfInterest;
+        m_rowCountOfInterestAtIteratorStart = rowOfInterest;
         // clear cache
         Arrays.fill(m_cachedRows, null);
         m_hilitSet.clear();
-    } // clearCache()
+    }
 
     /**
      * Returns a row with a given index from the cache. It is mandatory to give
@@ -1251,7 +1385,8 @@ private int firstRowCached() {
         }
         final int cS = getCacheSize();
         int next = (lastRow + 1) % cS;
-        return m_cachedRows[next] != null ? next : 0;
+        // ring buffer not full yet: first row is the one where the iteration started
+        return m_cachedRows[next] != null ? next : m_rowCountOfInterestAtIteratorStart % cS;
     }
 
     /** @return index in cache hosting the last row in the table that's
@@ -1278,6 +1413,7 @@ private void processHiLiteEvent(
         final int cacheSize = getCacheSize();
         final int oldRowCount = getRowCount();
         if (m_tableFilter.performsFiltering()) {
+            m_rowIndex.clear();
             /* what follows: run through the DataTable to the last
              * cached row, count the number of rows that have been
              * changed and add (or subtract, resp.) them from the global
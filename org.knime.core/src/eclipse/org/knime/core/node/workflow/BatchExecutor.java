@@ -53,15 +53,25 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TimerTask;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
@@ -237,6 +247,15 @@ public IllegalOptionException(final String message, final Throwable cause) {
      */
     protected boolean m_stopOnError = true;
 
+    /** Maximum number of workflows that are executed concurrently, see option -concurrency. */
+    private int m_concurrency = 1;
+
+    /** Directories the shared templates are copied from, by input workflow. See {@link #getTemplateDir(File)}. */
+    private final Map<File, File> m_templateDirs = new HashMap<File, File>();
+
+    /** Temporary directories into which zipped templates have been extracted; deleted at the end of {@link #runAll()}. */
+    private final List<File> m_extractedTemplateDirs = new ArrayList<File>();
+
     private static final NodeLogger LOGGER = NodeLogger.getLogger(BatchExecutor.class);
 
     private static class Option {
@@ -392,6 +411,15 @@ protected static class WorkflowConfiguration {
 
         /** The (temporary) workflow location which should be used to load the workflow. */
         File workflowLocation;
+
+        /**
+         * Set if other configurations run the same input workflow; the workflow is then loaded from a private copy
+         * of a shared template, which is deleted after the run.
+         */
+        boolean useTemplateCopy;
+
+        /** The private copy of the template if {@link #useTemplateCopy} is set and the workflow has been loaded. */
+        File templateCopyDir;
     }
 
     /**
@@ -440,7 +468,146 @@ protected BatchExecutor() {
      */
     protected void processArguments(final String[] args) throws IOException, CoreException, IllegalOptionException,
             BatchException {
-        parseConfigFromArguments(args);
+        List<String> commonArgs = new ArrayList<String>();
+        File jobs = null;
+        for (String s : args) {
+            String[] parts = s.split("=", 2);
+            if ("-jobs".equals(parts[0])) {
+                if (parts.length != 2) {
+                    throw new IllegalOptionException("Couldn't parse -jobs argument: " + s);
+                }
+                jobs = new File(parts[1]);
+                if (!jobs.exists()) {
+                    throw new IllegalOptionException("Jobs file or directory '" + parts[1] + "' does not exist.");
+                }
+            } else if ("-concurrency".equals(parts[0])) {
+                if (parts.length != 2) {
+                    throw new IllegalOptionException("Couldn't parse -concurrency argument: " + s);
+                }
+                try {
+                    m_concurrency = Integer.parseInt(parts[1].trim());
+                } catch (NumberFormatException ex) {
+                    throw new IllegalOptionException("Couldn't parse -concurrency argument: " + s, ex);
+                }
+                if (m_concurrency < 1) {
+                    throw new IllegalOptionException("Concurrency must be at least 1: " + s);
+                }
+            } else {
+                commonArgs.add(s);
+            }
+        }
+        if (jobs == null) {
+            parseConfigFromArguments(commonArgs.toArray(new String[commonArgs.size()]));
+        } else {
+            parseJobs(commonArgs, jobs);
+        }
+    }
+
+    /**
+     * Creates one workflow configuration per job. The arguments of a job are appended to the arguments common to all
+     * jobs (i.e. those given on the command line), so they can add workflow variables or override the workflow and
+     * destination. Jobs running the same workflow are set up to load it from private copies of a shared template.
+     *
+     * @param commonArgs arguments for all jobs
+     * @param jobs a job file or a directory containing workflows, see {@link #getOptionsString()}
+     */
+    private void parseJobs(final List<String> commonArgs, final File jobs) throws IOException, CoreException,
+            IllegalOptionException {
+        List<List<String>> jobArgs = jobs.isDirectory() ? listJobDirectory(jobs) : readJobFile(jobs);
+        if (jobArgs.isEmpty()) {
+            throw new IllegalOptionException("No jobs found in '" + jobs + "'");
+        }
+        List<String> baseArgs = new ArrayList<String>(commonArgs);
+        if (baseArgs.remove("-masterkey")) {
+            // prompt only once, not for each job
+            setupEncryptionKey(true, null);
+        }
+        for (List<String> job : jobArgs) {
+            List<String> args = new ArrayList<String>(baseArgs);
+            args.addAll(job);
+            parseConfigFromArguments(args.toArray(new String[args.size()]));
+        }
+
+        Map<File, List<WorkflowConfiguration>> byWorkflow = new LinkedHashMap<File, List<WorkflowConfiguration>>();
+        for (WorkflowConfiguration config : m_workflows) {
+            if (config.inputWorkflow != null) {
+                byWorkflow.computeIfAbsent(config.inputWorkflow.getAbsoluteFile(),
+                    f -> new ArrayList<WorkflowConfiguration>()).add(config);
+            }
+        }
+        for (Map.Entry<File, List<WorkflowConfiguration>> e : byWorkflow.entrySet()) {
+            if (e.getValue().size() < 2) {
+                continue;
+            }
+            for (WorkflowConfiguration config : e.getValue()) {
+                if (!config.noSave && (config.outputDir == null) && (config.outputFile == null)) {
+                    throw new IllegalOptionException("Workflow '" + e.getKey() + "' is used by several jobs; each "
+                        + "of them must specify -nosave, -destDir or -destFile");
+                }
+                config.useTemplateCopy = true;
+            }
+        }
+        if (m_concurrency > 1) {
+            // concurrent jobs must not write into the same location
+            Set<File> destinations = new HashSet<File>();
+            for (WorkflowConfiguration config : m_workflows) {
+                if (config.noSave) {
+                    continue;
+                }
+                File destination = config.outputDir != null ? config.outputDir
+                    : (config.outputFile != null ? config.outputFile : config.inputWorkflow);
+                if ((destination != null) && !destinations.add(destination.getAbsoluteFile())) {
+                    throw new IllegalOptionException("Destination '" + destination + "' is used by several jobs; "
+                        + "with -concurrency each job must save to a distinct -destDir or -destFile");
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a job file. Jobs are separated by empty lines, each line of a job contains one argument (e.g.
+     * <code>-workflow.variable=name,value,type</code>). Lines starting with '#' are ignored.
+     */
+    private static List<List<String>> readJobFile(final File jobFile) throws IOException {
+        List<List<String>> jobs = new ArrayList<List<String>>();
+        List<String> current = new ArrayList<String>();
+        for (String line : Files.readAllLines(jobFile.toPath(), StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("#")) {
+                continue;
+            }
+            if (trimmed.isEmpty()) {
+                if (!current.isEmpty()) {
+                    jobs.add(current);
+                    current = new ArrayList<String>();
+                }
+            } else {
+                current.add(trimmed);
+            }
+        }
+        if (!current.isEmpty()) {
+            jobs.add(current);
+        }
+        return jobs;
+    }
+
+    /** Creates one job per workflow directory or workflow archive (.knwf or .zip) in the given directory. */
+    private static List<List<String>> listJobDirectory(final File dir) throws IOException {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            throw new IOException("Can't list directory '" + dir + "'");
+        }
+        Arrays.sort(children);
+        List<List<String>> jobs = new ArrayList<List<String>>();
+        for (File child : children) {
+            String name = child.getName().toLowerCase();
+            if (child.isDirectory() && new File(child, WorkflowPersistor.WORKFLOW_FILE).isFile()) {
+                jobs.add(Arrays.asList("-workflowDir=" + child.getAbsolutePath()));
+            } else if (child.isFile() && (name.endsWith(".knwf") || name.endsWith(".zip"))) {
+                jobs.add(Arrays.asList("-workflowFile=" + child.getAbsolutePath()));
+            }
+        }
+        return jobs;
     }
 
     /**
@@ -626,7 +793,14 @@ public static String getOptionsString() {
                 + "                      if omitted the workflow is only saved in place\n"
                 + " -workflow.variable=name,value,type => define or overwrite workflow variable\n"
                 + "                      'name' with value 'value' (possibly enclosed by quotes). The\n"
-                + "                      'type' must be one of \"String\", \"int\" or \"double\".";
+                + "                      'type' must be one of \"String\", \"int\" or \"double\".\n"
+                + " -jobs=...         => run several jobs: either a directory, whose workflow directories\n"
+                + "                      and archives are each run as one job, or a text file with one\n"
+                + "                      argument per line and jobs separated by empty lines. The other\n"
+                + "                      command line options apply to all jobs. Jobs running the same\n"
+                + "                      workflow must specify -nosave, -destDir or -destFile\n"
+                + " -concurrency=n    => execute up to n workflows concurrently (default 1); jobs\n"
+                + "                      that save must then use distinct destinations";
     }
 
     /**
@@ -713,7 +887,13 @@ public static void main(final String[] args) throws Exception {
     protected WorkflowManager loadWorkflow(final WorkflowConfiguration config) throws IOException,
             InvalidSettingsException, CanceledExecutionException, UnsupportedWorkflowVersionException,
             LockFailedException, IllegalOptionException {
-        if (config.inputWorkflow.isFile()) {
+        if (config.useTemplateCopy) {
+            // other jobs run the same workflow: load (and later modify) a private copy
+            File dir = FileUtil.createTempDir("BatchExecutorJob", null, false);
+            config.templateCopyDir = dir;
+            FileUtil.copyDir(getTemplateDir(config.inputWorkflow), dir);
+            config.workflowLocation = dir;
+        } else if (config.inputWorkflow.isFile()) {
             File dir = FileUtil.createTempDir("BatchExecutorInput");
             FileUtil.unzip(config.inputWorkflow, dir);
             config.workflowLocation = dir;
@@ -882,25 +1062,131 @@ protected void saveWorkflow(final WorkflowManager wfm, final WorkflowConfigurati
      * @since 2.7
      */
     public int runAll() {
-        int retVal = EXIT_SUCCESS;
+        try {
+            if ((m_concurrency > 1) && (m_workflows.size() > 1)) {
+                return runAllConcurrently();
+            }
+            int retVal = EXIT_SUCCESS;
+
+            for (WorkflowConfiguration config : m_workflows) {
+                LOGGER.info("===== Executing workflow " + config.inputWorkflow + " =====");
+                int rv = runOne(config);
+                if (rv != EXIT_SUCCESS) {
+                    LOGGER.info("========= Workflow did not execute sucessfully ============");
+                    retVal = rv;
+                    if (m_stopOnError) {
+                        break;
+                    }
+                } else {
+                    LOGGER.info("============= Workflow executed sucessfully ===============");
+                }
+            }
+            return retVal;
+        } finally {
+            deleteExtractedTemplates();
+        }
+    }
 
-        for (WorkflowConfiguration config : m_workflows) {
-            LOGGER.info("===== Executing workflow " + config.inputWorkflow + " =====");
-            int rv = runOne(config);
-            if (rv != EXIT_SUCCESS) {
-                LOGGER.info("========= Workflow did not execute sucessfully ============");
-                retVal = rv;
-                if (m_stopOnError) {
-                    break;
+    /**
+     * Runs all workflows with at most {@link #m_concurrency} of them at the same time. All runs share this JVM and
+     * hence the global thread pool, table caches and type registries. If {@link #m_stopOnError} is set, workflows
+     * that haven't started when the first error occurs are skipped.
+     */
+    private int runAllConcurrently() {
+        final int nrThreads = Math.min(m_concurrency, m_workflows.size());
+        final AtomicLong threadCount = new AtomicLong();
+        final ExecutorService executor = Executors.newFixedThreadPool(nrThreads, r -> {
+            Thread t = new Thread(r, "KNIME-Batch-Executor-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        final AtomicInteger retVal = new AtomicInteger(EXIT_SUCCESS);
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicInteger nrSkipped = new AtomicInteger();
+        LOGGER.info("Executing " + m_workflows.size() + " workflows with up to " + nrThreads + " at a time");
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (final WorkflowConfiguration config : m_workflows) {
+                futures.add(executor.submit(() -> {
+                    if (stop.get()) {
+                        nrSkipped.incrementAndGet();
+                        return;
+                    }
+                    LOGGER.info("===== Executing workflow " + config.inputWorkflow + " =====");
+                    int rv = runOne(config);
+                    if (rv != EXIT_SUCCESS) {
+                        LOGGER.info("===== Workflow " + config.inputWorkflow + " did not execute sucessfully =====");
+                        retVal.set(rv);
+                        if (m_stopOnError) {
+                            stop.set(true);
+                        }
+                    } else {
+                        LOGGER.info("===== Workflow " + config.inputWorkflow + " executed sucessfully =====");
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException ex) {
+                    LOGGER.error("Unexpected error while running workflow: " + ex.getCause().getMessage(),
+                        ex.getCause());
+                    retVal.set(EXIT_ERR_EXECUTION);
                 }
+            }
+        } catch (InterruptedException ex) {
+            LOGGER.warn("Interrupted while waiting for workflows to finish, canceling remaining workflows");
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            return EXIT_ERR_EXECUTION;
+        } finally {
+            executor.shutdown();
+        }
+        if (nrSkipped.get() > 0) {
+            LOGGER.info(nrSkipped.get() + " workflow(s) skipped after error");
+        }
+        return retVal.get();
+    }
+
+    /**
+     * Returns the directory from which jobs sharing the given input workflow copy it. Archives are extracted only
+     * once, the first time this method is called for them.
+     */
+    private synchronized File getTemplateDir(final File inputWorkflow) throws IOException {
+        File dir = m_templateDirs.get(inputWorkflow);
+        if (dir == null) {
+            if (inputWorkflow.isFile()) {
+                dir = FileUtil.createTempDir("BatchExecutorTemplate");
+                FileUtil.unzip(inputWorkflow, dir);
+                m_extractedTemplateDirs.add(dir);
             } else {
-                LOGGER.info("============= Workflow executed sucessfully ===============");
+                dir = inputWorkflow;
             }
+            m_templateDirs.put(inputWorkflow, dir);
+        }
+        return dir;
+    }
+
+    private synchronized void deleteExtractedTemplates() {
+        for (File dir : m_extractedTemplateDirs) {
+            FileUtil.deleteRecursively(dir);
         }
-        return retVal;
+        m_extractedTemplateDirs.clear();
+        m_templateDirs.clear();
     }
 
     private int runOne(final WorkflowConfiguration config) {
+        try {
+            return runOneInternal(config);
+        } finally {
+            if (config.templateCopyDir != null) {
+                FileUtil.deleteRecursively(config.templateCopyDir);
+                config.templateCopyDir = null;
+            }
+        }
+    }
+
+    private int runOneInternal(final WorkflowConfiguration config) {
         long t = System.currentTimeMillis();
         WorkflowManager wfm;
         try {
@@ -0,0 +1,210 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.workflow;
+
+import java.util.ArrayList;
+import java.util.EventObject;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.util.CheckUtils;
+
+/**
+ * Decouples listeners from the threads emitting node events. Node state, progress and message events are fired
+ * synchronously by the node containers, often while the workflow lock is held; listeners that are slow (UI, remote
+ * clients) thereby slow down execution. A dispatcher takes events via {@link #submit(EventObject)}, which only
+ * records them, and delivers them to its consumer on a separate thread, coalescing events that arrive in quick
+ * succession according to its {@link Granularity}. Usage, e.g. for state events:
+ *
+ * <pre>
+ * CoalescingEventDispatcher&lt;NodeStateEvent&gt; dispatcher =
+ *     new CoalescingEventDispatcher&lt;&gt;(myListener::stateChanged, Granularity.NODE, 100);
+ * NodeStateChangeListener l = dispatcher::submit;
+ * nc.addNodeStateChangeListener(l);
+ * ...
+ * nc.removeNodeStateChangeListener(l);
+ * dispatcher.close();
+ * </pre>
+ *
+ * All dispatchers share a single delivery thread, hence consumers are never called concurrently and must not block.
+ * The only ordering guarantee is that the events of one dispatcher with {@link Granularity#EVENT} are delivered in
+ * the order they were submitted. With {@link Granularity#NODE} the latest event of a node takes the position of the
+ * first pending event of that node, so events of different nodes can be delivered in a different order than they
+ * were submitted. Events of different dispatchers are delivered in the order their deliveries become due, which
+ * depends on the delay of each dispatcher and not on the order in which the events were submitted.
+ *
+ * @param <E> the type of event, its {@link EventObject#getSource() source} identifies the node (usually a
+ *            {@link NodeID})
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 4.2
+ */
+public final class CoalescingEventDispatcher<E extends EventObject> implements AutoCloseable {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(CoalescingEventDispatcher.class);
+
+    private static final ScheduledExecutorService DELIVERY_SERVICE =
+        Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "KNIME-Event-Dispatcher");
+            t.setDaemon(true);
+            return t;
+        });
+
+    /** Key of all events for {@link Granularity#WORKFLOW}. */
+    private static final Object ANY_SOURCE = new Object();
+
+    /** Which events are merged into one if they arrive before the pending ones have been delivered. */
+    public enum Granularity {
+        /** No coalescing: each event is delivered (but asynchronously and in batches). */
+        EVENT,
+        /** Only the latest event per source (node) is delivered. */
+        NODE,
+        /** Only the latest event is delivered, no matter which node it came from. */
+        WORKFLOW;
+    }
+
+    private final Consumer<? super E> m_consumer;
+
+    private final Granularity m_granularity;
+
+    private final long m_delayMillis;
+
+    /** Events not yet delivered, by coalescing key. Guarded by this. */
+    private LinkedHashMap<Object, E> m_pending = new LinkedHashMap<>();
+
+    /** Coalescing key for {@link Granularity#EVENT}. Guarded by this. */
+    private long m_sequence;
+
+    /** Whether a delivery of m_pending is scheduled. Guarded by this. */
+    private boolean m_isScheduled;
+
+    private volatile boolean m_isClosed;
+
+    /**
+     * Creates a new dispatcher.
+     *
+     * @param consumer receives the (coalesced) events on the delivery thread
+     * @param granularity which events to merge
+     * @param delayMillis time to wait after the first pending event before delivering, events arriving meanwhile
+     *            are coalesced; 0 to deliver as soon as the delivery thread is available
+     */
+    public CoalescingEventDispatcher(final Consumer<? super E> consumer, final Granularity granularity,
+        final long delayMillis) {
+        m_consumer = CheckUtils.checkArgumentNotNull(consumer, "Consumer must not be null");
+        m_granularity = CheckUtils.checkArgumentNotNull(granularity, "Granularity must not be null");
+        CheckUtils.checkArgument(delayMillis >= 0, "Delay must not be negative: %d", delayMillis);
+        m_delayMillis = delayMillis;
+    }
+
+    /**
+     * Records an event for later delivery. Cheap and non-blocking (apart from a short critical section), hence
+     * suitable to be called by the thread emitting the event. Ignored once the dispatcher is closed.
+     *
+     * @param event the event, not null
+     */
+    public void submit(final E event) {
+        if (m_isClosed) {
+            return;
+        }
+        synchronized (this) {
+            final Object key;
+            switch (m_granularity) {
+                case EVENT:
+                    key = m_sequence++;
+                    break;
+                case NODE:
+                    key = event.getSource();
+                    break;
+                default:
+                    key = ANY_SOURCE;
+            }
+            // replacing the value of an existing key keeps its position (= order of first arrival)
+            m_pending.put(key, event);
+            if (!m_isScheduled) {
+                m_isScheduled = true;
+                DELIVERY_SERVICE.schedule(this::deliver, m_delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /** Delivers all pending events, called on the delivery thread. */
+    private void deliver() {
+        final List<E> events;
+        synchronized (this) {
+            events = new ArrayList<>(m_pending.values());
+            m_pending = new LinkedHashMap<>();
+            m_isScheduled = false;
+        }
+        for (E e : events) {
+            if (m_isClosed) {
+                return;
+            }
+            try {
+                m_consumer.accept(e);
+            } catch (Throwable t) {
+                LOGGER.error("Exception while notifying listener about " + e.getClass().getSimpleName(), t);
+            }
+        }
+    }
+
+    /** @return the granularity of this dispatcher */
+    public Granularity getGranularity() {
+        return m_granularity;
+    }
+
+    /** Discards pending events; subsequently submitted events are ignored. */
+    @Override
+    public void close() {
+        m_isClosed = true;
+        synchronized (this) {
+            m_pending.clear();
+        }
+    }
+
+}
@@ -62,6 +62,7 @@
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.FileNodePersistor;
 import org.knime.core.node.InvalidSettingsException;
 import org.knime.core.node.Node;
 import org.knime.core.node.NodeLogger;
@@ -550,7 +551,18 @@ protected static String save(final SingleNodeContainer singleNC, final Reference
         }
         boolean nodeDirDeleted = true;
         if (singleNC instanceof NativeNodeContainer) {
-            nodeDirDeleted = deleteChildren(nodeDir, SingleNodeContainer.DROP_DIR_NAME);
+            if (FileNodePersistor.isIncrementalDataSave()) {
+                // table directories are cleaned up or retained as part of the node's save routine
+                List<String> retainedNames = new ArrayList<>();
+                retainedNames.add(SingleNodeContainer.DROP_DIR_NAME);
+                retainedNames.add(FileNodePersistor.INTERNAL_TABLE_FOLDER_PREFIX);
+                for (int i = 1; i < singleNC.getNrOutPorts(); i++) {
+                    retainedNames.add(FileNodePersistor.PORT_FOLDER_PREFIX + i);
+                }
+                nodeDirDeleted = deleteChildren(nodeDir, retainedNames.toArray(new String[retainedNames.size()]));
+            } else {
+                nodeDirDeleted = deleteChildren(nodeDir, SingleNodeContainer.DROP_DIR_NAME);
+            }
         }
         nodeDir.mkdirs();
         if (!nodeDir.isDirectory() || !nodeDir.canWrite()) {
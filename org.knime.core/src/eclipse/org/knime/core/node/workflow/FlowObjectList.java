@@ -0,0 +1,234 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.workflow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable, persistent list of {@link FlowObject}s backing a {@link FlowObjectStack}. Each instance is the top of a
+ * stack and references the list below it, so pushing and popping are O(1) and stacks that derive from each other
+ * share their common bottom part instead of copying it.
+ *
+ * <p>
+ * Derived information that is costly to compute is memoized on the (immutable) list and thereby shared by all stacks
+ * having the same content: the index of flow variables by name and the result of
+ * merging the list as single input stack in {@link FlowObjectStack}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class FlowObjectList implements Iterable<FlowObject> {
+
+    /** The empty list. */
+    static final FlowObjectList EMPTY = new FlowObjectList();
+
+    private final FlowObject m_head;
+
+    private final FlowObjectList m_tail;
+
+    private final int m_size;
+
+    /** Number of elements up to and including the top-most {@link FlowScopeContext}, 0 if there is none. */
+    private final int m_scopeSize;
+
+    /** Flow variables by name, top-most first; built on first lookup. */
+    private volatile Map<String, List<FlowVariable>> m_variableIndex;
+
+    /** The list merged as single input stack (see {@link FlowObjectStack}); computed on first use. */
+    private volatile FlowObjectList m_merged;
+
+    private FlowObjectList() {
+        m_head = null;
+        m_tail = null;
+        m_size = 0;
+        m_scopeSize = 0;
+        m_merged = this;
+    }
+
+    private FlowObjectList(final FlowObject head, final FlowObjectList tail) {
+        m_head = head;
+        m_tail = tail;
+        m_size = tail.m_size + 1;
+        m_scopeSize = head instanceof FlowScopeContext ? m_size : tail.m_scopeSize;
+    }
+
+    /**
+     * @param o the element to put on top
+     * @return a new list with the element on top of this list
+     */
+    FlowObjectList push(final FlowObject o) {
+        return new FlowObjectList(o, this);
+    }
+
+    /** @return the top element, null if empty */
+    FlowObject head() {
+        return m_head;
+    }
+
+    /** @return the list without the top element, null if empty */
+    FlowObjectList tail() {
+        return m_tail;
+    }
+
+    /** @return number of elements */
+    int size() {
+        return m_size;
+    }
+
+    /** @return whether this is the empty list */
+    boolean isEmpty() {
+        return m_size == 0;
+    }
+
+    /**
+     * @return the (sub)list whose top is the top-most {@link FlowScopeContext} of this list, {@link #EMPTY} if there is
+     *         no scope context
+     */
+    FlowObjectList scopeBase() {
+        return drop(m_size - m_scopeSize);
+    }
+
+    /**
+     * @param count number of top elements to remove
+     * @return the list below these elements
+     */
+    FlowObjectList drop(final int count) {
+        FlowObjectList l = this;
+        for (int i = 0; i < count; i++) {
+            l = l.m_tail;
+        }
+        return l;
+    }
+
+    /** @return the elements, bottom of the stack first */
+    FlowObject[] toArrayBottomUp() {
+        final FlowObject[] result = new FlowObject[m_size];
+        int i = m_size;
+        for (FlowObjectList l = this; l.m_size > 0; l = l.m_tail) {
+            result[--i] = l.m_head;
+        }
+        return result;
+    }
+
+    /**
+     * @param name a variable name
+     * @return the variables with the given name, top-most first, possibly empty; must not be modified
+     */
+    List<FlowVariable> getFlowVariables(final String name) {
+        Map<String, List<FlowVariable>> index = m_variableIndex;
+        if (index == null) {
+            index = new HashMap<>();
+            for (FlowObjectList l = this; l.m_size > 0; l = l.m_tail) {
+                if (l.m_head instanceof FlowVariable) {
+                    final FlowVariable v = (FlowVariable)l.m_head;
+                    index.computeIfAbsent(v.getName(), k -> new ArrayList<>(1)).add(v);
+                }
+            }
+            m_variableIndex = index;
+        }
+        return index.getOrDefault(name, Collections.emptyList());
+    }
+
+    /** @return the memoized single stack merge result or null if not computed yet */
+    FlowObjectList getMerged() {
+        return m_merged;
+    }
+
+    /**
+     * Memoizes the result of merging this list as single input stack. The result merges to itself.
+     *
+     * @param merged the merge result
+     */
+    void setMerged(final FlowObjectList merged) {
+        merged.m_merged = merged;
+        m_merged = merged;
+    }
+
+    /** Iterates the elements, top of the stack first. {@inheritDoc} */
+    @Override
+    public Iterator<FlowObject> iterator() {
+        return new Iterator<FlowObject>() {
+            private FlowObjectList m_next = FlowObjectList.this;
+
+            @Override
+            public boolean hasNext() {
+                return m_next.m_size > 0;
+            }
+
+            @Override
+            public FlowObject next() {
+                if (m_next.m_size == 0) {
+                    throw new NoSuchElementException("Iterator at end");
+                }
+                final FlowObject result = m_next.m_head;
+                m_next = m_next.m_tail;
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Element-wise comparison (deep equals).
+     *
+     * @param other another list
+     * @return whether both lists have equal elements in the same order
+     */
+    boolean contentEquals(final FlowObjectList other) {
+        if (m_size != other.m_size) {
+            return false;
+        }
+        for (FlowObjectList a = this, b = other; a != b; a = a.m_tail, b = b.m_tail) {
+            if (!a.m_head.equals(b.m_head)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
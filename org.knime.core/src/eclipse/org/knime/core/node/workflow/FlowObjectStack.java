@@ -55,10 +55,9 @@
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
-import java.util.Vector;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.knime.core.internal.KNIMEPath;
@@ -75,6 +74,11 @@
 /**
  * Container for the stack that keeps for an individual node the
  * flow variables and flow loop information.
+ *
+ * <p>The content is held in an immutable {@link FlowObjectList}, which is
+ * shared with the stacks it was derived from. Push and pop only replace the
+ * top of the list, merging the stacks of predecessor nodes reuses the (memoized)
+ * merge result of the part that is common to all of them.
  * @author Bernd Wiswedel, University of Konstanz
  * @noreference This class is not intended to be referenced by clients.
  */
@@ -87,8 +91,9 @@ public final class FlowObjectStack implements Iterable<FlowObject> {
     private static FlowObjectStack rootStack = new FlowObjectStack();
 
     /** Stack of FlowObjects, which is shared among nodes along the
-     * workflow. */
-    private final Vector<FlowObject> m_stack;
+     * workflow. Replaced (never modified) on push and pop; modifications are
+     * synchronized on this object, reads use a snapshot. */
+    private volatile FlowObjectList m_stack;
     /** Owner of FlowObject object, which are put onto m_stack via this
      * StackWrapper. */
     private final NodeID m_nodeID;
@@ -96,7 +101,7 @@ public final class FlowObjectStack implements Iterable<FlowObject> {
     /** Root stack. */
     private FlowObjectStack() {
         m_nodeID = WorkflowManager.ROOT.getID();
-        m_stack = new Vector<FlowObject>();
+        m_stack = FlowObjectList.EMPTY;
         File wsDirPath = KNIMEPath.getWorkspaceDirPath();
         if (wsDirPath != null) {
             push(new FlowVariable("knime.workspace",
@@ -169,13 +174,11 @@ private FlowObjectStack() {
      * @throws NullPointerException If <code>id</code> is <code>null</code>.
      * @throws IllegalFlowObjectStackException If the stacks can't be merged.
      */
-    @SuppressWarnings("unchecked")
     private FlowObjectStack(final NodeID id, final FlowObjectStack[] predStacks, final boolean ignoredFlag) {
         if (id == null) {
             throw new NullPointerException("NodeID argument must not be null.");
         }
-        List<Vector<FlowObject>> predecessors =
-            new ArrayList<Vector<FlowObject>>();
+        List<FlowObjectList> predecessors = new ArrayList<FlowObjectList>();
         for (int i = 0; i < predStacks.length; i++) {
             if (predStacks[i] != null) {
                 predecessors.add(predStacks[i].m_stack);
@@ -184,8 +187,8 @@ private FlowObjectStack(final NodeID id, final FlowObjectStack[] predStacks, fin
         if (predecessors.isEmpty()) {
             predecessors.add(rootStack.m_stack);
         }
-        Vector<FlowObject>[] sos = predecessors.toArray(
-                new Vector[predecessors.size()]);
+        FlowObjectList[] sos = predecessors.toArray(
+                new FlowObjectList[predecessors.size()]);
         m_stack = merge(resortInputStacks(sos));
         m_nodeID = id;
     }
@@ -201,26 +204,96 @@ private FlowObjectStack(final NodeID id, final FlowObjectStack[] predStacks, fin
      *         a copy, whereby the copy will be shifted by one and the last
      *         element is the first element of sos.
      */
-    private static Vector<FlowObject>[] resortInputStacks(
-            final Vector<FlowObject>[] sos) {
+    private static FlowObjectList[] resortInputStacks(
+            final FlowObjectList[] sos) {
         if (sos.length <= 1) {
             return sos;
         }
-        @SuppressWarnings("unchecked")
-        Vector<FlowObject>[] result = new Vector[sos.length];
+        FlowObjectList[] result = new FlowObjectList[sos.length];
         System.arraycopy(sos, 1, result, 0, sos.length - 1);
         result[sos.length - 1] = sos[0];
         return result;
     }
 
-    private static Vector<FlowObject> merge(final Vector<FlowObject>[] sos) {
-        Vector<FlowObject> result = new Vector<FlowObject>();
+    /** Merges the input stacks. The part below the deepest scope context that
+     * all inputs have in common is merged only once per list (the result is
+     * memoized on the list), only the elements above it are merged here. This
+     * is equivalent to merging all elements as buckets are delimited by
+     * scope contexts and merged independently. */
+    private static FlowObjectList merge(final FlowObjectList[] sos) {
+        boolean allSame = true;
+        for (int i = 1; i < sos.length; i++) {
+            allSame = allSame && sos[i] == sos[0];
+        }
+        if (allSame) {
+            return mergeSingle(sos[0]);
+        }
+        FlowObjectList base = commonScopeBase(sos);
+        FlowObject[][] parts = new FlowObject[sos.length][];
+        for (int i = 0; i < sos.length; i++) {
+            parts[i] = elementsAbove(sos[i], base);
+        }
+        return merge(mergeSingle(base), parts);
+    }
+
+    /** Merges a single stack, i.e. removes local variables and duplicates
+     * within the buckets. Done incrementally on top of the merged list below the
+     * top-most scope context. */
+    private static FlowObjectList mergeSingle(final FlowObjectList list) {
+        FlowObjectList merged = list.getMerged();
+        if (merged == null) {
+            FlowObjectList base = list.scopeBase();
+            if (base == list) {
+                base = list.tail().scopeBase();
+            }
+            merged = merge(mergeSingle(base),
+                new FlowObject[][] {elementsAbove(list, base)});
+            list.setMerged(merged);
+        }
+        return merged;
+    }
+
+    /** The deepest list whose top is a scope context and which is contained
+     * in all argument lists (or the empty list). */
+    private static FlowObjectList commonScopeBase(final FlowObjectList[] sos) {
+        FlowObjectList candidate = sos[0].scopeBase();
+        while (!candidate.isEmpty()) {
+            boolean common = true;
+            for (int i = 1; i < sos.length && common; i++) {
+                int diff = sos[i].size() - candidate.size();
+                common = diff >= 0 && sos[i].drop(diff) == candidate;
+            }
+            if (common) {
+                return candidate;
+            }
+            candidate = candidate.tail().scopeBase();
+        }
+        return candidate;
+    }
+
+    /** Elements of list above the base list (which must be contained in it),
+     * bottom-up. */
+    private static FlowObject[] elementsAbove(final FlowObjectList list,
+            final FlowObjectList base) {
+        FlowObject[] result = new FlowObject[list.size() - base.size()];
+        FlowObjectList l = list;
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = l.head();
+            l = l.tail();
+        }
+        return result;
+    }
+
+    private static FlowObjectList merge(final FlowObjectList base,
+            final FlowObject[][] sos) {
+        FlowObjectList result = base;
         @SuppressWarnings("unchecked") // no generics in array definition
         Iterator<FlowObject>[] its = new Iterator[sos.length];
         FlowObject[] nexts = new FlowObject[sos.length];
         boolean hasMoreElements = false;
         for (int i = 0; i < sos.length; i++) {
-            its[i] = new FilteredScopeIterator(sos[i].iterator(), Scope.Local);
+            its[i] = new FilteredScopeIterator(
+                    Arrays.asList(sos[i]).iterator(), Scope.Local);
             hasMoreElements = hasMoreElements ||  its[i].hasNext();
         }
         while (hasMoreElements) {
@@ -261,9 +334,11 @@ private static Vector<FlowObject> merge(final Vector<FlowObject>[] sos) {
                     variableSet.add(o);
                 }
             }
-            result.addAll(variableSet);
+            for (FlowObject o : variableSet) {
+                result = result.push(o);
+            }
             if (commonFlowO != null) {
-                result.add(commonFlowO);
+                result = result.push(commonFlowO);
                 for (int i = 0; i < nexts.length; i++) {
                     nexts[i] = null;
                 }
@@ -292,15 +367,12 @@ public <T extends FlowObject> T peek(final Class<T> type) {
      * @since 3.4
      */
     public <T extends FlowObject> Optional<T> peekOptional(final Class<T> type) {
-        synchronized (m_stack) {
-            for (int i = m_stack.size() - 1; i >= 0; i--) {
-                FlowObject e = m_stack.get(i);
-                if (type.isInstance(e)) {
-                    return Optional.of(type.cast(e));
-                }
+        for (FlowObject e : m_stack) {
+            if (type.isInstance(e)) {
+                return Optional.of(type.cast(e));
             }
-            return Optional.empty();
         }
+        return Optional.empty();
     }
 
     /**
@@ -314,15 +386,12 @@ public <T extends FlowObject> Optional<T> peekOptional(final Class<T> type) {
      * @since 2.8
      */
     public <T extends FlowScopeContext> T peekScopeContext(final Class<T> type, final boolean isInactiveScope) {
-        synchronized (m_stack) {
-            for (int i = m_stack.size() - 1; i >= 0; i--) {
-                FlowObject e = m_stack.get(i);
-                if (type.isInstance(e) && (type.cast(e).isInactiveScope() == isInactiveScope)) {
-                    return type.cast(e);
-                }
+        for (FlowObject e : m_stack) {
+            if (type.isInstance(e) && (type.cast(e).isInactiveScope() == isInactiveScope)) {
+                return type.cast(e);
             }
-            return null;
         }
+        return null;
     }
 
     /**
@@ -337,13 +406,17 @@ public <T extends FlowScopeContext> T peekScopeContext(final Class<T> type, fina
      * @see java.util.Stack#pop()
      */
     public <T extends FlowObject> T pop(final Class<T> type) {
-        synchronized (m_stack) {
-            for (int i = m_stack.size() - 1; i >= 0; i--) {
-                FlowObject e = m_stack.remove(i);
+        synchronized (this) {
+            FlowObjectList l = m_stack;
+            while (!l.isEmpty()) {
+                FlowObject e = l.head();
+                l = l.tail();
                 if (type.isInstance(e)) {
+                    m_stack = l;
                     return type.cast(e);
                 }
             }
+            m_stack = l;
             return null;
         }
     }
@@ -363,13 +436,17 @@ public <T extends FlowObject> T pop(final Class<T> type) {
      * @since 2.8
      */
     public <T extends FlowScopeContext> T popScopeContext(final Class<T> type, final boolean isInactiveScope) {
-        synchronized (m_stack) {
-            for (int i = m_stack.size() - 1; i >= 0; i--) {
-                FlowObject e = m_stack.remove(i);
+        synchronized (this) {
+            FlowObjectList l = m_stack;
+            while (!l.isEmpty()) {
+                FlowObject e = l.head();
+                l = l.tail();
                 if (type.isInstance(e) && (type.cast(e).isInactiveScope() == isInactiveScope)) {
+                    m_stack = l;
                     return type.cast(e);
                 }
             }
+            m_stack = l;
             return null;
         }
     }
@@ -384,16 +461,9 @@ public <T extends FlowScopeContext> T popScopeContext(final Class<T> type, final
      */
     @Deprecated
     public FlowVariable peekFlowVariable(final String name, final Type type) {
-        synchronized (m_stack) {
-            for (int i = m_stack.size() - 1; i >= 0; i--) {
-                FlowObject e = m_stack.get(i);
-                if (!(e instanceof FlowVariable)) {
-                    continue;
-                }
-                FlowVariable v = (FlowVariable)e;
-                if (v.getName().equals(name) && v.getType().equals(type)) {
-                    return v;
-                }
+        for (FlowVariable v : m_stack.getFlowVariables(name)) {
+            if (v.getType().equals(type)) {
+                return v;
             }
         }
         throw new NoSuchElementException("No such variable \"" + name + "\" of"
@@ -413,14 +483,9 @@ public FlowVariable peekFlowVariable(final String name, final Type type) {
     public Optional<FlowVariable> peekFlowVariable(final String name, final VariableType<?> type) {
         CheckUtils.checkArgumentNotNull(name, "Variable name must not be null.");
         CheckUtils.checkArgumentNotNull(type, "Variable type must not be null.");
-        synchronized (m_stack) {
-            final int size = m_stack.size();
-            return IntStream.rangeClosed(1, size).mapToObj(i -> m_stack.get(size - i))//
-                .filter(o -> o instanceof FlowVariable)//
-                .map(o -> (FlowVariable)o)//
-                .filter(v -> v.getName().equals(name) && v.getVariableType().equals(type))//
-                .findFirst();
-        }
+        return m_stack.getFlowVariables(name).stream()//
+            .filter(v -> v.getVariableType().equals(type))//
+            .findFirst();
     }
 
     /**
@@ -456,19 +521,16 @@ public Map<String, FlowVariable> getAvailableFlowVariables() {
     public Map<String, FlowVariable> getAvailableFlowVariables(final FlowVariable.Type... types) {
         LinkedHashMap<String, FlowVariable> hash = new LinkedHashMap<String, FlowVariable>();
         List<Type> typesAsList = Arrays.asList(types);
-        synchronized (m_stack) {
-            for (int i = m_stack.size() - 1; i >= 0; i--) {
-                FlowObject e = m_stack.get(i);
-                if (!(e instanceof FlowVariable)) {
-                    continue;
-                }
-                FlowVariable v = (FlowVariable)e;
-                if (!typesAsList.contains(v.getType())) {
-                    continue;
-                }
-                if (!hash.containsKey(v.getName())) {
-                    hash.put(v.getName(), v);
-                }
+        for (FlowObject e : m_stack) {
+            if (!(e instanceof FlowVariable)) {
+                continue;
+            }
+            FlowVariable v = (FlowVariable)e;
+            if (!typesAsList.contains(v.getType())) {
+                continue;
+            }
+            if (!hash.containsKey(v.getName())) {
+                hash.put(v.getName(), v);
             }
         }
         return Collections.unmodifiableMap(hash);
@@ -483,17 +545,14 @@ public Map<String, FlowVariable> getAvailableFlowVariables(final FlowVariable.Ty
      * @since 4.1
      */
     public Map<String, FlowVariable> getAvailableFlowVariables(final VariableType<?>[] types) {
-        synchronized (m_stack) {
-            final int size = m_stack.size();
-            final List<VariableType<?>> typesAsList = Arrays.asList(types);
-            return Collections.unmodifiableMap(//
-                IntStream.rangeClosed(1, size).mapToObj(i -> m_stack.get(size - i))//
-                    .filter(o -> o instanceof FlowVariable)//
-                    .map(o -> (FlowVariable)o)//
-                    .filter(v -> typesAsList.contains(v.getVariableType()))//
-                    .collect(Collectors.toMap(FlowVariable::getName, Function.identity(), (v1, v2) -> v1,
-                        LinkedHashMap::new)));
-        }
+        final List<VariableType<?>> typesAsList = Arrays.asList(types);
+        return Collections.unmodifiableMap(//
+            StreamSupport.stream(m_stack.spliterator(), false)//
+                .filter(o -> o instanceof FlowVariable)//
+                .map(o -> (FlowVariable)o)//
+                .filter(v -> typesAsList.contains(v.getVariableType()))//
+                .collect(Collectors.toMap(FlowVariable::getName, Function.identity(), (v1, v2) -> v1,
+                    LinkedHashMap::new)));
     }
 
     /**
@@ -520,13 +579,12 @@ public Map<String, FlowVariable> getAvailableFlowVariables(final VariableType<?>
     List<FlowObject> getFlowObjectsOwnedBy(final NodeID id,
             final Scope... ignoredScopes) {
         List<FlowObject> result = new ArrayList<FlowObject>();
-        synchronized (m_stack) {
-            FilteredScopeIterator it = new FilteredScopeIterator(m_stack.iterator(), ignoredScopes);
-            while (it.hasNext()) {
-                FlowObject v = it.next();
-                if (v.getOwner().equals(id)) {
-                    result.add(v);
-                }
+        FilteredScopeIterator it = new FilteredScopeIterator(
+            Arrays.asList(m_stack.toArrayBottomUp()).iterator(), ignoredScopes);
+        while (it.hasNext()) {
+            FlowObject v = it.next();
+            if (v.getOwner().equals(id)) {
+                result.add(v);
             }
         }
         return result;
@@ -550,7 +608,9 @@ public void push(final FlowObject item) {
      */
     void pushWithOwner(final FlowObject item) {
         CheckUtils.checkArgument(item.getOwner() != null, "Item should have owner set at this point: %s", item);
-        m_stack.add(item);
+        synchronized (this) {
+            m_stack = m_stack.push(item);
+        }
     }
 
     /**
@@ -568,13 +628,11 @@ int size() {
 
     /** Get iterator on elements, top of stack first. The iterator is
      * read only and not affected by potential modifications of the stack
-     * after this method returns (iterator on copy).
+     * after this method returns (iterator on immutable snapshot).
      * {@inheritDoc} */
     @Override
     public Iterator<FlowObject> iterator() {
-        Vector<FlowObject> copy = new Vector<FlowObject>(m_stack);
-        Collections.reverse(copy);
-        return Collections.unmodifiableList(copy).iterator();
+        return m_stack.iterator();
     }
 
     /**
@@ -590,10 +648,8 @@ public String toString() {
     public int hashCode() {
         // stacks are not really used in hashs ... but since we implement equals
         int hash = m_nodeID.hashCode();
-        synchronized (m_stack) {
-            for (FlowObject o : m_stack) {
-                hash += o.hashCode();
-            }
+        for (FlowObject o : m_stack) {
+            hash += o.hashCode();
         }
         return hash;
     }
@@ -608,10 +664,8 @@ public boolean equals(final Object obj) {
             return false;
         }
         FlowObjectStack o = (FlowObjectStack)obj;
-        synchronized (m_stack) {
-            return o.m_nodeID.equals(m_nodeID)
-                && o.m_stack.equals(m_stack); // deep equals!
-        }
+        return o.m_nodeID.equals(m_nodeID)
+            && o.m_stack.contentEquals(m_stack); // deep equals!
     }
 
     /**
@@ -623,12 +677,9 @@ public String toDeepString() {
         b.append(m_nodeID);
         b.append("---");
         b.append('\n');
-        synchronized (m_stack) {
-            for (int i = m_stack.size() - 1; i >= 0; --i) {
-                FlowObject o = m_stack.get(i);
-                b.append(o);
-                b.append('\n');
-            }
+        for (FlowObject o : m_stack) {
+            b.append(o);
+            b.append('\n');
         }
         b.append("--------");
         return b.toString();
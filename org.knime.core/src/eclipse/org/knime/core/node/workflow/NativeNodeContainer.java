@@ -50,9 +50,11 @@
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -131,6 +133,13 @@ public class NativeNodeContainer extends SingleNodeContainer {
      * bug 5207. This field is set when status changes to EXECUTED and set to null when reset. */
     private NodeAndBundleInformationPersistor m_nodeAndBundleInformation;
 
+    /** Resource usage of the last execution of this node, null if not executed since it was created/loaded. */
+    private volatile NodeExecutionMetrics m_lastExecutionMetrics;
+
+    /** Input of the last successful configure, used to skip configure calls with unchanged input. Null if the node
+     * needs to be configured (not configured yet, reset, settings changed, ...). Guarded by m_nodeMutex. */
+    private ConfigureInput m_lastConfigureInput;
+
     /**
      * Create new SingleNodeContainer based on existing Node.
      *
@@ -190,6 +199,21 @@ public NodeModel getNodeModel() {
         return getNode().getNodeModel();
     }
 
+    /**
+     * @return the resource usage of the last (successful or failed) execution of this node in this session, or an
+     *         empty optional if the node was not executed since it was created or loaded. A reset of the node does
+     *         not clear the value.
+     * @since 4.2
+     */
+    public Optional<NodeExecutionMetrics> getLastExecutionMetrics() {
+        return Optional.ofNullable(m_lastExecutionMetrics);
+    }
+
+    /** @param metrics the metrics of the execution job that just finished, see {@link NodeExecutionJob} */
+    void setLastExecutionMetrics(final NodeExecutionMetrics metrics) {
+        m_lastExecutionMetrics = metrics;
+    }
+
     /* ------------------ Port Handling ------------- */
 
     /* */
@@ -525,12 +549,59 @@ void performStateTransitionEXECUTED(
     @Override
     boolean performConfigure(final PortObjectSpec[] inSpecs, final NodeConfigureHelper nch,
         final boolean keepNodeMessage) {
-        return m_node.configure(inSpecs, nch);
+        final ConfigureInput configureInput = createConfigureInput(inSpecs);
+        final FlowObjectStack outgoingStack = getOutgoingFlowObjectStack();
+        if (configureInput != null && configureInput.isSameInput(m_lastConfigureInput)
+            && (outgoingStack == null || outgoingStack.isEmpty())) {
+            switch (getInternalState()) {
+            case CONFIGURED:
+            case CONFIGURED_MARKEDFOREXEC:
+                // same specs, settings and flow variables as in the last configure - output is unchanged
+                if (outgoingStack != null) {
+                    m_lastConfigureInput.restoreOutgoingFlowObjects(outgoingStack);
+                }
+                return true;
+            default:
+            }
+        }
+        m_lastConfigureInput = null;
+        final boolean success = m_node.configure(inSpecs, nch);
+        final FlowObjectStack newOutgoingStack = getOutgoingFlowObjectStack();
+        if (success && configureInput != null && newOutgoingStack != null) {
+            configureInput.setOutgoingFlowObjects(newOutgoingStack);
+            m_lastConfigureInput = configureInput;
+        }
+        return success;
+    }
+
+    /** Creates the memo key for a configure call with the given input or null if the result of the configure
+     * call must not be memoized. This is the case for nodes in or controlling a scope (loops, try-catch, ...),
+     * whose configure output depends on the current iteration.
+     * @param inSpecs The input specs as passed to the node (including flow variable port).
+     * @return the input or null.
+     */
+    private ConfigureInput createConfigureInput(final PortObjectSpec[] inSpecs) {
+        final FlowObjectStack inStack = getFlowObjectStack();
+        if (inStack == null || inStack.peek(FlowScopeContext.class) != null
+            || isModelCompatibleTo(ScopeStartNode.class) || isModelCompatibleTo(ScopeEndNode.class)) {
+            return null;
+        }
+        return new ConfigureInput(inSpecs, inStack, findJobManager());
+    }
+
+    /** Forgets the input of the last configure call so that the next configure calls the node model, even if the
+     * input specs and flow variables are unchanged. Used when all nodes of a workflow are reconfigured, which is
+     * done if state changes that isn't part of {@link ConfigureInput}, for instance credentials. */
+    void invalidateLastConfigureInput() {
+        synchronized (m_nodeMutex) {
+            m_lastConfigureInput = null;
+        }
     }
 
     /** {@inheritDoc} */
     @Override
     void performLoadModelSettingsFrom(final NodeSettingsRO modelSettings) throws InvalidSettingsException {
+        m_lastConfigureInput = null;
         m_node.loadModelSettingsFrom(modelSettings);
     }
 
@@ -575,6 +646,7 @@ public NodeContainerExecutionStatus performExecuteNode(final PortObject[] inObje
     /** {@inheritDoc} */
     @Override
     void performReset() {
+        m_lastConfigureInput = null;
         m_node.reset();
         m_nodeAndBundleInformation = null;
         cleanOutPorts(false);
@@ -583,8 +655,14 @@ void performReset() {
     /** {@inheritDoc} */
     @Override
     void cleanOutPorts(final boolean isLoopRestart) {
+        final boolean hasSharedTables = !isLoopRestart && m_node.hasSharedTables();
         m_node.cleanOutPorts(isLoopRestart);
-        if (!isLoopRestart) {
+        if (hasSharedTables) {
+            // tables still used by other nodes (e.g. forks) were not cleared and must stay in the repository until
+            // the last of these nodes releases them (which then removes them individually); all other tables of this
+            // node were already removed when they were cleared
+            getParent().getWorkflowDataRepository().disownTablesOwnedBy(getID());
+        } else if (!isLoopRestart) {
             // this should have no affect as m_node.cleanOutPorts() will remove
             // all tables already
             int nrRemovedTables = removeOutputTablesFromGlobalRepository();
@@ -605,7 +683,7 @@ void cleanOutPorts(final boolean isLoopRestart) {
      */
     public final void putOutputTablesIntoGlobalRepository(final ExecutionContext c) {
         WorkflowDataRepository dataRepository = getParent().getWorkflowDataRepository();
-        m_node.putOutputTablesIntoGlobalRepository(dataRepository);
+        m_node.putOutputTablesIntoGlobalRepository(dataRepository, getID());
         HashMap<Integer, ContainerTable> localRep =
                 Node.getLocalTableRepositoryFromContext(c);
         Set<ContainerTable> localTables = new HashSet<ContainerTable>();
@@ -625,7 +703,9 @@ public final void putOutputTablesIntoGlobalRepository(final ExecutionContext c)
      * table repository. */
     private int removeOutputTablesFromGlobalRepository() {
         WorkflowDataRepository dataRepository = getParent().getWorkflowDataRepository();
-        return m_node.removeOutputTablesFromGlobalRepository(dataRepository);
+        int result = m_node.removeOutputTablesFromGlobalRepository(dataRepository);
+        // any other table registered for this node (e.g. internally held tables), no scan of the entire repository
+        return result + dataRepository.removeTablesOwnedBy(getID()).size();
     }
 
     /* --------------- File Store Handling ------------- */
@@ -890,7 +970,7 @@ WorkflowCopyContent performLoadContent(final SingleNodeContainerPersistor nodePe
         }
 
         if (isExecuted) {
-            m_node.putOutputTablesIntoGlobalRepository(getParent().getWorkflowDataRepository());
+            m_node.putOutputTablesIntoGlobalRepository(getParent().getWorkflowDataRepository(), getID());
         }
         return null;
     }
@@ -920,7 +1000,7 @@ public void loadExecutionResult(
                 NodeContext.pushContext(this);
                 try {
                     m_node.loadExecutionResult(nodeExecResult, new ExecutionMonitor(), loadResult);
-                    m_node.putOutputTablesIntoGlobalRepository(getParent().getWorkflowDataRepository());
+                    m_node.putOutputTablesIntoGlobalRepository(getParent().getWorkflowDataRepository(), getID());
                 } finally {
                     NodeContext.removeLastContext();
                 }
@@ -1227,4 +1307,43 @@ public String getOutputObjectSummary(final int portIndex) {
     public HiLiteHandler getOutputHiLiteHandler(final int portIndex) {
         return getNode().getOutputHiLiteHandler(portIndex);
     }
+
+    /** Input of a configure call: input specs, incoming flow variables (which also cover the flow variable controlled
+     * settings) and job manager. Node settings are not part of it as changing them resets the node. Also remembers
+     * what configure pushed onto the outgoing flow object stack so that it can be restored when configure is
+     * skipped. */
+    private static final class ConfigureInput {
+
+        private final PortObjectSpec[] m_inSpecs;
+        private final FlowObjectStack m_inStack;
+        private final NodeExecutionJobManager m_jobManager;
+        private FlowObject[] m_outgoingFlowObjects;
+
+        ConfigureInput(final PortObjectSpec[] inSpecs, final FlowObjectStack inStack,
+            final NodeExecutionJobManager jobManager) {
+            m_inSpecs = inSpecs.clone();
+            m_inStack = inStack;
+            m_jobManager = jobManager;
+        }
+
+        void setOutgoingFlowObjects(final FlowObjectStack outgoingStack) {
+            List<FlowObject> objects = new ArrayList<>(outgoingStack.size());
+            outgoingStack.forEach(objects::add);
+            m_outgoingFlowObjects = objects.toArray(new FlowObject[objects.size()]);
+        }
+
+        /** Pushes the objects, which were pushed during the memoized configure, onto the (new) outgoing stack. */
+        void restoreOutgoingFlowObjects(final FlowObjectStack outgoingStack) {
+            // stored top of stack first
+            for (int i = m_outgoingFlowObjects.length - 1; i >= 0; i--) {
+                outgoingStack.pushWithOwner(m_outgoingFlowObjects[i]);
+            }
+        }
+
+        /** @return whether the argument (possibly null) has the same job manager, input specs and flow objects. */
+        boolean isSameInput(final ConfigureInput o) {
+            return o != null && o.m_jobManager == m_jobManager && Arrays.equals(o.m_inSpecs, m_inSpecs)
+                && o.m_inStack.equals(m_inStack);
+        }
+    }
 }
@@ -78,6 +78,9 @@ public abstract class NodeExecutionJob implements Runnable {
     private final NodeContainer m_nc;
     private final PortObject[] m_data;
 
+    /** Time of creation (= submission) of this job, used to compute the queue wait time. */
+    private final long m_creationNanos = System.nanoTime();
+
 
     /** Creates a new execution job for a given node. The array argument
      * represent the available input data..
@@ -113,9 +116,18 @@ public final void run() {
         }
 
         NodeContext.pushContext(m_nc);
+        final NodeExecutionMetrics.Recorder metricsRecorder = m_nc instanceof NativeNodeContainer
+            ? NodeExecutionMetrics.Recorder.start(System.nanoTime() - m_creationNanos,
+                NodeExecutionMetrics.countRows(m_data))
+            : null;
+        NodeContainerExecutionStatus status = null;
         try {
-           internalRun();
+           status = internalRun();
         } finally {
+            if (metricsRecorder != null) {
+                ((NativeNodeContainer)m_nc).setLastExecutionMetrics(
+                    metricsRecorder.finish(m_nc, status != null && status.isSuccess()));
+            }
             NodeContext.removeLastContext();
             assert contextStack.size() == 0 : "Context stack is not empty although it should be";
             contextStack.addAll(savedContextStack);
@@ -138,9 +150,9 @@ protected String getCustomThreadName(final String originalThreadName) {
     }
 
     /**
-     *
+     * @return the final execution status, <code>null</code> if the node was canceled before it started executing
      */
-    private void internalRun() {
+    private NodeContainerExecutionStatus internalRun() {
         NodeContainerExecutionStatus status = null;
         // handle inactive branches -- do not delegate to custom job
         // manager (the node will just return inactive branch objects)
@@ -157,7 +169,7 @@ private void internalRun() {
                 // sets state PREEXECUTE
                 if (!m_nc.notifyParentPreExecuteStart()) {
                     // node was canceled, omit any subsequent state transitions
-                    return;
+                    return null;
                 }
                 if (!executeInactive) {
                     beforeExecute();
@@ -202,6 +214,7 @@ private void internalRun() {
                 }
                 if (status != null) {
                     if (status.isSuccess()) {
+                        recordRowsOut();
                         String elapsed = StringFormat.formatElapsedTime(System.currentTimeMillis() - time);
                         m_logger.info(m_nc.getNameWithID() + " End execute (" + elapsed + ")");
                     } else if (m_nc instanceof SubNodeContainer) { //TODO handle try-catch for
@@ -240,6 +253,22 @@ private void internalRun() {
                 logError(e);
             }
         }
+        return status;
+    }
+
+    /**
+     * Passes the number of output rows to the current metrics recorder, if any. Must be called before the workflow
+     * manager gets a chance to clean the outputs (e.g. when restarting a loop).
+     */
+    private void recordRowsOut() {
+        NodeExecutionMetrics.Recorder recorder = NodeExecutionMetrics.Recorder.current();
+        if (recorder != null) {
+            PortObject[] outputs = new PortObject[m_nc.getNrOutPorts()];
+            for (int i = 0; i < outputs.length; i++) {
+                outputs[i] = m_nc.getOutPort(i).getPortObject();
+            }
+            recorder.setRowsOut(NodeExecutionMetrics.countRows(outputs));
+        }
     }
 
     /**
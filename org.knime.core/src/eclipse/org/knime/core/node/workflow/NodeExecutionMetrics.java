@@ -0,0 +1,415 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.workflow;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.management.JMException;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.port.PortObject;
+
+/**
+ * Resource usage of a single execution of a {@link NativeNodeContainer}. Instances are created when the execution
+ * job of a node finishes and can be queried via {@link NativeNodeContainer#getLastExecutionMetrics()} or, for an
+ * entire workflow, via {@link WorkflowManager#getNodeExecutionMetrics(boolean)}. Listeners registered via
+ * {@link #addListener(Consumer)} are informed about each new instance, e.g. to forward them to a profiler.
+ * <p>
+ * CPU time and allocated bytes are measured on the thread running the node's execution job only; work that a node
+ * hands off to other threads (e.g. the global thread pool) is not included. Values that could not be determined are
+ * reported as -1.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 4.2
+ */
+public final class NodeExecutionMetrics {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(NodeExecutionMetrics.class);
+
+    private static final List<Consumer<NodeExecutionMetrics>> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private final NodeID m_nodeID;
+
+    private final String m_nodeName;
+
+    private final boolean m_success;
+
+    private final long m_startTime;
+
+    private final long m_wallTimeNanos;
+
+    private final long m_cpuTimeNanos;
+
+    private final long m_allocatedBytes;
+
+    private final long m_rowsIn;
+
+    private final long m_rowsOut;
+
+    private final long m_bytesWritten;
+
+    private final long m_tableFileBytesOpened;
+
+    private final long m_spillCount;
+
+    private final long m_queueWaitNanos;
+
+    private final long m_lockWaitNanos;
+
+    private NodeExecutionMetrics(final NodeContainer nc, final boolean success, final Recorder recorder,
+        final long wallTimeNanos, final long cpuTimeNanos, final long allocatedBytes) {
+        m_nodeID = nc.getID();
+        m_nodeName = nc.getName();
+        m_success = success;
+        m_startTime = recorder.m_startTime;
+        m_wallTimeNanos = wallTimeNanos;
+        m_cpuTimeNanos = cpuTimeNanos;
+        m_allocatedBytes = allocatedBytes;
+        m_rowsIn = recorder.m_rowsIn;
+        m_rowsOut = recorder.m_rowsOut;
+        m_bytesWritten = recorder.m_bytesWritten.sum();
+        m_tableFileBytesOpened = recorder.m_tableFileBytesOpened.sum();
+        m_spillCount = recorder.m_spillCount.sum();
+        m_queueWaitNanos = recorder.m_queueWaitNanos;
+        m_lockWaitNanos = recorder.m_lockWaitNanos.sum();
+    }
+
+    /** @return the id of the executed node */
+    public NodeID getNodeID() {
+        return m_nodeID;
+    }
+
+    /** @return the name of the executed node */
+    public String getNodeName() {
+        return m_nodeName;
+    }
+
+    /** @return whether the execution was successful */
+    public boolean isSuccess() {
+        return m_success;
+    }
+
+    /** @return the time the execution job started running, in milliseconds since the epoch */
+    public long getStartTime() {
+        return m_startTime;
+    }
+
+    /** @return the wall clock time of the execution job, in nanoseconds */
+    public long getWallTimeNanos() {
+        return m_wallTimeNanos;
+    }
+
+    /** @return the CPU time consumed by the thread running the execution job, in nanoseconds, or -1 */
+    public long getCpuTimeNanos() {
+        return m_cpuTimeNanos;
+    }
+
+    /** @return the bytes allocated by the thread running the execution job, or -1 */
+    public long getAllocatedBytes() {
+        return m_allocatedBytes;
+    }
+
+    /** @return the number of rows of all input tables */
+    public long getRowsIn() {
+        return m_rowsIn;
+    }
+
+    /** @return the number of rows of all output tables */
+    public long getRowsOut() {
+        return m_rowsOut;
+    }
+
+    /** @return the number of bytes written to temporary table files by buffers created during execution */
+    public long getBytesWritten() {
+        return m_bytesWritten;
+    }
+
+    /**
+     * @return the total size of the table files opened for reading during execution, in bytes; each opened iterator
+     *         counts the entire file, no matter how many rows it actually reads
+     */
+    public long getTableFileBytesOpened() {
+        return m_tableFileBytesOpened;
+    }
+
+    /** @return how often tables created during execution were moved from memory to disk before being closed */
+    public long getSpillCount() {
+        return m_spillCount;
+    }
+
+    /** @return the time between submitting the execution job and the job starting to run, in nanoseconds */
+    public long getQueueWaitNanos() {
+        return m_queueWaitNanos;
+    }
+
+    /** @return the time the execution job waited to acquire the workflow lock, in nanoseconds */
+    public long getLockWaitNanos() {
+        return m_lockWaitNanos;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return String.format("%s (%s): %s, wall %d ms, cpu %d ms, alloc %d bytes, rows %d/%d, "
+            + "table bytes written/opened %d/%d, spills %d, queue wait %d ms, lock wait %d ms", m_nodeName, m_nodeID,
+            m_success ? "success" : "failure", m_wallTimeNanos / 1_000_000, nanosToMillis(m_cpuTimeNanos),
+            m_allocatedBytes, m_rowsIn, m_rowsOut, m_bytesWritten, m_tableFileBytesOpened, m_spillCount,
+            m_queueWaitNanos / 1_000_000, m_lockWaitNanos / 1_000_000);
+    }
+
+    private static long nanosToMillis(final long nanos) {
+        return nanos < 0 ? nanos : nanos / 1_000_000;
+    }
+
+    /**
+     * Adds a listener that is informed about the metrics of each finished node execution. Listeners are called on the
+     * thread that ran the execution job and must return quickly.
+     *
+     * @param listener the listener to add
+     */
+    public static void addListener(final Consumer<NodeExecutionMetrics> listener) {
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * Removes a listener previously added via {@link #addListener(Consumer)}.
+     *
+     * @param listener the listener to remove
+     */
+    public static void removeListener(final Consumer<NodeExecutionMetrics> listener) {
+        LISTENERS.remove(listener);
+    }
+
+    private static void fireMetrics(final NodeExecutionMetrics metrics) {
+        for (Consumer<NodeExecutionMetrics> l : LISTENERS) {
+            try {
+                l.accept(metrics);
+            } catch (Throwable t) {
+                LOGGER.error("Exception while notifying execution metrics listener", t);
+            }
+        }
+    }
+
+    /** @return the total number of rows of all {@link BufferedDataTable BufferedDataTables} in the argument */
+    static long countRows(final PortObject[] portObjects) {
+        long rows = 0;
+        for (PortObject po : portObjects) {
+            if (po instanceof BufferedDataTable) {
+                rows += ((BufferedDataTable)po).size();
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Collects the metrics of one node execution. A recorder is bound to the thread running the execution job
+     * between {@link #start(long, long)} and {@link #finish(NodeContainer, boolean)}; code that is called during
+     * execution (workflow lock, table buffers) looks it up via {@link #current()}. The counters are thread-safe so
+     * that objects created during execution can hold on to the recorder and report from other threads.
+     *
+     * @noreference This class is not intended to be referenced by clients.
+     */
+    public static final class Recorder {
+
+        private static final ThreadLocal<Recorder> CURRENT = new ThreadLocal<>();
+
+        private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+        private static final ObjectName THREADING_BEAN_NAME;
+
+        static {
+            ObjectName name;
+            try {
+                name = new ObjectName(ManagementFactory.THREAD_MXBEAN_NAME);
+            } catch (MalformedObjectNameException e) {
+                name = null;
+            }
+            THREADING_BEAN_NAME = name;
+        }
+
+        /** Set to false on first failure to query the allocation counter. */
+        private static volatile boolean allocatedBytesSupported = THREADING_BEAN_NAME != null;
+
+        private final long m_startTime;
+
+        private final long m_startNanos;
+
+        private final long m_startCpuNanos;
+
+        private final long m_startAllocatedBytes;
+
+        private final long m_queueWaitNanos;
+
+        private final long m_rowsIn;
+
+        private volatile long m_rowsOut;
+
+        private final LongAdder m_bytesWritten = new LongAdder();
+
+        private final LongAdder m_tableFileBytesOpened = new LongAdder();
+
+        private final LongAdder m_spillCount = new LongAdder();
+
+        private final LongAdder m_lockWaitNanos = new LongAdder();
+
+        /** The recorder bound to the thread before this one was started, restored on finish; usually null. */
+        private final Recorder m_previous;
+
+        private Recorder(final long queueWaitNanos, final long rowsIn, final Recorder previous) {
+            m_previous = previous;
+            m_queueWaitNanos = queueWaitNanos;
+            m_rowsIn = rowsIn;
+            m_startTime = System.currentTimeMillis();
+            m_startNanos = System.nanoTime();
+            m_startCpuNanos = currentThreadCpuTime();
+            m_startAllocatedBytes = currentThreadAllocatedBytes();
+        }
+
+        /** @return the recorder bound to the current thread or <code>null</code> if no node is executing on it */
+        public static Recorder current() {
+            return CURRENT.get();
+        }
+
+        /**
+         * Starts recording on the current thread. If another recorder is already bound to the thread (a job that runs
+         * a nested job synchronously), it is restored when the new recorder {@linkplain #finish(NodeContainer, boolean)
+         * finishes}.
+         *
+         * @param queueWaitNanos time the execution job was waiting to be run
+         * @param rowsIn number of input rows
+         * @return the new recorder, bound to the current thread
+         */
+        static Recorder start(final long queueWaitNanos, final long rowsIn) {
+            Recorder recorder = new Recorder(queueWaitNanos, rowsIn, CURRENT.get());
+            CURRENT.set(recorder);
+            return recorder;
+        }
+
+        /** @param rowsOut number of output rows */
+        void setRowsOut(final long rowsOut) {
+            m_rowsOut = rowsOut;
+        }
+
+        /**
+         * Unbinds this recorder from the current thread (re-binding the previous one, if any), informs the listeners and
+         * returns the metrics.
+         *
+         * @param nc the executed node
+         * @param success whether the execution was successful
+         * @return the metrics of the execution
+         */
+        NodeExecutionMetrics finish(final NodeContainer nc, final boolean success) {
+            assert CURRENT.get() == this;
+            if (m_previous != null) {
+                CURRENT.set(m_previous);
+            } else {
+                CURRENT.remove();
+            }
+            long wallTimeNanos = System.nanoTime() - m_startNanos;
+            long cpuNanos = currentThreadCpuTime();
+            long allocatedBytes = currentThreadAllocatedBytes();
+            NodeExecutionMetrics metrics = new NodeExecutionMetrics(nc, success, this, wallTimeNanos,
+                cpuNanos < 0 || m_startCpuNanos < 0 ? -1 : cpuNanos - m_startCpuNanos,
+                allocatedBytes < 0 || m_startAllocatedBytes < 0 ? -1 : allocatedBytes - m_startAllocatedBytes);
+            fireMetrics(metrics);
+            return metrics;
+        }
+
+        /** @param bytes number of bytes written to a table file */
+        public void addBytesWritten(final long bytes) {
+            m_bytesWritten.add(bytes);
+        }
+
+        /** @param bytes size of a table file opened for reading */
+        public void addTableFileBytesOpened(final long bytes) {
+            m_tableFileBytesOpened.add(bytes);
+        }
+
+        /** Called when a table is moved from memory to disk before it is closed. */
+        public void incSpillCount() {
+            m_spillCount.increment();
+        }
+
+        /** @param nanos time spent waiting for the workflow lock */
+        void addLockWaitNanos(final long nanos) {
+            m_lockWaitNanos.add(nanos);
+        }
+
+        private static long currentThreadCpuTime() {
+            try {
+                return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : -1;
+            } catch (UnsupportedOperationException e) {
+                return -1;
+            }
+        }
+
+        private static long currentThreadAllocatedBytes() {
+            // the allocation counter is only available on the com.sun.management extension of the thread bean,
+            // which is accessed via the platform MBean server to avoid a dependency on com.sun.* packages
+            if (!allocatedBytesSupported) {
+                return -1;
+            }
+            try {
+                Object bytes = ManagementFactory.getPlatformMBeanServer().invoke(THREADING_BEAN_NAME,
+                    "getThreadAllocatedBytes", new Object[]{Thread.currentThread().getId()},
+                    new String[]{long.class.getName()});
+                return bytes instanceof Long ? (Long)bytes : -1;
+            } catch (JMException | RuntimeException e) {
+                allocatedBytesSupported = false;
+                LOGGER.debug("Thread allocation counter not available, not recording allocated bytes", e);
+                return -1;
+            }
+        }
+    }
+
+}
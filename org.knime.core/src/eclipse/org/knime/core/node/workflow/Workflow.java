@@ -59,6 +59,7 @@
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.knime.core.node.NodeLogger;
@@ -73,7 +74,7 @@
  *
  * @author M. Berthold, University of Konstanz
  */
-class Workflow {
+class Workflow implements WorkflowGraph {
 
     /** my logger. */
     private static final NodeLogger LOGGER = NodeLogger.getLogger(Workflow.class);
@@ -92,6 +93,14 @@ class Workflow {
     private final Map<NodeID, Set<ConnectionContainer>> m_connectionsByDest
                                   = new TreeMap<NodeID, Set<ConnectionContainer>>();
 
+    /** Immutable copy of nodes and connections for readers not holding the workflow lock. See
+     * {@link #getGraphSnapshot()}. */
+    private volatile GraphSnapshot m_graphSnapshot;
+
+    /** Whether nodes or connections were added or removed since {@link #m_graphSnapshot} was created. Only accessed
+     * while holding the workflow lock. */
+    private boolean m_isGraphSnapshotOutdated;
+
     private WorkflowManager m_wfm;
     private NodeID m_id;
 
@@ -108,6 +117,7 @@ class Workflow {
         // add sets for this (meta-) node's in- and output connections
         m_connectionsByDest.put(id, new LinkedHashSet<ConnectionContainer>());
         m_connectionsBySource.put(id, new LinkedHashSet<ConnectionContainer>());
+        m_graphSnapshot = new GraphSnapshot(this);
         clearGraphAnnotationCache();
     }
 
@@ -142,7 +152,8 @@ NodeID createUniqueID() {
      * @param id of the node
      * @return node with that id
      */
-    NodeContainer getNode(final NodeID id) {
+    @Override
+    public NodeContainer getNode(final NodeID id) {
         return m_nodes.get(id);
     }
 
@@ -157,6 +168,7 @@ void putNode(final NodeID id, final NodeContainer nc) {
         m_connectionsByDest.put(id, new LinkedHashSet<ConnectionContainer>());
         // and then add node (avoid inconsistent node - connection setup)
         m_nodes.put(id, nc);
+        m_isGraphSnapshotOutdated = true;
         clearGraphAnnotationCache();
     }
 
@@ -171,6 +183,7 @@ NodeContainer removeNode(final NodeID id) {
         // and then clean up the connection lists  (avoid inconsistent node - connection setup)
         m_connectionsBySource.remove(id);
         m_connectionsByDest.remove(id);
+        m_isGraphSnapshotOutdated = true;
         clearGraphAnnotationCache();
         // and return removed node container
         return node;
@@ -179,7 +192,8 @@ NodeContainer removeNode(final NodeID id) {
     /**
      * @return collection of all NodeContainers that are part of this workflow.
      */
-    Collection<NodeContainer> getNodeValues() {
+    @Override
+    public Collection<NodeContainer> getNodeValues() {
         Collection<NodeContainer> cnc = m_nodes.values();
         return Collections.unmodifiableCollection(cnc);
     }
@@ -212,7 +226,8 @@ boolean containsNodeKey(final NodeID id) {
      * @param id of destination node
      * @return set as described above
      */
-    Set<ConnectionContainer> getConnectionsByDest(final NodeID id) {
+    @Override
+    public Set<ConnectionContainer> getConnectionsByDest(final NodeID id) {
         Set<ConnectionContainer> scc = m_connectionsByDest.get(id);
         return scc == null ? null : Collections.unmodifiableSet(scc);
     }
@@ -222,7 +237,8 @@ Set<ConnectionContainer> getConnectionsByDest(final NodeID id) {
      * @param id of destination node
      * @return set as described above
      */
-    Set<ConnectionContainer> getConnectionsBySource(final NodeID id) {
+    @Override
+    public Set<ConnectionContainer> getConnectionsBySource(final NodeID id) {
         Set<ConnectionContainer> scc = m_connectionsBySource.get(id);
         return scc == null ? null : Collections.unmodifiableSet(scc);
     }
@@ -231,17 +247,40 @@ Set<ConnectionContainer> getConnectionsBySource(final NodeID id) {
      * @return a collection of sets of ConnectionContainers, grouped by
      *   source node ID.
      */
-    Collection<Set<ConnectionContainer>> getConnectionsBySourceValues() {
+    @Override
+    public Collection<Set<ConnectionContainer>> getConnectionsBySourceValues() {
         Collection<Set<ConnectionContainer>> cscc = m_connectionsBySource.values();
         return cscc == null ? null : Collections.unmodifiableCollection(cscc);
     }
 
+    /**
+     * Returns an immutable copy of the nodes and connections of this workflow as of the last release of the
+     * workflow lock. Used by read-only queries from threads not holding the workflow lock (UI, remote job views), so
+     * that they don't need to acquire it and hence don't block executing nodes. Structural changes of a thread
+     * holding the lock become visible once it releases the lock, see {@link #updateGraphSnapshot()}.
+     *
+     * @return the snapshot, not null
+     */
+    GraphSnapshot getGraphSnapshot() {
+        return m_graphSnapshot;
+    }
+
+    /** Creates a new {@link #getGraphSnapshot() snapshot} if nodes or connections were added or removed since the
+     * last one was created. Called by {@link WorkflowLock} when the lock is released. */
+    void updateGraphSnapshot() {
+        if (m_isGraphSnapshotOutdated) {
+            m_isGraphSnapshotOutdated = false;
+            m_graphSnapshot = new GraphSnapshot(this);
+        }
+    }
+
     /** Remove a connection.
      *
      * @param cc the connection to be removed.
      * @throws IllegalArgumentException if connection does not exist.
      */
     void removeConnection(final ConnectionContainer cc) throws IllegalArgumentException {
+        m_isGraphSnapshotOutdated = true;
         clearGraphAnnotationCache();
         // 1) try to delete it from set of outgoing connections
         if (!m_connectionsBySource.get(cc.getSource()).remove(cc)) {
@@ -259,6 +298,7 @@ void removeConnection(final ConnectionContainer cc) throws IllegalArgumentExcept
     * @throws IllegalArgumentException if connection cannot be added.
     */
     void addConnection(final ConnectionContainer cc) throws IllegalArgumentException {
+        m_isGraphSnapshotOutdated = true;
         clearGraphAnnotationCache();
         // 1) try to insert it into set of outgoing connections
         if (!m_connectionsBySource.get(cc.getSource()).add(cc)) {
@@ -1482,6 +1522,27 @@ NodeID getMatchingLoopStart(final NodeID id) throws IllegalLoopException {
         }
     }
 
+    /**
+     * Cached variant of {@link #findAllNodesConnectedToLoopBody(NodeID, NodeID)}. The loop body is computed once
+     * per start/end pair and reused until the structure of this workflow (or of any contained metanode) changes,
+     * which makes it cheap to call once per loop iteration. Ill-posed loops are not cached, i.e. the exception is
+     * thrown again on each call.
+     *
+     * @param startNode id of head of loop
+     * @param endNode if of tail of loop
+     * @return unmodifiable list of nodes within loop body &amp; any dangling branches, in topological order
+     * @throws IllegalLoopException If there is a ill-posed loop (dangling branches)
+     */
+    List<NodeAndInports> getLoopBody(final NodeID startNode, final NodeID endNode) throws IllegalLoopException {
+        final Pair<NodeID, NodeID> key = new Pair<NodeID, NodeID>(startNode, endNode);
+        List<NodeAndInports> loopBody = m_loopBodyCache.get(key);
+        if (loopBody == null) {
+            loopBody = Collections.unmodifiableList(findAllNodesConnectedToLoopBody(startNode, endNode));
+            m_loopBodyCache.put(key, loopBody);
+        }
+        return loopBody;
+    }
+
     /** Create list of nodes (id)s that are part of a loop body. Note that
      * this also includes any dangling branches which leave the loop but
      * do not connect back to the end-node. Used to re-execute all nodes
@@ -1603,9 +1664,14 @@ public NodeGraphAnnotation getSingleNodeGraphAnnotation(final NodeID id)
     /** hold graph based annotations for all nodes. */
     private ArrayList<NodeGraphAnnotation> m_nodeAnnotationCache = null;
 
+    /** loop bodies keyed by (start, end) node, see {@link #getLoopBody(NodeID, NodeID)}. */
+    private final Map<Pair<NodeID, NodeID>, List<NodeAndInports>> m_loopBodyCache =
+        new ConcurrentHashMap<Pair<NodeID, NodeID>, List<NodeAndInports>>();
+
     /** clean cache - called internally whenever the structure (connections/nodes) are altered. */
     private void clearGraphAnnotationCache() {
         m_nodeAnnotationCache = null;
+        m_loopBodyCache.clear();
         // also clear cache in parent - changes here may affect the connectivity outside as well.
         if (m_wfm != null && m_wfm.getParent() != null && m_wfm.getParent().getWorkflow() != null) {
             m_wfm.getParent().getWorkflow().clearGraphAnnotationCache();
@@ -1746,4 +1812,60 @@ private void updateGraphAnnotationCache() {
         // and finally sort node again:
         Collections.reverse(m_nodeAnnotationCache);
     }
+
+    /** Immutable copy of the nodes and connections of a workflow, see {@link Workflow#getGraphSnapshot()}. The
+     * node containers themselves are not copied, only the graph structure. */
+    static final class GraphSnapshot implements WorkflowGraph {
+
+        private final Map<NodeID, NodeContainer> m_nodes;
+
+        private final Map<NodeID, Set<ConnectionContainer>> m_connectionsBySource;
+
+        private final Map<NodeID, Set<ConnectionContainer>> m_connectionsByDest;
+
+        private GraphSnapshot(final Workflow workflow) {
+            m_nodes = Collections.unmodifiableMap(new LinkedHashMap<>(workflow.m_nodes));
+            m_connectionsBySource = copyConnections(workflow.m_connectionsBySource);
+            m_connectionsByDest = copyConnections(workflow.m_connectionsByDest);
+        }
+
+        private static Map<NodeID, Set<ConnectionContainer>> copyConnections(
+            final Map<NodeID, Set<ConnectionContainer>> connections) {
+            Map<NodeID, Set<ConnectionContainer>> copy = new LinkedHashMap<>();
+            for (Map.Entry<NodeID, Set<ConnectionContainer>> e : connections.entrySet()) {
+                copy.put(e.getKey(), Collections.unmodifiableSet(new LinkedHashSet<>(e.getValue())));
+            }
+            return Collections.unmodifiableMap(copy);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public NodeContainer getNode(final NodeID id) {
+            return m_nodes.get(id);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Collection<NodeContainer> getNodeValues() {
+            return m_nodes.values();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Set<ConnectionContainer> getConnectionsByDest(final NodeID id) {
+            return m_connectionsByDest.get(id);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Set<ConnectionContainer> getConnectionsBySource(final NodeID id) {
+            return m_connectionsBySource.get(id);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Collection<Set<ConnectionContainer>> getConnectionsBySourceValues() {
+            return m_connectionsBySource.values();
+        }
+    }
 }
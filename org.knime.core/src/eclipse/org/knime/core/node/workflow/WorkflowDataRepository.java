@@ -49,11 +49,14 @@
 package org.knime.core.node.workflow;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -71,6 +74,11 @@
  * dereferencing blobs, filestores and linked tables. Also handles the handing out of {@link BufferedDataTable}'s
  * internal identifiers.
  *
+ * <p>
+ * All operations are lock-free (backed by concurrent maps), tables can optionally be registered with the node that
+ * owns them ({@link #getViewForOwner(NodeID)}) so that they can be removed in bulk via
+ * {@link #removeTablesOwnedBy(NodeID)} without scanning the entire repository.
+ *
  * @noreference This class is not intended to be referenced by clients.
  * @author Bernd Wiswedel, KNIME AG, Zurich, Switzerland
  */
@@ -87,18 +95,49 @@ public class WorkflowDataRepository implements IDataRepository {
      */
     private final Map<Integer, ContainerTable> m_globalTableRepository;
 
+    /** Table IDs per owning node, only contains tables added via an owner view. */
+    private final ConcurrentHashMap<NodeID, Set<Integer>> m_ownerToTableIDs;
+
+    /** Reverse of {@link #m_ownerToTableIDs}. */
+    private final ConcurrentHashMap<Integer, NodeID> m_tableIDToOwner;
+
     private final ConcurrentHashMap<UUID, IWriteFileStoreHandler> m_handlerMap;
 
+    /** One view per owner, see {@link #getViewForOwner(NodeID)}; dropped when the owner's tables are removed. */
+    private final ConcurrentHashMap<NodeID, WorkflowDataRepository> m_ownerViews;
+
     /**
      * internal ID for any generated buffered data table.
      */
-    private final AtomicInteger LAST_ID = new AtomicInteger(0);
+    private final AtomicInteger LAST_ID;
+
+    /** Owner of tables added via {@link #addTable(int, ContainerTable)}, null unless this is an owner view. */
+    private final NodeID m_owner;
 
     WorkflowDataRepository() {
-        // synchronized as per bug 3383: workflow manager's table repository must synchronized
-        // (problems with GroupLoop start "forgetting" its sorted table)
-        m_globalTableRepository = Collections.synchronizedMap(new HashMap<Integer, ContainerTable>());
+        // thread-safe as per bug 3383: workflow manager's table repository must synchronized
+        // (problems with GroupLoop start "forgetting" its sorted table); concurrent map to avoid a global monitor
+        m_globalTableRepository = new ConcurrentHashMap<Integer, ContainerTable>();
+        m_ownerToTableIDs = new ConcurrentHashMap<NodeID, Set<Integer>>();
+        m_tableIDToOwner = new ConcurrentHashMap<Integer, NodeID>();
         m_handlerMap = new ConcurrentHashMap<UUID, IWriteFileStoreHandler>();
+        m_ownerViews = new ConcurrentHashMap<NodeID, WorkflowDataRepository>();
+        LAST_ID = new AtomicInteger(0);
+        m_owner = null;
+    }
+
+    /** Constructor for an owner view, see {@link #getViewForOwner(NodeID)}. The view shares all state with the
+     * argument repository, hence any method called on the view acts on the argument repository.
+     * @param repository The repository to create the view for.
+     * @param owner The owner of tables added via the view. */
+    private WorkflowDataRepository(final WorkflowDataRepository repository, final NodeID owner) {
+        m_globalTableRepository = repository.m_globalTableRepository;
+        m_ownerToTableIDs = repository.m_ownerToTableIDs;
+        m_tableIDToOwner = repository.m_tableIDToOwner;
+        m_handlerMap = repository.m_handlerMap;
+        m_ownerViews = repository.m_ownerViews;
+        LAST_ID = repository.LAST_ID;
+        m_owner = owner;
     }
 
     /**
@@ -133,7 +172,34 @@ public void updateLastId(final int id) {
 
     @Override
     public void addTable(final int key, final ContainerTable table) {
+        if (m_owner != null) {
+            addTable(key, table, m_owner);
+        } else {
+            m_globalTableRepository.put(key, CheckUtils.checkArgumentNotNull(table));
+        }
+    }
+
+    /**
+     * Adds a table to the repository and records the argument node as its owner (unless the table is already owned
+     * by another node).
+     *
+     * @param key The id under which to add the table.
+     * @param table The table itself.
+     * @param owner The owning node, not null.
+     * @since 4.2
+     */
+    public void addTable(final int key, final ContainerTable table, final NodeID owner) {
+        CheckUtils.checkArgumentNotNull(owner, "Owner must not be null");
         m_globalTableRepository.put(key, CheckUtils.checkArgumentNotNull(table));
+        final NodeID previousOwner = m_tableIDToOwner.putIfAbsent(key, owner);
+        if (previousOwner == null || previousOwner.equals(owner)) {
+            // compute (not computeIfAbsent + add) as removeTable may drop the set concurrently once it's empty
+            m_ownerToTableIDs.compute(owner, (id, tableIDs) -> {
+                final Set<Integer> result = tableIDs != null ? tableIDs : ConcurrentHashMap.newKeySet();
+                result.add(key);
+                return result;
+            });
+        }
     }
 
     @Override
@@ -143,7 +209,92 @@ public Optional<ContainerTable> getTable(final int key) {
 
     @Override
     public Optional<ContainerTable> removeTable(final Integer key) {
-        return Optional.ofNullable(m_globalTableRepository.remove(key));
+        final ContainerTable removed = m_globalTableRepository.remove(key);
+        final NodeID owner = m_tableIDToOwner.remove(key);
+        if (owner != null) {
+            m_ownerToTableIDs.computeIfPresent(owner, (id, tableIDs) -> {
+                tableIDs.remove(key);
+                return tableIDs.isEmpty() ? null : tableIDs;
+            });
+        }
+        return Optional.ofNullable(removed);
+    }
+
+    /**
+     * Removes all tables that were added via the {@linkplain #getViewForOwner(NodeID) view of the argument node}
+     * and that are still in the repository. The cost is proportional to the number of tables owned by the node, it
+     * does not scan (nor lock) the entire repository.
+     *
+     * @param owner The owning node.
+     * @return The removed tables (possibly empty, never null).
+     * @since 4.2
+     */
+    public List<ContainerTable> removeTablesOwnedBy(final NodeID owner) {
+        m_ownerViews.remove(owner);
+        final Set<Integer> tableIDs = m_ownerToTableIDs.remove(owner);
+        if (tableIDs == null) {
+            return Collections.emptyList();
+        }
+        final List<ContainerTable> result = new ArrayList<>(tableIDs.size());
+        for (Integer key : tableIDs) {
+            if (m_tableIDToOwner.remove(key, owner)) {
+                final ContainerTable removed = m_globalTableRepository.remove(key);
+                if (removed != null) {
+                    result.add(removed);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forgets that the tables added via the {@linkplain #getViewForOwner(NodeID) view of the argument node} are owned
+     * by it but keeps them in the repository. Used for tables that are still shared with other nodes when their owner
+     * is reset; such tables are removed individually via {@link #removeTable(Integer)} once the last node releases
+     * them.
+     *
+     * @param owner The owning node.
+     * @return The IDs of the affected tables (possibly empty, never null).
+     * @since 4.2
+     */
+    public Set<Integer> disownTablesOwnedBy(final NodeID owner) {
+        m_ownerViews.remove(owner);
+        final Set<Integer> tableIDs = m_ownerToTableIDs.remove(owner);
+        if (tableIDs == null) {
+            return Collections.emptySet();
+        }
+        final Set<Integer> result = new HashSet<>(tableIDs.size());
+        for (Integer key : tableIDs) {
+            if (m_tableIDToOwner.remove(key, owner)) {
+                result.add(key);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param owner The owning node.
+     * @return A copy of the IDs of tables currently in the repository that are owned by the argument node.
+     * @since 4.2
+     */
+    public Set<Integer> getTableIDsOwnedBy(final NodeID owner) {
+        final Set<Integer> tableIDs = m_ownerToTableIDs.get(owner);
+        return tableIDs == null ? Collections.emptySet() : new HashSet<>(tableIDs);
+    }
+
+    /**
+     * Returns a repository that shares all state with this instance but registers tables added via
+     * {@link #addTable(int, ContainerTable)} as owned by the argument node. Used by the framework when the output
+     * tables of a node are put into the repository. The view is cached per owner until the owner's tables are
+     * {@linkplain #removeTablesOwnedBy(NodeID) removed}.
+     *
+     * @param owner The owning node, not null.
+     * @return A view on this repository.
+     * @since 4.2
+     */
+    public WorkflowDataRepository getViewForOwner(final NodeID owner) {
+        CheckUtils.checkArgumentNotNull(owner, "Owner must not be null");
+        return m_ownerViews.computeIfAbsent(owner, id -> new WorkflowDataRepository(this, id));
     }
 
     /** Used in test case.
@@ -209,9 +360,7 @@ public Collection<IWriteFileStoreHandler> getWriteFileStoreHandlers() {
 
     /** Restores data files into temp folder (if not done so before). */
     void ensureOpenAfterLoad() {
-        synchronized (m_globalTableRepository) {
-            m_globalTableRepository.values().stream().forEach(ContainerTable::ensureOpen);
-        }
+        m_globalTableRepository.values().stream().forEach(ContainerTable::ensureOpen);
         for (IWriteFileStoreHandler writeFileStoreHandler : getWriteFileStoreHandlers()) {
             try {
                 writeFileStoreHandler.ensureOpenAfterLoad();
@@ -239,6 +388,14 @@ public Optional<ContainerTable> removeTable(final Integer key) {
             throw new UnsupportedOperationException("not to be called");
         }
         @Override
+        public void addTable(final int key, final ContainerTable table, final NodeID owner) {
+            throw new UnsupportedOperationException("not to be called");
+        }
+        @Override
+        public WorkflowDataRepository getViewForOwner(final NodeID owner) {
+            return this;
+        }
+        @Override
         public void addFileStoreHandler(final IWriteFileStoreHandler handler) {
             throw new UnsupportedOperationException("not to be called");
         }
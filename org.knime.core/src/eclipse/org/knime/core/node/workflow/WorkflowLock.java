@@ -119,7 +119,15 @@ boolean isHeldByCurrentThread() {
      * @return this.
      */
     public WorkflowLock lock() {
-        m_reentrantLock.lock();
+        if (!m_reentrantLock.tryLock()) {
+            // contended - account the wait to the node executing on this thread (if any)
+            final long start = System.nanoTime();
+            m_reentrantLock.lock();
+            NodeExecutionMetrics.Recorder recorder = NodeExecutionMetrics.Recorder.current();
+            if (recorder != null) {
+                recorder.addLockWaitNanos(System.nanoTime() - start);
+            }
+        }
         if (KNIMEConstants.ASSERTIONS_ENABLED) {
             hasNoChildLocked();
         }
@@ -154,11 +162,18 @@ public void unlock() {
             "ReentrantLock is held by current thread but not associated with this workflow lock");
         lockHierarchyLevel.decrement();
         try {
-            if (lockHierarchyLevel.getValue() == 0 && m_checkForNodeStateChanges) {
-                boolean propagateChanges = m_propagateChanges;
-                m_propagateChanges = false;
-                m_checkForNodeStateChanges = false;
-                m_wfm.setInternalStateAfterLockRelease(m_wfm.computeNewState(), propagateChanges);
+            if (lockHierarchyLevel.getValue() == 0) {
+                // publish structural changes to readers not holding the lock
+                final Workflow workflow = m_wfm.getWorkflow();
+                if (workflow != null) {
+                    workflow.updateGraphSnapshot();
+                }
+                if (m_checkForNodeStateChanges) {
+                    boolean propagateChanges = m_propagateChanges;
+                    m_propagateChanges = false;
+                    m_checkForNodeStateChanges = false;
+                    m_wfm.setInternalStateAfterLockRelease(m_wfm.computeNewState(), propagateChanges);
+                }
             }
         } finally {
             m_reentrantLock.unlock();
@@ -115,6 +115,9 @@
 import org.eclipse.core.runtime.IExtensionPoint;
 import org.eclipse.core.runtime.IExtensionRegistry;
 import org.eclipse.core.runtime.Platform;
+import org.knime.core.data.filestore.internal.IFileStoreHandler;
+import org.knime.core.data.filestore.internal.IWriteFileStoreHandler;
+import org.knime.core.data.filestore.internal.WriteFileStoreHandler;
 import org.knime.core.internal.ReferencedFile;
 import org.knime.core.node.AbstractNodeView;
 import org.knime.core.node.BufferedDataTable;
@@ -140,6 +143,8 @@
 import org.knime.core.node.dialog.InputNode;
 import org.knime.core.node.dialog.MetaNodeDialogNode;
 import org.knime.core.node.dialog.OutputNode;
+import org.knime.core.node.exec.CopyContentIntoTempFlowNodeExecutionJobManager;
+import org.knime.core.node.exec.SandboxedNodeCreator;
 import org.knime.core.node.exec.ThreadNodeExecutionJobManager;
 import org.knime.core.node.interactive.InteractiveNode;
 import org.knime.core.node.interactive.InteractiveView;
@@ -1415,19 +1420,17 @@ public void removeConnection(final ConnectionContainer cc) {
      * @return all outgoing connections for the passed node at the specified port
      */
     public Set<ConnectionContainer> getOutgoingConnectionsFor(final NodeID id, final int portIdx) {
-        try (WorkflowLock lock = lock()) {
-            Set<ConnectionContainer> outConnections = m_workflow.getConnectionsBySource(id);
-            Set<ConnectionContainer> outConsForPort = new HashSet<ConnectionContainer>();
-            if (outConnections == null) {
-                return outConsForPort;
-            }
-            for (ConnectionContainer cont : outConnections) {
-                if (cont.getSourcePort() == portIdx) {
-                    outConsForPort.add(cont);
-                }
-            }
+        Set<ConnectionContainer> outConnections = getGraphForRead().getConnectionsBySource(id);
+        Set<ConnectionContainer> outConsForPort = new HashSet<ConnectionContainer>();
+        if (outConnections == null) {
             return outConsForPort;
         }
+        for (ConnectionContainer cont : outConnections) {
+            if (cont.getSourcePort() == portIdx) {
+                outConsForPort.add(cont);
+            }
+        }
+        return outConsForPort;
     }
 
     /**
@@ -1438,10 +1441,9 @@ public Set<ConnectionContainer> getOutgoingConnectionsFor(final NodeID id, final
      * @throws IllegalArgumentException If the node is unknown or null.
      */
     public Set<ConnectionContainer> getOutgoingConnectionsFor(final NodeID id) {
-        try (WorkflowLock lock = lock()) {
-            getNodeContainer(id); // for exception handling
-            return new LinkedHashSet<ConnectionContainer>(m_workflow.getConnectionsBySource(id));
-        }
+        final WorkflowGraph graph = getGraphForRead();
+        CheckUtils.checkArgument(graph.getNode(id) != null, "No such node ID: %s", id);
+        return new LinkedHashSet<ConnectionContainer>(graph.getConnectionsBySource(id));
     }
 
     /**
@@ -1453,16 +1455,15 @@ public Set<ConnectionContainer> getOutgoingConnectionsFor(final NodeID id) {
      * @throws IllegalArgumentException If node is not contained in workflow, nor is it the ID of this WFM
      */
     public ConnectionContainer getIncomingConnectionFor(final NodeID id, final int portIdx) {
-        try (WorkflowLock lock = lock()) {
-            CheckUtils.checkArgument(id.equals(getID()) || containsNodeContainer(id),
-                "Node ID \"%s\" not contained in workflow, nor it's the workflow itself (ID of this workflow is \"%s\")",
-                id, getID());
-            Set<ConnectionContainer> inConns = m_workflow.getConnectionsByDest(id);
-            if (inConns != null) {
-                for (ConnectionContainer cont : inConns) {
-                    if (cont.getDestPort() == portIdx) {
-                        return cont;
-                    }
+        final WorkflowGraph graph = getGraphForRead();
+        CheckUtils.checkArgument(id.equals(getID()) || graph.getNode(id) != null,
+            "Node ID \"%s\" not contained in workflow, nor it's the workflow itself (ID of this workflow is \"%s\")",
+            id, getID());
+        Set<ConnectionContainer> inConns = graph.getConnectionsByDest(id);
+        if (inConns != null) {
+            for (ConnectionContainer cont : inConns) {
+                if (cont.getDestPort() == portIdx) {
+                    return cont;
                 }
             }
         }
@@ -1477,10 +1478,9 @@ public ConnectionContainer getIncomingConnectionFor(final NodeID id, final int p
      * @throws IllegalArgumentException If the node is unknown or null.
      */
     public Set<ConnectionContainer> getIncomingConnectionsFor(final NodeID id) {
-        try (WorkflowLock lock = lock()) {
-            getNodeContainer(id); // for exception handling
-            return new LinkedHashSet<ConnectionContainer>(m_workflow.getConnectionsByDest(id));
-        }
+        final WorkflowGraph graph = getGraphForRead();
+        CheckUtils.checkArgument(graph.getNode(id) != null, "No such node ID: %s", id);
+        return new LinkedHashSet<ConnectionContainer>(graph.getConnectionsByDest(id));
     }
 
     /**
@@ -1490,9 +1490,7 @@ public Set<ConnectionContainer> getIncomingConnectionsFor(final NodeID id) {
      * @return the connection with the specified id
      */
     public ConnectionContainer getConnection(final ConnectionID id) {
-        try (WorkflowLock lock = lock()) {
-            return getIncomingConnectionFor(id.getDestinationNode(), id.getDestinationPort());
-        }
+        return getIncomingConnectionFor(id.getDestinationNode(), id.getDestinationPort());
     }
 
     /**
@@ -2261,6 +2259,11 @@ void reconfigureAllNodesOnlyInThisWFM(final boolean keepNodeMessages) {
                     // reconfigure yellow AND red nodes - it could be that
                     // the reason for the red state were the variables!
                     if (nc.getInternalState().equals(CONFIGURED) || nc.getInternalState().equals(IDLE)) {
+                        if (nc instanceof NativeNodeContainer) {
+                            // the reconfiguration might be due to state that isn't part of the memoized configure
+                            // input (e.g. credentials), hence always call the node model
+                            ((NativeNodeContainer)nc).invalidateLastConfigureInput();
+                        }
                         configureSingleNodeContainer((SingleNodeContainer)nc, keepNodeMessages);
                     }
                 } else {
@@ -3114,11 +3117,11 @@ void doAfterExecution(final NodeContainer nc, final NodeContainerExecutionStatus
                         // make sure entire loop body is executed. Trigger execution of rest if not.
                         // (note that we do not worry about waiting for executing dangling branches, for those
                         // we only need to wait when the loop is about to be restarted!)
-                        ArrayList<NodeAndInports> loopBodyNodes = new ArrayList<NodeAndInports>();
+                        List<NodeAndInports> loopBodyNodes = Collections.emptyList();
                         try {
                             NodeID endID = nnc.getID();
                             NodeID startID = m_workflow.getMatchingLoopStart(endID);
-                            loopBodyNodes = m_workflow.findAllNodesConnectedToLoopBody(startID, endID);
+                            loopBodyNodes = m_workflow.getLoopBody(startID, endID);
                         } catch (IllegalLoopException ile) {
                             // loop is incorrectly wired. We cannot restart potentially dangling branches
                             latestNodeMessage = new NodeMessage(NodeMessage.Type.ERROR,
@@ -3243,9 +3246,9 @@ private void restartLoop(final FlowLoopContext slc) throws IllegalLoopException
         if (!(tailNode instanceof NativeNodeContainer) || !(headNode instanceof NativeNodeContainer)) {
             throw new IllegalLoopException("Loop Nodes must both be NativeNodeContainers!");
         }
-        // (1) find all intermediate node, the loop's "body"
-        ArrayList<NodeAndInports> loopBodyNodes =
-            m_workflow.findAllNodesConnectedToLoopBody(headNode.getID(), tailNode.getID());
+        // (1) find all intermediate node, the loop's "body" (cached - only recomputed if the workflow changed
+        //     since the last iteration)
+        List<NodeAndInports> loopBodyNodes = m_workflow.getLoopBody(headNode.getID(), tailNode.getID());
         // (2) check if any of those nodes are currently executing (note that since 3.0 we are already
         //     marking/queuing those nodes already in doAfterExecute to fix bug 2292!)
         for (NodeAndInports nai : loopBodyNodes) {
@@ -6481,10 +6484,8 @@ public String toString() {
     /** {@inheritDoc} */
     @Override
     public Collection<NodeContainer> getNodeContainers() {
-        try (WorkflowLock lock = lock()) {
-            // TODO should we copy the list as changes to the wkf later will change this list
-            return m_workflow.getNodeValues();
-        }
+        // TODO should we copy the list as changes to the wkf later will change this list
+        return getGraphForRead().getNodeValues();
     }
 
     /**
@@ -6492,7 +6493,7 @@ public Collection<NodeContainer> getNodeContainers() {
      */
     public Collection<ConnectionContainer> getConnectionContainers() {
         Set<ConnectionContainer> result = new LinkedHashSet<ConnectionContainer>();
-        for (Set<ConnectionContainer> s : m_workflow.getConnectionsBySourceValues()) {
+        for (Set<ConnectionContainer> s : getGraphForRead().getConnectionsBySourceValues()) {
             if (s != null) {
                 result.addAll(s);
             }
@@ -6505,7 +6506,7 @@ public Collection<ConnectionContainer> getConnectionContainers() {
      * @return NodeContainer for given ID
      */
     public NodeContainer getNodeContainer(final NodeID id) {
-        NodeContainer nc = m_workflow.getNode(id);
+        NodeContainer nc = getGraphForRead().getNode(id);
         if (nc == null) {
             throw new IllegalArgumentException("No such node ID: " + id);
         }
@@ -6527,7 +6528,7 @@ public NodeContainer getNodeContainer(final NodeID id) {
      * @noreference This method is not intended to be referenced by clients (only used in core and testing plugin).
      */
     public <T> T getNodeContainer(final NodeID id, final Class<T> subclass, final boolean failOnError) {
-        NodeContainer nc = m_workflow.getNode(id);
+        NodeContainer nc = getGraphForRead().getNode(id);
         if (nc == null || !subclass.isInstance(nc)) {
             String message = nc == null ? "Invalid node ID \"" + id + "\""
                 : String.format("Node with ID \"%s\" exists but it's not implementing the requested class %s (is a %s)",
@@ -6549,7 +6550,19 @@ public <T> T getNodeContainer(final NodeID id, final Class<T> subclass, final bo
      * @return true if there is node with the given id, false otherwise.
      */
     public boolean containsNodeContainer(final NodeID id) {
-        return m_workflow.getNode(id) != null;
+        return getGraphForRead().getNode(id) != null;
+    }
+
+    /**
+     * The graph to be used by (public) read-only queries. Threads holding the workflow lock see the live workflow
+     * (including their own, not yet released modifications), all others an immutable snapshot as of the last release
+     * of the lock. The latter don't need to acquire the lock and hence don't block node execution (see
+     * {@link Workflow#getGraphSnapshot()}).
+     *
+     * @return the graph to read from
+     */
+    private WorkflowGraph getGraphForRead() {
+        return isLockedByCurrentThread() ? m_workflow : m_workflow.getGraphSnapshot();
     }
 
     /** {@inheritDoc} */
@@ -7516,6 +7529,141 @@ public WorkflowCopyContent copyFromAndPasteHere(final WorkflowManager sourceMana
         return paste(copyPersistor);
     }
 
+    /**
+     * Forks the nodes with the given ids from the argument workflow manager into this wfm instance. Unlike
+     * {@link #copyFromAndPasteHere(WorkflowManager, WorkflowCopyContent)} executed nodes keep their state: each copy is
+     * loaded with the execution result of its original, whereby tables and other port objects are shared by reference
+     * rather than copied. A shared table is only disposed once neither the original nor any of its forks holds it
+     * anymore, hence both sides can be reset, modified or re-executed independently.
+     *
+     * <p>
+     * Data is only shared if both workflows are part of the same project (same {@link WorkflowDataRepository}) and
+     * the forked node did not create file stores, otherwise it is copied into the fork. Nodes that are not completely
+     * executed (including partially executed metanodes and components) are forked in their configured state. When
+     * forking into the source workflow itself, the copies are connected to the same upstream nodes as their originals.
+     * When forking into another workflow the connections to upstream nodes can't be kept, hence executed nodes can
+     * only be forked together with all their upstream nodes.
+     *
+     * @param sourceManager The wfm to fork from
+     * @param content The content to fork (must exist in sourceManager)
+     * @param exec For progress/cancelation
+     * @return Inserted NodeIDs and annotations.
+     * @throws IllegalArgumentException If forking into another workflow and an executed node is connected to an
+     *             upstream node that is not part of the content
+     * @throws CanceledExecutionException If canceled while copying data
+     * @throws IOException If copying data fails
+     * @throws InterruptedException If interrupted while the results are loaded into the forked nodes
+     * @since 4.2
+     */
+    public WorkflowCopyContent forkFromAndPasteHere(final WorkflowManager sourceManager,
+        final WorkflowCopyContent content, final ExecutionMonitor exec)
+        throws CanceledExecutionException, IOException, InterruptedException {
+        final NodeID[] sourceIDs = content.getNodeIDs();
+        final Set<NodeID> sourceIDSet = new HashSet<>(Arrays.asList(sourceIDs));
+        final boolean isSameProject = sourceManager.getWorkflowDataRepository() == getWorkflowDataRepository();
+        final Map<NodeID, NodeExecutionJobManager> origJobManagers = new LinkedHashMap<>();
+        final WorkflowCopyContent forkContent;
+        // all workflows of a project share one lock; it's held until the execution results are loaded into the forks
+        // so that the originals can't be reset in between, which would dispose the shared tables. Across projects the
+        // data is copied while the source lock is held (not nested into this lock to avoid lock order issues)
+        final WorkflowLock projectLock = isSameProject ? lock() : null;
+        try {
+            final WorkflowPersistor copyPersistor;
+            try (WorkflowLock lock = sourceManager.lock()) {
+                if (sourceManager != this) {
+                    checkNoDanglingInputsOfExecutedNodes(sourceManager, sourceIDs);
+                }
+                copyPersistor = sourceManager.copy(content);
+            }
+            forkContent = paste(copyPersistor);
+            final NodeID[] forkIDs = forkContent.getNodeIDs();
+            final NodeContainerExecutionResult[] results = new NodeContainerExecutionResult[sourceIDs.length];
+            try (WorkflowLock lock = sourceManager.lock()) {
+                for (int i = 0; i < sourceIDs.length; i++) {
+                    NodeContainer orig = sourceManager.getNodeContainer(sourceIDs[i]);
+                    if (!orig.getNodeContainerState().isExecuted()) {
+                        continue;
+                    }
+                    exec.checkCanceled();
+                    results[i] = orig.createExecutionResult(exec.createSubProgress(0.0));
+                    boolean copyData = !isSameProject || hasCreatedFileStores(orig);
+                    SandboxedNodeCreator.copyExistingTablesIntoSandboxContainer(results[i], orig,
+                        getNodeContainer(forkIDs[i]), exec.createSubProgress(1.0 / sourceIDs.length), copyData);
+                }
+            }
+            try (WorkflowLock lock = lock()) {
+                if (sourceManager == this) {
+                    for (int i = 0; i < sourceIDs.length; i++) {
+                        for (ConnectionContainer cc : getIncomingConnectionsFor(sourceIDs[i])) {
+                            if (!sourceIDSet.contains(cc.getSource()) && canAddConnection(cc.getSource(),
+                                cc.getSourcePort(), forkIDs[i], cc.getDestPort())) {
+                                addConnection(cc.getSource(), cc.getSourcePort(), forkIDs[i], cc.getDestPort());
+                            }
+                        }
+                    }
+                }
+                for (int i = 0; i < sourceIDs.length; i++) {
+                    if (results[i] != null) {
+                        NodeContainer fork = getNodeContainer(forkIDs[i]);
+                        origJobManagers.put(forkIDs[i], fork.getJobManager());
+                        fork.setJobManager(new CopyContentIntoTempFlowNodeExecutionJobManager(results[i]));
+                    }
+                }
+                // the job manager applies the result synchronously when a fork is queued, which happens right away
+                // as the upstream nodes of a fork are executed (or are forks that get executed before)
+                executeUpToHere(origJobManagers.keySet().toArray(new NodeID[0]));
+            }
+        } finally {
+            if (projectLock != null) {
+                projectLock.close();
+            }
+        }
+        try {
+            NodeContainer[] forks = origJobManagers.keySet().stream().map(this::getNodeContainer)
+                .toArray(NodeContainer[]::new);
+            waitWhileInExecution(m_workflowLock, forks, 0L, TimeUnit.MILLISECONDS);
+        } finally {
+            try (WorkflowLock lock = lock()) {
+                origJobManagers.forEach((id, jobManager) -> getNodeContainer(id).setJobManager(jobManager));
+            }
+        }
+        return forkContent;
+    }
+
+    /** Forking into another workflow can't connect the forks to the upstream nodes of their originals, hence an
+     * executed node can only be forked together with all its upstream nodes, see
+     * {@link #forkFromAndPasteHere(WorkflowManager, WorkflowCopyContent, ExecutionMonitor)}. */
+    private static void checkNoDanglingInputsOfExecutedNodes(final WorkflowManager sourceManager,
+        final NodeID[] sourceIDs) {
+        final Set<NodeID> sourceIDSet = new HashSet<>(Arrays.asList(sourceIDs));
+        for (NodeID id : sourceIDs) {
+            NodeContainer orig = sourceManager.getNodeContainer(id);
+            if (!orig.getNodeContainerState().isExecuted()) {
+                continue;
+            }
+            for (ConnectionContainer cc : sourceManager.getIncomingConnectionsFor(id)) {
+                CheckUtils.checkArgument(sourceIDSet.contains(cc.getSource()),
+                    "Can't fork executed node %s into another workflow without its upstream node %s",
+                    orig.getNameWithID(), cc.getSource());
+            }
+        }
+    }
+
+    /** Whether the argument node (or any node contained in it) created file stores. Those can't be shared with a fork
+     * as they are bound to the lifecycle of the node's file store handler. */
+    private static boolean hasCreatedFileStores(final NodeContainer nc) {
+        if (nc instanceof NativeNodeContainer) {
+            IFileStoreHandler fsHandler = ((NativeNodeContainer)nc).getNode().getFileStoreHandler();
+            if (fsHandler instanceof WriteFileStoreHandler) {
+                return ((WriteFileStoreHandler)fsHandler).getBaseDir() != null;
+            }
+            return fsHandler instanceof IWriteFileStoreHandler;
+        }
+        WorkflowManager wfm = nc instanceof SubNodeContainer ? ((SubNodeContainer)nc).getWorkflowManager()
+            : (WorkflowManager)nc;
+        return wfm.getNodeContainers().stream().anyMatch(WorkflowManager::hasCreatedFileStores);
+    }
+
     /**
      * Copy the given content.
      *
@@ -9533,6 +9681,36 @@ public <T> Map<NodeID, T> findNodes(final Class<T> nodeModelClass, final NodeMod
         }
     }
 
+    /**
+     * Collects the resource usage of the last execution of all native nodes in this workflow, see
+     * {@link NativeNodeContainer#getLastExecutionMetrics()}. Nodes that were not executed in this session are
+     * omitted.
+     *
+     * @param recurse whether to recurse into contained metanodes and components
+     * @return the metrics, ordered by workflow level and node id
+     * @since 4.2
+     */
+    public List<NodeExecutionMetrics> getNodeExecutionMetrics(final boolean recurse) {
+        try (WorkflowLock lock = lock()) {
+            List<NodeExecutionMetrics> result = new ArrayList<NodeExecutionMetrics>();
+            for (NodeContainer nc : m_workflow.getNodeValues()) {
+                if (nc instanceof NativeNodeContainer) {
+                    ((NativeNodeContainer)nc).getLastExecutionMetrics().ifPresent(result::add);
+                }
+            }
+            if (recurse) {
+                for (NodeContainer nc : m_workflow.getNodeValues()) {
+                    if (nc instanceof WorkflowManager) {
+                        result.addAll(((WorkflowManager)nc).getNodeExecutionMetrics(true));
+                    } else if (nc instanceof SubNodeContainer) {
+                        result.addAll(((SubNodeContainer)nc).getWorkflowManager().getNodeExecutionMetrics(true));
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
     /**
      * Get the node container associated with the argument id. Recurses into contained metanodes to find the node if
      * it's not directly contained in this workflow level.
@@ -9546,23 +9724,21 @@ public <T> Map<NodeID, T> findNodes(final Class<T> nodeModelClass, final NodeMod
      * @since 2.6
      */
     public NodeContainer findNodeContainer(final NodeID id) {
-        try (WorkflowLock lock = lock()) {
-            final NodeID prefix = id.getPrefix();
-            if (prefix.equals(getID())) {
-                return getNodeContainer(id);
-            } else if (id.hasPrefix(getID())) {
-                NodeContainer parentNC = findNodeContainer(prefix);
-                if (parentNC instanceof WorkflowManager) {
-                    return ((WorkflowManager)parentNC).getNodeContainer(id);
-                }
-                if (parentNC instanceof SubNodeContainer) {
-                    return ((SubNodeContainer)parentNC).getWorkflowManager();
-                }
-                throw new IllegalArgumentException("NodeID " + id + " is not contained in workflow " + getNameWithID()
-                    + " - parent node is not metanode");
-            } else {
-                throw new IllegalArgumentException("NodeID " + id + " is not contained in workflow " + getNameWithID());
-            }
+        final NodeID prefix = id.getPrefix();
+        if (prefix.equals(getID())) {
+            return getNodeContainer(id);
+        } else if (id.hasPrefix(getID())) {
+            NodeContainer parentNC = findNodeContainer(prefix);
+            if (parentNC instanceof WorkflowManager) {
+                return ((WorkflowManager)parentNC).getNodeContainer(id);
+            }
+            if (parentNC instanceof SubNodeContainer) {
+                return ((SubNodeContainer)parentNC).getWorkflowManager();
+            }
+            throw new IllegalArgumentException("NodeID " + id + " is not contained in workflow " + getNameWithID()
+                + " - parent node is not metanode");
+        } else {
+            throw new IllegalArgumentException("NodeID " + id + " is not contained in workflow " + getNameWithID());
         }
     }
 
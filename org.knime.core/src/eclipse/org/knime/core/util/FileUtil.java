@@ -271,6 +271,55 @@ public static void copyDir(final File sourceDir, final File targetDir)
         }
     }
 
+    /**
+     * Makes the content of the given source (either a file or a directory) available under the given target without
+     * copying bytes where possible. Regular files are hard linked, directories are re-created and their content is
+     * linked recursively. If the file system does not support hard links (or source and target are on different file
+     * stores) the file is copied instead. An existing target is replaced.
+     *
+     * <p>
+     * Both the source and the target refer to the same data after this call returns. Callers must therefore only use
+     * this method for files that are not modified in place later on; deleting either of them is safe.
+     *
+     * @param source The file or directory to link, must exist.
+     * @param target The target file or directory (created or replaced).
+     * @throws IOException If the source does not exist or neither linking nor copying succeeds.
+     * @since 4.2
+     */
+    public static void linkOrCopy(final File source, final File target) throws IOException {
+        if (!source.exists()) {
+            throw new IOException("Source \"" + source + "\" does not exist.");
+        }
+        if (source.isDirectory()) {
+            if (target.isFile() && !target.delete()) {
+                throw new IOException("Cannot replace file \"" + target.getAbsolutePath() + "\"");
+            }
+            if (!target.isDirectory() && !target.mkdirs()) {
+                throw new IOException("Cannot create target directory \"" + target.getAbsolutePath() + "\"");
+            }
+            final String[] sourceDirList = source.list();
+            if (sourceDirList == null) {
+                throw new IOException("Can't link directory \"" + source + "\", no read permissions.");
+            }
+            for (String child : sourceDirList) {
+                linkOrCopy(new File(source, child), new File(target, child));
+            }
+        } else {
+            if (target.isDirectory()) {
+                deleteRecursively(target);
+            }
+            final Path targetPath = target.toPath();
+            Files.deleteIfExists(targetPath);
+            try {
+                Files.createLink(targetPath, source.toPath());
+            } catch (IOException | UnsupportedOperationException | SecurityException e) {
+                LOGGER.debug("Unable to link \"" + target.getAbsolutePath() + "\", copying instead ("
+                    + e.getMessage() + ")");
+                copy(source, target);
+            }
+        }
+    }
+
     /**
      * Copies the bytes as read from <code>input</code> to the output stream
      * <code>destination</code>. Neither <code>input</code> nor
@@ -413,7 +462,9 @@ private static boolean deleteRecursively(final File dir, final boolean removeFro
      * file. Recursively adds all files contained in directories. Files in the
      * include list are placed in the root of the archive. Files and directories
      * in the include list must not have the same (simple) name - otherwise an
-     * I/O Exception is thrown.
+     * I/O Exception is thrown. Files (and blocks of large files) are compressed
+     * concurrently; the archive is a standard zip file, using Zip64 extensions
+     * where needed.
      *
      * @param zipFile the zip file that should be created. If it exists it will
      *            be overwritten.
@@ -444,15 +495,8 @@ public static boolean zipDir(final File zipFile,
             final Collection<File> includeList, final int compressionLevel,
             final ZipFileFilter filter, final ExecutionMonitor exec)
             throws IOException, CanceledExecutionException {
-        ZipOutputStream zout =
-                new ZipOutputStream(new BufferedOutputStream(
-                        new FileOutputStream(zipFile)));
-        zout.setLevel(compressionLevel);
-        try {
-            return zipDir(zout, includeList, filter, exec);
-        } finally {
-            zout.close();
-        }
+        // entries (and blocks of large entries) are compressed concurrently, see ParallelZip
+        return ParallelZip.zip(zipFile, includeList, compressionLevel, filter, exec);
     }
 
     /** Similar to {@link #zipDir(ZipOutputStream, Collection, String, ZipFileFilter, ExecutionMonitor)}, whereby
@@ -760,7 +804,7 @@ public static boolean zipDir(final File zipFile, final File rootDir,
 
     /**
      * Extracts the contents of the given ZIP file into the destination
-     * directory.
+     * directory. Entries are extracted concurrently.
      *
      * @param zipFile a ZIP file
      * @param destDir the destination directory, must already exist
@@ -775,8 +819,8 @@ public static void unzip(final File zipFile, final File destDir)
         if (!destDir.isDirectory()) {
             throw new IOException("Destination is not a directory: " + destDir);
         }
-        ZipInputStream in = new ZipInputStream(new FileInputStream(zipFile));
-        unzip(in, destDir, 0);
+        // entries are extracted concurrently, see ParallelZip
+        ParallelZip.unzip(zipFile, destDir);
     }
 
     /**
@@ -0,0 +1,236 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.util;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor shared by the data-parallel utilities of the framework (e.g. tokenizing, zipping, scoring). It has one
+ * thread per available processor; idle threads time out. Submitted tasks may do CPU or IO work. Tasks submitted from
+ * within a task of this executor are run right away on the submitting thread, so that a task waiting for the tasks it
+ * submitted can't dead-lock the executor.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 4.2
+ * @noreference This class is not intended to be referenced by clients.
+ */
+public final class ParallelComputeExecutor {
+
+    /** Number of threads of the executor. */
+    public static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    private static final ThreadPoolExecutor EXECUTOR;
+
+    static {
+        // see also {@link Executors#newFixedThreadPool(int, ThreadFactory)}
+        EXECUTOR = new ThreadPoolExecutor(PARALLELISM, PARALLELISM, 10L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicLong m_threadCount = new AtomicLong();
+
+                @Override
+                public Thread newThread(final Runnable r) {
+                    final Thread t = new WorkerThread(r, "KNIME-Parallel-Worker-" + m_threadCount.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private ParallelComputeExecutor() {
+        // utility class
+    }
+
+    /**
+     * Submits a task to the shared executor. If called from within a task of the executor, the task is run on the
+     * calling thread before this method returns.
+     *
+     * @param task the task to run
+     * @param <T> the result type of the task
+     * @return the future of the task
+     */
+    public static <T> Future<T> submit(final Callable<T> task) {
+        return submit(new Task<>(task));
+    }
+
+    /**
+     * Submits a task to the shared executor. If called from within a task of the executor, the task is run on the
+     * calling thread before this method returns.
+     *
+     * @param task the task to run
+     * @return the future of the task, returning <code>null</code> on completion
+     */
+    public static Future<?> submit(final Runnable task) {
+        return submit(new Task<>(Executors.callable(task)));
+    }
+
+    private static <T> Future<T> submit(final Task<T> task) {
+        if (Thread.currentThread() instanceof WorkerThread) {
+            task.run();
+        } else {
+            EXECUTOR.execute(task);
+        }
+        return task;
+    }
+
+    /**
+     * Waits for the argument task and returns its result. If the task failed, its exception is rethrown: unchecked
+     * exceptions and exceptions of the argument type as they are, any other exception wrapped in an
+     * {@link IllegalStateException}.
+     *
+     * @param future a task of this executor
+     * @param exceptionType the type of checked exceptions thrown by the task
+     * @param <T> the result type of the task
+     * @param <E> the type of checked exceptions thrown by the task
+     * @return the result of the task
+     * @throws InterruptedException if interrupted while waiting (not thrown if the task is done)
+     * @throws E if the task failed with such exception
+     * @throws CancellationException if the task was cancelled
+     */
+    public static <T, E extends Exception> T get(final Future<T> future, final Class<E> exceptionType)
+        throws InterruptedException, E {
+        try {
+            return future.get();
+        } catch (ExecutionException ee) {
+            final Throwable cause = ee.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            if (exceptionType.isInstance(cause)) {
+                throw exceptionType.cast(cause);
+            }
+            throw new IllegalStateException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Cancels the argument tasks that haven't started yet and waits for the others to finish, e.g. before releasing
+     * resources the tasks use after a failure. Tasks are not interrupted and waiting is not interruptible (the
+     * interrupt flag is restored afterwards), results and failures of the tasks are ignored.
+     *
+     * @param futures tasks of this executor
+     */
+    public static void cancelAndAwait(final Collection<? extends Future<?>> futures) {
+        boolean interrupted = false;
+        for (Future<?> f : futures) {
+            if (f instanceof Task) {
+                interrupted |= ((Task<?>)f).cancelAndAwait();
+            } else {
+                f.cancel(false);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Threads of the executor, tasks submitted from these threads are run inline. */
+    private static final class WorkerThread extends Thread {
+        WorkerThread(final Runnable r, final String name) {
+            super(r, name);
+        }
+    }
+
+    /**
+     * Future that allows to wait for a running task after cancellation (a cancelled {@link FutureTask} is done
+     * right away, even if it is still running).
+     */
+    private static final class Task<T> extends FutureTask<T> {
+
+        /** Set when the task starts running or is cancelled before. */
+        private final AtomicBoolean m_isClaimed = new AtomicBoolean();
+
+        private final CountDownLatch m_finished = new CountDownLatch(1);
+
+        Task(final Callable<T> callable) {
+            super(callable);
+        }
+
+        @Override
+        public void run() {
+            if (m_isClaimed.compareAndSet(false, true)) {
+                try {
+                    super.run();
+                } finally {
+                    m_finished.countDown();
+                }
+            }
+        }
+
+        /** @return whether the thread got interrupted while waiting */
+        boolean cancelAndAwait() {
+            cancel(false);
+            if (m_isClaimed.compareAndSet(false, true)) {
+                // never runs
+                return false;
+            }
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    m_finished.await();
+                    return interrupted;
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,725 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.util.FileUtil.ZipFileFilter;
+
+/**
+ * Multi-threaded counterparts of {@link FileUtil#zipDir(File, Collection, int, ZipFileFilter, ExecutionMonitor)} and
+ * {@link FileUtil#unzip(File, File)}.
+ *
+ * <p>
+ * Zipping splits all files into blocks that are deflated concurrently, each block primed with the last 32kB of its
+ * predecessor as dictionary and terminated with a sync flush so that the blocks concatenate to a single deflate
+ * stream (the same approach as <i>pigz</i>). The archive is assembled in order on the calling thread; entries use data
+ * descriptors, the checksums of the blocks are combined, and Zip64 records are written where sizes or offsets
+ * require them. The result is a standard archive that can be read by {@link java.util.zip.ZipInputStream} and any
+ * other zip tool. Unzipping extracts the entries of a {@link ZipFile} concurrently (a single entry is always
+ * inflated by one thread).
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class ParallelZip {
+
+    /** Size of the uncompressed blocks that are deflated independently. */
+    static final int BLOCK_SIZE = 1 << 20;
+
+    /** Size of the deflate window, used as preset dictionary for the next block. */
+    private static final int DICTIONARY_SIZE = 1 << 15;
+
+    /**
+     * Maximum number of blocks being compressed (or waiting to be written) at a time, limits memory to 64 MB (plus the
+     * compressed data).
+     */
+    private static final int MAX_PENDING_BLOCKS = Math.min(4 * ParallelComputeExecutor.PARALLELISM, 64);
+
+    private static final long ZIP64_MAGICVAL = 0xFFFFFFFFL;
+
+    private static final int ZIP64_MAGICCOUNT = 0xFFFF;
+
+    private static final int LOCSIG = 0x04034b50;
+
+    private static final int EXTSIG = 0x08074b50;
+
+    private static final int CENSIG = 0x02014b50;
+
+    private static final int ENDSIG = 0x06054b50;
+
+    private static final int ZIP64_ENDSIG = 0x06064b50;
+
+    private static final int ZIP64_LOCSIG = 0x07064b50;
+
+    /** General purpose flags: data descriptor (bit 3) and UTF-8 names (bit 11). */
+    private static final int FLAG_DATA_DESCRIPTOR = 0x08;
+
+    private static final int FLAG_UTF8 = 0x800;
+
+    private ParallelZip() {
+        // utility class
+    }
+
+    /**
+     * Packs all files and directories passed in the include list into a new zip file, see
+     * {@link FileUtil#zipDir(File, Collection, int, ZipFileFilter, ExecutionMonitor)} for the semantics of the
+     * arguments. Entries are written in the same order as the sequential implementation does.
+     *
+     * @param zipFile the zip file to create, overwritten if it exists
+     * @param includeList files and directories to add to the root of the archive
+     * @param compressionLevel the deflate level, see {@link Deflater#setLevel(int)}
+     * @param filter the filter for files and directories, not null
+     * @param exec for progress and cancelation, may be null
+     * @return <code>true</code> if all accepted files and directories have been added, <code>false</code> if a
+     *         directory was not readable
+     * @throws IOException if writing or reading fails, or if two entries have the same name
+     * @throws CanceledExecutionException if canceled
+     */
+    static boolean zip(final File zipFile, final Collection<File> includeList, final int compressionLevel,
+        final ZipFileFilter filter, final ExecutionMonitor exec) throws IOException, CanceledExecutionException {
+        final ExecutionMonitor execMon = exec == null ? new ExecutionMonitor() : exec;
+        final List<PendingEntry> entries = new ArrayList<>();
+        boolean complete = true;
+        for (File f : includeList) {
+            if (!filter.include(f)) {
+                continue;
+            }
+            if (f.isFile()) {
+                entries.add(new PendingEntry(f.getName(), f));
+            } else if (f.isDirectory()) {
+                complete &= collectDir(f, filter, entries);
+            } else {
+                throw new IOException("File " + f.getAbsolutePath() + " not added to zip archive");
+            }
+        }
+        long totalSize = 0;
+        for (PendingEntry e : entries) {
+            totalSize += e.m_length;
+        }
+        try (ZipWriter writer = new ZipWriter(zipFile, compressionLevel, Math.max(totalSize, 1), execMon)) {
+            writer.writeEntries(entries);
+        }
+        return complete;
+    }
+
+    /** Same traversal order as in FileUtil#addOneDir. */
+    private static boolean collectDir(final File rootDir, final ZipFileFilter filter,
+        final List<PendingEntry> entries) {
+        boolean complete = true;
+        final Stack<File> dirs = new Stack<File>();
+        final String rootName = rootDir.getName();
+        entries.add(new PendingEntry(rootName + "/", null));
+        dirs.push(rootDir);
+        final int rootEndIdx = rootDir.getAbsolutePath().length() + 1;
+        while (!dirs.isEmpty()) {
+            final File d = dirs.pop();
+            final File[] ls = d.listFiles();
+            if (ls == null) {
+                // the dir was not accessible
+                complete = false;
+                continue;
+            }
+            for (File f : ls) {
+                if (!filter.include(f)) {
+                    continue;
+                }
+                final String entryName = rootName + "/" + f.getAbsolutePath().substring(rootEndIdx).replace('\\', '/');
+                if (f.isFile()) {
+                    entries.add(new PendingEntry(entryName, f));
+                } else if (f.isDirectory()) {
+                    entries.add(new PendingEntry(entryName + "/", null));
+                    dirs.push(f);
+                }
+            }
+        }
+        return complete;
+    }
+
+    /**
+     * Extracts the content of the zip file into the destination directory, see {@link FileUtil#unzip(File, File)}.
+     * Directories are created upfront, file entries are extracted concurrently. If several entries resolve to the
+     * same file, only the last one is extracted (as the last one wins when extracting sequentially).
+     *
+     * @param zipFile the zip file to read
+     * @param destDir the existing destination directory
+     * @throws IOException if reading or writing fails
+     */
+    static void unzip(final File zipFile, final File destDir) throws IOException {
+        try (ZipFile zip = new ZipFile(zipFile)) {
+            // last entry per target file, concurrent writes to the same file would corrupt it
+            final Map<String, ZipEntry> entriesByTarget = new LinkedHashMap<>();
+            for (Enumeration<? extends ZipEntry> en = zip.entries(); en.hasMoreElements();) {
+                final ZipEntry e = en.nextElement();
+                final String name = stripLeadingSlash(e.getName().replace('\\', '/'));
+                if (e.isDirectory()) {
+                    if (!name.isEmpty()) {
+                        mkdirs(new File(destDir, name));
+                    }
+                } else {
+                    final File f = new File(destDir, name);
+                    mkdirs(f.getParentFile());
+                    entriesByTarget.put(f.getCanonicalPath(), e);
+                }
+            }
+            final List<Future<Void>> futures = new ArrayList<>(entriesByTarget.size());
+            try {
+                for (Map.Entry<String, ZipEntry> e : entriesByTarget.entrySet()) {
+                    final File f = new File(e.getKey());
+                    futures.add(ParallelComputeExecutor.submit(() -> {
+                        extract(zip, e.getValue(), f);
+                        return null;
+                    }));
+                }
+                for (Future<Void> f : futures) {
+                    get(f);
+                }
+            } finally {
+                // don't close the zip file while workers are still reading from it
+                ParallelComputeExecutor.cancelAndAwait(futures);
+            }
+        }
+    }
+
+    private static void extract(final ZipFile zip, final ZipEntry entry, final File target) throws IOException {
+        try (InputStream in = zip.getInputStream(entry); OutputStream out = new FileOutputStream(target)) {
+            FileUtil.copy(in, out);
+        }
+    }
+
+    private static String stripLeadingSlash(final String name) {
+        return name.startsWith("/") ? name.substring(1) : name;
+    }
+
+    private static void mkdirs(final File dir) throws IOException {
+        if (!dir.mkdirs() && !dir.isDirectory()) {
+            throw new IOException("Could not create directory '" + dir.getAbsolutePath() + "'.");
+        }
+    }
+
+    /** Waits for the future, unwrapping the cause of an execution exception. */
+    private static <T> T get(final Future<T> future) throws IOException {
+        try {
+            return ParallelComputeExecutor.get(future, IOException.class);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            final InterruptedIOException iioe = new InterruptedIOException("Interrupted while waiting for zip worker");
+            iioe.initCause(ie);
+            throw iioe;
+        }
+    }
+
+    /** An entry to be written, a directory if the file is null. */
+    private static final class PendingEntry {
+        private final String m_name;
+
+        private final File m_file;
+
+        /** File length at the time the entry was collected, all blocks are read up to this length. */
+        private final long m_length;
+
+        PendingEntry(final String name, final File file) {
+            m_name = name;
+            m_file = file;
+            m_length = file == null ? 0 : file.length();
+        }
+    }
+
+    /** Result of compressing one block. */
+    private static final class CompressedBlock {
+        private final byte[] m_data;
+
+        private final int m_length;
+
+        private final long m_crc;
+
+        private final int m_uncompressedLength;
+
+        CompressedBlock(final byte[] data, final int length, final long crc, final int uncompressedLength) {
+            m_data = data;
+            m_length = length;
+            m_crc = crc;
+            m_uncompressedLength = uncompressedLength;
+        }
+    }
+
+    /** Entry meta data as needed for the central directory. */
+    private static final class WrittenEntry {
+        private final byte[] m_name;
+
+        private final boolean m_isDirectory;
+
+        private final long m_dosTime;
+
+        private final long m_offset;
+
+        private long m_crc;
+
+        private long m_compressedSize;
+
+        private long m_size;
+
+        WrittenEntry(final byte[] name, final boolean isDirectory, final long dosTime, final long offset) {
+            m_name = name;
+            m_isDirectory = isDirectory;
+            m_dosTime = dosTime;
+            m_offset = offset;
+        }
+
+        boolean needsZip64() {
+            return m_size >= ZIP64_MAGICVAL || m_compressedSize >= ZIP64_MAGICVAL || m_offset >= ZIP64_MAGICVAL;
+        }
+    }
+
+    /** Compresses one block of a file, primed with the preceding 32kB if not the first block. */
+    private static final class BlockCompressor implements Callable<CompressedBlock> {
+        private final File m_file;
+
+        private final long m_start;
+
+        private final int m_length;
+
+        private final boolean m_isLast;
+
+        private final int m_level;
+
+        BlockCompressor(final File file, final long start, final int length, final boolean isLast,
+            final int level) {
+            m_file = file;
+            m_start = start;
+            m_length = length;
+            m_isLast = isLast;
+            m_level = level;
+        }
+
+        @Override
+        public CompressedBlock call() throws IOException {
+            final int dictLength = (int)Math.min(DICTIONARY_SIZE, m_start);
+            final byte[] input = new byte[dictLength + m_length];
+            try (FileChannel channel = FileChannel.open(m_file.toPath(), StandardOpenOption.READ)) {
+                final ByteBuffer buffer = ByteBuffer.wrap(input);
+                long position = m_start - dictLength;
+                while (buffer.hasRemaining()) {
+                    final int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        throw new IOException("File \"" + m_file.getAbsolutePath() + "\" changed while zipping");
+                    }
+                    position += read;
+                }
+            }
+            final CRC32 crc = new CRC32();
+            crc.update(input, dictLength, m_length);
+            final Deflater deflater = new Deflater(m_level, true);
+            try {
+                if (dictLength > 0) {
+                    deflater.setDictionary(input, 0, dictLength);
+                }
+                deflater.setInput(input, dictLength, m_length);
+                final BlockOutputStream out = new BlockOutputStream(m_length / 2 + 64);
+                final byte[] chunk = new byte[1 << 16];
+                if (m_isLast) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        out.write(chunk, 0, deflater.deflate(chunk));
+                    }
+                } else {
+                    // sync flush aligns the block at a byte boundary so that the next block can be appended
+                    int n;
+                    do {
+                        n = deflater.deflate(chunk, 0, chunk.length, Deflater.SYNC_FLUSH);
+                        out.write(chunk, 0, n);
+                    } while (n == chunk.length);
+                }
+                return new CompressedBlock(out.getBuffer(), out.size(), crc.getValue(), m_length);
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+
+    /** Gives access to the internal buffer to avoid copying the compressed block. */
+    private static final class BlockOutputStream extends ByteArrayOutputStream {
+        BlockOutputStream(final int size) {
+            super(size);
+        }
+
+        byte[] getBuffer() {
+            return buf;
+        }
+    }
+
+    /** Writes the archive, blocks are compressed on the worker pool and written in order. */
+    private static final class ZipWriter implements AutoCloseable {
+        private final OutputStream m_out;
+
+        private final int m_level;
+
+        private final long m_totalSize;
+
+        private final ExecutionMonitor m_exec;
+
+        private final List<WrittenEntry> m_written = new ArrayList<>();
+
+        private final Set<String> m_names = new HashSet<>();
+
+        private final Deque<Future<CompressedBlock>> m_pending = new ArrayDeque<>();
+
+        private long m_offset;
+
+        private long m_processed;
+
+        ZipWriter(final File zipFile, final int level, final long totalSize, final ExecutionMonitor exec)
+            throws IOException {
+            m_out = new BufferedOutputStream(new FileOutputStream(zipFile), 1 << 16);
+            m_level = level;
+            m_totalSize = totalSize;
+            m_exec = exec;
+        }
+
+        void writeEntries(final List<PendingEntry> entries) throws IOException, CanceledExecutionException {
+            // blocks of all files in the order they are written, submitted ahead of writing
+            final Deque<Callable<CompressedBlock>> tasks = new ArrayDeque<>();
+            for (PendingEntry e : entries) {
+                if (e.m_file != null) {
+                    final long length = e.m_length;
+                    long start = 0;
+                    do {
+                        final int blockLength = (int)Math.min(BLOCK_SIZE, length - start);
+                        final boolean isLast = start + blockLength >= length;
+                        tasks.add(new BlockCompressor(e.m_file, start, blockLength, isLast, m_level));
+                        start += blockLength;
+                    } while (start < length);
+                }
+            }
+            try {
+                for (PendingEntry e : entries) {
+                    m_exec.checkCanceled();
+                    if (!m_names.add(e.m_name)) {
+                        throw new ZipException("duplicate entry: " + e.m_name);
+                    }
+                    if (e.m_file == null) {
+                        writeDirectory(e);
+                    } else {
+                        writeFile(e, tasks);
+                    }
+                }
+                writeCentralDirectory();
+            } finally {
+                // don't close the files while workers are still reading from them
+                ParallelComputeExecutor.cancelAndAwait(m_pending);
+            }
+        }
+
+        private void writeDirectory(final PendingEntry e) throws IOException {
+            final WrittenEntry w = new WrittenEntry(e.m_name.getBytes(StandardCharsets.UTF_8), true,
+                javaToDosTime(System.currentTimeMillis()), m_offset);
+            writeLocalHeader(w);
+            m_written.add(w);
+        }
+
+        private void writeFile(final PendingEntry e, final Deque<Callable<CompressedBlock>> tasks)
+            throws IOException, CanceledExecutionException {
+            final WrittenEntry w = new WrittenEntry(e.m_name.getBytes(StandardCharsets.UTF_8), false,
+                javaToDosTime(e.m_file.lastModified()), m_offset);
+            writeLocalHeader(w);
+            long crc = 0;
+            boolean isLast = false;
+            while (!isLast) {
+                while (m_pending.size() < MAX_PENDING_BLOCKS && !tasks.isEmpty()) {
+                    m_pending.add(ParallelComputeExecutor.submit(tasks.poll()));
+                }
+                final CompressedBlock block = get(m_pending.poll());
+                m_out.write(block.m_data, 0, block.m_length);
+                m_offset += block.m_length;
+                crc = crc32Combine(crc, block.m_crc, block.m_uncompressedLength);
+                w.m_compressedSize += block.m_length;
+                w.m_size += block.m_uncompressedLength;
+                isLast = w.m_size >= e.m_length;
+                m_processed += block.m_uncompressedLength;
+                m_exec.checkCanceled();
+                m_exec.setProgress(m_processed / (double)m_totalSize);
+            }
+            w.m_crc = crc;
+            m_exec.setProgress(m_processed / (double)m_totalSize, "Added file " + e.m_name);
+            // data descriptor, zip64 sizes if needed (same condition as in ZipOutputStream)
+            writeInt(EXTSIG);
+            writeInt(w.m_crc);
+            if (w.m_compressedSize >= ZIP64_MAGICVAL || w.m_size >= ZIP64_MAGICVAL) {
+                writeLong(w.m_compressedSize);
+                writeLong(w.m_size);
+            } else {
+                writeInt(w.m_compressedSize);
+                writeInt(w.m_size);
+            }
+            m_written.add(w);
+        }
+
+        private void writeLocalHeader(final WrittenEntry w) throws IOException {
+            writeInt(LOCSIG);
+            if (w.m_isDirectory) {
+                writeShort(20);
+                writeShort(FLAG_UTF8);
+                writeShort(ZipEntry.STORED);
+            } else {
+                writeShort(20);
+                writeShort(FLAG_UTF8 | FLAG_DATA_DESCRIPTOR);
+                writeShort(ZipEntry.DEFLATED);
+            }
+            writeInt(w.m_dosTime);
+            // crc and sizes are zero: known for directories, in the data descriptor for files
+            writeInt(0);
+            writeInt(0);
+            writeInt(0);
+            writeShort(w.m_name.length);
+            writeShort(0);
+            writeBytes(w.m_name);
+        }
+
+        private void writeCentralDirectory() throws IOException {
+            final long cenOffset = m_offset;
+            for (WrittenEntry w : m_written) {
+                final boolean zip64 = w.needsZip64();
+                int extraLength = 0;
+                if (zip64) {
+                    extraLength = 4 + (w.m_size >= ZIP64_MAGICVAL ? 8 : 0)
+                        + (w.m_compressedSize >= ZIP64_MAGICVAL ? 8 : 0) + (w.m_offset >= ZIP64_MAGICVAL ? 8 : 0);
+                }
+                final int version = zip64 ? 45 : 20;
+                writeInt(CENSIG);
+                writeShort(version);
+                writeShort(version);
+                writeShort(w.m_isDirectory ? FLAG_UTF8 : (FLAG_UTF8 | FLAG_DATA_DESCRIPTOR));
+                writeShort(w.m_isDirectory ? ZipEntry.STORED : ZipEntry.DEFLATED);
+                writeInt(w.m_dosTime);
+                writeInt(w.m_crc);
+                writeInt(Math.min(w.m_compressedSize, ZIP64_MAGICVAL));
+                writeInt(Math.min(w.m_size, ZIP64_MAGICVAL));
+                writeShort(w.m_name.length);
+                writeShort(extraLength);
+                writeShort(0); // comment length
+                writeShort(0); // disk number start
+                writeShort(0); // internal attributes
+                writeInt(0); // external attributes
+                writeInt(Math.min(w.m_offset, ZIP64_MAGICVAL));
+                writeBytes(w.m_name);
+                if (zip64) {
+                    writeShort(0x0001);
+                    writeShort(extraLength - 4);
+                    if (w.m_size >= ZIP64_MAGICVAL) {
+                        writeLong(w.m_size);
+                    }
+                    if (w.m_compressedSize >= ZIP64_MAGICVAL) {
+                        writeLong(w.m_compressedSize);
+                    }
+                    if (w.m_offset >= ZIP64_MAGICVAL) {
+                        writeLong(w.m_offset);
+                    }
+                }
+            }
+            final long cenLength = m_offset - cenOffset;
+            final int count = m_written.size();
+            if (count >= ZIP64_MAGICCOUNT || cenOffset >= ZIP64_MAGICVAL || cenLength >= ZIP64_MAGICVAL) {
+                final long zip64EndOffset = m_offset;
+                writeInt(ZIP64_ENDSIG);
+                writeLong(44); // size of remaining record
+                writeShort(45);
+                writeShort(45);
+                writeInt(0);
+                writeInt(0);
+                writeLong(count);
+                writeLong(count);
+                writeLong(cenLength);
+                writeLong(cenOffset);
+                writeInt(ZIP64_LOCSIG);
+                writeInt(0);
+                writeLong(zip64EndOffset);
+                writeInt(1);
+            }
+            writeInt(ENDSIG);
+            writeShort(0);
+            writeShort(0);
+            writeShort(Math.min(count, ZIP64_MAGICCOUNT));
+            writeShort(Math.min(count, ZIP64_MAGICCOUNT));
+            writeInt(Math.min(cenLength, ZIP64_MAGICVAL));
+            writeInt(Math.min(cenOffset, ZIP64_MAGICVAL));
+            writeShort(0);
+        }
+
+        private void writeShort(final int v) throws IOException {
+            m_out.write(v & 0xff);
+            m_out.write((v >>> 8) & 0xff);
+            m_offset += 2;
+        }
+
+        private void writeInt(final long v) throws IOException {
+            writeShort((int)(v & 0xffff));
+            writeShort((int)((v >>> 16) & 0xffff));
+        }
+
+        private void writeLong(final long v) throws IOException {
+            writeInt(v & ZIP64_MAGICVAL);
+            writeInt(v >>> 32);
+        }
+
+        private void writeBytes(final byte[] b) throws IOException {
+            m_out.write(b);
+            m_offset += b.length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            m_out.close();
+        }
+    }
+
+    /** Converts a Java time to the MS-DOS date and time format used in zip headers. */
+    static long javaToDosTime(final long time) {
+        final Calendar c = Calendar.getInstance();
+        c.setTimeInMillis(time);
+        final int year = c.get(Calendar.YEAR);
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (year - 1980) << 25 | (c.get(Calendar.MONTH) + 1) << 21 | c.get(Calendar.DAY_OF_MONTH) << 16
+            | c.get(Calendar.HOUR_OF_DAY) << 11 | c.get(Calendar.MINUTE) << 5 | c.get(Calendar.SECOND) >> 1;
+    }
+
+    /**
+     * Computes the CRC-32 of the concatenation of two byte sequences from their individual checksums and the length
+     * of the second one (port of zlib's <code>crc32_combine</code>).
+     *
+     * @param crc1 checksum of the first sequence
+     * @param crc2 checksum of the second sequence
+     * @param length2 length of the second sequence
+     * @return checksum of the concatenation
+     */
+    static long crc32Combine(final long crc1, final long crc2, final long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+        final long[] even = new long[32];
+        final long[] odd = new long[32];
+        // operator for one zero bit in odd
+        odd[0] = 0xedb88320L;
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        // operator for two zero bits in even, four zero bits in odd
+        gf2MatrixSquare(even, odd);
+        gf2MatrixSquare(odd, even);
+        // apply length2 zeros to crc1 (first square will put the operator for one zero byte, eight zero bits, in even)
+        long crc = crc1;
+        long len = length2;
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((len & 1) != 0) {
+                crc = gf2MatrixTimes(even, crc);
+            }
+            len >>= 1;
+            if (len == 0) {
+                break;
+            }
+            gf2MatrixSquare(odd, even);
+            if ((len & 1) != 0) {
+                crc = gf2MatrixTimes(odd, crc);
+            }
+            len >>= 1;
+        } while (len != 0);
+        return crc ^ crc2;
+    }
+
+    private static long gf2MatrixTimes(final long[] mat, final long vec) {
+        long sum = 0;
+        long v = vec;
+        int i = 0;
+        while (v != 0) {
+            if ((v & 1) != 0) {
+                sum ^= mat[i];
+            }
+            v >>>= 1;
+            i++;
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(final long[] square, final long[] mat) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(mat, mat[n]);
+        }
+    }
+}
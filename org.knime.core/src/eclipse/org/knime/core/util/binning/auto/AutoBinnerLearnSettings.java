@@ -90,6 +90,8 @@ public final class AutoBinnerLearnSettings {
 
     private static final String CFG_ROUNDING_MODE = "roundingMode";
 
+    private static final String CFG_QUANTILE_ERROR = "quantileError";
+
     private static final int DEFAULT_VALUE_PRECISION = 3;
 
     private static final int DEFAULT_VALUE_BIN_COUNT = 5;
@@ -100,6 +102,8 @@ public final class AutoBinnerLearnSettings {
 
     private static final boolean DEFAULT_VALUE_ADVENCED_FORMATTING = false;
 
+    private static final double DEFAULT_VALUE_QUANTILE_ERROR = 0.001;
+
     private static final double VALUE_QUARTER = 0.25;
 
     private static final double VALUE_HALF = 0.5;
@@ -132,6 +136,8 @@ public final class AutoBinnerLearnSettings {
 
     private RoundingMode m_roundingMode = RoundingMode.HALF_UP;
 
+    private double m_quantileError = DEFAULT_VALUE_QUANTILE_ERROR;
+
     private DataColumnSpecFilterConfiguration m_filterConfiguration = createDCSFilterConfiguration();
 
     /**
@@ -362,6 +368,29 @@ public void setRoundingMode(final RoundingMode roundingMode) {
         m_roundingMode = roundingMode;
     }
 
+    /**
+     * Gets the relative rank error of the quantiles computed by
+     * {@link AutoBinnerUtility#createPMMLPrepocDiscretize(AutoBinnerLearnSettings, org.knime.core.node.BufferedDataTable,
+     * String[], org.knime.core.node.ExecutionMonitor)}.
+     *
+     * @return the quantile error, in (0, 1)
+     * @since 4.2
+     */
+    public double getQuantileError() {
+        return m_quantileError;
+    }
+
+    /**
+     * Sets the relative rank error of the computed quantiles. Smaller values give more accurate bin boundaries at the
+     * cost of memory (about <code>1 / quantileError</code> values per column and thread).
+     *
+     * @param quantileError the quantile error to set, in (0, 1)
+     * @since 4.2
+     */
+    public void setQuantileError(final double quantileError) {
+        m_quantileError = quantileError;
+    }
+
     /**
      * Gets the filter configuration.
      *
@@ -403,6 +432,11 @@ public void loadSettings(final NodeSettingsRO settings) throws InvalidSettingsEx
         m_precision = settings.getInt(CFG_PRECISION);
         m_precisionMode = PrecisionMode.valueOf(settings.getString(CFG_PRECISION_MODE));
         m_roundingMode = RoundingMode.valueOf(settings.getString(CFG_ROUNDING_MODE));
+        // added in 4.2
+        m_quantileError = settings.getDouble(CFG_QUANTILE_ERROR, DEFAULT_VALUE_QUANTILE_ERROR);
+        if (!(m_quantileError > 0 && m_quantileError < 1)) {
+            throw new InvalidSettingsException("Quantile error must be in (0, 1): " + m_quantileError);
+        }
     }
 
     /**
@@ -428,6 +462,7 @@ public void loadSettingsForDialog(final NodeSettingsRO settings, final DataTable
         m_precision = settings.getInt(CFG_PRECISION, DEFAULT_VALUE_PRECISION);
         m_precisionMode = PrecisionMode.valueOf(settings.getString(CFG_PRECISION_MODE, PrecisionMode.DECIMAL.name()));
         m_roundingMode = RoundingMode.valueOf(settings.getString(CFG_ROUNDING_MODE, RoundingMode.HALF_UP.name()));
+        m_quantileError = settings.getDouble(CFG_QUANTILE_ERROR, DEFAULT_VALUE_QUANTILE_ERROR);
     }
 
     /**
@@ -449,6 +484,7 @@ public void saveSettings(final NodeSettingsWO settings) {
         settings.addInt(CFG_PRECISION, m_precision);
         settings.addString(CFG_PRECISION_MODE, m_precisionMode.name());
         settings.addString(CFG_ROUNDING_MODE, m_roundingMode.name());
+        settings.addDouble(CFG_QUANTILE_ERROR, m_quantileError);
     }
 
 }
@@ -50,21 +50,31 @@
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
 
 import org.dmg.pmml.TransformationDictionaryDocument.TransformationDictionary;
+import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.data.container.filter.TableFilter;
 import org.knime.core.data.def.StringCell;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
@@ -74,6 +84,7 @@
 import org.knime.core.node.port.pmml.PMMLPortObjectSpecCreator;
 import org.knime.core.node.port.pmml.preproc.DerivedFieldMapper;
 import org.knime.core.util.Pair;
+import org.knime.core.util.ParallelComputeExecutor;
 import org.knime.core.util.binning.auto.pmml.Closure;
 import org.knime.core.util.binning.auto.pmml.DisretizeConfiguration;
 import org.knime.core.util.binning.auto.pmml.PMMLDiscretize;
@@ -92,6 +103,9 @@
  */
 public final class AutoBinnerUtility {
 
+    /** Number of rows handed to a sketch worker at once. */
+    private static final int CHUNK_ROWS = 4096;
+
     /**
      * This method translates a {@link PMMLPreprocDiscretize} object into {@link PMMLPortObject}.
      *
@@ -191,6 +205,206 @@ public static PMMLPreprocDiscretize createPMMLPrepocDiscretize(final AutoBinnerL
         return createDisretizeOp(settings, edgesMap, includeCols);
     }
 
+    /**
+     * This method creates a {@link PMMLPreprocDiscretize} object from a data table. All include columns are
+     * summarized in a single pass over the table with quantile sketches whose rank error is bounded by
+     * {@link AutoBinnerLearnSettings#getQuantileError()}; the table is neither sorted nor materialized per column.
+     * Equal width bins use the exact minimum and maximum of each column, equal frequency bins and sample quantiles the
+     * approximate quantiles.
+     *
+     * @param settings {@link AutoBinnerLearnSettings} object from node model
+     * @param table the table to bin
+     * @param includeCols the include columns from the node model, must be numeric
+     * @param exec the {@link ExecutionMonitor} object from the node model
+     * @return a {@link PMMLPreprocDiscretize} object containing required parameters for binning operation
+     * @throws CanceledExecutionException if the user cancels the execution
+     * @since 4.2
+     */
+    public static PMMLPreprocDiscretize createPMMLPrepocDiscretize(final AutoBinnerLearnSettings settings,
+        final BufferedDataTable table, final String[] includeCols, final ExecutionMonitor exec)
+        throws CanceledExecutionException {
+        if (includeCols.length == 0) {
+            return createDisretizeOp(settings, new LinkedHashMap<>(), includeCols);
+        }
+        final QuantileSketch[] sketches = sketchColumns(table, includeCols, settings.getQuantileError(), exec);
+
+        final double[] quantiles;
+        if (settings.getMethod() == BinningMethod.SAMPLE_QUANTILES) {
+            quantiles = settings.getSampleQuantiles().clone();
+            Arrays.sort(quantiles);
+        } else if (settings.getEqualityMethod() == EqualityMethod.FREQUENCY) {
+            quantiles = new double[settings.getBinCount() + 1];
+            for (int i = 0; i < quantiles.length; i++) {
+                quantiles[i] = i / (double)settings.getBinCount();
+            }
+        } else {
+            quantiles = null;
+        }
+
+        final Map<String, double[]> edgesMap = new LinkedHashMap<>();
+        for (int c = 0; c < includeCols.length; c++) {
+            final QuantileSketch sketch = sketches[c];
+            if (sketch.getCount() == 0) {
+                continue;
+            }
+            double[] edges;
+            if (quantiles == null) {
+                edges = calculateBounds(settings.getBinCount(), sketch.getMin(), sketch.getMax());
+            } else {
+                edges = new double[quantiles.length];
+                for (int i = 0; i < edges.length; i++) {
+                    edges[i] = sketch.getQuantile(quantiles[i]);
+                }
+                edges = toDistinctBoundaries(edges);
+            }
+            if (settings.getIntegerBounds()) {
+                edges = toIntegerBoundaries(edges);
+            }
+            edgesMap.put(includeCols[c], edges);
+        }
+        return createDisretizeOp(settings, edgesMap, includeCols);
+    }
+
+    /**
+     * Computes approximate quantiles of several numeric columns in a single pass over the table. Rows are read once
+     * and summarized concurrently; the rank of each returned value differs from the exact one by at most
+     * <code>quantileError</code> times the number of non-missing values in the column. Quantile 0 and 1 are the exact
+     * minimum and maximum. Missing values are ignored.
+     *
+     * @param table the table
+     * @param columns the names of the numeric columns to summarize
+     * @param quantiles the quantiles to compute, each in [0, 1]
+     * @param quantileError the relative rank error, in (0, 1)
+     * @param exec for progress and cancellation
+     * @return per column (in argument order) the quantile values, all {@link Double#NaN} if the column has only
+     *         missing values
+     * @throws CanceledExecutionException if the user cancels the execution
+     * @since 4.2
+     */
+    public static double[][] computeQuantiles(final BufferedDataTable table, final String[] columns,
+        final double[] quantiles, final double quantileError, final ExecutionMonitor exec)
+        throws CanceledExecutionException {
+        final QuantileSketch[] sketches = sketchColumns(table, columns, quantileError, exec);
+        final double[][] result = new double[columns.length][quantiles.length];
+        for (int c = 0; c < columns.length; c++) {
+            for (int i = 0; i < quantiles.length; i++) {
+                result[c][i] = sketches[c].getQuantile(quantiles[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the columns once on the calling thread and hands chunks of rows to sketch tasks. Each running task uses a
+     * set of sketches (one per column) no other task uses at the same time; the sets are merged at the end.
+     */
+    private static QuantileSketch[] sketchColumns(final BufferedDataTable table, final String[] columns,
+        final double epsilon, final ExecutionMonitor exec) throws CanceledExecutionException {
+        final DataTableSpec spec = table.getDataTableSpec();
+        final int[] indices = new int[columns.length];
+        for (int c = 0; c < columns.length; c++) {
+            indices[c] = spec.findColumnIndex(columns[c]);
+            if (indices[c] < 0) {
+                throw new IllegalArgumentException("No such column: " + columns[c]);
+            }
+        }
+        // limits the memory held by chunks not processed yet
+        final int maxPendingChunks = 2 * ParallelComputeExecutor.PARALLELISM;
+        final Queue<QuantileSketch[]> idleSketches = new ConcurrentLinkedQueue<>();
+        final Deque<Future<?>> pending = new ArrayDeque<>();
+        boolean isComplete = false;
+        try (CloseableRowIterator it = table.filter(TableFilter.materializeCols(indices), exec).iterator()) {
+            Chunk chunk = new Chunk(columns.length);
+            while (it.hasNext()) {
+                final DataRow row = it.next();
+                for (int c = 0; c < indices.length; c++) {
+                    final DataCell cell = row.getCell(indices[c]);
+                    chunk.m_values[c][chunk.m_rows] =
+                        cell.isMissing() ? Double.NaN : ((DoubleValue)cell).getDoubleValue();
+                }
+                if (++chunk.m_rows == CHUNK_ROWS) {
+                    exec.checkCanceled();
+                    submit(chunk, idleSketches, epsilon, pending, maxPendingChunks);
+                    chunk = new Chunk(columns.length);
+                }
+            }
+            submit(chunk, idleSketches, epsilon, pending, 0);
+            isComplete = true;
+        } finally {
+            if (!isComplete) {
+                ParallelComputeExecutor.cancelAndAwait(pending);
+            }
+        }
+
+        QuantileSketch[] result = null;
+        for (QuantileSketch[] sketches : idleSketches) {
+            if (result == null) {
+                result = sketches;
+            } else {
+                for (int c = 0; c < result.length; c++) {
+                    result[c].merge(sketches[c]);
+                }
+            }
+        }
+        if (result == null) {
+            // empty table, no chunk
+            result = newSketches(columns.length, epsilon);
+        }
+        return result;
+    }
+
+    /**
+     * Submits a task adding the chunk to a set of sketches, then waits for the oldest pending tasks until no more than
+     * the argument number of them are left. Failures of these tasks are rethrown.
+     */
+    private static void submit(final Chunk chunk, final Queue<QuantileSketch[]> idleSketches, final double epsilon,
+        final Deque<Future<?>> pending, final int maxPending) throws CanceledExecutionException {
+        if (chunk.m_rows > 0) {
+            pending.add(ParallelComputeExecutor.submit(() -> {
+                QuantileSketch[] sketches = idleSketches.poll();
+                if (sketches == null) {
+                    sketches = newSketches(chunk.m_values.length, epsilon);
+                }
+                for (int c = 0; c < sketches.length; c++) {
+                    final QuantileSketch sketch = sketches[c];
+                    final double[] values = chunk.m_values[c];
+                    for (int r = 0; r < chunk.m_rows; r++) {
+                        sketch.add(values[r]);
+                    }
+                }
+                idleSketches.add(sketches);
+            }));
+        }
+        while (pending.size() > maxPending) {
+            try {
+                ParallelComputeExecutor.get(pending.poll(), RuntimeException.class);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new CanceledExecutionException("Interrupted while computing quantiles");
+            }
+        }
+    }
+
+    private static QuantileSketch[] newSketches(final int columnCount, final double epsilon) {
+        final QuantileSketch[] sketches = new QuantileSketch[columnCount];
+        for (int c = 0; c < columnCount; c++) {
+            sketches[c] = new QuantileSketch(epsilon);
+        }
+        return sketches;
+    }
+
+    /** Values of up to {@link #CHUNK_ROWS} rows, one array per column. */
+    private static final class Chunk {
+        private final double[][] m_values;
+
+        /** Number of valid rows. */
+        private int m_rows;
+
+        Chunk(final int columnCount) {
+            m_values = new double[columnCount][CHUNK_ROWS];
+        }
+    }
+
     private static PMMLPreprocDiscretize createDisretizeOp(final AutoBinnerLearnSettings settings,
         final Map<String, double[]> edgesMap, final String[] includeCols) {
         final Map<String, List<PMMLDiscretizeBin>> binMap = createBins(settings, edgesMap, includeCols);
@@ -333,6 +547,21 @@ private static double[] toIntegerBoundaries(final double[] boundaries) {
         return newEdges;
     }
 
+    /** Removes repeated boundaries, which would otherwise yield empty bins; at least two boundaries are kept. */
+    private static double[] toDistinctBoundaries(final double[] boundaries) {
+        final double[] distinct = new double[boundaries.length];
+        int n = 0;
+        for (double b : boundaries) {
+            if (n == 0 || b > distinct[n - 1]) {
+                distinct[n++] = b;
+            }
+        }
+        if (n == 1) {
+            distinct[n++] = distinct[0];
+        }
+        return Arrays.copyOf(distinct, n);
+    }
+
     private AutoBinnerUtility() {
         throw new UnsupportedOperationException();
     }
@@ -0,0 +1,257 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.util.binning.auto;
+
+import java.util.Arrays;
+
+/**
+ * A mergeable streaming summary of a numeric column that answers quantile queries with a guaranteed rank error of at
+ * most <code>epsilon * count</code> (in the style of Greenwald and Khanna). The summary keeps sorted sample values
+ * with lower and upper bounds of their rank. Values are buffered, sorted and merged into the summary in batches,
+ * which is then compressed back to the error bound. Two summaries of disjoint parts of a column can be merged
+ * without losing the guarantee, so a column can be summarized concurrently.
+ *
+ * <p>
+ * The memory footprint is independent of the number of values (a few times <code>1 / epsilon</code> entries). Missing
+ * values ({@link Double#NaN}) are ignored. Instances are not thread-safe.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class QuantileSketch {
+
+    private final double m_epsilon;
+
+    private final double[] m_buffer;
+
+    private int m_bufferSize;
+
+    private double[] m_values = new double[0];
+
+    private long[] m_minRanks = new long[0];
+
+    private long[] m_maxRanks = new long[0];
+
+    private int m_size;
+
+    /** Number of values in the summary (excluding the buffer). */
+    private long m_count;
+
+    private double m_min = Double.POSITIVE_INFINITY;
+
+    private double m_max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param epsilon the relative rank error, in (0, 1)
+     */
+    QuantileSketch(final double epsilon) {
+        if (!(epsilon > 0 && epsilon < 1)) {
+            throw new IllegalArgumentException("Rank error must be in (0, 1): " + epsilon);
+        }
+        m_epsilon = epsilon;
+        m_buffer = new double[(int)Math.min(1 << 16, Math.max(64, Math.ceil(1 / epsilon)))];
+    }
+
+    /**
+     * Adds a value; {@link Double#NaN} is ignored.
+     *
+     * @param value the value
+     */
+    void add(final double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (value < m_min) {
+            m_min = value;
+        }
+        if (value > m_max) {
+            m_max = value;
+        }
+        m_buffer[m_bufferSize++] = value;
+        if (m_bufferSize == m_buffer.length) {
+            flush();
+        }
+    }
+
+    /**
+     * Merges another summary into this one. The other summary must not be used afterwards.
+     *
+     * @param other the summary of another part of the column
+     */
+    void merge(final QuantileSketch other) {
+        other.flush();
+        flush();
+        m_min = Math.min(m_min, other.m_min);
+        m_max = Math.max(m_max, other.m_max);
+        mergeSorted(other.m_values, other.m_minRanks, other.m_maxRanks, other.m_size, other.m_count);
+        compress(Math.max(m_epsilon, other.m_epsilon));
+    }
+
+    /** @return number of non-missing values added */
+    long getCount() {
+        return m_count + m_bufferSize;
+    }
+
+    /** @return the smallest value added, {@link Double#NaN} if none */
+    double getMin() {
+        return getCount() == 0 ? Double.NaN : m_min;
+    }
+
+    /** @return the largest value added, {@link Double#NaN} if none */
+    double getMax() {
+        return getCount() == 0 ? Double.NaN : m_max;
+    }
+
+    /**
+     * Returns a value whose rank differs from <code>1 + q * (count - 1)</code> by at most
+     * <code>epsilon * count</code>. The quantiles 0 and 1 are answered exactly with the minimum and maximum.
+     *
+     * @param q the quantile in [0, 1]
+     * @return the approximate quantile, {@link Double#NaN} if no values were added
+     */
+    double getQuantile(final double q) {
+        flush();
+        if (m_count == 0) {
+            return Double.NaN;
+        }
+        if (q <= 0) {
+            return m_min;
+        }
+        if (q >= 1) {
+            return m_max;
+        }
+        final double rank = 1 + q * (m_count - 1);
+        final double tolerance = m_epsilon * m_count;
+        for (int i = 0; i < m_size; i++) {
+            if (m_maxRanks[i] > rank + tolerance) {
+                return m_values[Math.max(0, i - 1)];
+            }
+        }
+        return m_values[m_size - 1];
+    }
+
+    /** @return number of entries held in the summary, for testing */
+    int getSummarySize() {
+        return m_size;
+    }
+
+    private void flush() {
+        if (m_bufferSize == 0) {
+            return;
+        }
+        // the sorted buffer is an exact summary: rank bounds equal the position
+        Arrays.sort(m_buffer, 0, m_bufferSize);
+        final long[] ranks = new long[m_bufferSize];
+        for (int i = 0; i < ranks.length; i++) {
+            ranks[i] = i + 1;
+        }
+        final int n = m_bufferSize;
+        m_bufferSize = 0;
+        mergeSorted(m_buffer, ranks, ranks, n, n);
+        compress(m_epsilon);
+    }
+
+    /**
+     * Merges a sorted summary. For an entry of one summary the rank bounds in the union are its own bounds plus the
+     * lower bound of its predecessor and the upper bound (minus one) of its successor in the other summary. On equal
+     * values entries of this summary order before entries of the other one.
+     */
+    private void mergeSorted(final double[] values, final long[] minRanks, final long[] maxRanks, final int size,
+        final long count) {
+        final int total = m_size + size;
+        final double[] v = new double[total];
+        final long[] lo = new long[total];
+        final long[] hi = new long[total];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < m_size || j < size) {
+            if (j >= size || (i < m_size && m_values[i] <= values[j])) {
+                // next of this summary; predecessor in other is j - 1, successor is j
+                v[k] = m_values[i];
+                lo[k] = m_minRanks[i] + (j > 0 ? minRanks[j - 1] : 0);
+                hi[k] = m_maxRanks[i] + (j < size ? maxRanks[j] - 1 : count);
+                i++;
+            } else {
+                v[k] = values[j];
+                lo[k] = minRanks[j] + (i > 0 ? m_minRanks[i - 1] : 0);
+                hi[k] = maxRanks[j] + (i < m_size ? m_maxRanks[i] - 1 : m_count);
+                j++;
+            }
+            k++;
+        }
+        m_values = v;
+        m_minRanks = lo;
+        m_maxRanks = hi;
+        m_size = total;
+        m_count += count;
+    }
+
+    /**
+     * Removes entries whose neighbors' rank bounds are within <code>2 * epsilon * count</code>, which keeps every
+     * rank answerable within the error bound. Inner entries of a run of equal values are removed as well: all ranks
+     * between the first and the last entry of the run hold the same value. First and last entry are always retained.
+     */
+    private void compress(final double epsilon) {
+        if (m_size <= 2) {
+            return;
+        }
+        final double threshold = 2 * epsilon * m_count;
+        int kept = 1; // entry 0 is always retained
+        for (int i = 1; i < m_size - 1; i++) {
+            // drop entry i if the last retained entry and the next one are close enough in rank
+            final boolean innerOfRun = m_values[i] == m_values[kept - 1] && m_values[i] == m_values[i + 1];
+            if (!innerOfRun && m_maxRanks[i + 1] - m_minRanks[kept - 1] > threshold) {
+                m_values[kept] = m_values[i];
+                m_minRanks[kept] = m_minRanks[i];
+                m_maxRanks[kept] = m_maxRanks[i];
+                kept++;
+            }
+        }
+        m_values[kept] = m_values[m_size - 1];
+        m_minRanks[kept] = m_minRanks[m_size - 1];
+        m_maxRanks[kept] = m_maxRanks[m_size - 1];
+        m_size = kept + 1;
+    }
+}
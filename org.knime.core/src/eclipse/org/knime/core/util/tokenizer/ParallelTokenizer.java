@@ -0,0 +1,626 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.util.tokenizer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Future;
+
+import org.knime.core.util.ParallelComputeExecutor;
+
+/**
+ * A {@link Tokenizer} that splits its input into chunks of whole lines and tokenizes the chunks concurrently. The
+ * tokens (and the information about them, like line number or quotes) are returned in the same order and with the
+ * same values as by the sequential {@link Tokenizer}.
+ * <p>
+ * Chunks can only be tokenized independently if a line feed is guaranteed to end a record. This is the case if the
+ * charset encodes ASCII characters in single bytes, "\n" is a delimiter, there is no line continuation character,
+ * line feeds are not allowed in quoted strings, and all comments are single line comments. Chunks are split only
+ * after a line feed that is followed by a character without any special meaning. If the settings don't satisfy these
+ * criteria, the tokenizer falls back to sequential tokenizing.
+ * <p>
+ * The settings must be set before the first call to {@link #nextToken()}. If a chunk fails to tokenize, the exception
+ * is thrown when the token it occurred at is requested; the remaining tokens of that chunk are discarded.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 4.2
+ */
+public class ParallelTokenizer extends Tokenizer {
+
+    /** Default size of a chunk in bytes. */
+    static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+
+    private static final byte LF = '\n';
+
+    private static final byte CR = '\r';
+
+    private final InputStream m_in;
+
+    private final Charset m_charset;
+
+    private final int m_chunkSize;
+
+    /** Maximum number of chunks read ahead. */
+    private final int m_maxPendingChunks;
+
+    private final ArrayDeque<Future<TokenizedChunk>> m_pendingChunks = new ArrayDeque<>();
+
+    /** Whether the settings were examined (at the first call to nextToken). */
+    private boolean m_started;
+
+    /** Whether the chunks are tokenized concurrently. */
+    private boolean m_parallel;
+
+    /** Characters that start a pattern or are whitespaces, by their character & MAX_CHAR. */
+    private boolean[] m_special;
+
+    /** The escape characters of the quotes. */
+    private boolean[] m_escape;
+
+    /** Bytes read from the stream but not yet submitted; a new chunk starts at index 0. */
+    private byte[] m_buffer;
+
+    private int m_bufferLength;
+
+    /** Index in m_buffer up to which no split point exists. */
+    private int m_noSplitBefore;
+
+    private boolean m_endOfStream;
+
+    /** Line number at the end of the skipped lines and all submitted chunks. */
+    private int m_submittedLines;
+
+    /** The chunk tokens are returned from, null if none. */
+    private TokenizedChunk m_currentChunk;
+
+    /** Index of the last token returned from the current chunk. */
+    private int m_tokenIdx;
+
+    /** Number of characters before the current chunk (including the skipped lines). */
+    private long m_charOffset;
+
+    private boolean m_pushedBack;
+
+    private String m_lastToken;
+
+    private boolean m_lastTokenWasDelimiter;
+
+    private boolean m_lastTokenWasDelimited;
+
+    private String m_lastQuoteBegin;
+
+    private String m_lastQuoteEnd;
+
+    private int m_lineNo;
+
+    private long m_readBytes;
+
+    /**
+     * Creates a new tokenizer reading from the given stream. The chunks are tokenized by all available processors.
+     *
+     * @param in the stream to read from, closed when the end is reached
+     * @param charset the charset of the stream
+     */
+    public ParallelTokenizer(final InputStream in, final Charset charset) {
+        this(in, charset, DEFAULT_CHUNK_SIZE, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new tokenizer reading from the given stream.
+     *
+     * @param in the stream to read from, closed when the end is reached
+     * @param charset the charset of the stream
+     * @param chunkSize the (approximate) size of a chunk in bytes
+     * @param maxPendingChunks the maximum number of chunks read ahead
+     */
+    ParallelTokenizer(final InputStream in, final Charset charset, final int chunkSize,
+        final int maxPendingChunks) {
+        super(new InputStreamReader(in, charset));
+        if (chunkSize < 1 || maxPendingChunks < 1) {
+            throw new IllegalArgumentException("Chunk size and number of chunks must be positive");
+        }
+        m_in = in;
+        m_charset = charset;
+        m_chunkSize = chunkSize;
+        m_maxPendingChunks = maxPendingChunks;
+    }
+
+    /**
+     * @return whether the input is tokenized concurrently, only meaningful after the first call to
+     *         {@link #nextToken()}
+     */
+    public boolean isParallel() {
+        return m_parallel;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setSettings(final TokenizerSettings ftSettings) {
+        if (m_started) {
+            throw new IllegalStateException("Don't change tokenizer settings after reading from it.");
+        }
+        super.setSettings(ftSettings);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String nextToken() throws TokenizerException {
+        if (!m_started) {
+            m_started = true;
+            m_parallel = canSplitIntoChunks(getSettings());
+        }
+        if (!m_parallel) {
+            return super.nextToken();
+        }
+        if (m_pushedBack) {
+            m_pushedBack = false;
+            return m_lastToken;
+        }
+        while (true) {
+            final TokenizedChunk chunk = m_currentChunk;
+            if (chunk != null) {
+                final int idx = m_tokenIdx + 1;
+                if (chunk.m_failure != null && idx == chunk.m_failureIdx) {
+                    final TokenizerException failure = chunk.m_failure;
+                    // skip the rest of the chunk
+                    m_tokenIdx = chunk.m_size;
+                    m_lastQuoteBegin = null;
+                    m_lastQuoteEnd = null;
+                    m_lineNo = chunk.m_failureLineNo;
+                    throw failure;
+                }
+                if (idx < chunk.m_size) {
+                    m_tokenIdx = idx;
+                    m_lastToken = chunk.m_tokens[idx];
+                    m_lastTokenWasDelimiter = (chunk.m_flags[idx] & TokenizedChunk.DELIMITER) != 0;
+                    m_lastTokenWasDelimited = (chunk.m_flags[idx] & TokenizedChunk.DELIMITED) != 0;
+                    m_lastQuoteBegin = chunk.m_quoteBegins == null ? null : chunk.m_quoteBegins[idx];
+                    m_lastQuoteEnd = chunk.m_quoteEnds == null ? null : chunk.m_quoteEnds[idx];
+                    m_lineNo = chunk.m_lineNos[idx];
+                    m_readBytes = m_charOffset + chunk.m_readBytes[idx];
+                    return m_lastToken;
+                }
+                m_charOffset += chunk.m_chars;
+                m_lineNo = chunk.m_endLineNo;
+                m_currentChunk = null;
+            }
+            fillPipeline();
+            final Future<TokenizedChunk> next = m_pendingChunks.poll();
+            if (next == null) {
+                // end of stream - like the sequential tokenizer we count the EOF
+                m_readBytes = m_charOffset + 1;
+                m_lastToken = null;
+                m_lastTokenWasDelimiter = false;
+                m_lastTokenWasDelimited = false;
+                m_lastQuoteBegin = null;
+                m_lastQuoteEnd = null;
+                return null;
+            }
+            m_currentChunk = waitFor(next);
+            m_tokenIdx = -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void pushBack() {
+        if (m_parallel) {
+            m_pushedBack = true;
+        } else {
+            super.pushBack();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean lastTokenWasDelimiter() {
+        return m_parallel ? m_lastTokenWasDelimiter : super.lastTokenWasDelimiter();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean lastTokenWasDelimited() {
+        return m_parallel ? m_lastTokenWasDelimited : super.lastTokenWasDelimited();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean lastTokenWasQuoted() {
+        return m_parallel ? m_lastQuoteBegin != null : super.lastTokenWasQuoted();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getLastQuoteBeginPattern() {
+        return m_parallel ? m_lastQuoteBegin : super.getLastQuoteBeginPattern();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getLastQuoteEndPattern() {
+        return m_parallel ? m_lastQuoteEnd : super.getLastQuoteEndPattern();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getLineNumber() {
+        return m_parallel ? m_lineNo : super.getLineNumber();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getReadBytes() {
+        return m_parallel ? m_readBytes : super.getReadBytes();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void closeSourceStream() {
+        for (Future<TokenizedChunk> f : m_pendingChunks) {
+            f.cancel(true);
+        }
+        m_pendingChunks.clear();
+        m_currentChunk = null;
+        m_endOfStream = true;
+        m_bufferLength = 0;
+        super.closeSourceStream();
+    }
+
+    /*
+     * Checks whether line feeds always end a record with the given settings
+     * and initializes the lookup tables used to find split points.
+     */
+    private boolean canSplitIntoChunks(final TokenizerSettings settings) {
+        if (!isAsciiCompatible(m_charset) || settings.getLineContinuationCharacter() != null
+            || settings.allowLFinQuotes()) {
+            return false;
+        }
+        final boolean[] special = new boolean[MAX_CHAR + 1];
+        final boolean[] escape = new boolean[MAX_CHAR + 1];
+        boolean lfIsDelimiter = false;
+        for (Delimiter d : settings.getAllDelimiters()) {
+            if ("\n".equals(d.getDelimiter())) {
+                lfIsDelimiter = true;
+            } else if (d.getDelimiter().indexOf('\n') >= 0) {
+                return false;
+            }
+            special[d.getFirstChar() & MAX_CHAR] = true;
+        }
+        for (Quote q : settings.getAllQuotes()) {
+            if (q.getLeft().indexOf('\n') >= 0 || q.getRight().indexOf('\n') >= 0) {
+                return false;
+            }
+            special[q.getFirstCharOfLeft() & MAX_CHAR] = true;
+            if (q.hasEscapeChar()) {
+                escape[q.getEscape() & MAX_CHAR] = true;
+            }
+        }
+        for (Comment c : settings.getAllComments()) {
+            if (!"\n".equals(c.getEnd()) || c.getBegin().indexOf('\n') >= 0) {
+                return false;
+            }
+            special[c.getFirstCharOfBegin() & MAX_CHAR] = true;
+        }
+        for (String ws : settings.getAllWhiteSpaces()) {
+            special[ws.charAt(0) & MAX_CHAR] = true;
+        }
+        if (!lfIsDelimiter || special[CR] || escape[LF]) {
+            return false;
+        }
+        m_special = special;
+        m_escape = escape;
+        m_buffer = new byte[m_chunkSize];
+        try {
+            skipLines(settings.getSkipFirstLines());
+        } catch (IOException ioe) {
+            // the sequential tokenizer treats read errors as end of stream
+            m_endOfStream = true;
+        }
+        return true;
+    }
+
+    /*
+     * Charsets in which every byte < 0x80 is the ASCII character and never
+     * part of a multi-byte character.
+     */
+    private static boolean isAsciiCompatible(final Charset charset) {
+        final String name = charset.name();
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+            || name.startsWith("ISO-8859-") || name.startsWith("windows-125");
+    }
+
+    /* Reads and discards the first lines of the stream. */
+    private void skipLines(final long linesToSkip) throws IOException {
+        long skipped = 0;
+        while (skipped < linesToSkip && fillBuffer(m_bufferLength + 1)) {
+            int i = 0;
+            while (i < m_bufferLength && skipped < linesToSkip) {
+                if (m_buffer[i++] == LF) {
+                    skipped++;
+                }
+            }
+            m_charOffset += new String(m_buffer, 0, i, m_charset).length();
+            System.arraycopy(m_buffer, i, m_buffer, 0, m_bufferLength - i);
+            m_bufferLength -= i;
+        }
+        // line numbers start with 1
+        m_submittedLines = 1 + (int)skipped;
+        m_lineNo = m_submittedLines;
+    }
+
+    /*
+     * Reads from the stream until the buffer contains at least minLength
+     * bytes (or the end is reached). Returns false if the buffer is empty.
+     */
+    private boolean fillBuffer(final int minLength) throws IOException {
+        final int target = Math.min(minLength, m_buffer.length);
+        while (!m_endOfStream && m_bufferLength < target) {
+            final int count = m_in.read(m_buffer, m_bufferLength, m_buffer.length - m_bufferLength);
+            if (count < 0) {
+                m_endOfStream = true;
+                m_in.close();
+            } else {
+                m_bufferLength += count;
+            }
+        }
+        return m_bufferLength > 0;
+    }
+
+    /* Submits chunks until the maximum number of chunks is pending. */
+    private void fillPipeline() {
+        try {
+            while (m_pendingChunks.size() < m_maxPendingChunks && submitNextChunk()) {
+                // submitted one more chunk
+            }
+        } catch (IOException ioe) {
+            // the sequential tokenizer treats read errors as end of stream
+            m_endOfStream = true;
+            m_bufferLength = 0;
+        }
+    }
+
+    /*
+     * Splits the next chunk off the buffer and submits it. Returns false if
+     * the end of the stream is reached.
+     */
+    private boolean submitNextChunk() throws IOException {
+        int split = -1;
+        while (fillBuffer(m_buffer.length)) {
+            if (m_endOfStream) {
+                split = m_bufferLength;
+                break;
+            }
+            split = findSplit();
+            if (split > 0) {
+                break;
+            }
+            // no split point in the entire buffer (very long line) - read more.
+            m_noSplitBefore = Math.max(0, m_bufferLength - 1);
+            m_buffer = Arrays.copyOf(m_buffer, 2 * m_buffer.length);
+        }
+        if (split <= 0) {
+            return false;
+        }
+        final byte[] chunkBytes = m_buffer;
+        final int length = split;
+        int lines = 0;
+        for (int i = 0; i < length; i++) {
+            if (chunkBytes[i] == LF) {
+                lines++;
+            }
+        }
+        // the remainder goes into a new buffer, the old one is owned by the chunk now
+        m_buffer = new byte[Math.max(m_chunkSize, m_bufferLength - split)];
+        System.arraycopy(chunkBytes, split, m_buffer, 0, m_bufferLength - split);
+        m_bufferLength -= split;
+        m_noSplitBefore = 0;
+
+        final int firstLine = m_submittedLines;
+        m_submittedLines += lines;
+        final int endLine = m_submittedLines;
+        final TokenizerSettings settings = getSettings();
+        settings.setSkipFirstLines(0);
+        m_pendingChunks.add(ParallelComputeExecutor
+            .submit(() -> TokenizedChunk.tokenize(chunkBytes, length, m_charset, settings, firstLine, endLine)));
+        return true;
+    }
+
+    /*
+     * Returns the index after the last line feed in the buffer the buffer can
+     * be split at, or -1.
+     */
+    private int findSplit() {
+        for (int i = m_bufferLength - 2; i >= m_noSplitBefore; i--) {
+            if (m_buffer[i] == LF && isSplitPoint(i)) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * A line feed is a split point if the next character starts a new token
+     * with an ordinary character and the line feed isn't escaped.
+     */
+    private boolean isSplitPoint(final int lfIdx) {
+        final int next = m_buffer[lfIdx + 1];
+        if (next < 0 || next == LF || next == CR || m_special[next]) {
+            // negative: not an ASCII character
+            return false;
+        }
+        int prev = lfIdx - 1;
+        if (prev >= 0 && m_buffer[prev] == CR) {
+            prev--;
+        }
+        return prev < 0 || !m_escape[m_buffer[prev] & MAX_CHAR];
+    }
+
+    private static TokenizedChunk waitFor(final Future<TokenizedChunk> future) {
+        try {
+            return ParallelComputeExecutor.get(future, RuntimeException.class);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new TokenizerException("Interrupted while tokenizing.");
+        }
+    }
+
+    /** The tokens of a chunk and the information about them. */
+    private static final class TokenizedChunk {
+
+        static final byte DELIMITER = 1;
+
+        static final byte DELIMITED = 2;
+
+        private String[] m_tokens = new String[1024];
+
+        private byte[] m_flags = new byte[1024];
+
+        /* created when the first quoted token is seen */
+        private String[] m_quoteBegins;
+
+        private String[] m_quoteEnds;
+
+        private int[] m_lineNos = new int[1024];
+
+        /* relative to the beginning of the chunk */
+        private int[] m_readBytes = new int[1024];
+
+        private int m_size;
+
+        /* number of characters in the chunk */
+        private int m_chars;
+
+        private int m_endLineNo;
+
+        private TokenizerException m_failure;
+
+        private int m_failureIdx;
+
+        private int m_failureLineNo;
+
+        static TokenizedChunk tokenize(final byte[] bytes, final int length, final Charset charset,
+            final TokenizerSettings settings, final int firstLineNo, final int endLineNo) {
+            final String text = new String(bytes, 0, length, charset);
+            final TokenizedChunk chunk = new TokenizedChunk();
+            chunk.m_chars = text.length();
+            chunk.m_endLineNo = endLineNo;
+            final Tokenizer tokenizer = new Tokenizer(new StringReader(text));
+            tokenizer.setSettings(settings);
+            tokenizer.setLineNumber(firstLineNo);
+            while (true) {
+                final String token;
+                try {
+                    token = tokenizer.nextToken();
+                } catch (TokenizerException te) {
+                    chunk.m_failure = te;
+                    chunk.m_failureIdx = chunk.m_size;
+                    chunk.m_failureLineNo = tokenizer.getLineNumber();
+                    break;
+                }
+                if (token == null) {
+                    break;
+                }
+                chunk.add(token, tokenizer);
+            }
+            return chunk;
+        }
+
+        private void add(final String token, final Tokenizer tokenizer) {
+            if (m_size == m_tokens.length) {
+                final int newLength = 2 * m_size;
+                m_tokens = Arrays.copyOf(m_tokens, newLength);
+                m_flags = Arrays.copyOf(m_flags, newLength);
+                m_lineNos = Arrays.copyOf(m_lineNos, newLength);
+                m_readBytes = Arrays.copyOf(m_readBytes, newLength);
+                if (m_quoteBegins != null) {
+                    m_quoteBegins = Arrays.copyOf(m_quoteBegins, newLength);
+                    m_quoteEnds = Arrays.copyOf(m_quoteEnds, newLength);
+                }
+            }
+            m_tokens[m_size] = token;
+            m_flags[m_size] = (byte)((tokenizer.lastTokenWasDelimiter() ? DELIMITER : 0)
+                | (tokenizer.lastTokenWasDelimited() ? DELIMITED : 0));
+            if (tokenizer.lastTokenWasQuoted()) {
+                if (m_quoteBegins == null) {
+                    m_quoteBegins = new String[m_tokens.length];
+                    m_quoteEnds = new String[m_tokens.length];
+                }
+                m_quoteBegins[m_size] = tokenizer.getLastQuoteBeginPattern();
+                m_quoteEnds[m_size] = tokenizer.getLastQuoteEndPattern();
+            }
+            m_lineNos[m_size] = tokenizer.getLineNumber();
+            m_readBytes[m_size] = (int)tokenizer.getReadBytes();
+            m_size++;
+        }
+    }
+}
@@ -46,6 +46,7 @@
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.Arrays;
 import java.util.Vector;
 
 /**
@@ -76,6 +77,12 @@
  * inside a token or quoted string.
  * <p>
  * You can push back one (the last) token.
+ * <p>
+ * The source is read in blocks (there is no need to wrap it into a
+ * {@link java.io.BufferedReader}); runs of ordinary characters are copied
+ * into the token in bulk. Delimiters, quotes and comments consisting of a
+ * single character are recognized without look-ahead. To tokenize a large
+ * file using multiple threads see {@link ParallelTokenizer}.
  *
  * @author Peter Ohl, University of Konstanz
  */
@@ -158,6 +165,42 @@ public class Tokenizer {
     /* our read buffer, realized as ring buffer with the following pointers */
     private int[] m_readBuffer;
 
+    /* size of the blocks read from the source */
+    private static final int BLOCK_LENGTH = 1 << 15;
+
+    /* block of characters read from the source, not yet returned by getNextChar */
+    private final char[] m_sourceBlock;
+
+    /* position of the next character in the block */
+    private int m_sourceBlockPos;
+
+    /* number of valid characters in the block */
+    private int m_sourceBlockLength;
+
+    /* the patterns of m_delimPatterns, m_quotePatterns and m_commentPatterns */
+    private String[] m_delimBegins;
+
+    private String[] m_quoteBegins;
+
+    private String[] m_commentBegins;
+
+    /*
+     * Single-character delimiters, quotes and comments by their character
+     * (if a pattern consists of a single character it always matches first,
+     * see matchPattern(String[])). Index is the character & MAX_CHAR, the
+     * character needs to be checked!
+     */
+    private Delimiter[] m_singleCharDelims;
+
+    private Quote[] m_singleCharQuotes;
+
+    private Comment[] m_singleCharComments;
+
+    /* reused in matchPattern */
+    private boolean[] m_patternMismatch = new boolean[0];
+
+    private final char[] m_matchBuffer = new char[BUFFER_LENGTH];
+
     /* the current index in the read buffer */
     private int m_currIdx;
 
@@ -165,7 +208,7 @@ public class Tokenizer {
     private int m_eobIdx;
 
     /* we build the token in here */
-    private StringBuffer m_newToken;
+    private StringBuilder m_newToken;
 
     /* the token returned by the last call to next() */
     private String m_lastToken;
@@ -219,6 +262,9 @@ public Tokenizer(final Reader source) {
         m_readBuffer = new int[BUFFER_LENGTH];
         m_currIdx = 0;
         m_eobIdx = 0;
+        m_sourceBlock = new char[BLOCK_LENGTH];
+        m_sourceBlockPos = 0;
+        m_sourceBlockLength = 0;
 
         m_lineNo = 1;
         m_readBytes = 0;
@@ -235,7 +281,7 @@ public Tokenizer(final Reader source) {
         m_linesSkipped = 0;
         m_allowLFinQuotes = false;
 
-        m_newToken = new StringBuffer();
+        m_newToken = new StringBuilder();
         m_lastToken = null;
         m_pushedBack = false;
         m_lastQuotes = null;
@@ -275,6 +321,52 @@ public void resetToDefault() {
         m_combineMultipleDelimiters = false;
         m_linesToSkip = 0;
         m_allowLFinQuotes = false;
+        compilePatterns();
+    }
+
+    /*
+     * Creates the pattern arrays and single-character lookup tables from the
+     * current delimiter, quote, and comment patterns.
+     */
+    private void compilePatterns() {
+        m_delimBegins = new String[m_delimPatterns.size()];
+        m_singleCharDelims = new Delimiter[MAX_CHAR + 1];
+        for (int i = 0; i < m_delimBegins.length; i++) {
+            Delimiter d = m_delimPatterns.get(i);
+            m_delimBegins[i] = d.getDelimiter();
+            if (m_delimBegins[i].length() == 1) {
+                int c = m_delimBegins[i].charAt(0) & MAX_CHAR;
+                if (m_singleCharDelims[c] == null) {
+                    m_singleCharDelims[c] = d;
+                }
+            }
+        }
+        m_quoteBegins = new String[m_quotePatterns.size()];
+        m_singleCharQuotes = new Quote[MAX_CHAR + 1];
+        for (int i = 0; i < m_quoteBegins.length; i++) {
+            Quote q = m_quotePatterns.get(i);
+            m_quoteBegins[i] = q.getLeft();
+            if (m_quoteBegins[i].length() == 1) {
+                int c = m_quoteBegins[i].charAt(0) & MAX_CHAR;
+                if (m_singleCharQuotes[c] == null) {
+                    m_singleCharQuotes[c] = q;
+                }
+            }
+        }
+        m_commentBegins = new String[m_commentPatterns.size()];
+        m_singleCharComments = new Comment[MAX_CHAR + 1];
+        for (int i = 0; i < m_commentBegins.length; i++) {
+            Comment cm = m_commentPatterns.get(i);
+            m_commentBegins[i] = cm.getBegin();
+            if (m_commentBegins[i].length() == 1) {
+                int c = m_commentBegins[i].charAt(0) & MAX_CHAR;
+                if (m_singleCharComments[c] == null) {
+                    m_singleCharComments[c] = cm;
+                }
+            }
+        }
+        int maxPatterns = Math.max(m_delimBegins.length, Math.max(m_quoteBegins.length, m_commentBegins.length));
+        m_patternMismatch = new boolean[maxPatterns];
     }
 
     /**
@@ -346,6 +438,8 @@ public String nextToken() throws TokenizerException {
             if (ctype == 0) {
                 // it's an ordinary character - just add it to the result
                 m_newToken.append((char)c);
+                // ... and all ordinary characters following it
+                appendOrdinaryChars();
                 c = getNextChar();
                 continue;
             }
@@ -367,7 +461,7 @@ public String nextToken() throws TokenizerException {
                 // this character COULD start a comment. There is at least one
                 // CommentBegin pattern that starts with this character.
                 putBackChar(c);
-                if ((commentPattern = isCommentPattern()) != null) {
+                if ((commentPattern = isCommentPattern(c)) != null) {
                     // a comment started here.
                     if (commentPattern.returnAsSeparateToken()) {
                         if (m_newToken.length() == 0) {
@@ -396,7 +490,7 @@ public String nextToken() throws TokenizerException {
                 Delimiter delimPattern;
                 // it could start a token delimiter.
                 putBackChar(c);
-                if ((delimPattern = isDelimiterPattern()) != null) {
+                if ((delimPattern = isDelimiterPattern(c)) != null) {
                     // readDelimiter will read as many delimiters as necessary
                     // will save them and/or return them to include into the
                     // current token.
@@ -419,7 +513,7 @@ public String nextToken() throws TokenizerException {
                 // one QuoteBegin pattern that starts with this character.
                 Quote quotePattern; // the begin/end pattern and esc char
                 putBackChar(c);
-                if ((quotePattern = isQuotePattern()) != null) {
+                if ((quotePattern = isQuotePattern(c)) != null) {
                     // a quoted string actually started here.
                     try {
                         m_newToken.append(readQuotedString(quotePattern));
@@ -484,7 +578,7 @@ private int getNextChar() {
             // m_currIdx points to the last char read from the buffer
             if (m_eobIdx == m_currIdx) {
                 // we need to read a new character from the stream
-                if ((m_readBuffer[m_currIdx] = m_source.read()) == -1) {
+                if ((m_readBuffer[m_currIdx] = readFromSource()) == -1) {
                     // seen the EOF. Any further read will cause IOException.
                     m_source.close();
                 }
@@ -492,7 +586,7 @@ private int getNextChar() {
                 if (m_readBuffer[m_currIdx] == CR) {
                     // read the next char to see if we need to swallow the CR
                     m_eobIdx = (m_eobIdx + 1) % BUFFER_LENGTH;
-                    if ((m_readBuffer[m_eobIdx] = m_source.read()) == LF) {
+                    if ((m_readBuffer[m_eobIdx] = readFromSource()) == LF) {
                         m_currIdx = m_eobIdx;
                         // incr currIdx as well, which makes them equal again...
                     }
@@ -511,6 +605,52 @@ private int getNextChar() {
         }
     }
 
+    /*
+     * Returns the next character from the source, reading a new block if
+     * necessary. Returns -1 at the end of the stream.
+     */
+    private int readFromSource() throws IOException {
+        if (m_sourceBlockPos >= m_sourceBlockLength) {
+            int count = m_source.read(m_sourceBlock, 0, BLOCK_LENGTH);
+            if (count <= 0) {
+                return -1;
+            }
+            m_sourceBlockPos = 0;
+            m_sourceBlockLength = count;
+        }
+        return m_sourceBlock[m_sourceBlockPos++];
+    }
+
+    /*
+     * Bulk version of getNextChar() for the most common case: appends all
+     * characters following in the current source block to the token that
+     * have no special meaning (type 0, no CR or LF). Does nothing if there
+     * are characters pushed back into the read buffer.
+     */
+    private void appendOrdinaryChars() {
+        if (m_currIdx != m_eobIdx) {
+            return;
+        }
+        final char[] block = m_sourceBlock;
+        final int start = m_sourceBlockPos;
+        final int end = m_sourceBlockLength;
+        int i = start;
+        while (i < end) {
+            final char ch = block[i];
+            if (ch == CR || ch == LF || m_charType[ch & MAX_CHAR] != 0) {
+                break;
+            }
+            i++;
+        }
+        if (i > start) {
+            m_newToken.append(block, start, i - start);
+            m_readBytes += i - start;
+            m_sourceBlockPos = i;
+            // the ring buffer must contain the last character read
+            m_readBuffer[m_currIdx] = block[i - 1];
+        }
+    }
+
     /*
      * Stores the character in c in the read buffer. The next call to <code>
      * getNextChar() </code> will return it then. Can be called several times -
@@ -545,6 +685,7 @@ private void putBackChar(final int c) {
      */
     private void clearReadBuffer() {
         m_currIdx = m_eobIdx;
+        m_sourceBlockPos = m_sourceBlockLength;
     }
 
     /*
@@ -569,12 +710,8 @@ private int readWhiteSpaces() {
      *         of whitespaces.
      */
     public boolean isWhiteSpace(final char c) {
-        for (int w = 0; w < m_whiteSpaces.size(); w++) {
-            if (m_whiteSpaces.get(w).charAt(0) == c) {
-                return true;
-            }
-        }
-        return false;
+        // all whitespaces are registered in the type array
+        return c <= MAX_CHAR && (m_charType[c] & WSCHAR) != 0;
     }
 
     /**
@@ -585,7 +722,7 @@ public boolean isWhiteSpace(final char c) {
      * @param str the stringbuffer to modify
      * @param index the lowest index we may modify
      */
-    private void cutOffWhiteSpaces(final StringBuffer str, final int index) {
+    private void cutOffWhiteSpaces(final StringBuilder str, final int index) {
 
         if (str.length() == 0) {
             return;
@@ -614,17 +751,17 @@ private void cutOffWhiteSpaces(final StringBuffer str, final int index) {
      * and compares each Comment in the m_commentPatterns vector with the
      * pattern read so far. If it finds a matching pattern it returns the
      * corresponding Comment object. (That is the reason why no begin pattern
-     * can be a prefix of any other begin pattern.) @return After its work is
-     * done it pushes back all characters read so far. It returns <code> null
-     * </code> if no matching pattern exists.
+     * can be a prefix of any other begin pattern.) @param c The next
+     * character in the stream (pushed back already). @return After its work
+     * is done it pushes back all characters read so far. It returns <code>
+     * null </code> if no matching pattern exists.
      */
-    private Comment isCommentPattern() {
-        String[] patterns = new String[m_commentPatterns.size()];
-        for (int i = 0; i < patterns.length; i++) {
-            patterns[i] = m_commentPatterns.get(i).getBegin();
+    private Comment isCommentPattern(final int c) {
+        Comment single = m_singleCharComments[c & MAX_CHAR];
+        if (single != null && single.getBegin().charAt(0) == c) {
+            return single;
         }
-
-        int index = matchPattern(patterns);
+        int index = matchPattern(m_commentBegins);
         if (index >= 0) {
             return m_commentPatterns.get(index);
         } else {
@@ -635,13 +772,19 @@ private Comment isCommentPattern() {
     /*
      * @see #isCommentPattern
      */
-    private Delimiter isDelimiterPattern() {
-        String[] patterns = new String[m_delimPatterns.size()];
-        for (int i = 0; i < patterns.length; i++) {
-            patterns[i] = m_delimPatterns.get(i).getDelimiter();
+    private Delimiter isDelimiterPattern(final int c) {
+        Delimiter single = m_singleCharDelims[c & MAX_CHAR];
+        if (single != null && single.getDelimiter().charAt(0) == c) {
+            return single;
         }
+        return isDelimiterPattern();
+    }
 
-        int index = matchPattern(patterns);
+    /*
+     * @see #isCommentPattern
+     */
+    private Delimiter isDelimiterPattern() {
+        int index = matchPattern(m_delimBegins);
         if (index >= 0) {
             return m_delimPatterns.get(index);
         } else {
@@ -653,13 +796,12 @@ private Delimiter isDelimiterPattern() {
     /*
      * @see #isCommentPattern
      */
-    private Quote isQuotePattern() {
-        String[] patterns = new String[m_quotePatterns.size()];
-        for (int i = 0; i < patterns.length; i++) {
-            patterns[i] = m_quotePatterns.get(i).getLeft();
+    private Quote isQuotePattern(final int c) {
+        Quote single = m_singleCharQuotes[c & MAX_CHAR];
+        if (single != null && single.getLeft().charAt(0) == c) {
+            return single;
         }
-
-        int index = matchPattern(patterns);
+        int index = matchPattern(m_quoteBegins);
         if (index >= 0) {
             return m_quotePatterns.get(index);
         } else {
@@ -672,23 +814,23 @@ private Quote isQuotePattern() {
      * match one of the patterns in the array. It returns the index of the match
      * in the array, or -1 if it didn't find a match. It pushes back all
      * characters it reads from the stream. @param patterns An array with
-     * strings to match against. @return The index of the match, or -1 if the
-     * next characters in the stream do not match any of the patterns in the
-     * array. NOTE: for the sake of performance the function modifies the
-     * contents of the array.
+     * strings to match against (not modified). @return The index of the
+     * match, or -1 if the next characters in the stream do not match any of
+     * the patterns in the array.
      */
     private int matchPattern(final String[] patterns) {
         int possibleMatches = patterns.length;
         int charPos;
         int nextChar;
-        StringBuffer buffer = new StringBuffer();
+        final boolean[] mismatch = m_patternMismatch;
+        Arrays.fill(mismatch, 0, patterns.length, false);
         int result;
         /*
          * Here is what we do: We read one char after each other. With each new
          * character we loop through all patterns and compare it with the
          * character at that position in the pattern. If the chars dont match
          * there is no need to compare that string with any new characters - we
-         * set the reference in the array to null. If all references are null
+         * flag the pattern as mismatch. If all patterns are flagged
          * (which we count in 'possibleMatches'), we can stop. Also, if we
          * successfully compared the last character in a pattern we can safely
          * assume that we found a match and return the index of that pattern.
@@ -703,10 +845,10 @@ private int matchPattern(final String[] patterns) {
             }
 
             // store it, to write it back at the end.
-            buffer.append((char)nextChar);
+            m_matchBuffer[charPos] = (char)nextChar;
 
             for (int index = 0; index < patterns.length; index++) {
-                if (patterns[index] != null) {
+                if (!mismatch[index]) {
                     if (patterns[index].charAt(charPos) == nextChar) {
                         if (patterns[index].length() == (charPos + 1)) {
                             result = index;
@@ -715,7 +857,7 @@ private int matchPattern(final String[] patterns) {
                     } else {
                         // this char in the pattern doesn't match. Remove it
                         // from the list of possible matches
-                        patterns[index] = null;
+                        mismatch[index] = true;
                         possibleMatches--;
                     }
                 }
@@ -726,8 +868,8 @@ private int matchPattern(final String[] patterns) {
         } // end of while
 
         // we are supposed to not read any characters from stream: push'em back.
-        for (int i = buffer.length(); i > 0;) {
-            putBackChar(buffer.charAt(--i));
+        for (int i = charPos; i > 0;) {
+            putBackChar(m_matchBuffer[--i]);
         }
 
         return result;
@@ -744,7 +886,7 @@ private int matchPattern(final String[] patterns) {
      * comment begin pattern. Otherwise an assertion will go off. <br>
      */
     private String readComment(final Comment comment) {
-        StringBuffer result = new StringBuffer();
+        StringBuilder result = new StringBuilder();
         String endPattern = comment.getEnd();
         int nextChar;
         int patternLength;
@@ -837,7 +979,7 @@ private String readDelimiter(final Delimiter delim) {
             // if we are not supposed to combine different delims - we still
             // need to check if we should combine delims of this kind
             if (delim.combineConsecutiveDelims()) {
-                StringBuffer buffer = new StringBuffer();
+                StringBuilder buffer = new StringBuilder();
                 int index = 0;
                 while ((nextChar = getNextChar()) != EOF) {
 
@@ -1113,6 +1255,14 @@ public int getLineNumber() {
         return m_lineNo;
     }
 
+    /*
+     * Sets the line number the tokenizer continues counting with. Used by the
+     * ParallelTokenizer for the chunks of a file.
+     */
+    void setLineNumber(final int lineNo) {
+        m_lineNo = lineNo;
+    }
+
     /**
      * Returns the number of bytes returned so far. Due to the buffering the
      * number of bytes read from the disk and the number of bytes returned by
@@ -1208,6 +1358,7 @@ public void setSettings(final TokenizerSettings ftSettings) {
         m_linesToSkip = ftSettings.getSkipFirstLines();
         // the flag to allow new lines in quoted strings
         m_allowLFinQuotes = ftSettings.allowLFinQuotes();
+        compilePatterns();
     }
 
     /**